@@ -0,0 +1,469 @@
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Benchmark operasi Perpustakaan (pinjamBuku, kembalikanBuku, cariBukuByJudul, getSemuaBuku,
+// getMemberData, tambahBuku) terhadap DB yang diberikan lewat --url (atau --engine memori, lihat
+// PenyimpananMemori, tanpa journal), diisi ulang per ukuran katalog.
+// Tanpa dependensi: throughput, persentil latensi (HistogramLatensi), alokasi per operasi
+// (ThreadMXBean per thread pekerja) dan aktivitas GC selama fase ukur.
+//
+// Contoh (H2 embedded, driver h2.jar di classpath):
+//   java -cp .:h2.jar BenchPerpustakaan --url "jdbc:h2:./data/bench;MODE=MySQL;DATABASE_TO_LOWER=TRUE" \
+//        --ukuran 10000,100000,1000000 --thread 1,8 --pemanasan 3 --durasi 10 --csv hasil-bench.csv
+//
+//   java BenchPerpustakaan --engine memori --ukuran 1000000 --thread 1,8
+//
+// PERHATIAN: tabel buku, member dan perpustakaan di DB tujuan DIKOSONGKAN. Jangan arahkan ke DB produksi.
+public class BenchPerpustakaan {
+
+    private static final String[] KATA = {
+            "algoritma", "sejarah", "laut", "kopi", "hujan", "kota", "gunung", "bintang", "rahasia", "jalan",
+            "negeri", "cahaya", "waktu", "sungai", "angin", "pulau", "malam", "pasar", "cerita", "mesin"
+    };
+    private static final int JUMLAH_MEMBER = 256;
+    private static final int BATCH_ISI = 5000;
+
+    private static final com.sun.management.ThreadMXBean MX_THREAD =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private enum Operasi { CARI_JUDUL, SEMUA_BUKU, DATA_MEMBER, PINJAM_KEMBALI, TAMBAH_BUKU }
+
+    // Satu iterasi operasi; mencatat sendiri latensinya ke histogram pekerja
+    private interface Langkah {
+        void jalankan(Pekerja p);
+    }
+
+    /* ==========================================================
+       BAGIAN 1: PARAMETER & MAIN
+       ========================================================== */
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> arg = bacaArgumen(args);
+        String url = arg.get("url");
+        boolean memori = "memori".equalsIgnoreCase(arg.get("engine"));
+        if (url == null && !memori) {
+            System.out.println("Pemakaian: java BenchPerpustakaan (--url <jdbc-url> [--user u] [--password p] | --engine memori)\n" +
+                    "  [--ukuran 10000,100000,1000000] [--thread 1,8] [--pemanasan 3] [--durasi 10]\n" +
+                    "  [--operasi CARI_JUDUL,SEMUA_BUKU,DATA_MEMBER,PINJAM_KEMBALI,TAMBAH_BUKU] [--csv file]\n" +
+                    "Tabel di DB tujuan akan DIKOSONGKAN.");
+            return;
+        }
+
+        int[] ukuran = angka(arg.getOrDefault("ukuran", "10000,100000,1000000"));
+        int[] thread = angka(arg.getOrDefault("thread", "1," + Runtime.getRuntime().availableProcessors()));
+        int pemanasan = Integer.parseInt(arg.getOrDefault("pemanasan", "3"));
+        int durasi = Integer.parseInt(arg.getOrDefault("durasi", "10"));
+        List<Operasi> operasi = new ArrayList<>();
+        for (String s : arg.getOrDefault("operasi", "CARI_JUDUL,SEMUA_BUKU,DATA_MEMBER,PINJAM_KEMBALI,TAMBAH_BUKU").split(",")) {
+            operasi.add(Operasi.valueOf(s.trim().toUpperCase(Locale.ROOT)));
+        }
+
+        // Harus di-set sebelum kelas Database dimuat (pool dibuat di static initializer)
+        int maksThread = 1;
+        for (int t : thread) maksThread = Math.max(maksThread, t);
+        if (url != null) System.setProperty("perpus.db.url", url);
+        if (arg.containsKey("user")) System.setProperty("perpus.db.user", arg.get("user"));
+        if (arg.containsKey("password")) System.setProperty("perpus.db.password", arg.get("password"));
+        System.setProperty("perpus.pool.max", String.valueOf(maksThread + 4));
+        System.setProperty("perpus.pool.leakThresholdMs", "0");
+        System.setProperty("perpus.schema.explainCheck", "false");
+
+        if (!memori) MigrasiSkema.jalankan();
+        List<String> hasilCsv = new ArrayList<>();
+        hasilCsv.add("ukuran,operasi,thread,ops,ops_per_detik,rata_us,p50_us,p90_us,p99_us,p999_us,maks_us," +
+                "byte_per_op,gc_jumlah,gc_ms,gagal");
+
+        for (int n : ukuran) {
+            System.out.printf("%n=== Katalog %,d buku ===%n", n);
+            long mulai = System.currentTimeMillis();
+            Perpustakaan lib;
+            if (memori) {
+                PenyimpananMemori p = new PenyimpananMemori(null, false, 0, 0);
+                isiData(p, n);
+                lib = new Perpustakaan(p);
+            } else {
+                isiData(n);
+                lib = new Perpustakaan(new PenyimpananMysql());
+            }
+            System.out.printf("Data diisi dalam %.1f s%n", (System.currentTimeMillis() - mulai) / 1000.0);
+            lib.getKatalog().muatUlang();
+
+            for (Operasi op : operasi) {
+                for (int t : thread) {
+                    Hasil h = ukur(lib, op, t, pemanasan, durasi);
+                    System.out.println(h.ringkas(n));
+                    hasilCsv.add(h.csv(n));
+                }
+            }
+            // Penulis log & penjadwal ukuran ini tidak ikut berjalan (dan mengambil koneksi) di ukuran berikutnya
+            lib.tutup();
+        }
+
+        if (arg.containsKey("csv")) {
+            Path path = Paths.get(arg.get("csv"));
+            Files.write(path, hasilCsv, StandardCharsets.UTF_8);
+            System.out.println("Hasil ditulis ke " + path.toAbsolutePath());
+        }
+        System.exit(0);
+    }
+
+    private static Map<String, String> bacaArgumen(String[] args) {
+        Map<String, String> m = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            m.put(args[i].replaceFirst("^--", ""), args[i + 1]);
+        }
+        return m;
+    }
+
+    private static int[] angka(String daftar) {
+        String[] bagian = daftar.split(",");
+        int[] hasil = new int[bagian.length];
+        for (int i = 0; i < bagian.length; i++) hasil[i] = Integer.parseInt(bagian[i].trim().replace("_", ""));
+        return hasil;
+    }
+
+    /* ==========================================================
+       BAGIAN 2: PENGISIAN DATA
+       ========================================================== */
+
+    private static void isiData(int jumlahBuku) throws SQLException {
+        try (Connection conn = Database.getConnection()) {
+            if (conn == null) throw new SQLException("Koneksi ke DB benchmark gagal");
+            String produk = conn.getMetaData().getDatabaseProductName().toLowerCase(Locale.ROOT);
+            boolean mysql = produk.contains("mysql") || produk.contains("mariadb");
+            try (Statement st = conn.createStatement()) {
+                // member direferensikan FK dari buku: TRUNCATE hanya boleh dengan cek FK dimatikan
+                st.execute(mysql ? "SET FOREIGN_KEY_CHECKS = 0" : "SET REFERENTIAL_INTEGRITY FALSE");
+                st.execute("TRUNCATE TABLE buku");
+                st.execute("TRUNCATE TABLE member");
+                st.execute("TRUNCATE TABLE perpustakaan");
+                st.execute(mysql ? "SET FOREIGN_KEY_CHECKS = 1" : "SET REFERENTIAL_INTEGRITY TRUE");
+            }
+
+            conn.setAutoCommit(false);
+            try {
+                String sqlMember = "INSERT INTO member (nama, email, batas_pinjam, nama_normal, email_normal) VALUES (?, ?, ?, ?, ?)";
+                try (PreparedStatement ps = conn.prepareStatement(sqlMember)) {
+                    for (int i = 0; i < JUMLAH_MEMBER; i++) {
+                        String nama = namaMember(i);
+                        String email = "bench" + i + "@contoh.id";
+                        ps.setString(1, nama);
+                        ps.setString(2, email);
+                        ps.setInt(3, 1_000_000);
+                        ps.setString(4, KunciNormal.teks(nama));
+                        ps.setString(5, KunciNormal.email(email));
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                }
+                conn.commit();
+
+                String sqlBuku = "INSERT INTO buku (judul, pengarang, jenis, info_khusus, judul_normal, pengarang_normal) " +
+                        "VALUES (?, ?, ?, ?, ?, ?)";
+                try (PreparedStatement ps = conn.prepareStatement(sqlBuku)) {
+                    for (int i = 0; i < jumlahBuku; i++) {
+                        String judul = judulBuku(i);
+                        String pengarang = "Pengarang " + (i % 5000);
+                        boolean fiksi = (i & 1) == 0;
+                        ps.setString(1, judul);
+                        ps.setString(2, pengarang);
+                        ps.setString(3, fiksi ? "Fiksi" : "NonFiksi");
+                        ps.setString(4, fiksi ? "Novel" : "Sains");
+                        ps.setString(5, KunciNormal.teks(judul));
+                        ps.setString(6, KunciNormal.teks(pengarang));
+                        ps.addBatch();
+                        if ((i + 1) % BATCH_ISI == 0) {
+                            ps.executeBatch();
+                            conn.commit();
+                        }
+                    }
+                    ps.executeBatch();
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    // Lewat API penyimpanan (engine memori tidak punya SQL)
+    private static void isiData(Penyimpanan p, int jumlahBuku) throws SQLException {
+        for (int i = 0; i < JUMLAH_MEMBER; i++) {
+            p.tambahMember(namaMember(i), "bench" + i + "@contoh.id", null, 1_000_000);
+        }
+        List<Buku> chunk = new ArrayList<>(BATCH_ISI);
+        for (int i = 0; i < jumlahBuku; i++) {
+            chunk.add(bukuBench(i));
+            if (chunk.size() == BATCH_ISI || i == jumlahBuku - 1) {
+                p.tambahBukuMassal(chunk, null);
+                chunk.clear();
+            }
+        }
+    }
+
+    private static Buku bukuBench(int i) {
+        String pengarang = "Pengarang " + (i % 5000);
+        return (i & 1) == 0
+                ? new BukuFiksi(judulBuku(i), pengarang, "Novel")
+                : new BukuNonFiksi(judulBuku(i), pengarang, "Sains");
+    }
+
+    private static String namaMember(int i) {
+        return "Bench Member " + i;
+    }
+
+    // Nomor di depan membuat judul unik dan bisa dicari persis ("bench 0000042 ")
+    private static String judulBuku(int i) {
+        return String.format("Bench %07d %s %s", i, KATA[i % KATA.length], KATA[(i / KATA.length) % KATA.length]);
+    }
+
+    /* ==========================================================
+       BAGIAN 3: PENGUKURAN
+       ========================================================== */
+
+    private static Langkah buatLangkah(Perpustakaan lib, Operasi op) {
+        List<Buku> katalog = lib.getSemuaBuku();
+        AtomicLong urutTambah = new AtomicLong();
+        switch (op) {
+            case CARI_JUDUL:
+                return p -> {
+                    ThreadLocalRandom r = ThreadLocalRandom.current();
+                    String kata = KATA[r.nextInt(KATA.length)] + " " + KATA[r.nextInt(KATA.length)];
+                    long t0 = System.nanoTime();
+                    List<Buku> hasil = p.lib.cariBukuByJudul(kata);
+                    p.catat(0, t0);
+                    p.lubang += hasil.size();
+                };
+            case SEMUA_BUKU:
+                return p -> {
+                    long t0 = System.nanoTime();
+                    List<Buku> hasil = p.lib.getSemuaBuku();
+                    p.catat(0, t0);
+                    p.lubang += hasil.size();
+                };
+            case DATA_MEMBER:
+                return p -> {
+                    long t0 = System.nanoTime();
+                    Object[][] hasil = p.lib.getMemberData();
+                    p.catat(0, t0);
+                    p.lubang += hasil.length;
+                };
+            case PINJAM_KEMBALI:
+                // Histogram 0 = pinjamBuku, 1 = kembalikanBuku; tiap pekerja memakai member sendiri
+                return p -> {
+                    int i = ThreadLocalRandom.current().nextInt(katalog.size());
+                    Buku b = katalog.get(i);
+                    long t0 = System.nanoTime();
+                    HasilTransaksi h = p.lib.pinjamBuku(p.namaMember, b);
+                    p.catat(0, t0);
+                    if (!h.isBerhasil()) {
+                        p.gagal++;
+                        return;
+                    }
+                    String kunci = KunciNormal.teks(b.getJudul()).substring(0, 14); // "bench 0000042 "
+                    long t1 = System.nanoTime();
+                    String pesan = p.lib.kembalikanBuku(p.namaMember, kunci);
+                    p.catat(1, t1);
+                    if (!pesan.startsWith("Buku dikembalikan")) p.gagal++;
+                };
+            case TAMBAH_BUKU:
+                return p -> {
+                    long n = urutTambah.incrementAndGet();
+                    Buku b = (n & 1) == 0
+                            ? new BukuFiksi("Bench Baru " + n + " " + System.nanoTime(), "Pengarang Baru", "Novel")
+                            : new BukuNonFiksi("Bench Baru " + n + " " + System.nanoTime(), "Pengarang Baru", "Sains");
+                    long t0 = System.nanoTime();
+                    p.lib.tambahBuku(b);
+                    p.catat(0, t0);
+                    if (b.getId() == 0) p.gagal++;
+                };
+            default:
+                throw new IllegalArgumentException("Operasi tidak dikenal: " + op);
+        }
+    }
+
+    private static Hasil ukur(Perpustakaan lib, Operasi op, int jumlahThread, int pemanasanDetik, int durasiDetik)
+            throws InterruptedException {
+        Langkah langkah = buatLangkah(lib, op);
+        Fase fase = new Fase();
+        List<Pekerja> pekerja = new ArrayList<>();
+        CountDownLatch selesai = new CountDownLatch(jumlahThread);
+        for (int i = 0; i < jumlahThread; i++) {
+            Pekerja p = new Pekerja(lib, namaMember(i % JUMLAH_MEMBER), langkah, fase, selesai);
+            pekerja.add(p);
+            // Platform thread: alokasi per thread hanya tersedia untuk thread biasa
+            Thread t = new Thread(p, "bench-" + op + "-" + i);
+            t.setDaemon(true);
+            t.start();
+        }
+
+        Thread.sleep(pemanasanDetik * 1000L);
+        long[] gcAwal = statistikGc();
+        long mulai = System.nanoTime();
+        fase.nilai = 1;
+        Thread.sleep(durasiDetik * 1000L);
+        fase.nilai = 2;
+        long durasiNanos = System.nanoTime() - mulai;
+        selesai.await();
+        long[] gcAkhir = statistikGc();
+        // Pinjaman yang sempat terjadi di iterasi terakhir dibiarkan; tidak mengganggu putaran berikutnya
+        // karena katalog acak dan kuota member besar.
+
+        Hasil h = new Hasil(op, jumlahThread, durasiNanos, gcAkhir[0] - gcAwal[0], gcAkhir[1] - gcAwal[1]);
+        for (Pekerja p : pekerja) h.gabung(p);
+        return h;
+    }
+
+    private static long[] statistikGc() {
+        long jumlah = 0, ms = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            jumlah += Math.max(0, gc.getCollectionCount());
+            ms += Math.max(0, gc.getCollectionTime());
+        }
+        return new long[]{jumlah, ms};
+    }
+
+    // 0 = pemanasan, 1 = ukur, 2 = berhenti
+    private static class Fase {
+        volatile int nilai = 0;
+    }
+
+    private static class Pekerja implements Runnable {
+        final Perpustakaan lib;
+        final String namaMember;
+        final Langkah langkah;
+        final Fase fase;
+        final CountDownLatch selesai;
+        final HistogramLatensi[] histogram = {new HistogramLatensi(), new HistogramLatensi()};
+        boolean mengukur = false;
+        long gagal = 0;
+        long alokasiAwal = 0, alokasi = 0;
+        long lubang = 0; // Hasil dipakai supaya JIT tidak membuang pemanggilan
+
+        Pekerja(Perpustakaan lib, String namaMember, Langkah langkah, Fase fase, CountDownLatch selesai) {
+            this.lib = lib;
+            this.namaMember = namaMember;
+            this.langkah = langkah;
+            this.fase = fase;
+            this.selesai = selesai;
+        }
+
+        void catat(int idx, long t0) {
+            if (mengukur) histogram[idx].catat(System.nanoTime() - t0);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    int f = fase.nilai;
+                    if (f == 2) break;
+                    if (f == 1 && !mengukur) {
+                        gagal = 0;
+                        alokasiAwal = MX_THREAD.getCurrentThreadAllocatedBytes();
+                        mengukur = true;
+                    }
+                    langkah.jalankan(this);
+                }
+                if (mengukur) alokasi = MX_THREAD.getCurrentThreadAllocatedBytes() - alokasiAwal;
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            } finally {
+                selesai.countDown();
+            }
+        }
+    }
+
+    /* ==========================================================
+       BAGIAN 4: HASIL
+       ========================================================== */
+
+    private static class Hasil {
+        final Operasi op;
+        final int thread;
+        final long durasiNanos;
+        final long gcJumlah, gcMs;
+        final HistogramLatensi[] histogram = {new HistogramLatensi(), new HistogramLatensi()};
+        long alokasi = 0, gagal = 0;
+
+        Hasil(Operasi op, int thread, long durasiNanos, long gcJumlah, long gcMs) {
+            this.op = op;
+            this.thread = thread;
+            this.durasiNanos = durasiNanos;
+            this.gcJumlah = gcJumlah;
+            this.gcMs = gcMs;
+        }
+
+        void gabung(Pekerja p) {
+            histogram[0].gabung(p.histogram[0]);
+            histogram[1].gabung(p.histogram[1]);
+            alokasi += p.alokasi;
+            gagal += p.gagal;
+        }
+
+        private String[] nama() {
+            switch (op) {
+                case CARI_JUDUL: return new String[]{"cariBukuByJudul"};
+                case SEMUA_BUKU: return new String[]{"getSemuaBuku"};
+                case DATA_MEMBER: return new String[]{"getMemberData"};
+                case PINJAM_KEMBALI: return new String[]{"pinjamBuku", "kembalikanBuku"};
+                default: return new String[]{"tambahBuku"};
+            }
+        }
+
+        // Alokasi dibagi rata ke seluruh operasi terukur (untuk PINJAM_KEMBALI: per pasangan)
+        private long bytePerOp() {
+            long n = histogram[0].getJumlah();
+            return n == 0 ? 0 : alokasi / n;
+        }
+
+        String ringkas(int ukuran) {
+            StringBuilder sb = new StringBuilder();
+            String[] nama = nama();
+            for (int i = 0; i < nama.length; i++) {
+                HistogramLatensi h = histogram[i];
+                sb.append(String.format(Locale.ROOT,
+                        "%-16s thread=%-3d %,12.1f ops/s  p50=%,8dus p90=%,8dus p99=%,8dus p99.9=%,8dus maks=%,9dus  %,10d B/op  gc=%d (%d ms)  gagal=%d",
+                        nama[i], thread, h.getJumlah() * 1e9 / durasiNanos,
+                        h.persentil(50) / 1000, h.persentil(90) / 1000, h.persentil(99) / 1000,
+                        h.persentil(99.9) / 1000, h.getMaks() / 1000, bytePerOp(), gcJumlah, gcMs, gagal));
+                if (i + 1 < nama.length) sb.append('\n');
+            }
+            return sb.toString();
+        }
+
+        String csv(int ukuran) {
+            StringBuilder sb = new StringBuilder();
+            String[] nama = nama();
+            for (int i = 0; i < nama.length; i++) {
+                HistogramLatensi h = histogram[i];
+                if (i > 0) sb.append('\n');
+                sb.append(String.format(Locale.ROOT, "%d,%s,%d,%d,%.1f,%d,%d,%d,%d,%d,%d,%d,%d,%d,%d",
+                        ukuran, nama[i], thread, h.getJumlah(), h.getJumlah() * 1e9 / durasiNanos,
+                        h.getRata() / 1000, h.persentil(50) / 1000, h.persentil(90) / 1000,
+                        h.persentil(99) / 1000, h.persentil(99.9) / 1000, h.getMaks() / 1000,
+                        bytePerOp(), gcJumlah, gcMs, gagal));
+            }
+            return sb.toString();
+        }
+    }
+}
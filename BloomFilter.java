@@ -0,0 +1,156 @@
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Bloom filter untuk kunci String: "pasti belum ada" atau "mungkin ada".
+// Dipakai sebelum cek duplikat ke DB (bukuSudahAda, cekEmailSudahAda): kasus umum "data baru"
+// tidak perlu query sama sekali. Jawaban "mungkin ada" tetap dicek ke DB, dan unique index
+// di DB tetap jadi penjaga terakhir jika filter tertinggal dari perubahan di luar aplikasi ini.
+public class BloomFilter {
+
+    private final int jumlahBit;
+    private final int jumlahHash;
+    // Diganti utuh saat isiUlang(), supaya pembaca tidak pernah melihat filter setengah terisi
+    private volatile AtomicLongArray bit;
+    private volatile boolean siap = false;
+    // Kunci dari tambah() sejak mulaiIsiUlang(): daftar kunci untuk isiUlang() diambil sebelum kunci ini
+    // ditambahkan, jadi diterapkan ulang ke filter baru setelah ditukar. null = tidak ada isi ulang berjalan
+    private volatile Queue<String> tertunda = null;
+
+    private final AtomicLong jumlahKunci = new AtomicLong();
+    private final AtomicLong jumlahCek = new AtomicLong();
+    private final AtomicLong jumlahNegatif = new AtomicLong();
+    private final AtomicLong jumlahPositifPalsu = new AtomicLong();
+
+    // Ukuran dihitung dari perkiraan jumlah kunci dan false positive rate yang diinginkan
+    public BloomFilter(long perkiraanJumlah, double fpp) {
+        long n = Math.max(1, perkiraanJumlah);
+        double p = Math.min(0.5, Math.max(1e-9, fpp));
+        long m = (long) Math.ceil(-n * Math.log(p) / (Math.log(2) * Math.log(2)));
+        this.jumlahBit = (int) Math.min(Integer.MAX_VALUE - 63, Math.max(64, m));
+        this.jumlahHash = Math.max(1, (int) Math.round((double) jumlahBit / n * Math.log(2)));
+        this.bit = new AtomicLongArray((jumlahBit + 63) / 64);
+    }
+
+    // Dipanggil sebelum daftar kunci untuk isiUlang() mulai dibaca (mis. awal muat katalog dari DB)
+    public synchronized void mulaiIsiUlang() {
+        if (tertunda == null) tertunda = new ConcurrentLinkedQueue<>();
+    }
+
+    // Tidak ada isiUlang() yang menyusul (mis. sinkronisasi tanpa perubahan)
+    public synchronized void batalIsiUlang() {
+        tertunda = null;
+    }
+
+    // Isi ulang dari seluruh kunci yang ada; sebelum ini dipanggil filter belum siap
+    public void isiUlang(Iterable<String> semuaKunci) {
+        AtomicLongArray baru = new AtomicLongArray(bit.length());
+        long n = 0;
+        for (String k : semuaKunci) {
+            set(baru, k);
+            n++;
+        }
+        // Diterapkan sebelum ditukar (pembaca tidak melihat celah) dan sekali lagi sesudahnya untuk yang
+        // masuk di antaranya; yang masuk setelah iterasi terakhir lewat ditangani tambah() (cek bit != b)
+        Queue<String> q = tertunda;
+        if (q != null) {
+            for (String k : q) set(baru, k);
+        }
+        synchronized (this) {
+            bit = baru;
+            q = tertunda;
+            tertunda = null;
+        }
+        if (q != null) {
+            for (String k : q) set(baru, k);
+        }
+        jumlahKunci.set(n);
+        siap = true;
+    }
+
+    public void tambah(String kunci) {
+        Queue<String> q = tertunda;
+        if (q != null) q.add(kunci);
+        AtomicLongArray b = bit;
+        set(b, kunci);
+        // isiUlang() menukar filter di tengah jalan: tulis juga ke yang baru
+        if (bit != b) set(bit, kunci);
+        jumlahKunci.incrementAndGet();
+    }
+
+    // false = pasti belum ada. Selama filter belum siap selalu true (jadi tetap cek ke DB).
+    public boolean mungkinAda(String kunci) {
+        if (!siap) return true;
+        jumlahCek.incrementAndGet();
+        AtomicLongArray b = bit;
+        long h1 = hash(kunci);
+        long h2 = campur(h1 ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < jumlahHash; i++) {
+            int pos = (int) Long.remainderUnsigned(h1 + i * h2, jumlahBit);
+            if ((b.get(pos >>> 6) & (1L << pos)) == 0) {
+                jumlahNegatif.incrementAndGet();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Dipanggil pemakai jika DB ternyata tidak punya kunci yang dijawab "mungkin ada"
+    public void catatPositifPalsu() {
+        jumlahPositifPalsu.incrementAndGet();
+    }
+
+    private void set(AtomicLongArray b, String kunci) {
+        long h1 = hash(kunci);
+        long h2 = campur(h1 ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < jumlahHash; i++) {
+            int pos = (int) Long.remainderUnsigned(h1 + i * h2, jumlahBit);
+            long mask = 1L << pos;
+            int idx = pos >>> 6;
+            long lama;
+            do {
+                lama = b.get(idx);
+                if ((lama & mask) != 0) break;
+            } while (!b.compareAndSet(idx, lama, lama | mask));
+        }
+    }
+
+    // FNV-1a 64-bit per char, lalu diaduk supaya bit bawah ikut acak
+    private static long hash(String s) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return campur(h);
+    }
+
+    private static long campur(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+
+    /* ==========================================================
+       STATISTIK
+       ========================================================== */
+
+    public boolean isSiap() { return siap; }
+    public long getJumlahKunci() { return jumlahKunci.get(); }
+    public long getJumlahCek() { return jumlahCek.get(); }
+    public long getJumlahNegatif() { return jumlahNegatif.get(); }       // query DB yang dihemat
+    public long getJumlahPositifPalsu() { return jumlahPositifPalsu.get(); }
+
+    // Perkiraan false positive rate untuk jumlah kunci saat ini: (1 - e^(-kn/m))^k
+    public double getPerkiraanFpp() {
+        return Math.pow(1 - Math.exp(-(double) jumlahHash * jumlahKunci.get() / jumlahBit), jumlahHash);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("BloomFilter[bit=%d, hash=%d, kunci=%d, cek=%d, negatif=%d, positifPalsu=%d, fpp~%.4f]",
+                jumlahBit, jumlahHash, getJumlahKunci(), getJumlahCek(), getJumlahNegatif(),
+                getJumlahPositifPalsu(), getPerkiraanFpp());
+    }
+}
@@ -2,7 +2,8 @@ public abstract class Buku {
     protected int id; // ID dari Database
     private final String judul;
     private final String pengarang;
-    private boolean dipinjam = false;
+    private volatile boolean dipinjam = false; // volatile: objek dibagi lewat cache katalog
+    private volatile int versi = 0; // Kolom buku.versi: naik setiap pinjam/kembali (compare-and-set)
 
     public Buku(String judul, String pengarang) {
         this.judul = judul;
@@ -18,6 +19,18 @@ public abstract class Buku {
     public boolean isDipinjam() { return dipinjam; }
     public void setDipinjam(boolean status) { this.dipinjam = status; }
 
+    public int getVersi() { return versi; }
+    public void setVersi(int versi) { this.versi = versi; }
+
+    // Status dari transaksi yang sudah commit; hasil yang datang terlambat (versi lebih lama) diabaikan,
+    // jadi urutan thread yang memperbarui cache tidak penting. Hasil: true jika diterapkan
+    public synchronized boolean terapkanStatus(boolean dipinjam, int versi) {
+        if (versi < this.versi) return false;
+        this.dipinjam = dipinjam;
+        this.versi = versi;
+        return true;
+    }
+
     public abstract String getKategori();
     public abstract String getInfoKhusus(); // Helper untuk insert DB
 
@@ -0,0 +1,281 @@
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+// Cache lookup member (per ID, nama, email) di depan MySQL: ukuran dibatasi (LRU), tiap entri
+// kedaluwarsa setelah TTL, dan nama yang tidak ditemukan juga di-cache sebentar (negatif) supaya
+// salah ketik berulang di meja depan tidak selalu query ke DB.
+// Satu objek Member dibagi oleh ketiga kunci, jadi update pinjaman di tempat terlihat dari semuanya.
+public class CacheAnggota {
+
+    private static class Entri {
+        final Member member;
+        final long kedaluwarsa;
+        String kunciNama;   // null jika belum pernah dicari lewat nama
+        String kunciEmail;
+
+        Entri(Member member, long kedaluwarsa) {
+            this.member = member;
+            this.kedaluwarsa = kedaluwarsa;
+        }
+    }
+
+    private final int maks;
+    private final long ttlMs;
+    private final long ttlNegatifMs;
+
+    // Semua state dijaga monitor 'this'; loader (query DB) selalu dipanggil di luar lock
+    private final LinkedHashMap<Integer, Entri> perId;
+    private final Map<String, Integer> perNama = new HashMap<>();
+    private final Map<String, Integer> perEmail = new HashMap<>();
+    private final LinkedHashMap<String, Long> negatif;
+    // Naik setiap invalidasi; hasil muat yang mulai sebelum invalidasi tidak disimpan
+    private long versi = 0;
+    // Pinjam/kembali mengubah member di tempat tanpa invalidasi. Hasil muat yang mulai sebelum perubahan
+    // itu membawa pinjaman lama dan tidak boleh disimpan; dicatat per ID, hanya selama ada muat berjalan
+    private long jam = 0;
+    private int muatBerjalan = 0;
+    private final Map<Integer, Long> diubahPada = new HashMap<>();
+
+    private long hit, hitNegatif, miss, eviction, kedaluwarsaCount, invalidasi;
+
+    public CacheAnggota(int maks, long ttlMs, long ttlNegatifMs) {
+        this.maks = Math.max(1, maks);
+        this.ttlMs = ttlMs;
+        this.ttlNegatifMs = ttlNegatifMs;
+        this.perId = new LinkedHashMap<Integer, Entri>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Entri> eldest) {
+                if (size() <= CacheAnggota.this.maks) return false;
+                lepasIndeks(eldest.getKey(), eldest.getValue());
+                eviction++;
+                return true;
+            }
+        };
+        this.negatif = new LinkedHashMap<String, Long>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > CacheAnggota.this.maks;
+            }
+        };
+    }
+
+    // Dibuat dari konfigurasi (perpustakaan.properties / -Dperpus.member.cache.*)
+    public static CacheAnggota dariKonfigurasi() {
+        return new CacheAnggota(
+                Database.getIntSetting("member.cache.size", 1000),
+                Database.getIntSetting("member.cache.ttlMs", 300_000),
+                Database.getIntSetting("member.cache.negativeTtlMs", 30_000));
+    }
+
+    /* ==========================================================
+       LOOKUP
+       ========================================================== */
+
+    public Member lewatId(int id, Supplier<Member> muat) {
+        long v, j;
+        synchronized (this) {
+            Member m = ambilHidup(id);
+            if (m != null) {
+                hit++;
+                return m;
+            }
+            miss++;
+            v = versi;
+            j = mulaiMuat();
+        }
+        try {
+            Member m = muat.get();
+            return m == null ? null : simpan(m, null, v, j);
+        } finally {
+            selesaiMuat();
+        }
+    }
+
+    // 'nama' sudah dalam bentuk KunciNormal.teks
+    public Member lewatNama(String nama, Supplier<Member> muat) {
+        long v, j;
+        long sekarang = System.currentTimeMillis();
+        synchronized (this) {
+            Long batas = negatif.get(nama);
+            if (batas != null) {
+                if (batas > sekarang) {
+                    hitNegatif++;
+                    return null;
+                }
+                negatif.remove(nama);
+            }
+            Integer id = perNama.get(nama);
+            Member m = id == null ? null : ambilHidup(id);
+            if (m != null) {
+                hit++;
+                return m;
+            }
+            miss++;
+            v = versi;
+            j = mulaiMuat();
+        }
+        try {
+            Member m = muat.get();
+            if (m != null) return simpan(m, nama, v, j);
+            synchronized (this) {
+                if (v == versi && ttlNegatifMs > 0) negatif.put(nama, System.currentTimeMillis() + ttlNegatifMs);
+            }
+            return null;
+        } finally {
+            selesaiMuat();
+        }
+    }
+
+    // 'email' sudah dalam bentuk KunciNormal.email
+    public Member lewatEmail(String email, Supplier<Member> muat) {
+        long v, j;
+        synchronized (this) {
+            Integer id = perEmail.get(email);
+            Member m = id == null ? null : ambilHidup(id);
+            if (m != null) {
+                hit++;
+                return m;
+            }
+            miss++;
+            v = versi;
+            j = mulaiMuat();
+        }
+        try {
+            Member m = muat.get();
+            return m == null ? null : simpan(m, null, v, j);
+        } finally {
+            selesaiMuat();
+        }
+    }
+
+    // Tanpa memuat dan tanpa menghitung hit/miss (untuk update di tempat)
+    public synchronized Member intip(int id) {
+        Entri e = perId.get(id);
+        return e == null || e.kedaluwarsa <= System.currentTimeMillis() ? null : e.member;
+    }
+
+    public synchronized boolean adaEmail(String email) {
+        Integer id = perEmail.get(email);
+        return id != null && intip(id) != null;
+    }
+
+    /* ==========================================================
+       INVALIDASI (write-through dari daftarAnggota dsb.)
+       ========================================================== */
+
+    // Nama (positif maupun negatif) dibuang: pencarian berikutnya ke DB
+    public synchronized void hapusNama(String nama) {
+        versi++;
+        invalidasi++;
+        negatif.remove(nama);
+        Integer id = perNama.remove(nama);
+        if (id != null) {
+            Entri e = perId.get(id);
+            if (e != null && nama.equals(e.kunciNama)) e.kunciNama = null;
+        }
+    }
+
+    // Pinjaman member berubah (sudah commit); entri yang ada diubah di tempat oleh pemanggil sesudah ini.
+    // Tanpa invalidasi: hanya hasil muat member ini yang sedang berjalan yang tidak disimpan
+    public synchronized void pinjamanBerubah(int id) {
+        jam++;
+        if (muatBerjalan > 0) diubahPada.put(id, jam);
+    }
+
+    public synchronized void hapus(int id) {
+        versi++;
+        invalidasi++;
+        Entri e = perId.remove(id);
+        if (e != null) lepasIndeks(id, e);
+    }
+
+    public synchronized void kosongkan() {
+        versi++;
+        invalidasi++;
+        perId.clear();
+        perNama.clear();
+        perEmail.clear();
+        negatif.clear();
+    }
+
+    /* ==========================================================
+       INTERNAL
+       ========================================================== */
+
+    private Member ambilHidup(int id) {
+        Entri e = perId.get(id); // access-order: sekaligus menandai baru dipakai
+        if (e == null) return null;
+        if (e.kedaluwarsa > System.currentTimeMillis()) return e.member;
+        perId.remove(id);
+        lepasIndeks(id, e);
+        kedaluwarsaCount++;
+        return null;
+    }
+
+    // Di bawah lock; hasil = jam saat muat dimulai
+    private long mulaiMuat() {
+        muatBerjalan++;
+        return jam;
+    }
+
+    private synchronized void selesaiMuat() {
+        if (--muatBerjalan == 0) diubahPada.clear();
+    }
+
+    // Mengembalikan objek yang tersimpan di cache (bisa objek lama untuk ID yang sama)
+    private synchronized Member simpan(Member m, String nama, long v, long j) {
+        if (v != versi) return m; // Ada invalidasi selama query berjalan
+        int id = m.getId();
+        Long diubah = diubahPada.get(id);
+        if (diubah != null && diubah > j) return m; // Pinjamannya berubah selama query berjalan
+        Entri lama = perId.get(id);
+        Entri e;
+        if (lama != null && lama.kedaluwarsa > System.currentTimeMillis()) {
+            e = lama; // Pertahankan objek yang sama (mungkin sedang dipakai sesi)
+        } else {
+            if (lama != null) lepasIndeks(id, lama);
+            e = new Entri(m, System.currentTimeMillis() + ttlMs);
+            perId.put(id, e);
+        }
+        if (nama != null) {
+            e.kunciNama = nama;
+            perNama.put(nama, id);
+        }
+        if (m.getEmail() != null) {
+            e.kunciEmail = KunciNormal.email(m.getEmail());
+            perEmail.put(e.kunciEmail, id);
+        }
+        return e.member;
+    }
+
+    private void lepasIndeks(int id, Entri e) {
+        if (e.kunciNama != null) perNama.remove(e.kunciNama, id);
+        if (e.kunciEmail != null) perEmail.remove(e.kunciEmail, id);
+    }
+
+    /* ==========================================================
+       STATISTIK
+       ========================================================== */
+
+    public synchronized int getUkuran() { return perId.size(); }
+    public synchronized long getHit() { return hit; }
+    public synchronized long getHitNegatif() { return hitNegatif; }
+    public synchronized long getMiss() { return miss; }
+    public synchronized long getEviction() { return eviction; }
+    public synchronized long getKedaluwarsa() { return kedaluwarsaCount; }
+    public synchronized long getInvalidasi() { return invalidasi; }
+
+    public synchronized double getHitRate() {
+        long total = hit + hitNegatif + miss;
+        return total == 0 ? 0 : (double) (hit + hitNegatif) / total;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("CacheAnggota[ukuran=%d/%d, hit=%d, hitNegatif=%d, miss=%d, hitRate=%.1f%%, " +
+                        "eviction=%d, kedaluwarsa=%d, invalidasi=%d]",
+                perId.size(), maks, hit, hitNegatif, miss, getHitRate() * 100, eviction, kedaluwarsaCount, invalidasi);
+    }
+}
@@ -0,0 +1,17 @@
+import java.sql.Timestamp;
+import java.time.format.DateTimeFormatter;
+
+// Satu baris log aktivitas (tabel 'perpustakaan'); id = 0 selama belum tersimpan
+public record CatatanLog(int id, Timestamp waktu, String aksi, String judulBuku, String namaMember, String keterangan) {
+
+    private static final DateTimeFormatter FORMAT_TANGGAL = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    // Waktu diambil saat event terjadi, bukan saat ditulis ke penyimpanan
+    public static CatatanLog baru(String aksi, String judulBuku, String namaMember, String keterangan) {
+        return new CatatanLog(0, new Timestamp(System.currentTimeMillis()), aksi, judulBuku, namaMember, keterangan);
+    }
+
+    public String getTanggalTeks() {
+        return waktu.toLocalDateTime().format(FORMAT_TANGGAL);
+    }
+}
@@ -0,0 +1,310 @@
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Pool koneksi sederhana: koneksi fisik dipakai ulang, bukan dibuka-tutup tiap query.
+// Connection yang dikembalikan adalah proxy; memanggil close() mengembalikannya ke pool.
+public class ConnectionPool {
+
+    private final String url;
+    private final String user;
+    private final String pass;
+
+    private final int minIdle;
+    private final int maxSize;
+    private final long acquireTimeoutMs;
+    private final long idleTimeoutMs;
+    private final long leakThresholdMs;
+    // Jejak stack tempat koneksi diambil hanya direkam tiap N acquire (0 = tidak pernah):
+    // membuat Exception di setiap getConnection() terlalu mahal untuk jalur sepanas ini
+    private final int jejakSetiap;
+    private final int validationTimeoutSec;
+
+    // Koneksi yang menganggur (LIFO: yang terakhir dipakai diambil duluan karena masih "hangat")
+    private final LinkedBlockingDeque<Entry> idle = new LinkedBlockingDeque<>();
+    // Koneksi yang sedang dipinjam (untuk deteksi kebocoran)
+    private final Set<Entry> dipakai = ConcurrentHashMap.newKeySet();
+    // Membatasi jumlah koneksi yang dipinjam bersamaan maksimal maxSize
+    private final Semaphore izin;
+
+    private final ScheduledExecutorService perawatan;
+    private volatile boolean ditutup = false;
+
+    // --- Statistik ---
+    private final AtomicLong jumlahAcquire = new AtomicLong();
+    private final AtomicLong totalTungguNanos = new AtomicLong();
+    private final AtomicLong maxTungguNanos = new AtomicLong();
+    private final AtomicLong jumlahTimeout = new AtomicLong();
+    private final AtomicLong jumlahDibuat = new AtomicLong();
+    private final AtomicLong jumlahDibuang = new AtomicLong();
+    private final AtomicLong jumlahBocor = new AtomicLong();
+
+    public ConnectionPool(String url, String user, String pass,
+                          int minIdle, int maxSize, long acquireTimeoutMs,
+                          long idleTimeoutMs, long leakThresholdMs, int jejakSetiap, int validationTimeoutSec) {
+        this.url = url;
+        this.user = user;
+        this.pass = pass;
+        this.minIdle = Math.max(0, minIdle);
+        this.maxSize = Math.max(1, maxSize);
+        this.acquireTimeoutMs = acquireTimeoutMs;
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.leakThresholdMs = leakThresholdMs;
+        this.jejakSetiap = Math.max(0, jejakSetiap);
+        this.validationTimeoutSec = validationTimeoutSec;
+        this.izin = new Semaphore(this.maxSize, true);
+
+        perawatan = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "pool-perawatan");
+            t.setDaemon(true);
+            return t;
+        });
+        perawatan.scheduleWithFixedDelay(this::rawat, 5, 5, TimeUnit.SECONDS);
+    }
+
+    /* ==========================================================
+       AMBIL & KEMBALIKAN KONEKSI
+       ========================================================== */
+
+    public Connection getConnection() throws SQLException {
+        if (ditutup) throw new SQLException("Pool koneksi sudah ditutup");
+
+        long mulai = System.nanoTime();
+        try {
+            if (!izin.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+                jumlahTimeout.incrementAndGet();
+                throw new SQLException("Timeout menunggu koneksi (" + acquireTimeoutMs + " ms), aktif: " + getActive());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Thread diinterupsi saat menunggu koneksi", e);
+        }
+
+        try {
+            Entry e = ambilIdleValid();
+            if (e == null) e = buatBaru();
+            e.dipinjamSejak = System.currentTimeMillis();
+            e.jejak = leakThresholdMs > 0 && jejakSetiap > 0 && jumlahAcquire.get() % jejakSetiap == 0
+                    ? new Exception("Koneksi diambil di sini") : null;
+            e.sudahDilaporkan = false;
+            dipakai.add(e);
+            catatTunggu(System.nanoTime() - mulai);
+            return e.bungkus();
+        } catch (SQLException | RuntimeException ex) {
+            izin.release();
+            throw ex;
+        }
+    }
+
+    // Ambil koneksi idle; koneksi yang lama menganggur divalidasi dulu sebelum dipakai
+    private Entry ambilIdleValid() {
+        Entry e;
+        while ((e = idle.pollFirst()) != null) {
+            long lamaIdle = System.currentTimeMillis() - e.terakhirDipakai;
+            if (lamaIdle < 500 || valid(e.fisik)) return e;
+            buang(e);
+        }
+        return null;
+    }
+
+    private Entry buatBaru() throws SQLException {
+        Connection c = DriverManager.getConnection(url, user, pass);
+        jumlahDibuat.incrementAndGet();
+        return new Entry(c);
+    }
+
+    private void kembalikan(Entry e) {
+        dipakai.remove(e);
+        try {
+            if (ditutup || e.fisik.isClosed()) {
+                buang(e);
+                return;
+            }
+            // Bersihkan sisa transaksi agar peminjam berikutnya mendapat koneksi bersih
+            if (!e.fisik.getAutoCommit()) {
+                e.fisik.rollback();
+                e.fisik.setAutoCommit(true);
+            }
+            e.terakhirDipakai = System.currentTimeMillis();
+            idle.offerFirst(e);
+        } catch (SQLException ex) {
+            buang(e);
+        } finally {
+            izin.release();
+        }
+    }
+
+    private boolean valid(Connection c) {
+        try {
+            return c.isValid(validationTimeoutSec);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void buang(Entry e) {
+        jumlahDibuang.incrementAndGet();
+        try { e.fisik.close(); } catch (SQLException ignored) { }
+    }
+
+    private void catatTunggu(long nanos) {
+        jumlahAcquire.incrementAndGet();
+        totalTungguNanos.addAndGet(nanos);
+        maxTungguNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /* ==========================================================
+       PERAWATAN BERKALA (Eviction, Min Idle, Deteksi Bocor)
+       ========================================================== */
+
+    private void rawat() {
+        if (ditutup) return;
+        long sekarang = System.currentTimeMillis();
+
+        // 1. Buang koneksi yang terlalu lama menganggur (sisakan minIdle)
+        Iterator<Entry> it = idle.descendingIterator();
+        while (it.hasNext() && idle.size() > minIdle) {
+            Entry e = it.next();
+            if (sekarang - e.terakhirDipakai > idleTimeoutMs && idle.remove(e)) {
+                buang(e);
+            }
+        }
+
+        // 2. Isi kembali sampai minIdle
+        while (idle.size() < minIdle && izin.tryAcquire()) {
+            try {
+                Entry e = buatBaru();
+                e.terakhirDipakai = sekarang;
+                idle.offerLast(e);
+            } catch (SQLException ex) {
+                System.out.println("Pool: gagal membuat koneksi cadangan: " + ex.getMessage());
+                break;
+            } finally {
+                izin.release();
+            }
+        }
+
+        // 3. Laporkan koneksi yang dipinjam terlalu lama (kemungkinan lupa close)
+        if (leakThresholdMs > 0) {
+            for (Entry e : dipakai) {
+                if (!e.sudahDilaporkan && sekarang - e.dipinjamSejak > leakThresholdMs) {
+                    e.sudahDilaporkan = true;
+                    jumlahBocor.incrementAndGet();
+                    System.out.println("Pool: kemungkinan kebocoran koneksi, dipinjam "
+                            + (sekarang - e.dipinjamSejak) + " ms");
+                    if (e.jejak != null) {
+                        e.jejak.printStackTrace(System.out);
+                    } else {
+                        System.out.println("  (tempat pengambilan tidak direkam; pool.leakTraceEvery=1 untuk merekam semua)");
+                    }
+                }
+            }
+        }
+    }
+
+    public void tutup() {
+        ditutup = true;
+        perawatan.shutdownNow();
+        Entry e;
+        while ((e = idle.pollFirst()) != null) buang(e);
+    }
+
+    /* ==========================================================
+       METRIK
+       ========================================================== */
+
+    public int getActive() { return dipakai.size(); }
+    public int getIdle() { return idle.size(); }
+    public int getMaxSize() { return maxSize; }
+    public int getThreadsMenunggu() { return izin.getQueueLength(); }
+    public long getJumlahAcquire() { return jumlahAcquire.get(); }
+    public long getJumlahTimeout() { return jumlahTimeout.get(); }
+    public long getJumlahDibuat() { return jumlahDibuat.get(); }
+    public long getJumlahDibuang() { return jumlahDibuang.get(); }
+    public long getJumlahBocor() { return jumlahBocor.get(); }
+
+    public double getRataTungguMs() {
+        long n = jumlahAcquire.get();
+        return n == 0 ? 0 : totalTungguNanos.get() / 1_000_000.0 / n;
+    }
+
+    public double getMaxTungguMs() { return maxTungguNanos.get() / 1_000_000.0; }
+
+    @Override
+    public String toString() {
+        return String.format("Pool[aktif=%d, idle=%d, max=%d, menunggu=%d, acquire=%d, rata tunggu=%.2f ms, max tunggu=%.2f ms, timeout=%d, bocor=%d]",
+                getActive(), getIdle(), maxSize, getThreadsMenunggu(), getJumlahAcquire(),
+                getRataTungguMs(), getMaxTungguMs(), getJumlahTimeout(), getJumlahBocor());
+    }
+
+    /* ==========================================================
+       ENTRY & PROXY KONEKSI
+       ========================================================== */
+
+    private class Entry {
+        final Connection fisik;
+        volatile long terakhirDipakai = System.currentTimeMillis();
+        volatile long dipinjamSejak;
+        volatile Exception jejak;
+        volatile boolean sudahDilaporkan;
+
+        Entry(Connection fisik) { this.fisik = fisik; }
+
+        // Setiap peminjaman mendapat proxy baru, supaya close() ganda tidak mengembalikan koneksi dua kali
+        Connection bungkus() {
+            InvocationHandler h = new InvocationHandler() {
+                private boolean closed = false;
+
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                    switch (method.getName()) {
+                        case "close":
+                            if (!closed) {
+                                closed = true;
+                                kembalikan(Entry.this);
+                            }
+                            return null;
+                        case "isClosed":
+                            return closed || fisik.isClosed();
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "toString":
+                            return "Pooled(" + fisik + ")";
+                        default:
+                            if (closed) throw new SQLException("Koneksi sudah dikembalikan ke pool");
+                            Object hasil;
+                            try {
+                                hasil = method.invoke(fisik, args);
+                            } catch (InvocationTargetException ex) {
+                                throw ex.getCause();
+                            }
+                            // createStatement/prepareStatement/prepareCall: setiap eksekusi di-trace (lihat PelacakSql)
+                            if (hasil instanceof Statement) {
+                                String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+                                return PelacakSql.bungkus((Statement) hasil, method.getReturnType(), sql);
+                            }
+                            return hasil;
+                    }
+                }
+            };
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, h);
+        }
+    }
+}
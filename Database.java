@@ -1,20 +1,121 @@
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class Database {
-    // Sesuaikan username dan password database Anda di sini
+    // Nilai default; bisa ditimpa lewat file perpustakaan.properties atau -Dperpus.<key>=...
     private static final String URL = "jdbc:mysql://localhost:3306/manajemenperpus";
     private static final String USER = "root";
     private static final String PASS = "1234";
 
+    private static final String FILE_KONFIGURASI = "perpustakaan.properties";
+    private static final Properties KONFIG = muatKonfigurasi();
+
+    // Dijalankan berurutan saat aplikasi berhenti, SEBELUM pool ditutup (mis. flush log)
+    private static final List<Runnable> TUGAS_SHUTDOWN = new CopyOnWriteArrayList<>();
+    private static volatile ConnectionPool pool; // null sampai koneksi pertama diminta
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            for (Runnable tugas : TUGAS_SHUTDOWN) {
+                try {
+                    tugas.run();
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                }
+            }
+            if (pool != null) pool.tutup();
+        }, "pool-shutdown"));
+    }
+
     public static Connection getConnection() {
+        long mulai = System.nanoTime();
         try {
-            Class.forName("com.mysql.cj.jdbc.Driver");
-            return DriverManager.getConnection(URL, USER, PASS);
-        } catch (ClassNotFoundException | SQLException e) {
+            Connection conn = getPool().getConnection();
+            Metrik.catatKoneksi(System.nanoTime() - mulai, false);
+            return conn;
+        } catch (SQLException e) {
+            Metrik.catatKoneksi(System.nanoTime() - mulai, true);
             System.out.println("Koneksi Error: " + e.getMessage());
             return null;
         }
     }
-}
\ No newline at end of file
+
+    // Pool (dan driver) baru dibuat saat pertama dipakai: storage.engine=memori tidak pernah menyentuh MySQL
+    public static ConnectionPool getPool() {
+        ConnectionPool p = pool;
+        if (p == null) {
+            synchronized (Database.class) {
+                p = pool;
+                if (p == null) pool = p = buatPool();
+            }
+        }
+        return p;
+    }
+
+    public static void tambahTugasShutdown(Runnable tugas) { TUGAS_SHUTDOWN.add(tugas); }
+
+    // Dijalankan sebelum semua tugas lain (mis. berhenti menerima request sebelum log di-flush)
+    public static void tambahTugasShutdownAwal(Runnable tugas) { TUGAS_SHUTDOWN.add(0, tugas); }
+
+    // Untuk komponen yang ditutup lebih awal (mis. Perpustakaan.tutup()); butuh instance Runnable yang sama
+    public static void hapusTugasShutdown(Runnable tugas) { TUGAS_SHUTDOWN.remove(tugas); }
+
+    public static String getUrl() { return getSetting("db.url", URL); }
+
+    /* ==========================================================
+       KONFIGURASI
+       ========================================================== */
+
+    // Urutan prioritas: System property (-Dperpus.db.url=...) > perpustakaan.properties > default
+    public static String getSetting(String key, String def) {
+        String v = System.getProperty("perpus." + key);
+        if (v == null) v = KONFIG.getProperty(key);
+        return v == null ? def : v.trim();
+    }
+
+    public static int getIntSetting(String key, int def) {
+        try {
+            return Integer.parseInt(getSetting(key, String.valueOf(def)));
+        } catch (NumberFormatException e) {
+            System.out.println("Konfigurasi '" + key + "' bukan angka, pakai default " + def);
+            return def;
+        }
+    }
+
+    private static Properties muatKonfigurasi() {
+        Properties p = new Properties();
+        String path = System.getProperty("perpus.config", FILE_KONFIGURASI);
+        try (InputStream in = new FileInputStream(path)) {
+            p.load(in);
+        } catch (IOException e) {
+            // File konfigurasi opsional, pakai default
+        }
+        return p;
+    }
+
+    private static ConnectionPool buatPool() {
+        try {
+            Class.forName("com.mysql.cj.jdbc.Driver");
+        } catch (ClassNotFoundException e) {
+            System.out.println("Driver MySQL tidak ditemukan: " + e.getMessage());
+        }
+
+        return new ConnectionPool(
+                getUrl(),
+                getSetting("db.user", USER),
+                getSetting("db.password", PASS),
+                getIntSetting("pool.min", 2),
+                getIntSetting("pool.max", 10),
+                getIntSetting("pool.acquireTimeoutMs", 5000),
+                getIntSetting("pool.idleTimeoutMs", 300_000),
+                getIntSetting("pool.leakThresholdMs", 30_000),
+                getIntSetting("pool.leakTraceEvery", 100),
+                getIntSetting("pool.validationTimeoutSec", 2));
+    }
+}
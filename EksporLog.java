@@ -0,0 +1,204 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.function.BooleanSupplier;
+import java.util.zip.GZIPOutputStream;
+
+// Export seluruh riwayat log aktivitas ke CSV secara streaming.
+// Baris dibaca berurutan dari penyimpanan (MySQL: cursor forward-only, lihat PenyimpananMysql.bacaLog),
+// langsung di-encode ke ByteBuffer besar lalu ditulis ke FileChannel (atau GZIP).
+// Memori yang dipakai tetap, berapapun jumlah barisnya.
+public class EksporLog {
+
+    // Dipanggil dari thread export setiap beberapa ribu baris; total = -1 jika tidak diketahui
+    public interface Progres {
+        void laporan(long baris, long total);
+    }
+
+    public static class Hasil {
+        public final long baris;
+        public final long bytes;       // ukuran file akhir (setelah gzip jika dipakai)
+        public final long durasiMs;
+        public final boolean dibatalkan;
+
+        Hasil(long baris, long bytes, long durasiMs, boolean dibatalkan) {
+            this.baris = baris;
+            this.bytes = bytes;
+            this.durasiMs = durasiMs;
+            this.dibatalkan = dibatalkan;
+        }
+
+        @Override
+        public String toString() {
+            if (dibatalkan) return "Export dibatalkan setelah " + baris + " baris.";
+            long perDetik = durasiMs > 0 ? baris * 1000 / durasiMs : baris;
+            return String.format("%,d baris, %,d KB, %,d ms (%,d baris/detik)", baris, bytes / 1024, durasiMs, perDetik);
+        }
+    }
+
+    private static final String HEADER = "ID,Waktu,Aksi,Judul Buku,Member,Keterangan\n";
+    private static final int INTERVAL_PROGRES = 10_000;
+
+    private final Penyimpanan penyimpanan;
+    private final Path tujuan;
+    private final Timestamp dari;     // inklusif, null = tanpa batas bawah
+    private final Timestamp sampai;   // eksklusif, null = tanpa batas atas
+    private final boolean gzip;
+
+    private final ByteBuffer buf = ByteBuffer.allocate(Math.max(64, Database.getIntSetting("export.bufferKb", 1024)) * 1024);
+
+    // Salah satu yang terisi, tergantung gzip
+    private FileChannel channel;
+    private OutputStream keluaran;
+
+    public EksporLog(Penyimpanan penyimpanan, Path tujuan, Timestamp dari, Timestamp sampai, boolean gzip) {
+        this.penyimpanan = penyimpanan;
+        this.tujuan = tujuan;
+        this.dari = dari;
+        this.sampai = sampai;
+        this.gzip = gzip;
+    }
+
+    public Hasil jalankan(Progres progres, BooleanSupplier batal) throws IOException, SQLException {
+        long mulai = System.currentTimeMillis();
+        long[] baris = {0};
+        boolean dibatalkan = false;
+        boolean selesai = false;
+
+        try {
+            // Total hanya untuk persentase progres
+            long total = penyimpanan.jumlahLog(dari, sampai);
+
+            bukaTujuan();
+            tulisAscii(HEADER);
+            dibatalkan = !penyimpanan.bacaLog(dari, sampai, c -> {
+                tulisAngka(c.id());
+                tulisByte(',');
+                tulisField(c.getTanggalTeks());
+                tulisByte(',');
+                tulisField(c.aksi());
+                tulisByte(',');
+                tulisField(c.judulBuku());
+                tulisByte(',');
+                tulisField(c.namaMember());
+                tulisByte(',');
+                tulisField(c.keterangan());
+                tulisByte('\n');
+
+                if (++baris[0] % INTERVAL_PROGRES == 0) {
+                    if (progres != null) progres.laporan(baris[0], total);
+                    return !batal.getAsBoolean();
+                }
+                return true;
+            });
+            if (!dibatalkan) {
+                if (progres != null) progres.laporan(baris[0], total);
+                kosongkan();
+                selesai = true;
+            }
+        } finally {
+            boolean dibuka = channel != null;
+            tutupTujuan();
+            if (dibuka && !selesai) Files.deleteIfExists(tujuan); // Jangan tinggalkan file setengah jadi
+        }
+
+        long bytes = selesai ? Files.size(tujuan) : 0;
+        return new Hasil(baris[0], bytes, System.currentTimeMillis() - mulai, dibatalkan);
+    }
+
+    /* ==========================================================
+       OUTPUT (FileChannel / GZIP)
+       ========================================================== */
+
+    private void bukaTujuan() throws IOException {
+        channel = FileChannel.open(tujuan, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        if (gzip) keluaran = new GZIPOutputStream(Channels.newOutputStream(channel), 64 * 1024);
+    }
+
+    private void kosongkan() throws IOException {
+        buf.flip();
+        if (keluaran != null) {
+            keluaran.write(buf.array(), buf.arrayOffset() + buf.position(), buf.remaining());
+        } else {
+            while (buf.hasRemaining()) channel.write(buf);
+        }
+        buf.clear();
+    }
+
+    private void tutupTujuan() throws IOException {
+        if (keluaran != null) {
+            keluaran.close(); // Menulis trailer gzip dan menutup channel
+        } else if (channel != null) {
+            channel.close();
+        }
+        keluaran = null;
+        channel = null;
+    }
+
+    /* ==========================================================
+       ENCODER CSV (langsung ke byte UTF-8, tanpa String perantara)
+       ========================================================== */
+
+    private void tulisByte(int b) throws IOException {
+        if (!buf.hasRemaining()) kosongkan();
+        buf.put((byte) b);
+    }
+
+    private void tulisAscii(String s) throws IOException {
+        for (int i = 0; i < s.length(); i++) tulisByte(s.charAt(i));
+    }
+
+    private void tulisAngka(long n) throws IOException {
+        if (n < 0) {
+            tulisByte('-');
+            n = -n;
+        }
+        if (n >= 10) tulisAngka(n / 10);
+        tulisByte('0' + (int) (n % 10));
+    }
+
+    // Field dibungkus kutip hanya jika berisi koma, kutip atau baris baru; kutip digandakan
+    private void tulisField(String s) throws IOException {
+        if (s == null) return;
+        boolean kutip = false;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                kutip = true;
+                break;
+            }
+        }
+        if (kutip) tulisByte('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                if (c == '"') tulisByte('"');
+                tulisByte(c);
+            } else if (c < 0x800) {
+                tulisByte(0xC0 | (c >> 6));
+                tulisByte(0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                tulisByte(0xF0 | (cp >> 18));
+                tulisByte(0x80 | ((cp >> 12) & 0x3F));
+                tulisByte(0x80 | ((cp >> 6) & 0x3F));
+                tulisByte(0x80 | (cp & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                tulisByte('?'); // Surrogate tanpa pasangan
+            } else {
+                tulisByte(0xE0 | (c >> 12));
+                tulisByte(0x80 | ((c >> 6) & 0x3F));
+                tulisByte(0x80 | (c & 0x3F));
+            }
+        }
+        if (kutip) tulisByte('"');
+    }
+}
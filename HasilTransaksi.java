@@ -0,0 +1,43 @@
+// Hasil transaksi sirkulasi (pinjam/kembali) yang bertipe, bukan sekadar String pesan
+public class HasilTransaksi {
+
+    public enum Status {
+        BERHASIL,
+        MEMBER_TIDAK_DITEMUKAN,
+        SEDANG_DIPINJAM,
+        KUOTA_PENUH,
+        BUKU_TIDAK_DITEMUKAN,
+        TIDAK_DIPINJAM, // Pengembalian: buku tidak sedang dipinjam member ini
+        KONFLIK,        // Versi buku/member berubah di tengah jalan (transaksi lain), percobaan ulang habis
+        DITAHAN,        // Peminjaman: buku sedang disiapkan untuk member lain (reservasi)
+        TERSEDIA,       // Reservasi: buku tersedia, tidak perlu antre
+        SUDAH_ANTRE,    // Reservasi: sudah antre, sudah ditahankan, atau sedang meminjam buku ini
+        ERROR
+    }
+
+    private final Status status;
+    private final String pesan;
+    private final Buku buku;
+
+    public HasilTransaksi(Status status, String pesan, Buku buku) {
+        this.status = status;
+        this.pesan = pesan;
+        this.buku = buku;
+    }
+
+    public static HasilTransaksi berhasil(String pesan, Buku buku) {
+        return new HasilTransaksi(Status.BERHASIL, pesan, buku);
+    }
+
+    public static HasilTransaksi gagal(Status status, String pesan) {
+        return new HasilTransaksi(status, pesan, null);
+    }
+
+    public Status getStatus() { return status; }
+    public String getPesan() { return pesan; }
+    public Buku getBuku() { return buku; }
+    public boolean isBerhasil() { return status == Status.BERHASIL; }
+
+    @Override
+    public String toString() { return pesan; }
+}
@@ -0,0 +1,247 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+
+// Impor buku massal dari file CSV/TSV: judul, pengarang, jenis (Fiksi/NonFiksi), genre/subjek.
+// File dibaca baris per baris dan diproses per chunk. Duplikat di dalam file dibuang di sini
+// (HashSet KunciNormal.buku), duplikat terhadap DB dicek per chunk oleh penyimpan dalam
+// satu query. Baris yang ditolak beserta alasannya ditulis ke file "<nama>.ditolak.txt".
+public class ImporBuku {
+
+    // Menyimpan satu chunk dalam satu transaksi. Hasil[i] = true jika chunk.get(i) tersimpan,
+    // false jika sudah ada di DB.
+    public interface PenyimpanChunk {
+        boolean[] simpan(List<Buku> chunk) throws SQLException;
+    }
+
+    // Dipanggil setiap satu chunk selesai (di thread pemanggil jalankan())
+    public interface Progres {
+        void laporan(Hasil sementara);
+    }
+
+    public static class Hasil {
+        public int dibaca;          // baris data (tanpa header)
+        public int ditambah;
+        public int duplikatFile;
+        public int duplikatDb;
+        public int tidakValid;
+        public int gagal;           // ditolak karena chunk-nya gagal disimpan
+        public int jumlahChunk;
+        public long durasiMs;
+        public long posisi;         // perkiraan karakter yang sudah dibaca, untuk progres
+        public long ukuranFile;
+        public boolean dibatalkan;  // chunk yang sudah di-commit tetap tersimpan
+        public Path fileDitolak;    // null jika tidak ada yang ditolak
+
+        public int getDitolak() { return duplikatFile + duplikatDb + tidakValid + gagal; }
+
+        public long getBarisPerDetik() { return durasiMs > 0 ? dibaca * 1000L / durasiMs : dibaca; }
+
+        @Override
+        public String toString() {
+            return String.format((dibatalkan ? "DIBATALKAN. " : "") + "Dibaca %,d baris, ditambah %,d, ditolak %,d " +
+                            "(duplikat file %,d, sudah ada di DB %,d, tidak valid %,d, gagal simpan %,d). " +
+                            "%,d chunk, %,d ms (%,d baris/detik)",
+                    dibaca, ditambah, getDitolak(), duplikatFile, duplikatDb, tidakValid, gagal,
+                    jumlahChunk, durasiMs, getBarisPerDetik());
+        }
+    }
+
+    private final PenyimpanChunk penyimpan;
+    private final int ukuranChunk;
+
+    public ImporBuku(PenyimpanChunk penyimpan, int ukuranChunk) {
+        this.penyimpan = penyimpan;
+        this.ukuranChunk = Math.max(1, ukuranChunk);
+    }
+
+    public Hasil jalankan(Path file, Progres progres, BooleanSupplier batal) throws IOException {
+        long mulai = System.currentTimeMillis();
+        Hasil hasil = new Hasil();
+        hasil.ukuranFile = Files.size(file);
+        Path fileDitolak = file.resolveSibling(file.getFileName() + ".ditolak.txt");
+        Files.deleteIfExists(fileDitolak); // Sisa impor sebelumnya
+        Set<String> kunciFile = new HashSet<>();
+        List<Buku> chunk = new ArrayList<>(ukuranChunk);
+        List<Integer> nomorChunk = new ArrayList<>(ukuranChunk);
+        BufferedWriter ditolak = null;
+
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String baris;
+            int nomor = 0;
+            char pemisah = file.toString().toLowerCase(Locale.ROOT).endsWith(".tsv") ? '\t' : 0;
+
+            while ((baris = in.readLine()) != null) {
+                nomor++;
+                hasil.posisi += baris.length() + 1;
+                if (nomor == 1 && baris.startsWith("\uFEFF")) baris = baris.substring(1); // BOM
+                if (baris.trim().isEmpty()) continue;
+                if (pemisah == 0) pemisah = baris.indexOf('\t') >= 0 ? '\t' : ',';
+
+                List<String> kolom = pecah(baris, pemisah);
+                if (nomor == 1 && kolom != null && !kolom.isEmpty() && kolom.get(0).trim().equalsIgnoreCase("judul")) {
+                    continue; // Header
+                }
+                hasil.dibaca++;
+
+                String alasan;
+                Buku b = null;
+                if (kolom == null) {
+                    alasan = "tanda kutip tidak ditutup";
+                } else if (kolom.size() != 4) {
+                    alasan = "harus 4 kolom (judul, pengarang, jenis, genre/subjek), ada " + kolom.size();
+                } else {
+                    alasan = validasi(kolom);
+                    if (alasan == null) b = buatBuku(kolom);
+                }
+
+                if (b == null) {
+                    hasil.tidakValid++;
+                } else if (!kunciFile.add(KunciNormal.buku(b.getJudul(), b.getPengarang()))) {
+                    hasil.duplikatFile++;
+                    alasan = "duplikat di dalam file";
+                    b = null;
+                }
+
+                if (b == null) {
+                    ditolak = tulisDitolak(ditolak, fileDitolak, nomor, alasan, baris);
+                    continue;
+                }
+
+                chunk.add(b);
+                nomorChunk.add(nomor);
+                if (chunk.size() >= ukuranChunk) {
+                    ditolak = simpanChunk(chunk, nomorChunk, hasil, ditolak, fileDitolak);
+                    hasil.durasiMs = System.currentTimeMillis() - mulai;
+                    if (progres != null) progres.laporan(hasil);
+                    if (batal.getAsBoolean()) {
+                        hasil.dibatalkan = true;
+                        break;
+                    }
+                }
+            }
+            if (!chunk.isEmpty() && !hasil.dibatalkan) ditolak = simpanChunk(chunk, nomorChunk, hasil, ditolak, fileDitolak);
+        } finally {
+            if (ditolak != null) ditolak.close();
+        }
+
+        hasil.durasiMs = System.currentTimeMillis() - mulai;
+        if (ditolak != null) hasil.fileDitolak = fileDitolak;
+        if (progres != null) progres.laporan(hasil);
+        return hasil;
+    }
+
+    private BufferedWriter simpanChunk(List<Buku> chunk, List<Integer> nomorChunk, Hasil hasil,
+                                       BufferedWriter ditolak, Path fileDitolak) throws IOException {
+        hasil.jumlahChunk++;
+        try {
+            boolean[] tersimpan = penyimpan.simpan(chunk);
+            for (int i = 0; i < chunk.size(); i++) {
+                if (tersimpan[i]) {
+                    hasil.ditambah++;
+                } else {
+                    hasil.duplikatDb++;
+                    Buku b = chunk.get(i);
+                    ditolak = tulisDitolak(ditolak, fileDitolak, nomorChunk.get(i), "sudah ada di database",
+                            b.getJudul() + " / " + b.getPengarang());
+                }
+            }
+        } catch (SQLException e) {
+            // Chunk di-rollback seluruhnya; chunk berikutnya tetap dicoba
+            Metrik.gagal(e);
+            hasil.gagal += chunk.size();
+            for (int i = 0; i < chunk.size(); i++) {
+                Buku b = chunk.get(i);
+                ditolak = tulisDitolak(ditolak, fileDitolak, nomorChunk.get(i), "gagal disimpan: " + e.getMessage(),
+                        b.getJudul() + " / " + b.getPengarang());
+            }
+        }
+        chunk.clear();
+        nomorChunk.clear();
+        return ditolak;
+    }
+
+    private static BufferedWriter tulisDitolak(BufferedWriter w, Path file, int nomor, String alasan, String baris)
+            throws IOException {
+        if (w == null) w = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+        w.write("baris " + nomor + ": " + alasan + "\t" + baris);
+        w.newLine();
+        return w;
+    }
+
+    /* ==========================================================
+       PARSING & VALIDASI
+       ========================================================== */
+
+    private static String validasi(List<String> kolom) {
+        String[] nama = {"judul", "pengarang", "jenis", "genre/subjek"};
+        int[] maks = {255, 100, 0, 100}; // Sesuai panjang kolom tabel buku
+        for (int i = 0; i < 4; i++) {
+            String v = kolom.get(i).trim();
+            if (v.isEmpty()) return nama[i] + " kosong";
+            if (maks[i] > 0 && v.length() > maks[i]) return nama[i] + " lebih dari " + maks[i] + " karakter";
+        }
+        if (jenis(kolom.get(2)) == null) return "jenis harus Fiksi atau NonFiksi: " + kolom.get(2).trim();
+        return null;
+    }
+
+    // "Fiksi" / "NonFiksi" / "Non-Fiksi" / "non fiksi" -> nilai ENUM, selain itu null
+    private static String jenis(String teks) {
+        String t = teks.trim().toLowerCase(Locale.ROOT).replace("-", "").replace(" ", "");
+        if (t.equals("fiksi")) return "Fiksi";
+        if (t.equals("nonfiksi")) return "NonFiksi";
+        return null;
+    }
+
+    private static Buku buatBuku(List<String> kolom) {
+        String judul = kolom.get(0).trim();
+        String pengarang = kolom.get(1).trim();
+        String info = kolom.get(3).trim();
+        return jenis(kolom.get(2)).equals("Fiksi")
+                ? new BukuFiksi(judul, pengarang, info)
+                : new BukuNonFiksi(judul, pengarang, info);
+    }
+
+    // Pecah satu baris; field boleh dikutip ("a, b" dan "" untuk kutip). null jika kutip tidak ditutup.
+    static List<String> pecah(String baris, char pemisah) {
+        List<String> hasil = new ArrayList<>(4);
+        StringBuilder sb = new StringBuilder();
+        boolean dalamKutip = false;
+        for (int i = 0; i < baris.length(); i++) {
+            char c = baris.charAt(i);
+            if (dalamKutip) {
+                if (c == '"') {
+                    if (i + 1 < baris.length() && baris.charAt(i + 1) == '"') {
+                        sb.append('"');
+                        i++;
+                    } else {
+                        dalamKutip = false;
+                    }
+                } else {
+                    sb.append(c);
+                }
+            } else if (c == '"' && sb.toString().trim().isEmpty()) {
+                sb.setLength(0);
+                dalamKutip = true;
+            } else if (c == pemisah) {
+                hasil.add(sb.toString());
+                sb.setLength(0);
+            } else {
+                sb.append(c);
+            }
+        }
+        if (dalamKutip) return null;
+        hasil.add(sb.toString());
+        return hasil;
+    }
+}
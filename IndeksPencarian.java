@@ -0,0 +1,425 @@
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Indeks pencarian di memori untuk judul, pengarang dan genre/subjek (getInfoKhusus).
+// Satu peta posting dengan dua jenis kunci (dikodekan ke long, tanpa membuat String baru):
+// - trigram : potongan 3 huruf -> ID buku, untuk pencarian substring seperti LIKE '%..%'
+// - awalan  : 1-2 huruf pertama setiap kata -> ID buku, untuk kata query yang pendek
+// Posting disimpan sebagai int[] terurut, sehingga query AND = irisan array.
+public class IndeksPencarian {
+
+    // Hasil cariTeratas: buku teratas saja, jumlah = semua yang cocok (perkiraan jika tidak semua diperiksa)
+    public record Hasil(List<Buku> buku, int jumlah, boolean perkiraan) { }
+
+    // Pemisah antar field di teks gabungan, supaya trigram tidak "menyeberang" field
+    private static final char PEMISAH = '\u0001';
+
+    private static final long JENIS_TRIGRAM = 0L;
+    private static final long JENIS_AWALAN1 = 1L << 48;
+    private static final long JENIS_AWALAN2 = 2L << 48;
+
+    private static class Dok {
+        final Buku buku;
+        final String judul, pengarang, info;
+
+        Dok(Buku buku) {
+            this.buku = buku;
+            this.judul = normalisasi(buku.getJudul());
+            this.pengarang = normalisasi(buku.getPengarang());
+            this.info = normalisasi(buku.getInfoKhusus());
+        }
+
+        String gabungan() { return judul + PEMISAH + pengarang + PEMISAH + info; }
+    }
+
+    // Daftar int terurut yang bisa tumbuh (tanpa boxing Integer)
+    private static class Posting {
+        int[] isi = new int[2];
+        int n = 0;
+
+        void tambah(int id) {
+            if (n > 0 && isi[n - 1] >= id) {
+                if (isi[n - 1] == id) return; // trigram yang sama muncul lagi di buku yang sama
+                // ID datang tidak berurutan (jarang): sisipkan di posisi yang benar
+                int pos = Arrays.binarySearch(isi, 0, n, id);
+                if (pos >= 0) return;
+                sisip(-pos - 1, id);
+                return;
+            }
+            if (n == isi.length) isi = Arrays.copyOf(isi, n * 2);
+            isi[n++] = id;
+        }
+
+        private void sisip(int pos, int id) {
+            if (n == isi.length) isi = Arrays.copyOf(isi, n * 2);
+            System.arraycopy(isi, pos, isi, pos + 1, n - pos);
+            isi[pos] = id;
+            n++;
+        }
+    }
+
+    // Peta kunci long -> Posting dengan open addressing (tanpa boxing Long di setiap lookup)
+    private static class PetaPosting {
+        long[] kunci = new long[1 << 12];
+        Posting[] nilai = new Posting[1 << 12];
+        int ukuran = 0;
+
+        Posting get(long k) {
+            int mask = kunci.length - 1;
+            for (int i = slot(k, mask); nilai[i] != null; i = (i + 1) & mask) {
+                if (kunci[i] == k) return nilai[i];
+            }
+            return null;
+        }
+
+        Posting getAtauBuat(long k) {
+            int mask = kunci.length - 1;
+            int i = slot(k, mask);
+            for (; nilai[i] != null; i = (i + 1) & mask) {
+                if (kunci[i] == k) return nilai[i];
+            }
+            Posting p = new Posting();
+            kunci[i] = k;
+            nilai[i] = p;
+            if (++ukuran * 2 > kunci.length) perbesar();
+            return p;
+        }
+
+        private void perbesar() {
+            long[] k = kunci;
+            Posting[] v = nilai;
+            kunci = new long[k.length * 2];
+            nilai = new Posting[v.length * 2];
+            int mask = kunci.length - 1;
+            for (int j = 0; j < k.length; j++) {
+                if (v[j] == null) continue;
+                int i = slot(k[j], mask);
+                while (nilai[i] != null) i = (i + 1) & mask;
+                kunci[i] = k[j];
+                nilai[i] = v[j];
+            }
+        }
+
+        // Kunci mentah banyak bertabrakan (bit huruf saling menimpa), jadi diacak dulu
+        private static int slot(long k, int mask) {
+            long h = k * 0x9E3779B97F4A7C15L;
+            return (int) (h >>> 40) & mask;
+        }
+    }
+
+    private final Map<Integer, Dok> dokumen = new HashMap<>();
+    private PetaPosting posting = new PetaPosting();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /* ==========================================================
+       MEMBANGUN INDEKS
+       ========================================================== */
+
+    public void bangunUlang(Collection<Buku> semua) {
+        lock.writeLock().lock();
+        try {
+            dokumen.clear();
+            posting = new PetaPosting();
+            // Urut berdasarkan ID agar posting cukup di-append
+            List<Buku> urut = new ArrayList<>(semua);
+            urut.sort((a, b) -> Integer.compare(a.getId(), b.getId()));
+            for (Buku b : urut) tambahTanpaLock(b);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void tambah(Buku b) {
+        lock.writeLock().lock();
+        try {
+            tambahTanpaLock(b);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void tambahTanpaLock(Buku b) {
+        Dok d = new Dok(b);
+        if (dokumen.put(b.getId(), d) != null) return; // sudah terindeks (judul/pengarang tidak bisa berubah)
+
+        int id = b.getId();
+        String teks = d.gabungan();
+        for (int i = 0; i < teks.length(); i++) {
+            char c = teks.charAt(i);
+            // Awal kata -> kunci awalan 1 dan 2 huruf
+            if (hurufAtauAngka(c) && (i == 0 || !hurufAtauAngka(teks.charAt(i - 1)))) {
+                tambahPosting(JENIS_AWALAN1 | ((long) c << 32), id);
+                if (i + 1 < teks.length() && hurufAtauAngka(teks.charAt(i + 1))) {
+                    tambahPosting(JENIS_AWALAN2 | ((long) c << 32) | ((long) teks.charAt(i + 1) << 16), id);
+                }
+            }
+            if (i + 3 <= teks.length()) {
+                char c1 = teks.charAt(i + 1), c2 = teks.charAt(i + 2);
+                if (c == PEMISAH || c1 == PEMISAH || c2 == PEMISAH) continue;
+                tambahPosting(kunciTrigram(c, c1, c2), id);
+            }
+        }
+    }
+
+    private void tambahPosting(long kunci, int id) {
+        posting.getAtauBuat(kunci).tambah(id);
+    }
+
+    private Posting ambilPosting(long kunci) {
+        return posting.get(kunci);
+    }
+
+    private static long kunciTrigram(char a, char b, char c) {
+        return JENIS_TRIGRAM | ((long) a << 32) | ((long) b << 16) | c;
+    }
+
+    /* ==========================================================
+       PENCARIAN
+       ========================================================== */
+
+    // Query multi-kata (AND). hanyaJudul = true membatasi kecocokan ke judul saja.
+    // Hasil diurutkan berdasarkan relevansi, lalu ID.
+    public List<Buku> cari(String query, boolean hanyaJudul) {
+        List<String> kata = pecahKata(normalisasi(query));
+        if (kata.isEmpty()) return new ArrayList<>();
+
+        lock.readLock().lock();
+        try {
+            List<Posting> terbaik = pilihPosting(kata);
+            if (terbaik == null) return new ArrayList<>();
+
+            int[] kandidat = Arrays.copyOf(terbaik.get(0).isi, terbaik.get(0).n);
+            int n = kandidat.length;
+            for (int i = 1; i < terbaik.size() && n > 0; i++) {
+                n = iris(kandidat, n, terbaik.get(i).isi, terbaik.get(i).n);
+            }
+
+            // Verifikasi (trigram hanya menyaring kandidat) sekaligus hitung skor relevansi
+            List<Buku> hasil = new ArrayList<>();
+            Map<Buku, Integer> skor = new HashMap<>();
+            for (int i = 0; i < n; i++) {
+                Dok d = dokumen.get(kandidat[i]);
+                int s = skor(d, kata, hanyaJudul);
+                if (s > 0) {
+                    hasil.add(d.buku);
+                    skor.put(d.buku, s);
+                }
+            }
+            hasil.sort((a, b) -> {
+                int c = Integer.compare(skor.get(b), skor.get(a));
+                return c != 0 ? c : Integer.compare(a.getId(), b.getId());
+            });
+            return hasil;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Seperti cari(), tapi hanya 'batas' buku teratas yang dibentuk (heap kecil, bukan daftar semua yang cocok)
+    // dan paling banyak 'maksPeriksa' kandidat yang diverifikasi. Query 1-2 huruf bisa cocok dengan hampir
+    // seluruh katalog: sisanya tidak diperiksa, peringkat diambil dari kandidat ber-ID terkecil dan jumlah
+    // diperkirakan dari rasio cocok pada bagian yang diperiksa.
+    public Hasil cariTeratas(String query, boolean hanyaJudul, int batas, int maksPeriksa) {
+        List<String> kata = pecahKata(normalisasi(query));
+        if (kata.isEmpty() || batas <= 0) return new Hasil(new ArrayList<>(), 0, false);
+
+        lock.readLock().lock();
+        try {
+            List<Posting> terbaik = pilihPosting(kata);
+            if (terbaik == null) return new Hasil(new ArrayList<>(), 0, false);
+
+            // Posting terkecil dijalani langsung (tanpa salinan); posting lain dicek per ID lewat binary search
+            Posting utama = terbaik.get(0);
+            // Skor & ID dikemas dalam satu long (lebih besar = lebih baik); heap minimum berisi 'batas' teratas
+            PriorityQueue<Long> teratas = new PriorityQueue<>();
+            int diperiksa = 0, cocok = 0, i = 0;
+            for (; i < utama.n && diperiksa < maksPeriksa; i++) {
+                int id = utama.isi[i];
+                if (!adaDiSemua(terbaik, id)) continue;
+                diperiksa++;
+                int s = skor(dokumen.get(id), kata, hanyaJudul);
+                if (s == 0) continue;
+                cocok++;
+                long k = ((long) s << 32) | (Integer.MAX_VALUE - id);
+                if (teratas.size() < batas) {
+                    teratas.add(k);
+                } else if (k > teratas.peek()) {
+                    teratas.poll();
+                    teratas.add(k);
+                }
+            }
+
+            List<Buku> hasil = new ArrayList<>(teratas.size());
+            while (!teratas.isEmpty()) hasil.add(dokumen.get(Integer.MAX_VALUE - (int) (long) teratas.poll()).buku);
+            Collections.reverse(hasil);
+            boolean perkiraan = i < utama.n;
+            int jumlah = perkiraan ? (int) Math.min(utama.n, (long) cocok * utama.n / i) : cocok;
+            return new Hasil(hasil, jumlah, perkiraan);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Hanya kata yang paling selektif yang dipakai untuk mengambil kandidat; kata lain cukup dicek
+    // langsung pada kandidat (lebih murah daripada mengiris posting besar). null = pasti tidak ada hasil.
+    private List<Posting> pilihPosting(List<String> kata) {
+        List<Posting> terbaik = null;
+        for (String k : kata) {
+            List<Posting> p = postingUntuk(k);
+            if (p.isEmpty()) return null;
+            if (terbaik == null || p.get(0).n < terbaik.get(0).n) terbaik = p;
+        }
+        return terbaik;
+    }
+
+    private static boolean adaDiSemua(List<Posting> daftar, int id) {
+        for (int j = 1; j < daftar.size(); j++) {
+            Posting p = daftar.get(j);
+            if (Arrays.binarySearch(p.isi, 0, p.n, id) < 0) return false;
+        }
+        return true;
+    }
+
+    // Posting yang harus diiris untuk satu kata, terkecil di depan. Kosong = pasti tidak ada hasil.
+    private List<Posting> postingUntuk(String kata) {
+        List<Posting> daftar = new ArrayList<>();
+        if (kata.length() >= 3) {
+            for (int i = 0; i + 3 <= kata.length(); i++) {
+                Posting p = ambilPosting(kunciTrigram(kata.charAt(i), kata.charAt(i + 1), kata.charAt(i + 2)));
+                if (p == null) return new ArrayList<>();
+                daftar.add(p);
+            }
+            daftar.sort((a, b) -> Integer.compare(a.n, b.n));
+        } else {
+            long kunci = kata.length() == 1
+                    ? JENIS_AWALAN1 | ((long) kata.charAt(0) << 32)
+                    : JENIS_AWALAN2 | ((long) kata.charAt(0) << 32) | ((long) kata.charAt(1) << 16);
+            Posting p = ambilPosting(kunci);
+            if (p != null) daftar.add(p);
+        }
+        return daftar;
+    }
+
+    // Irisan dua array terurut; hasil ditulis ke 'a', mengembalikan panjang baru.
+    // Jika 'b' jauh lebih besar, pakai binary search agar biayanya ~ na * log(nb).
+    private static int iris(int[] a, int na, int[] b, int nb) {
+        int n = 0;
+        if (nb > na * 16) {
+            int dari = 0;
+            for (int i = 0; i < na && dari < nb; i++) {
+                int pos = Arrays.binarySearch(b, dari, nb, a[i]);
+                if (pos >= 0) {
+                    a[n++] = a[i];
+                    dari = pos + 1;
+                } else {
+                    dari = -pos - 1;
+                }
+            }
+            return n;
+        }
+        int i = 0, j = 0;
+        while (i < na && j < nb) {
+            if (a[i] < b[j]) i++;
+            else if (a[i] > b[j]) j++;
+            else { a[n++] = a[i]; i++; j++; }
+        }
+        return n;
+    }
+
+    // 0 = tidak cocok. Judul lebih berbobot daripada pengarang, pengarang daripada genre/subjek.
+    // Kata pendek (< 3 huruf) harus cocok di awal kata, sesuai indeks awalan.
+    private static int skor(Dok d, List<String> kata, boolean hanyaJudul) {
+        int total = 0;
+        for (String k : kata) {
+            int s = skorField(d.judul, k, 10);
+            if (!hanyaJudul) s = Math.max(s, Math.max(skorField(d.pengarang, k, 5), skorField(d.info, k, 3)));
+            if (s == 0) return 0;
+            total += s;
+        }
+        return total;
+    }
+
+    private static int skorField(String field, String kata, int bobot) {
+        int terbaik = 0;
+        for (int pos = field.indexOf(kata); pos >= 0; pos = field.indexOf(kata, pos + 1)) {
+            boolean awalKata = pos == 0 || !hurufAtauAngka(field.charAt(pos - 1));
+            int akhir = pos + kata.length();
+            boolean kataUtuh = awalKata && (akhir == field.length() || !hurufAtauAngka(field.charAt(akhir)));
+            int s = kataUtuh ? bobot * 3 : awalKata ? bobot * 2 : kata.length() >= 3 ? bobot : 0;
+            terbaik = Math.max(terbaik, s);
+            if (kataUtuh) break;
+        }
+        return terbaik;
+    }
+
+    /* ==========================================================
+       UTILITAS TEKS
+       ========================================================== */
+
+    // Huruf kecil, tanpa diakritik (é -> e), spasi dirapikan
+    static String normalisasi(String s) {
+        if (s == null) return "";
+        boolean ascii = true;
+        for (int i = 0; i < s.length() && ascii; i++) ascii = s.charAt(i) < 128;
+        if (!ascii) s = Normalizer.normalize(s, Normalizer.Form.NFD).replaceAll("\\p{M}+", "");
+
+        StringBuilder sb = new StringBuilder(s.length());
+        boolean spasi = false;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (Character.isWhitespace(c)) {
+                spasi = sb.length() > 0;
+            } else {
+                if (spasi) sb.append(' ');
+                spasi = false;
+                sb.append(Character.toLowerCase(c));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static boolean hurufAtauAngka(char c) {
+        return Character.isLetterOrDigit(c);
+    }
+
+    private static List<String> pecahKata(String s) {
+        List<String> hasil = new ArrayList<>();
+        int mulai = -1;
+        for (int i = 0; i <= s.length(); i++) {
+            boolean huruf = i < s.length() && hurufAtauAngka(s.charAt(i));
+            if (huruf && mulai < 0) mulai = i;
+            if (!huruf && mulai >= 0) {
+                hasil.add(s.substring(mulai, i));
+                mulai = -1;
+            }
+        }
+        return hasil;
+    }
+
+    public int getJumlahDokumen() {
+        lock.readLock().lock();
+        try {
+            return dokumen.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        lock.readLock().lock();
+        try {
+            return String.format("IndeksPencarian[dokumen=%d, kunci posting=%d]", dokumen.size(), posting.ukuran);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
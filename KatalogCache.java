@@ -0,0 +1,261 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+// Cache katalog buku di memori (read-through).
+// Tabel 'buku' dimuat sekali saat pertama diakses, lalu dijaga tetap sinkron oleh
+// Perpustakaan (tambah/pinjam/kembali) yang memperbarui entri di tempat.
+// Muatan pertama boleh berasal dari snapshot di disk (lihat SnapshotKatalog); selisihnya dengan DB
+// lalu disusulkan lewat terapkanPerubahan.
+public class KatalogCache {
+
+    // Salinan isi katalog bersama watermark-nya, untuk ditulis ke snapshot
+    public record Salinan(long watermark, long versi, List<Buku> buku) { }
+
+    // Terurut berdasarkan ID, sama seperti urutan SELECT * FROM buku.
+    // Muat ulang membangun peta baru lalu menukarnya sekaligus: pembaca tidak pernah melihat katalog kosong
+    private volatile ConcurrentSkipListMap<Integer, Buku> data = new ConcurrentSkipListMap<>();
+    private final Supplier<List<Buku>> loader;
+    private volatile boolean dimuat = false;
+    // Dipanggil setiap kali katalog (ulang) dimuat dari DB, mis. untuk membangun indeks pencarian
+    private volatile Consumer<List<Buku>> pendengarMuat = list -> { };
+    // Dipakai sekali untuk muatan pertama (mis. snapshot); hasil null = pakai loader biasa
+    private volatile Supplier<List<Buku>> pemuatAwal = null;
+
+    // Penanda perubahan sumber data yang sudah tercakup di isi katalog (lihat Penyimpanan.watermarkKatalog)
+    private volatile long watermark = 0;
+    // Naik setiap isi katalog berubah; dipakai untuk melewati penulisan snapshot yang tidak perlu
+    private final AtomicLong versi = new AtomicLong();
+    // ID yang diubah lokal selama sinkronisasi berjalan; baris DB yang sudah dibaca untuk ID ini bisa lebih lama
+    private volatile Set<Integer> diubahSelamaSinkron = null;
+    // Sama, selama muat ulang penuh: perubahannya ada di peta lama dan dibawa ke peta baru setelah ditukar
+    private volatile Set<Integer> diubahSelamaMuat = null;
+
+    // --- Statistik ---
+    private final AtomicLong hit = new AtomicLong();
+    private final AtomicLong miss = new AtomicLong();
+    private final AtomicLong reload = new AtomicLong();
+    private volatile long waktuMuatTerakhirMs = 0;
+
+    public KatalogCache(Supplier<List<Buku>> loader) {
+        this.loader = loader;
+    }
+
+    public void setPendengarMuat(Consumer<List<Buku>> pendengar) {
+        this.pendengarMuat = pendengar;
+    }
+
+    public void setPemuatAwal(Supplier<List<Buku>> pemuat) {
+        this.pemuatAwal = pemuat;
+    }
+
+    // Dipanggil oleh loader (di bawah lock muat) bersama data yang dimuatnya
+    public void setWatermark(long watermark) {
+        this.watermark = watermark;
+    }
+
+    public long getWatermark() { return watermark; }
+
+    public boolean isDimuat() { return dimuat; }
+
+    public void pastikanDimuat() {
+        if (dimuat) {
+            hit.incrementAndGet();
+            return;
+        }
+        synchronized (this) {
+            if (dimuat) {
+                hit.incrementAndGet();
+                return;
+            }
+            miss.incrementAndGet();
+            Supplier<List<Buku>> awal = pemuatAwal;
+            pemuatAwal = null;
+            List<Buku> list = awal == null ? null : awal.get();
+            isiDari(list != null ? list : loader.get());
+        }
+    }
+
+    // Muat ulang seluruh katalog dari database (mis. jika ada perubahan dari luar aplikasi).
+    // Selama loader berjalan pembaca tetap dilayani dari isi lama
+    public synchronized void muatUlang() {
+        reload.incrementAndGet();
+        diubahSelamaMuat = ConcurrentHashMap.newKeySet();
+        try {
+            isiDari(loader.get());
+        } finally {
+            diubahSelamaMuat = null;
+        }
+    }
+
+    private void isiDari(List<Buku> list) {
+        long mulai = System.nanoTime();
+        ConcurrentSkipListMap<Integer, Buku> baru = new ConcurrentSkipListMap<>();
+        for (Buku b : list) baru.put(b.getId(), b);
+        ConcurrentSkipListMap<Integer, Buku> lama = data;
+        data = baru;
+
+        // Ditandai sebelum ditulis ke peta lama (lihat simpan/terapkanStatus), jadi tidak ada yang terlewat
+        Set<Integer> diubah = diubahSelamaMuat;
+        boolean adaTambahan = false;
+        if (diubah != null) {
+            for (int id : diubah) {
+                Buku lokal = lama.get(id);
+                if (lokal == null) continue;
+                Buku dimuat = baru.putIfAbsent(id, lokal);
+                if (dimuat == null) adaTambahan = true;
+                else if (dimuat != lokal) dimuat.terapkanStatus(lokal.isDipinjam(), lokal.getVersi());
+            }
+        }
+        pendengarMuat.accept(adaTambahan ? new ArrayList<>(baru.values()) : list);
+        versi.incrementAndGet();
+        dimuat = true;
+        waktuMuatTerakhirMs = (System.nanoTime() - mulai) / 1_000_000;
+    }
+
+    /* ==========================================================
+       BACA
+       ========================================================== */
+
+    public List<Buku> getSemua() {
+        pastikanDimuat();
+        return new ArrayList<>(data.values());
+    }
+
+    // Satu halaman katalog terurut ID. setelahId >= 0 -> keyset (tailMap), -1 -> lewati 'offset' buku.
+    public List<Buku> halaman(int setelahId, int offset, int batas) {
+        pastikanDimuat();
+        List<Buku> hasil = new ArrayList<>(batas);
+        Iterable<Buku> dari = setelahId >= 0 ? data.tailMap(setelahId, false).values() : data.values();
+        int lewati = setelahId >= 0 ? 0 : offset;
+        for (Buku b : dari) {
+            if (lewati > 0) {
+                lewati--;
+                continue;
+            }
+            if (hasil.size() == batas) break;
+            hasil.add(b);
+        }
+        return hasil;
+    }
+
+    public int getJumlah() {
+        pastikanDimuat();
+        return data.size();
+    }
+
+    public Buku get(int id) {
+        pastikanDimuat();
+        return data.get(id);
+    }
+
+    /* ==========================================================
+       TULIS (dipanggil setelah DB berhasil diubah)
+       ========================================================== */
+
+    // Jika peta ditukar muat ulang di tengah jalan, perubahan juga diterapkan ke peta yang baru
+    public void simpan(Buku b) {
+        if (!dimuat) return;
+        tandaiDiubah(b.getId());
+        ConcurrentSkipListMap<Integer, Buku> m = data;
+        m.put(b.getId(), b);
+        if (data != m) data.putIfAbsent(b.getId(), b);
+    }
+
+    // Hasil pinjam/kembali yang sudah commit; yang versinya lebih lama dari isi cache diabaikan
+    public void terapkanStatus(int id, boolean dipinjam, int versiBaris) {
+        ConcurrentSkipListMap<Integer, Buku> m = data;
+        Buku b = m.get(id);
+        if (b == null) return;
+        tandaiDiubah(id);
+        b.terapkanStatus(dipinjam, versiBaris);
+        if (data != m) {
+            b = data.get(id);
+            if (b != null) b.terapkanStatus(dipinjam, versiBaris);
+        }
+    }
+
+    private void tandaiDiubah(int id) {
+        Set<Integer> s = diubahSelamaSinkron;
+        if (s != null) s.add(id);
+        s = diubahSelamaMuat;
+        if (s != null) s.add(id);
+        versi.incrementAndGet();
+    }
+
+    /* ==========================================================
+       SINKRONISASI DENGAN DB (setelah muat dari snapshot)
+       ========================================================== */
+
+    // Dipanggil SEBELUM baris yang berubah dibaca dari DB
+    public void mulaiSinkron() {
+        diubahSelamaSinkron = ConcurrentHashMap.newKeySet();
+    }
+
+    // Terapkan baris DB yang berubah sejak watermark lama. Status buku yang sudah ada diubah di tempat
+    // (objeknya juga dipegang member & tabel UI); buku yang isinya lain diganti lalu indeks dibangun ulang.
+    // Hasil: buku baru yang belum masuk indeks (kosong jika indeks sudah dibangun ulang).
+    public synchronized List<Buku> terapkanPerubahan(List<Buku> berubah, long watermarkBaru) {
+        Set<Integer> lewati = diubahSelamaSinkron;
+        diubahSelamaSinkron = null;
+        List<Buku> baru = new ArrayList<>();
+        boolean adaDiganti = false;
+        for (Buku b : berubah) {
+            if (lewati != null && lewati.contains(b.getId())) continue; // versi lokal lebih baru
+            Buku lama = data.get(b.getId());
+            if (lama == null) {
+                data.put(b.getId(), b);
+                baru.add(b);
+            } else if (isiSama(lama, b)) {
+                lama.terapkanStatus(b.isDipinjam(), b.getVersi());
+            } else {
+                data.put(b.getId(), b);
+                adaDiganti = true;
+            }
+        }
+        if (adaDiganti) pendengarMuat.accept(new ArrayList<>(data.values()));
+        watermark = watermarkBaru;
+        versi.incrementAndGet();
+        return adaDiganti ? new ArrayList<>() : baru;
+    }
+
+    public void batalSinkron() {
+        diubahSelamaSinkron = null;
+    }
+
+    private static boolean isiSama(Buku a, Buku b) {
+        return a.getClass() == b.getClass()
+                && a.getJudul().equals(b.getJudul())
+                && a.getPengarang().equals(b.getPengarang())
+                && Objects.equals(a.getInfoKhusus(), b.getInfoKhusus());
+    }
+
+    // Isi & watermark yang konsisten satu sama lain (lock yang sama dengan muat/sinkron); null jika belum dimuat
+    public synchronized Salinan salinan() {
+        if (!dimuat) return null;
+        return new Salinan(watermark, versi.get(), new ArrayList<>(data.values()));
+    }
+
+    public long getVersi() { return versi.get(); }
+
+    /* ==========================================================
+       STATISTIK
+       ========================================================== */
+
+    public int getUkuran() { return data.size(); }
+    public long getHit() { return hit.get(); }
+    public long getMiss() { return miss.get(); }
+    public long getReload() { return reload.get(); }
+
+    @Override
+    public String toString() {
+        return String.format("KatalogCache[buku=%d, hit=%d, miss=%d, reload=%d, muat terakhir=%d ms]",
+                getUkuran(), getHit(), getMiss(), getReload(), waktuMuatTerakhirMs);
+    }
+}
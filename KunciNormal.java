@@ -0,0 +1,84 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Locale;
+
+// Kunci pembanding yang disimpan di kolom sendiri (judul_normal, pengarang_normal, nama_normal,
+// email_normal) dan diberi index. Cek duplikat & login jadi "kolom = ?" yang memakai index,
+// bukan LOWER(kolom) = ? yang selalu full scan.
+public class KunciNormal {
+
+    private static final int UKURAN_BATCH = 5000;
+
+    // Huruf kecil, tanpa diakritik, spasi dirapikan (sama dengan normalisasi pencarian)
+    public static String teks(String s) {
+        return IndeksPencarian.normalisasi(s);
+    }
+
+    public static String email(String email) {
+        return email == null ? null : email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // Satu String untuk pasangan judul+pengarang (Bloom filter / HashSet)
+    public static String buku(String judul, String pengarang) {
+        return teks(judul) + '\u0001' + teks(pengarang);
+    }
+
+    /* ==========================================================
+       PENGISIAN KOLOM (dipakai MigrasiSkema V2 untuk data lama)
+       ========================================================== */
+
+    // Diisi per batch dengan keyset pada PK, supaya tabel besar tidak dibaca sekaligus
+    static void isiKolomBuku(Connection conn) throws SQLException {
+        String sqlAmbil = "SELECT id, judul, pengarang FROM buku WHERE id > ? AND judul_normal IS NULL ORDER BY id LIMIT ?";
+        String sqlIsi = "UPDATE buku SET judul_normal = ?, pengarang_normal = ? WHERE id = ?";
+        int terakhir = 0, total = 0, n;
+        do {
+            n = 0;
+            try (PreparedStatement ambil = conn.prepareStatement(sqlAmbil);
+                 PreparedStatement isi = conn.prepareStatement(sqlIsi)) {
+                ambil.setInt(1, terakhir);
+                ambil.setInt(2, UKURAN_BATCH);
+                ResultSet rs = ambil.executeQuery();
+                while (rs.next()) {
+                    terakhir = rs.getInt("id");
+                    isi.setString(1, teks(rs.getString("judul")));
+                    isi.setString(2, teks(rs.getString("pengarang")));
+                    isi.setInt(3, terakhir);
+                    isi.addBatch();
+                    n++;
+                }
+                if (n > 0) isi.executeBatch();
+            }
+            total += n;
+        } while (n == UKURAN_BATCH);
+        if (total > 0) System.out.println("Kunci normal diisi untuk " + total + " buku");
+    }
+
+    static void isiKolomMember(Connection conn) throws SQLException {
+        String sqlAmbil = "SELECT id, nama, email FROM member WHERE id > ? AND nama_normal IS NULL ORDER BY id LIMIT ?";
+        String sqlIsi = "UPDATE member SET nama_normal = ?, email_normal = ? WHERE id = ?";
+        int terakhir = 0, total = 0, n;
+        do {
+            n = 0;
+            try (PreparedStatement ambil = conn.prepareStatement(sqlAmbil);
+                 PreparedStatement isi = conn.prepareStatement(sqlIsi)) {
+                ambil.setInt(1, terakhir);
+                ambil.setInt(2, UKURAN_BATCH);
+                ResultSet rs = ambil.executeQuery();
+                while (rs.next()) {
+                    terakhir = rs.getInt("id");
+                    isi.setString(1, teks(rs.getString("nama")));
+                    isi.setString(2, email(rs.getString("email")));
+                    isi.setInt(3, terakhir);
+                    isi.addBatch();
+                    n++;
+                }
+                if (n > 0) isi.executeBatch();
+            }
+            total += n;
+        } while (n == UKURAN_BATCH);
+        if (total > 0) System.out.println("Kunci normal diisi untuk " + total + " member");
+    }
+}
@@ -1,22 +1,24 @@
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
-import java.nio.charset.StandardCharsets;
-import java.util.Arrays;
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class Main extends JFrame {
     // Instance logic utama
     private static final Perpustakaan lib = new Perpustakaan();
+    // Semua pemanggilan lib (JDBC) dijalankan di sini, bukan di Event Dispatch Thread
+    private static final TugasLatar latar = new TugasLatar();
 
     // --- Komponen UI Global (agar bisa di-refresh) ---
     private JTable tableBuku, tableMember, tableLog, tableGlobalPinjam;
-    private DefaultTableModel modelBuku, modelMember, modelLog, modelGlobalPinjam;
+    // Model virtual: baris diambil per halaman saat di-scroll, bukan dimuat semua
+    private ModelTabelHalaman<Buku> modelBuku;
+    private ModelTabelHalaman<Object[]> modelMember, modelLog, modelGlobalPinjam;
 
     // Komponen Tab Member
     private JTextField txtMemberName;
@@ -27,6 +29,13 @@ public class Main extends JFrame {
     // State Member yang sedang Login
     private Member currentMember = null;
 
+    // true jika tabel buku menampilkan katalog penuh (bukan hasil pencarian)
+    private boolean katalogPenuh = true;
+
+    // Status bar (indikator sibuk)
+    private JLabel lblStatusBar;
+    private JProgressBar progressBar;
+
     public Main() {
         // Setup Window
         setTitle("Sistem Manajemen Perpustakaan & Sirkulasi");
@@ -44,23 +53,25 @@ public class Main extends JFrame {
 
         // Tabel Buku
         String[] colBuku = {"ID", "Judul", "Pengarang", "Status", "Kategori"};
-        modelBuku = new DefaultTableModel(colBuku, 0);
+        modelBuku = new ModelTabelHalaman<>(colBuku, Main::kolomBuku, sumberKatalog(), 200, 10);
+        modelBuku.setLatar(latar);
         tableBuku = new JTable(modelBuku);
 
         // Panel Pencarian (Atas)
         JPanel panelSearch = new JPanel(new FlowLayout(FlowLayout.LEFT));
         JTextField txtSearch = new JTextField(25);
-        JButton btnSearch = new JButton("Cari Judul");
+        JButton btnSearch = new JButton("Cari");
         JButton btnRefreshBuku = new JButton("Refresh Full");
 
         // Logic Search
-        btnSearch.addActionListener(e -> refreshTabelBuku(txtSearch.getText()));
+        btnSearch.addActionListener(e -> refreshTabelBuku(txtSearch.getText().trim()));
+        txtSearch.addActionListener(e -> refreshTabelBuku(txtSearch.getText().trim()));
         btnRefreshBuku.addActionListener(e -> {
             txtSearch.setText("");
             refreshTabelBuku("");
         });
 
-        panelSearch.add(new JLabel("Cari Buku:"));
+        panelSearch.add(new JLabel("Cari Buku (judul/pengarang/kategori):"));
         panelSearch.add(txtSearch);
         panelSearch.add(btnSearch);
         panelSearch.add(btnRefreshBuku);
@@ -121,93 +132,46 @@ public class Main extends JFrame {
             String nama = txtMemberName.getText().trim();
             if (nama.isEmpty()) return;
 
-            // Cek member di DB
-            currentMember = lib.getAnggota(nama);
-
-            // Jika tidak ada, tawarkan buat baru
-            if (currentMember == null) {
-                int confirm = JOptionPane.showConfirmDialog(this,
-                        "Member '" + nama + "' tidak ditemukan.\nDaftarkan sebagai member baru?",
-                        "Member Baru", JOptionPane.YES_NO_OPTION);
-
-                if (confirm == JOptionPane.YES_OPTION) {
-                    // Buka form registrasi lengkap
-                    Member newMember = bukaFormRegistrasi(nama);
-                    if (newMember != null) {
-                        currentMember = newMember;
-                    } else {
-                        return;
-                    }
-                } else {
-                    return;
-                }
-            }
-
-            // Update UI setelah login sukses
-            lblStatusMember.setText("Login: " + currentMember.getNama() + " (" + currentMember.getEmail() + ") | Kuota: " + currentMember.getBatasPinjam());
-            lblStatusMember.setForeground(new Color(0, 128, 0)); // Hijau
-            btnPinjam.setEnabled(true);
-            btnKembali.setEnabled(true);
-            refreshListPinjamanMember(); // Load buku yang sedang dipinjam
+            // Cek member di DB (background), lanjutkan di EDT
+            btnLogin.setEnabled(false);
+            latar.jalankan(() -> lib.getAnggota(nama), m -> {
+                btnLogin.setEnabled(true);
+                prosesLogin(nama, m);
+            }, ex -> {
+                btnLogin.setEnabled(true);
+                tampilkanError(ex);
+            });
         });
 
         // Logic Pinjam (DENGAN DROPDOWN PILIHAN)
         btnPinjam.addActionListener(e -> {
-            String keyword = JOptionPane.showInputDialog(this, "Masukkan Judul / Kata Kunci Buku:");
+            String keyword = JOptionPane.showInputDialog(this, "Masukkan Judul / Pengarang / Kata Kunci Buku:");
             if (keyword == null || keyword.trim().isEmpty()) return;
 
-            // 1. Cari buku
-            List<Buku> hasil = lib.cariBukuByJudul(keyword);
-
-            if (hasil.isEmpty()) {
-                JOptionPane.showMessageDialog(this, "Buku tidak ditemukan!");
-            } else {
-                // 2. Siapkan Array String untuk Dropdown
-                String[] opsiBuku = new String[hasil.size()];
-                for (int i = 0; i < hasil.size(); i++) {
-                    Buku b = hasil.get(i);
-                    // Format: ID - Judul (Pengarang) [STATUS]
-                    String status = b.isDipinjam() ? "[DIPINJAM]" : "[TERSEDIA]";
-                    opsiBuku[i] = b.getId() + " - " + b.getJudul() + " (" + b.getPengarang() + ") " + status;
-                }
-
-                // 3. Tampilkan Popup Dropdown
-                String pilihan = (String) JOptionPane.showInputDialog(
-                        this,
-                        "Ditemukan " + hasil.size() + " buku. Pilih yang ingin dipinjam:",
-                        "Pilih Buku",
-                        JOptionPane.QUESTION_MESSAGE,
-                        null,
-                        opsiBuku,     // List opsi
-                        opsiBuku[0]); // Default select
-
-                // 4. Proses Pilihan
-                if (pilihan != null) {
-                    // Cari object buku asli berdasarkan string pilihan
-                    Buku bukuTerpilih = null;
-                    for (int i = 0; i < opsiBuku.length; i++) {
-                        if (opsiBuku[i].equals(pilihan)) {
-                            bukuTerpilih = hasil.get(i);
-                            break;
-                        }
-                    }
-
-                    if (bukuTerpilih != null) {
-                        String res = lib.pinjamBuku(currentMember.getNama(), bukuTerpilih);
-                        JOptionPane.showMessageDialog(this, res);
-                        refreshAllData(); // Refresh semua tabel
-                    }
-                }
-            }
+            // 1. Cari buku (background), pilih di EDT
+            btnPinjam.setEnabled(false);
+            latar.jalankan(() -> lib.cariBuku(keyword), hasil -> {
+                btnPinjam.setEnabled(true);
+                pilihDanPinjam(hasil);
+            }, ex -> {
+                btnPinjam.setEnabled(true);
+                tampilkanError(ex);
+            });
         });
 
         // Logic Kembali
         btnKembali.addActionListener(e -> {
             String judul = JOptionPane.showInputDialog(this, "Masukkan Judul Buku yang dikembalikan:");
             if (judul != null && !judul.isEmpty()) {
-                String res = lib.kembalikanBuku(currentMember.getNama(), judul);
-                JOptionPane.showMessageDialog(this, res);
-                refreshAllData();
+                String nama = currentMember.getNama();
+                btnKembali.setEnabled(false);
+                latar.jalankan(() -> lib.kembalikanBuku(nama, judul), res -> {
+                    btnKembali.setEnabled(true);
+                    JOptionPane.showMessageDialog(this, res); // Tabel diperbarui lewat Peristiwa
+                }, ex -> {
+                    btnKembali.setEnabled(true);
+                    tampilkanError(ex);
+                });
             }
         });
 
@@ -232,6 +196,10 @@ public class Main extends JFrame {
         panelAddBuku.add(new JLabel("Genre / Subjek:")); panelAddBuku.add(txtInfoKhusus);
         panelAddBuku.add(new JLabel("")); panelAddBuku.add(btnSimpanBuku);
 
+        // Impor massal dari file (CSV/TSV: judul, pengarang, jenis, genre/subjek)
+        JButton btnImporBuku = new JButton("Impor dari CSV/TSV...");
+        panelAddBuku.add(new JLabel("Impor Massal:")); panelAddBuku.add(btnImporBuku);
+
         // Wrapper agar form tidak memenuhi tinggi layar
         JPanel wrapperForm = new JPanel(new BorderLayout());
         wrapperForm.add(panelAddBuku, BorderLayout.NORTH);
@@ -247,36 +215,109 @@ public class Main extends JFrame {
                 return;
             }
 
-            if (cmbJenis.getSelectedItem().equals("Fiksi")) {
-                lib.tambahBuku(new BukuFiksi(j, p, info));
-            } else {
-                lib.tambahBuku(new BukuNonFiksi(j, p, info));
-            }
+            Buku baru = cmbJenis.getSelectedItem().equals("Fiksi")
+                    ? new BukuFiksi(j, p, info)
+                    : new BukuNonFiksi(j, p, info);
+
+            btnSimpanBuku.setEnabled(false);
+            latar.jalankan(() -> {
+                lib.tambahBuku(baru);
+                return baru;
+            }, b -> {
+                btnSimpanBuku.setEnabled(true);
+                JOptionPane.showMessageDialog(this, "Buku berhasil ditambahkan!");
+                // Reset Form
+                txtJudulBuku.setText(""); txtPengarang.setText(""); txtInfoKhusus.setText("");
+            }, ex -> {
+                btnSimpanBuku.setEnabled(true);
+                tampilkanError(ex);
+            });
+        });
 
-            JOptionPane.showMessageDialog(this, "Buku berhasil ditambahkan!");
-            // Reset Form
-            txtJudulBuku.setText(""); txtPengarang.setText(""); txtInfoKhusus.setText("");
-            refreshAllData();
+        // Logic Impor Buku: per chunk satu transaksi, katalog & log diperbarui lewat Peristiwa
+        btnImporBuku.addActionListener(e -> {
+            JFileChooser chooser = new JFileChooser();
+            if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+
+            File file = chooser.getSelectedFile();
+            ProgressMonitor monitor = new ProgressMonitor(this, "Impor buku dari " + file.getName(), "", 0, 1000);
+            monitor.setMillisToDecideToPopup(300);
+            AtomicBoolean batal = new AtomicBoolean(false);
+
+            btnImporBuku.setEnabled(false);
+            latar.jalankan(() -> lib.imporBuku(file.toPath(),
+                    h -> {
+                        // Salin nilai sekarang; objek Hasil terus diubah oleh thread impor
+                        int progres = (int) Math.min(999, h.posisi * 1000 / Math.max(1, h.ukuranFile));
+                        String note = String.format("%,d baris, %,d ditambah, %,d baris/detik",
+                                h.dibaca, h.ditambah, h.getBarisPerDetik());
+                        SwingUtilities.invokeLater(() -> {
+                            if (monitor.isCanceled()) batal.set(true);
+                            monitor.setProgress(progres);
+                            monitor.setNote(note);
+                        });
+                    },
+                    batal::get), hasil -> {
+                monitor.close();
+                btnImporBuku.setEnabled(true);
+                String pesan = hasil.toString();
+                if (hasil.fileDitolak != null) pesan += "\nRincian baris yang ditolak: " + hasil.fileDitolak;
+                JOptionPane.showMessageDialog(this, pesan, "Impor Selesai", JOptionPane.INFORMATION_MESSAGE);
+            }, ex -> {
+                monitor.close();
+                btnImporBuku.setEnabled(true);
+                tampilkanError(ex);
+            });
         });
 
         // --- BAGIAN KANAN: Tabel Monitoring (Tabbed lagi) ---
         JTabbedPane tabAdminData = new JTabbedPane();
 
         // 1. Tabel Log
-        modelLog = new DefaultTableModel(new String[]{"Waktu", "Aksi", "Member", "Info"}, 0);
+        modelLog = ModelTabelHalaman.untukArray(new String[]{"Waktu", "Aksi", "Member", "Info"},
+                new ModelTabelHalaman.SumberHalaman<Object[]>() {
+                    @Override
+                    public int hitung() { return lib.getJumlahLog(); }
+                    @Override
+                    public List<Object[]> ambil(Object[] sebelum, int offset, int batas) {
+                        return lib.getHalamanLog(sebelum, offset, batas);
+                    }
+                });
+        modelLog.setLatar(latar);
         tableLog = new JTable(modelLog);
         tabAdminData.add("Log Aktivitas", new JScrollPane(tableLog));
 
         // 2. Tabel Global Pinjam
-        modelGlobalPinjam = new DefaultTableModel(new String[]{"Judul Buku", "Pengarang", "Peminjam"}, 0);
+        modelGlobalPinjam = ModelTabelHalaman.untukArray(new String[]{"Judul Buku", "Pengarang", "Peminjam"},
+                new ModelTabelHalaman.SumberHalaman<Object[]>() {
+                    @Override
+                    public int hitung() { return lib.getJumlahPinjamanGlobal(); }
+                    @Override
+                    public List<Object[]> ambil(Object[] sebelum, int offset, int batas) {
+                        return lib.getHalamanPinjamanGlobal(sebelum, offset, batas);
+                    }
+                });
+        modelGlobalPinjam.setLatar(latar);
         tableGlobalPinjam = new JTable(modelGlobalPinjam);
         tabAdminData.add("Sedang Dipinjam (Global)", new JScrollPane(tableGlobalPinjam));
 
         // 3. Tabel Daftar Member
-        modelMember = new DefaultTableModel(new String[]{"ID", "Nama Member", "Batas Pinjam", "Status Pinjam"}, 0);
+        modelMember = ModelTabelHalaman.untukArray(new String[]{"ID", "Nama Member", "Batas Pinjam", "Status Pinjam"},
+                new ModelTabelHalaman.SumberHalaman<Object[]>() {
+                    @Override
+                    public int hitung() { return lib.getJumlahMember(); }
+                    @Override
+                    public List<Object[]> ambil(Object[] sebelum, int offset, int batas) {
+                        return lib.getHalamanMember(sebelum, offset, batas);
+                    }
+                });
+        modelMember.setLatar(latar);
         tableMember = new JTable(modelMember);
         tabAdminData.add("Daftar Member", new JScrollPane(tableMember));
 
+        // 4. Metrik latensi per operasi & statement JDBC (lihat Metrik)
+        tabAdminData.add("Metrics", new PanelMetrik());
+
         // --- Tambahkan tombol Export CSV di atas tabAdminData ---
         JPanel rightWrapper = new JPanel(new BorderLayout());
         JPanel toolbar = new JPanel(new FlowLayout(FlowLayout.RIGHT));
@@ -285,32 +326,57 @@ public class Main extends JFrame {
         rightWrapper.add(toolbar, BorderLayout.NORTH);
         rightWrapper.add(tabAdminData, BorderLayout.CENTER);
 
-        // Logic Export CSV
+        // Logic Export CSV: seluruh riwayat (opsional rentang tanggal), streaming di background
         btnExportLog.addActionListener(e -> {
-            Object[][] logs = lib.getLogData();
+            JTextField txtDari = new JTextField();
+            JTextField txtSampai = new JTextField();
+            JCheckBox chkGzip = new JCheckBox("Kompres gzip (.csv.gz)");
+            JPanel panelOpsi = new JPanel(new GridLayout(3, 2, 5, 5));
+            panelOpsi.add(new JLabel("Dari tanggal (yyyy-MM-dd):")); panelOpsi.add(txtDari);
+            panelOpsi.add(new JLabel("Sampai tanggal (yyyy-MM-dd):")); panelOpsi.add(txtSampai);
+            panelOpsi.add(new JLabel("Kosongkan = semua")); panelOpsi.add(chkGzip);
+            if (JOptionPane.showConfirmDialog(this, panelOpsi, "Export Log", JOptionPane.OK_CANCEL_OPTION)
+                    != JOptionPane.OK_OPTION) return;
+
+            Timestamp dari, sampai;
+            try {
+                dari = parseTanggal(txtDari.getText(), 0);
+                sampai = parseTanggal(txtSampai.getText(), 1); // Sampai akhir hari tersebut
+            } catch (DateTimeParseException ex) {
+                JOptionPane.showMessageDialog(this, "Format tanggal harus yyyy-MM-dd!");
+                return;
+            }
+            boolean gzip = chkGzip.isSelected();
 
             JFileChooser chooser = new JFileChooser();
-            chooser.setSelectedFile(new File("log_aktivitas.csv"));
+            chooser.setSelectedFile(new File(gzip ? "log_aktivitas.csv.gz" : "log_aktivitas.csv"));
             int ret = chooser.showSaveDialog(this);
             if (ret != JFileChooser.APPROVE_OPTION) return;
 
             File file = chooser.getSelectedFile();
-            try (PrintWriter pw = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
-                // Header CSV
-                pw.println("Waktu,Aksi,Member,Info");
-
-                for (Object[] row : logs) {
-                    String line = Arrays.stream(row)
-                            .map(o -> o == null ? "" : escapeCsv(o.toString()))
-                            .collect(Collectors.joining(","));
-                    pw.println(line);
-                }
-
-                JOptionPane.showMessageDialog(this, "Export berhasil: " + file.getAbsolutePath());
-            } catch (Exception ex) {
+            ProgressMonitor monitor = new ProgressMonitor(this, "Export log aktivitas...", "", 0, 1000);
+            monitor.setMillisToDecideToPopup(300);
+            AtomicBoolean batal = new AtomicBoolean(false);
+
+            btnExportLog.setEnabled(false);
+            latar.jalankan(() -> new EksporLog(lib.getPenyimpanan(), file.toPath(), dari, sampai, gzip).jalankan(
+                    (baris, total) -> SwingUtilities.invokeLater(() -> {
+                        if (monitor.isCanceled()) batal.set(true);
+                        if (total > 0) monitor.setProgress((int) Math.min(1000, baris * 1000 / total));
+                        monitor.setNote(String.format("%,d dari %,d baris", baris, total));
+                    }),
+                    batal::get), hasil -> {
+                monitor.close();
+                btnExportLog.setEnabled(true);
+                JOptionPane.showMessageDialog(this, hasil.dibatalkan
+                        ? hasil.toString()
+                        : "Export berhasil: " + file.getAbsolutePath() + "\n" + hasil);
+            }, ex -> {
+                monitor.close();
+                btnExportLog.setEnabled(true);
                 ex.printStackTrace();
                 JOptionPane.showMessageDialog(this, "Gagal export: " + ex.getMessage());
-            }
+            });
         });
 
         splitAdmin.setLeftComponent(wrapperForm);
@@ -326,10 +392,136 @@ public class Main extends JFrame {
 
         add(tabbedPane);
 
-        // Load data awal saat aplikasi dibuka
+        // Status bar: tampil selama ada tugas background yang berjalan
+        JPanel statusBar = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        lblStatusBar = new JLabel("Siap");
+        progressBar = new JProgressBar();
+        progressBar.setIndeterminate(true);
+        progressBar.setVisible(false);
+        statusBar.add(progressBar);
+        statusBar.add(lblStatusBar);
+        add(statusBar, BorderLayout.SOUTH);
+
+        latar.setIndikator(n -> {
+            progressBar.setVisible(n > 0);
+            lblStatusBar.setText(n > 0 ? "Memuat data... (" + n + " tugas)" : "Siap");
+        });
+        latar.setPenanganError(this::tampilkanError);
+
+        // Perubahan data setelah ini cukup menambal baris yang terdampak
+        lib.tambahPendengar(p -> SwingUtilities.invokeLater(() -> terapkanPeristiwa(p)));
+
+        // Load data awal saat aplikasi dibuka (tidak menahan munculnya window)
         refreshAllData();
     }
 
+    // ============================================================
+    // ALUR MEMBER (dipanggil di EDT setelah data dari background tersedia)
+    // ============================================================
+
+    private void prosesLogin(String nama, Member m) {
+        // Member yang login disimpan di sesi Perpustakaan; pinjamannya diperbarui di tempat
+        lib.akhiriSesi(currentMember);
+        currentMember = lib.mulaiSesi(m);
+
+        // Jika tidak ada, tawarkan buat baru
+        if (currentMember == null) {
+            int confirm = JOptionPane.showConfirmDialog(this,
+                    "Member '" + nama + "' tidak ditemukan.\nDaftarkan sebagai member baru?",
+                    "Member Baru", JOptionPane.YES_NO_OPTION);
+
+            if (confirm == JOptionPane.YES_OPTION) {
+                // Buka form registrasi lengkap
+                Member newMember = bukaFormRegistrasi(nama);
+                if (newMember != null) {
+                    currentMember = lib.mulaiSesi(newMember);
+                } else {
+                    return;
+                }
+            } else {
+                return;
+            }
+        }
+
+        // Update UI setelah login sukses
+        lblStatusMember.setText("Login: " + currentMember.getNama() + " (" + currentMember.getEmail() + ") | Kuota: " + currentMember.getBatasPinjam());
+        lblStatusMember.setForeground(new Color(0, 128, 0)); // Hijau
+        btnPinjam.setEnabled(true);
+        btnKembali.setEnabled(true);
+        refreshListPinjamanMember(); // Load buku yang sedang dipinjam
+    }
+
+    private void pilihDanPinjam(List<Buku> hasil) {
+        if (hasil.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "Buku tidak ditemukan!");
+            return;
+        }
+
+        // 2. Siapkan Array String untuk Dropdown
+        String[] opsiBuku = new String[hasil.size()];
+        for (int i = 0; i < hasil.size(); i++) {
+            Buku b = hasil.get(i);
+            // Format: ID - Judul (Pengarang) [STATUS]
+            String status = b.isDipinjam() ? "[DIPINJAM]" : "[TERSEDIA]";
+            opsiBuku[i] = b.getId() + " - " + b.getJudul() + " (" + b.getPengarang() + ") " + status;
+        }
+
+        // 3. Tampilkan Popup Dropdown
+        String pilihan = (String) JOptionPane.showInputDialog(
+                this,
+                "Ditemukan " + hasil.size() + " buku. Pilih yang ingin dipinjam:",
+                "Pilih Buku",
+                JOptionPane.QUESTION_MESSAGE,
+                null,
+                opsiBuku,     // List opsi
+                opsiBuku[0]); // Default select
+
+        // 4. Proses Pilihan
+        if (pilihan == null) return;
+
+        // Cari object buku asli berdasarkan string pilihan
+        Buku bukuTerpilih = null;
+        for (int i = 0; i < opsiBuku.length; i++) {
+            if (opsiBuku[i].equals(pilihan)) {
+                bukuTerpilih = hasil.get(i);
+                break;
+            }
+        }
+
+        if (bukuTerpilih != null) {
+            Buku buku = bukuTerpilih;
+            String nama = currentMember.getNama();
+            btnPinjam.setEnabled(false);
+            latar.jalankan(() -> lib.pinjamBuku(nama, buku), res -> {
+                btnPinjam.setEnabled(true);
+                HasilTransaksi.Status st = res.getStatus();
+                if (st == HasilTransaksi.Status.SEDANG_DIPINJAM || st == HasilTransaksi.Status.DITAHAN) {
+                    tawarkanReservasi(nama, buku, res.getPesan());
+                } else {
+                    JOptionPane.showMessageDialog(this, res.getPesan()); // Tabel diperbarui lewat Peristiwa
+                }
+            }, ex -> {
+                btnPinjam.setEnabled(true);
+                tampilkanError(ex);
+            });
+        }
+    }
+
+    // Buku tidak bisa dipinjam sekarang: tawarkan masuk antrean reservasi
+    private void tawarkanReservasi(String nama, Buku buku, String pesan) {
+        int pilih = JOptionPane.showConfirmDialog(this, pesan + "\nMasuk antrean reservasi untuk buku ini?",
+                "Reservasi", JOptionPane.YES_NO_OPTION);
+        if (pilih != JOptionPane.YES_OPTION) return;
+        latar.jalankan(() -> lib.reservasiBuku(nama, buku),
+                res -> JOptionPane.showMessageDialog(this, res.getPesan()),
+                this::tampilkanError);
+    }
+
+    private void tampilkanError(Throwable ex) {
+        ex.printStackTrace();
+        JOptionPane.showMessageDialog(this, "Terjadi kesalahan: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+    }
+
     // ============================================================
     // FORM REGISTRASI MEMBER DIALOG
     // ============================================================
@@ -400,21 +592,25 @@ public class Main extends JFrame {
                 return;
             }
 
-            // Proses registrasi
-            Member newMember = lib.daftarAnggota(nama, email, noTelepon, batas);
-
-            if (newMember != null) {
-                JOptionPane.showMessageDialog(dlgRegistrasi, 
-                    "Registrasi berhasil!\nID Member: " + newMember.getId() + 
-                    "\nSelamat datang, " + newMember.getNama() + "!");
-                result[0] = newMember;
-                refreshAdminTables();
-                dlgRegistrasi.dispose();
-            } else {
-                JOptionPane.showMessageDialog(dlgRegistrasi, 
-                    "Registrasi gagal!\nMungkin email sudah terdaftar atau ada error database.", 
-                    "Error", JOptionPane.ERROR_MESSAGE);
-            }
+            // Proses registrasi (background; dialog tetap responsif)
+            btnDaftar.setEnabled(false);
+            latar.jalankan(() -> lib.daftarAnggota(nama, email, noTelepon, batas), newMember -> {
+                btnDaftar.setEnabled(true);
+                if (newMember != null) {
+                    JOptionPane.showMessageDialog(dlgRegistrasi, 
+                        "Registrasi berhasil!\nID Member: " + newMember.getId() + 
+                        "\nSelamat datang, " + newMember.getNama() + "!");
+                    result[0] = newMember;
+                    dlgRegistrasi.dispose();
+                } else {
+                    JOptionPane.showMessageDialog(dlgRegistrasi, 
+                        "Registrasi gagal!\nMungkin email sudah terdaftar atau ada error database.", 
+                        "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }, ex -> {
+                btnDaftar.setEnabled(true);
+                tampilkanError(ex);
+            });
         });
 
         // Logic Batal
@@ -429,39 +625,121 @@ public class Main extends JFrame {
     // ============================================================
 
     // Method Sentral utk refresh semua komponen UI
+    // Setiap bagian jalan sebagai tugas background sendiri, jadi berjalan paralel
     private void refreshAllData() {
         refreshTabelBuku("");
         refreshAdminTables();
         refreshListPinjamanMember();
     }
 
-    // Refresh Tabel Buku (Tab 1)
+    // Terapkan satu Peristiwa dari Perpustakaan (di EDT): hanya baris yang berubah yang di-repaint
+    private void terapkanPeristiwa(Peristiwa p) {
+        switch (p) {
+            case Peristiwa.BukuDitambah e -> {
+                // Buku baru punya ID terbesar -> baris terakhir katalog; hasil pencarian dibiarkan
+                if (katalogPenuh) modelBuku.tambahDiAkhir(1);
+            }
+            case Peristiwa.BukuDiimpor e -> {
+                if (katalogPenuh) modelBuku.tambahDiAkhir(e.buku().size());
+            }
+            case Peristiwa.BukuDipinjam e -> {
+                ubahStatusBuku(e.buku(), e.memberId(), +1, e.versi());
+                // Posisi baris pinjaman baru (urut ID buku) tidak diketahui tanpa query
+                modelGlobalPinjam.muatUlang();
+            }
+            case Peristiwa.BukuDikembalikan e -> {
+                ubahStatusBuku(e.buku(), e.memberId(), -1, e.versi());
+                int id = e.buku().getId();
+                modelGlobalPinjam.hapusBaris(row -> (Integer) row[3] == id);
+            }
+            case Peristiwa.BukuDisiapkan e -> {
+                // Hanya member yang sedang login di jendela ini yang diberi tahu
+                if (currentMember != null && currentMember.getId() == e.memberId()) {
+                    JOptionPane.showMessageDialog(this, "Buku reservasi Anda siap diambil: " + e.buku().getJudul()
+                            + "\nDitahan sampai " + e.sampai().toLocalDateTime().withNano(0).toString().replace('T', ' '));
+                }
+            }
+            case Peristiwa.KatalogDisinkronkan e -> {
+                // Status yang berubah sudah diterapkan di objek yang sama; baris baru perlu dihitung ulang
+                if (katalogPenuh) modelBuku.muatUlang();
+            }
+            case Peristiwa.MemberTerdaftar e -> modelMember.tambahDiAkhir(1);
+            case Peristiwa.LogDitambah e -> modelLog.sisipkanDiAwal(e.jumlah());
+            // Baris yang hilang ada di ujung bawah (terlama); jumlah baris dihitung ulang
+            case Peristiwa.LogDiarsipkan e -> modelLog.muatUlang();
+        }
+    }
+
+    // Peristiwa bisa tiba di EDT tidak berurutan, jadi status hanya diterapkan lewat versi
+    private void ubahStatusBuku(Buku buku, int memberId, int delta, int versi) {
+        int id = buku.getId();
+        // Objek Buku di tabel berasal dari KatalogCache dan sudah diubah di tempat; cukup repaint.
+        // Hasil pencarian mode DB (search.index=false) berisi objek sendiri: versi lama diabaikan.
+        modelBuku.perbaruiBaris(b -> b.getId() == id, b -> {
+            b.terapkanStatus(delta > 0, versi);
+            return b;
+        });
+        modelMember.perbaruiBaris(row -> (Integer) row[0] == memberId, row -> {
+            Object[] baru = row.clone();
+            String s = (String) row[3];
+            int n = Integer.parseInt(s.substring(0, s.indexOf(' '))) + delta;
+            baru[3] = Math.max(0, n) + " Buku";
+            return baru;
+        });
+        if (currentMember != null && currentMember.getId() == memberId) refreshListPinjamanMember();
+    }
+
+    // Refresh Tabel Buku (Tab 1): katalog penuh diambil per halaman dari cache, hasil cari dari list
+    // Pencarian baru membatalkan pencarian sebelumnya yang belum selesai
     private void refreshTabelBuku(String keyword) {
-        modelBuku.setRowCount(0); // Hapus baris lama
-        List<Buku> list = keyword.isEmpty() ? lib.getSemuaBuku() : lib.cariBukuByJudul(keyword);
-
-        for (Buku b : list) {
-            modelBuku.addRow(new Object[]{
-                    b.getId(),
-                    b.getJudul(),
-                    b.getPengarang(),
-                    b.isDipinjam() ? "Dipinjam" : "Tersedia",
-                    b.getKategori()
+        if (keyword.isEmpty()) {
+            latar.jalankanTerbaru("katalog", () -> null, x -> {
+                katalogPenuh = true;
+                modelBuku.setSumber(sumberKatalog());
+            });
+        } else {
+            latar.jalankanTerbaru("katalog", () -> lib.cariBuku(keyword), hasil -> {
+                katalogPenuh = false;
+                modelBuku.setSumber(ModelTabelHalaman.dariList(hasil));
             });
         }
     }
 
+    private static ModelTabelHalaman.SumberHalaman<Buku> sumberKatalog() {
+        return new ModelTabelHalaman.SumberHalaman<Buku>() {
+            @Override
+            public int hitung() { return lib.getJumlahBuku(); }
+            @Override
+            public List<Buku> ambil(Buku sebelum, int offset, int batas) {
+                return lib.getHalamanBuku(sebelum, offset, batas);
+            }
+        };
+    }
+
+    // Isi kolom tabel buku dibaca langsung dari objek Buku, jadi status selalu terkini
+    private static Object kolomBuku(Buku b, int kolom) {
+        switch (kolom) {
+            case 0: return b.getId();
+            case 1: return b.getJudul();
+            case 2: return b.getPengarang();
+            case 3: return b.isDipinjam() ? "Dipinjam" : "Tersedia";
+            default: return b.getKategori();
+        }
+    }
+
     // Refresh Text Area Pinjaman (Tab 2)
     private void refreshListPinjamanMember() {
         if (currentMember == null) {
             txtListPinjaman.setText("Silakan login terlebih dahulu.");
             return;
         }
-        // Ambil data terbaru member dari DB
-        currentMember = lib.getAnggota(currentMember.getNama());
+        // Dari sesi member (ID buku) + cache katalog, tanpa query ke DB
+        Member m = currentMember;
+        latar.jalankanTerbaru("member", () -> lib.getBukuDipinjam(m), this::tampilkanListPinjaman);
+    }
 
+    private void tampilkanListPinjaman(List<Buku> list) {
         txtListPinjaman.setText("");
-        List<Buku> list = currentMember.getDaftarDipinjam();
 
         if (list.isEmpty()) {
             txtListPinjaman.append("Anda tidak sedang meminjam buku apapun.");
@@ -475,37 +753,32 @@ public class Main extends JFrame {
         }
     }
 
-    // Refresh Tabel Admin (Tab 3)
+    // Refresh Tabel Admin (Tab 3): hanya hitung ulang jumlah baris, isi diambil saat terlihat
     private void refreshAdminTables() {
-        // 1. Log History
-        modelLog.setRowCount(0);
-        Object[][] logs = lib.getLogData(); // Method baru di Perpustakaan.java
-        for (Object[] row : logs) modelLog.addRow(row);
-
-        // 2. Global Pinjam
-        modelGlobalPinjam.setRowCount(0);
-        Object[][] loans = lib.getGlobalLoanData(); // Method baru di Perpustakaan.java
-        for (Object[] row : loans) modelGlobalPinjam.addRow(row);
-
-        // 3. Member List
-        modelMember.setRowCount(0);
-        Object[][] mems = lib.getMemberData(); // Method baru di Perpustakaan.java
-        for (Object[] row : mems) modelMember.addRow(row);
+        modelLog.muatUlang();
+        modelGlobalPinjam.muatUlang();
+        modelMember.muatUlang();
     }
 
-    // Utility untuk escape CSV sederhana (menggandakan quotes dan membungkus jika perlu)
-    private static String escapeCsv(String field) {
-        if (field.contains(",") || field.contains("\"") || field.contains("\n") || field.contains("\r")) {
-            String escaped = field.replace("\"", "\"\"");
-            return "\"" + escaped + "\"";
-        }
-        return field;
+    // "yyyy-MM-dd" -> awal hari (+ tambahHari); kosong = null (tanpa batas)
+    private static Timestamp parseTanggal(String teks, int tambahHari) {
+        if (teks.trim().isEmpty()) return null;
+        return Timestamp.valueOf(LocalDate.parse(teks.trim()).plusDays(tambahHari).atStartOfDay());
     }
 
     public static void main(String[] args) {
         // Menggunakan Thread Swing agar GUI Aman
 
         SwingUtilities.invokeLater(() -> new Main().setVisible(true));
+
+        // Kiosk / katalog web dilayani dari proses yang sama (lihat ServerApi)
+        if ("true".equalsIgnoreCase(Database.getSetting("http.enabled", "false"))) {
+            try {
+                ServerApi.dariKonfigurasi(lib).mulai();
+            } catch (IOException e) {
+                System.out.println("API HTTP gagal dijalankan: " + e.getMessage());
+            }
+        }
     }
     private static void seedData() {
         lib.tambahBuku(new BukuNonFiksi("Clean Code", "Robert C. Martin", "Pemrograman"));
@@ -1,5 +1,7 @@
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CopyOnWriteArraySet;
 
 public class Member {
     private int id; // ID unik dari database
@@ -8,7 +10,9 @@ public class Member {
     private String noTelepon; // Tambahan field untuk identifikasi unik
     private final int batasPinjam;
     // List ini sekarang hanya penampung sementara dari hasil query DB
-    private List<Buku> daftarDipinjam = new ArrayList<>();
+    private List<Buku> daftarDipinjam = new CopyOnWriteArrayList<>();
+    // ID buku yang sedang dipinjam; untuk member yang login diperbarui langsung saat pinjam/kembali
+    private final Set<Integer> idDipinjam = new CopyOnWriteArraySet<>();
 
     public Member(String nama, int batasPinjam) {
         this.nama = nama;
@@ -29,16 +33,24 @@ public class Member {
     public String getNoTelepon() { return noTelepon; }
     public int getBatasPinjam() { return batasPinjam; }
     public List<Buku> getDaftarDipinjam() { return daftarDipinjam; }
+    public Set<Integer> getIdDipinjam() { return idDipinjam; }
 
     // Setters
     public void setId(int id) { this.id = id; }
     public void setEmail(String email) { this.email = email; }
     public void setNoTelepon(String noTelepon) { this.noTelepon = noTelepon; }
     public void setDaftarDipinjam(List<Buku> list) {
-        this.daftarDipinjam = list;
+        this.daftarDipinjam = new CopyOnWriteArrayList<>(list);
+        idDipinjam.clear();
+        for (Buku b : list) idDipinjam.add(b.getId());
     }
 
     public void tambahPinjamanLokal(Buku b) {
-        daftarDipinjam.add(b);
+        if (idDipinjam.add(b.getId())) daftarDipinjam.add(b);
+    }
+
+    public void hapusPinjamanLokal(int idBuku) {
+        daftarDipinjam.removeIf(b -> b.getId() == idBuku);
+        idDipinjam.remove(idBuku);
     }
 }
\ No newline at end of file
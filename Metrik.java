@@ -0,0 +1,337 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Metrik latensi & hitungan untuk operasi Perpustakaan dan setiap statement JDBC (per sidik query,
+// dicatat oleh PelacakSql).
+// Dicatat dari banyak thread tanpa lock (histogram & counter atomik); dibaca oleh tab "Metrics"
+// di Admin Dashboard (PanelMetrik) dan bisa di-dump ke file.
+//
+// Pemakaian di operasi:  try (Metrik.Operasi op = Metrik.mulai("pinjamBuku")) { ... }
+// Query & koneksi yang diambil selama operasi berjalan (thread yang sama) dihitung ke operasi tsb,
+// jadi terlihat berapa query/koneksi yang dihabiskan satu pinjamBuku. Tangkap exception DI DALAM
+// blok operasi: Metrik.gagal(e) di catch luar sudah tidak terhitung ke operasinya.
+// Sidik query yang dijalankan berulang kali dalam SATU panggilan operasi (>= metrics.nPlusOne kali)
+// ditandai sebagai kemungkinan N+1 dan dilaporkan sekali ke console.
+// metrics.enabled=false mematikan semuanya: Operasi kosong dan statement tidak dibungkus.
+public final class Metrik {
+
+    private static final boolean AKTIF = !"false".equalsIgnoreCase(Database.getSetting("metrics.enabled", "true"));
+
+    // Per nama operasi / per jenis statement; urutan tampil diatur saat dibaca
+    private static final Map<String, Statistik> OPERASI = new ConcurrentHashMap<>();
+    private static final Map<String, Statistik> SQL = new ConcurrentHashMap<>();
+    // Per pasangan (operasi, sidik query)
+    private static final Map<String, SidikOperasi> SIDIK = new ConcurrentHashMap<>();
+    private static final int AMBANG_N_PLUS_SATU = Database.getIntSetting("metrics.nPlusOne", 5);
+    private static final HistogramLatensi TUNGGU_KONEKSI = new HistogramLatensi();
+    private static final AtomicLong KONEKSI_GAGAL = new AtomicLong();
+    // Error yang terjadi di luar operasi mana pun (mis. thread background)
+    private static final AtomicLong ERROR_TANPA_OPERASI = new AtomicLong();
+    // Compare-and-set sirkulasi yang kalah balapan; menyerah = percobaan ulang habis / tidak boleh diulang
+    private static final AtomicLong KONFLIK = new AtomicLong();
+    private static final AtomicLong KONFLIK_MENYERAH = new AtomicLong();
+
+    // Operasi terdalam yang sedang berjalan di thread ini
+    private static final ThreadLocal<Operasi> BERJALAN = new ThreadLocal<>();
+    private static final Operasi KOSONG = new Operasi(null, null);
+
+    private static volatile long direset = System.currentTimeMillis();
+
+    static {
+        String file = Database.getSetting("metrics.dumpFile", "");
+        if (AKTIF && !file.isEmpty()) {
+            Database.tambahTugasShutdown(() -> {
+                try {
+                    dump(Path.of(file));
+                } catch (IOException e) {
+                    System.out.println("Metrik gagal ditulis ke " + file + ": " + e.getMessage());
+                }
+            });
+        }
+    }
+
+    private Metrik() { }
+
+    public static boolean isAktif() { return AKTIF; }
+
+    /* ==========================================================
+       STATISTIK PER NAMA
+       ========================================================== */
+
+    public static final class Statistik {
+        private final String nama;
+        private final HistogramLatensi latensi = new HistogramLatensi();
+        private final AtomicLong error = new AtomicLong();
+        private final AtomicLong query = new AtomicLong();
+        private final AtomicLong koneksi = new AtomicLong();
+        private final AtomicLong queryMaks = new AtomicLong(); // query terbanyak dalam satu panggilan
+        private final AtomicLong konflik = new AtomicLong();
+
+        Statistik(String nama) { this.nama = nama; }
+
+        public String getNama() { return nama; }
+        public HistogramLatensi getLatensi() { return latensi; }
+        public long getJumlah() { return latensi.getJumlah(); }
+        public long getError() { return error.get(); }
+        public long getQueryMaks() { return queryMaks.get(); }
+        public long getKonflik() { return konflik.get(); }
+
+        public double getQueryPerPanggilan() {
+            long n = getJumlah();
+            return n == 0 ? 0 : (double) query.get() / n;
+        }
+
+        public double getKoneksiPerPanggilan() {
+            long n = getJumlah();
+            return n == 0 ? 0 : (double) koneksi.get() / n;
+        }
+
+        void reset() {
+            latensi.reset();
+            error.set(0);
+            query.set(0);
+            koneksi.set(0);
+            queryMaks.set(0);
+            konflik.set(0);
+        }
+    }
+
+    // Satu sidik query di dalam satu operasi: berapa kali per panggilan, dan total waktunya
+    public static final class SidikOperasi {
+        private final String operasi;
+        private final String sidik;
+        private final AtomicLong eksekusi = new AtomicLong();
+        private final AtomicLong panggilan = new AtomicLong();
+        private final AtomicLong maksPerPanggilan = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private volatile boolean sudahDilaporkan = false;
+
+        SidikOperasi(String operasi, String sidik) {
+            this.operasi = operasi;
+            this.sidik = sidik;
+        }
+
+        public String getOperasi() { return operasi; }
+        public String getSidik() { return sidik; }
+        public long getEksekusi() { return eksekusi.get(); }
+        public long getMaksPerPanggilan() { return maksPerPanggilan.get(); }
+        public long getTotalNanos() { return totalNanos.get(); }
+        public boolean isNPlusSatu() { return maksPerPanggilan.get() >= AMBANG_N_PLUS_SATU; }
+
+        public double getPerPanggilan() {
+            long n = panggilan.get();
+            return n == 0 ? 0 : (double) eksekusi.get() / n;
+        }
+
+        void catat(int kali, long nanos) {
+            eksekusi.addAndGet(kali);
+            panggilan.incrementAndGet();
+            totalNanos.addAndGet(nanos);
+            if (kali > maksPerPanggilan.get()) maksPerPanggilan.accumulateAndGet(kali, Math::max);
+            if (kali >= AMBANG_N_PLUS_SATU && !sudahDilaporkan) {
+                sudahDilaporkan = true;
+                System.out.println("[METRIK] Kemungkinan N+1: " + operasi + " menjalankan query yang sama " + kali
+                        + "x dalam satu panggilan: " + sidik);
+            }
+        }
+    }
+
+    private static Statistik stat(Map<String, Statistik> peta, String nama) {
+        Statistik s = peta.get(nama);
+        return s != null ? s : peta.computeIfAbsent(nama, Statistik::new);
+    }
+
+    /* ==========================================================
+       OPERASI
+       ========================================================== */
+
+    public static final class Operasi implements AutoCloseable {
+        private final Statistik stat;
+        private final Operasi induk;
+        private final long mulai;
+        private int query;
+        private int koneksi;
+        private boolean gagal;
+        // sidik -> {jumlah eksekusi, total nanos} selama panggilan ini; dibuat saat query pertama
+        private Map<String, long[]> perSidik;
+
+        private Operasi(Statistik stat, Operasi induk) {
+            this.stat = stat;
+            this.induk = induk;
+            this.mulai = stat == null ? 0 : System.nanoTime();
+        }
+
+        @Override
+        public void close() {
+            if (stat == null) return;
+            long durasi = System.nanoTime() - mulai;
+            BERJALAN.set(induk);
+            stat.latensi.catat(durasi);
+            if (query > 0) stat.query.addAndGet(query);
+            if (koneksi > 0) stat.koneksi.addAndGet(koneksi);
+            if (query > stat.queryMaks.get()) stat.queryMaks.accumulateAndGet(query, Math::max);
+            if (gagal) stat.error.incrementAndGet();
+            if (perSidik != null) {
+                perSidik.forEach((sidik, v) -> SIDIK.computeIfAbsent(stat.nama + '\u0000' + sidik,
+                        k -> new SidikOperasi(stat.nama, sidik)).catat((int) v[0], v[1]));
+            }
+        }
+    }
+
+    // Nama operasi terdalam yang sedang berjalan di thread ini ("-" jika tidak ada)
+    public static String getNamaOperasi() {
+        Operasi op = BERJALAN.get();
+        return op == null || op.stat == null ? "-" : op.stat.nama;
+    }
+
+    // Operasi bersarang (mis. pinjamBuku -> getAnggota) dicatat masing-masing; query ikut dihitung ke semua induknya
+    public static Operasi mulai(String nama) {
+        if (!AKTIF) return KOSONG;
+        Operasi op = new Operasi(stat(OPERASI, nama), BERJALAN.get());
+        BERJALAN.set(op);
+        return op;
+    }
+
+    // Pengganti e.printStackTrace() di jalur operasi: error dihitung ke operasi yang sedang berjalan
+    public static void gagal(Throwable e) {
+        tandaiGagal();
+        e.printStackTrace();
+    }
+
+    // Seperti gagal(), untuk error yang sudah dilaporkan sendiri oleh pemanggil
+    public static void tandaiGagal() {
+        Operasi op = BERJALAN.get();
+        if (op == null) ERROR_TANPA_OPERASI.incrementAndGet();
+        for (; op != null; op = op.induk) op.gagal = true;
+    }
+
+    // Satu konflik optimistik (versi berubah di tengah transaksi), dihitung ke operasi terdalam
+    public static void catatKonflik(boolean menyerah) {
+        if (!AKTIF) return;
+        KONFLIK.incrementAndGet();
+        if (menyerah) KONFLIK_MENYERAH.incrementAndGet();
+        Operasi op = BERJALAN.get();
+        if (op != null && op.stat != null) op.stat.konflik.incrementAndGet();
+    }
+
+    static void catatKoneksi(long nanos, boolean gagal) {
+        if (!AKTIF) return;
+        TUNGGU_KONEKSI.catat(nanos);
+        if (gagal) KONEKSI_GAGAL.incrementAndGet();
+        for (Operasi op = BERJALAN.get(); op != null; op = op.induk) {
+            op.koneksi++;
+            if (gagal) op.gagal = true;
+        }
+    }
+
+    static void catatQuery(String sidik, long nanos, boolean gagal) {
+        if (!AKTIF) return;
+        Statistik s = stat(SQL, sidik);
+        s.latensi.catat(nanos);
+        if (gagal) s.error.incrementAndGet();
+        for (Operasi op = BERJALAN.get(); op != null; op = op.induk) {
+            op.query++;
+            if (gagal) op.gagal = true;
+            if (op.perSidik == null) op.perSidik = new HashMap<>();
+            long[] v = op.perSidik.computeIfAbsent(sidik, k -> new long[2]);
+            v[0]++;
+            v[1] += nanos;
+        }
+    }
+
+    /* ==========================================================
+       BACA, RESET, DUMP
+       ========================================================== */
+
+    // Urut total waktu terbesar dulu (yang paling layak dioptimasi di atas)
+    public static List<Statistik> getOperasi() { return urut(OPERASI); }
+
+    public static List<Statistik> getSql() { return urut(SQL); }
+
+    private static List<Statistik> urut(Map<String, Statistik> peta) {
+        List<Statistik> list = new ArrayList<>(peta.values());
+        list.sort(Comparator.comparingLong((Statistik s) -> s.getJumlah() * s.getLatensi().getRata()).reversed());
+        return list;
+    }
+
+    // Kemungkinan N+1 dulu, lalu total waktu terbesar
+    public static List<SidikOperasi> getSidikOperasi() {
+        List<SidikOperasi> list = new ArrayList<>(SIDIK.values());
+        list.sort(Comparator.comparing((SidikOperasi s) -> !s.isNPlusSatu())
+                .thenComparing(Comparator.comparingLong(SidikOperasi::getTotalNanos).reversed()));
+        return list;
+    }
+
+    public static HistogramLatensi getTungguKoneksi() { return TUNGGU_KONEKSI; }
+    public static long getKoneksiGagal() { return KONEKSI_GAGAL.get(); }
+    public static long getErrorTanpaOperasi() { return ERROR_TANPA_OPERASI.get(); }
+    public static long getKonflik() { return KONFLIK.get(); }
+    public static long getKonflikMenyerah() { return KONFLIK_MENYERAH.get(); }
+    public static long getDireset() { return direset; }
+
+    public static void reset() {
+        for (Statistik s : OPERASI.values()) s.reset();
+        for (Statistik s : SQL.values()) s.reset();
+        SIDIK.clear();
+        TUNGGU_KONEKSI.reset();
+        KONEKSI_GAGAL.set(0);
+        ERROR_TANPA_OPERASI.set(0);
+        KONFLIK.set(0);
+        KONFLIK_MENYERAH.set(0);
+        direset = System.currentTimeMillis();
+    }
+
+    public static String laporan() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("=== Metrik ").append(LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")))
+                .append(" (sejak ").append((System.currentTimeMillis() - direset) / 1000).append(" detik) ===\n");
+        sb.append(String.format("%-28s %9s %9s %9s %9s %6s %8s %8s %6s%n",
+                "Operasi", "Jumlah", "p50 ms", "p99 ms", "Maks ms", "Error", "Query/op", "Kon/op", "QMaks"));
+        for (Statistik s : getOperasi()) {
+            HistogramLatensi h = s.getLatensi();
+            sb.append(String.format("%-28s %9d %9.3f %9.3f %9.3f %6d %8.2f %8.2f %6d%n", s.getNama(), s.getJumlah(),
+                    h.persentil(50) / 1e6, h.persentil(99) / 1e6, h.getMaks() / 1e6, s.getError(),
+                    s.getQueryPerPanggilan(), s.getKoneksiPerPanggilan(), s.getQueryMaks()));
+        }
+        sb.append(String.format("%n%-28s %9s %9s %9s %9s %6s%n", "Statement", "Jumlah", "p50 ms", "p99 ms", "Maks ms", "Error"));
+        for (Statistik s : getSql()) {
+            HistogramLatensi h = s.getLatensi();
+            sb.append(String.format("%-28s %9d %9.3f %9.3f %9.3f %6d%n", s.getNama(), s.getJumlah(),
+                    h.persentil(50) / 1e6, h.persentil(99) / 1e6, h.getMaks() / 1e6, s.getError()));
+        }
+        sb.append(String.format("%n%-28s %9s %8s %8s %9s  %s%n", "Operasi", "Eksekusi", "Per op", "Maks/op", "Total ms", "Sidik query"));
+        for (SidikOperasi s : getSidikOperasi()) {
+            sb.append(String.format("%-28s %9d %8.2f %8d %9.1f  %s%s%n", s.getOperasi(), s.getEksekusi(),
+                    s.getPerPanggilan(), s.getMaksPerPanggilan(), s.getTotalNanos() / 1e6,
+                    s.isNPlusSatu() ? "[N+1?] " : "", s.getSidik()));
+        }
+        sb.append(String.format("%nAmbil koneksi: %s, gagal=%d%n", TUNGGU_KONEKSI, KONEKSI_GAGAL.get()));
+        sb.append("Error di luar operasi: ").append(ERROR_TANPA_OPERASI.get()).append('\n');
+        sb.append("Konflik optimistik: ").append(KONFLIK.get()).append(" (menyerah ").append(KONFLIK_MENYERAH.get()).append(")");
+        for (Statistik s : getOperasi()) {
+            if (s.getKonflik() > 0) sb.append(", ").append(s.getNama()).append('=').append(s.getKonflik());
+        }
+        sb.append('\n');
+        return sb.toString();
+    }
+
+    // Ditambahkan di akhir file, jadi beberapa dump bisa dibandingkan
+    public static void dump(Path file) throws IOException {
+        Path dir = file.toAbsolutePath().getParent();
+        if (dir != null) Files.createDirectories(dir);
+        Files.writeString(file, laporan() + "\n", StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+}
@@ -0,0 +1,237 @@
+import javax.swing.table.AbstractTableModel;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+// Table model "virtual": baris diambil per halaman saat JTable memintanya (ketika di-scroll),
+// dan hanya sejumlah halaman terakhir yang disimpan di memori.
+// Pengganti DefaultTableModel + setRowCount(0) + addRow() untuk tabel yang bisa sangat besar.
+// Jika diberi TugasLatar, hitung & ambil halaman berjalan di background; semua state model
+// hanya diubah di EDT, baris yang belum dimuat tampil kosong lalu di-update setelah datang.
+public class ModelTabelHalaman<T> extends AbstractTableModel {
+
+    // Penyedia data per halaman
+    public interface SumberHalaman<T> {
+        int hitung();
+
+        // 'sebelum' = baris terakhir halaman sebelumnya jika sudah ada di cache (untuk keyset pagination),
+        // null jika halaman pertama atau loncat jauh (sumber boleh memakai offset)
+        List<T> ambil(T sebelum, int offset, int batas);
+    }
+
+    // Nilai sel untuk kolom tertentu dari satu baris
+    public interface PembacaKolom<T> {
+        Object nilai(T baris, int kolom);
+    }
+
+    private final String[] kolom;
+    private final PembacaKolom<T> pembaca;
+    private final int ukuranHalaman;
+    private final int maksHalaman;
+
+    private SumberHalaman<T> sumber;
+    private int jumlahBaris = 0;
+
+    private TugasLatar latar;                                  // null = sinkron
+    private final Set<Integer> sedangDimuat = new HashSet<>();
+    // Naik setiap muatUlang/setSumber; hasil dari generasi lama diabaikan
+    private int generasi = 0;
+    // true selama hitung() di background belum selesai; patch kecil diabaikan karena hasilnya sudah mencakup
+    private boolean hitungTertunda = false;
+
+    // Jendela halaman yang di-cache, LRU (halaman paling lama tidak dilihat dibuang)
+    private final LinkedHashMap<Integer, List<T>> cache;
+
+    public ModelTabelHalaman(String[] kolom, PembacaKolom<T> pembaca, SumberHalaman<T> sumber,
+                             int ukuranHalaman, int maksHalaman) {
+        this.kolom = kolom;
+        this.pembaca = pembaca;
+        this.sumber = sumber;
+        this.ukuranHalaman = ukuranHalaman;
+        this.maksHalaman = maksHalaman;
+        this.cache = new LinkedHashMap<Integer, List<T>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<T>> eldest) {
+                return size() > ModelTabelHalaman.this.maksHalaman;
+            }
+        };
+    }
+
+    // Model untuk tabel yang barisnya berupa Object[] (kolom ke-i = elemen ke-i).
+    // Elemen tambahan di belakang (mis. ID untuk keyset) tidak ditampilkan.
+    public static ModelTabelHalaman<Object[]> untukArray(String[] kolom, SumberHalaman<Object[]> sumber) {
+        return new ModelTabelHalaman<>(kolom, (baris, k) -> baris[k], sumber, 200, 10);
+    }
+
+    // Sumber dari List yang sudah ada di memori (mis. hasil pencarian)
+    public static <T> SumberHalaman<T> dariList(List<T> list) {
+        return new SumberHalaman<T>() {
+            @Override
+            public int hitung() { return list.size(); }
+
+            @Override
+            public List<T> ambil(T sebelum, int offset, int batas) {
+                return list.subList(Math.min(offset, list.size()), Math.min(offset + batas, list.size()));
+            }
+        };
+    }
+
+    /* ==========================================================
+       KONTROL DATA
+       ========================================================== */
+
+    public void setLatar(TugasLatar latar) { this.latar = latar; }
+
+    // Hitung ulang jumlah baris dan buang cache; halaman diambil lagi saat dibutuhkan
+    public void muatUlang() {
+        int gen = ++generasi;
+        SumberHalaman<T> s = sumber;
+        if (latar == null) {
+            terapkanJumlah(s.hitung());
+            return;
+        }
+        hitungTertunda = true;
+        latar.jalankan(s::hitung, n -> {
+            if (gen == generasi) terapkanJumlah(n);
+        });
+    }
+
+    private void terapkanJumlah(int n) {
+        hitungTertunda = false;
+        jumlahBaris = n;
+        cache.clear();
+        sedangDimuat.clear();
+        fireTableDataChanged();
+    }
+
+    // Ganti sumber data (mis. dari katalog penuh ke hasil pencarian)
+    public void setSumber(SumberHalaman<T> sumberBaru) {
+        this.sumber = sumberBaru;
+        muatUlang();
+    }
+
+    /* ==========================================================
+       PATCH KECIL (dipanggil dari pendengar Peristiwa, di EDT)
+       ========================================================== */
+
+    // Perbarui baris yang sudah termuat dan cocok; hanya baris itu yang di-repaint.
+    // 'ubah' boleh null jika objek baris sudah berubah di tempat (mis. Buku dari KatalogCache).
+    public void perbaruiBaris(Predicate<T> cocok, UnaryOperator<T> ubah) {
+        for (Map.Entry<Integer, List<T>> e : cache.entrySet()) {
+            List<T> rows = e.getValue();
+            for (int i = 0; i < rows.size(); i++) {
+                if (!cocok.test(rows.get(i))) continue;
+                if (ubah != null) rows.set(i, ubah.apply(rows.get(i)));
+                int row = e.getKey() * ukuranHalaman + i;
+                fireTableRowsUpdated(row, row);
+            }
+        }
+    }
+
+    // n baris baru di akhir (urutan naik berdasarkan ID): cukup halaman terakhir yang dibuang
+    public void tambahDiAkhir(int n) {
+        if (hitungTertunda || n <= 0) return;
+        int awal = jumlahBaris;
+        jumlahBaris += n;
+        cache.remove(awal / ukuranHalaman);
+        sedangDimuat.remove(awal / ukuranHalaman);
+        fireTableRowsInserted(awal, jumlahBaris - 1);
+    }
+
+    // n baris baru di awal (urutan terbaru dulu, mis. log): semua halaman bergeser,
+    // jadi cache dibuang tanpa hitung ulang; yang terlihat saja yang diambil lagi
+    public void sisipkanDiAwal(int n) {
+        if (hitungTertunda || n <= 0) return;
+        generasi++;
+        jumlahBaris += n;
+        cache.clear();
+        sedangDimuat.clear();
+        fireTableRowsInserted(0, n - 1);
+    }
+
+    // Hapus satu baris yang cocok. Jika tidak ada di halaman yang termuat, posisinya
+    // tidak diketahui sehingga jatuh ke muatUlang().
+    public void hapusBaris(Predicate<T> cocok) {
+        if (hitungTertunda) return;
+        for (Map.Entry<Integer, List<T>> e : cache.entrySet()) {
+            List<T> rows = e.getValue();
+            for (int i = 0; i < rows.size(); i++) {
+                if (!cocok.test(rows.get(i))) continue;
+                int nomor = e.getKey();
+                int row = nomor * ukuranHalaman + i;
+                // Halaman ini dan sesudahnya bergeser satu baris
+                generasi++;
+                cache.keySet().removeIf(h -> h >= nomor);
+                sedangDimuat.clear();
+                jumlahBaris--;
+                fireTableRowsDeleted(row, row);
+                return;
+            }
+        }
+        muatUlang();
+    }
+
+    // null = halaman sedang dimuat di background
+    private List<T> halaman(int nomor) {
+        List<T> rows = cache.get(nomor);
+        if (rows != null) return rows;
+
+        T sebelum = null;
+        List<T> prev = nomor > 0 ? cache.get(nomor - 1) : null;
+        if (prev != null && prev.size() == ukuranHalaman) sebelum = prev.get(prev.size() - 1);
+
+        if (latar == null) {
+            rows = sumber.ambil(sebelum, nomor * ukuranHalaman, ukuranHalaman);
+            cache.put(nomor, rows);
+            return rows;
+        }
+
+        if (sedangDimuat.add(nomor)) {
+            int gen = generasi;
+            SumberHalaman<T> s = sumber;
+            T kunci = sebelum;
+            latar.jalankan(() -> s.ambil(kunci, nomor * ukuranHalaman, ukuranHalaman), hasil -> {
+                if (gen != generasi) return;
+                sedangDimuat.remove(nomor);
+                cache.put(nomor, hasil);
+                int awal = nomor * ukuranHalaman;
+                int akhir = Math.min(jumlahBaris, awal + ukuranHalaman) - 1;
+                if (akhir >= awal) fireTableRowsUpdated(awal, akhir);
+            }, e -> {
+                // Boleh dicoba lagi saat baris itu diminta berikutnya
+                if (gen == generasi) sedangDimuat.remove(nomor);
+                e.printStackTrace();
+            });
+        }
+        return null;
+    }
+
+    public T getBaris(int row) {
+        List<T> rows = halaman(row / ukuranHalaman);
+        int i = row % ukuranHalaman;
+        return rows != null && i < rows.size() ? rows.get(i) : null;
+    }
+
+    /* ==========================================================
+       TableModel
+       ========================================================== */
+
+    @Override
+    public int getRowCount() { return jumlahBaris; }
+
+    @Override
+    public int getColumnCount() { return kolom.length; }
+
+    @Override
+    public String getColumnName(int column) { return kolom[column]; }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        T baris = getBaris(rowIndex);
+        return baris == null ? null : pembaca.nilai(baris, columnIndex);
+    }
+}
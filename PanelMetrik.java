@@ -0,0 +1,120 @@
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+// Tab "Metrics" di Admin Dashboard: latensi (p50/p99/maks) & hitungan per operasi Perpustakaan
+// dan per sidik query JDBC, diperbarui tiap detik selama tab terlihat (lihat Metrik, PelacakSql).
+public class PanelMetrik extends JPanel {
+
+    private static final String[] KOLOM_OPERASI =
+            {"Operasi", "Jumlah", "p50 (ms)", "p99 (ms)", "Maks (ms)", "Error", "Query/op", "Koneksi/op", "Query maks"};
+    private static final String[] KOLOM_SQL = {"Sidik Query", "Jumlah", "p50 (ms)", "p99 (ms)", "Maks (ms)", "Error"};
+    private static final String[] KOLOM_SIDIK = {"Operasi", "Sidik Query", "Eksekusi", "Per Panggilan", "Maks/Panggilan", "Total (ms)", "N+1?"};
+
+    private final DefaultTableModel modelOperasi = modelBacaSaja(KOLOM_OPERASI);
+    private final DefaultTableModel modelSql = modelBacaSaja(KOLOM_SQL);
+    private final DefaultTableModel modelSidik = modelBacaSaja(KOLOM_SIDIK);
+    private final JLabel lblRingkasan = new JLabel(" ");
+
+    public PanelMetrik() {
+        super(new BorderLayout());
+
+        JTabbedPane tabQuery = new JTabbedPane();
+        tabQuery.add("Query per Operasi", new JScrollPane(new JTable(modelSidik)));
+        tabQuery.add("Semua Query", new JScrollPane(new JTable(modelSql)));
+        JSplitPane split = new JSplitPane(JSplitPane.VERTICAL_SPLIT, new JScrollPane(new JTable(modelOperasi)), tabQuery);
+        split.setResizeWeight(0.6);
+        add(split, BorderLayout.CENTER);
+
+        JPanel toolbar = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        JButton btnReset = new JButton("Reset");
+        JButton btnSimpan = new JButton("Simpan ke File...");
+        toolbar.add(btnReset);
+        toolbar.add(btnSimpan);
+        toolbar.add(lblRingkasan);
+        add(toolbar, BorderLayout.NORTH);
+
+        btnReset.addActionListener(e -> {
+            Metrik.reset();
+            perbarui();
+        });
+        btnSimpan.addActionListener(e -> {
+            JFileChooser chooser = new JFileChooser();
+            chooser.setSelectedFile(new File("metrik.txt"));
+            if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+            File file = chooser.getSelectedFile();
+            try {
+                Metrik.dump(file.toPath());
+                JOptionPane.showMessageDialog(this, "Metrik ditambahkan ke " + file.getAbsolutePath());
+            } catch (IOException ex) {
+                JOptionPane.showMessageDialog(this, "Gagal menyimpan metrik: " + ex.getMessage());
+            }
+        });
+
+        // Membaca histogram cukup murah untuk dilakukan di EDT; dilewati selama tab tidak terlihat
+        new Timer(1000, e -> {
+            if (isShowing()) perbarui();
+        }).start();
+    }
+
+    private static DefaultTableModel modelBacaSaja(String[] kolom) {
+        return new DefaultTableModel(kolom, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) { return false; }
+        };
+    }
+
+    private void perbarui() {
+        if (!Metrik.isAktif()) {
+            lblRingkasan.setText("Metrik dimatikan (metrics.enabled=false)");
+            return;
+        }
+        isi(modelOperasi, Metrik.getOperasi(), true);
+        isi(modelSql, Metrik.getSql(), false);
+        isiSidik(modelSidik, Metrik.getSidikOperasi());
+
+        HistogramLatensi tunggu = Metrik.getTungguKoneksi();
+        lblRingkasan.setText(String.format("Ambil koneksi: %,d x, p50 %.3f ms, p99 %.3f ms, maks %.3f ms, gagal %d  |  "
+                        + "error di luar operasi: %d  |  konflik optimistik: %d (menyerah %d)  |  sejak %d detik",
+                tunggu.getJumlah(), tunggu.persentil(50) / 1e6, tunggu.persentil(99) / 1e6, tunggu.getMaks() / 1e6,
+                Metrik.getKoneksiGagal(), Metrik.getErrorTanpaOperasi(), Metrik.getKonflik(), Metrik.getKonflikMenyerah(),
+                (System.currentTimeMillis() - Metrik.getDireset()) / 1000));
+    }
+
+    private static void isiSidik(DefaultTableModel model, List<Metrik.SidikOperasi> daftar) {
+        model.setRowCount(daftar.size());
+        for (int i = 0; i < daftar.size(); i++) {
+            Metrik.SidikOperasi s = daftar.get(i);
+            model.setValueAt(s.getOperasi(), i, 0);
+            model.setValueAt(s.getSidik(), i, 1);
+            model.setValueAt(s.getEksekusi(), i, 2);
+            model.setValueAt(String.format("%.2f", s.getPerPanggilan()), i, 3);
+            model.setValueAt(s.getMaksPerPanggilan(), i, 4);
+            model.setValueAt(String.format("%.1f", s.getTotalNanos() / 1e6), i, 5);
+            model.setValueAt(s.isNPlusSatu() ? "YA" : "", i, 6);
+        }
+    }
+
+    // Baris ditimpa di tempat (bukan setRowCount(0) + addRow) supaya seleksi & scroll tidak lompat
+    private static void isi(DefaultTableModel model, List<Metrik.Statistik> daftar, boolean lengkap) {
+        model.setRowCount(daftar.size());
+        for (int i = 0; i < daftar.size(); i++) {
+            Metrik.Statistik s = daftar.get(i);
+            HistogramLatensi h = s.getLatensi();
+            model.setValueAt(s.getNama(), i, 0);
+            model.setValueAt(s.getJumlah(), i, 1);
+            model.setValueAt(String.format("%.3f", h.persentil(50) / 1e6), i, 2);
+            model.setValueAt(String.format("%.3f", h.persentil(99) / 1e6), i, 3);
+            model.setValueAt(String.format("%.3f", h.getMaks() / 1e6), i, 4);
+            model.setValueAt(s.getError(), i, 5);
+            if (lengkap) {
+                model.setValueAt(String.format("%.2f", s.getQueryPerPanggilan()), i, 6);
+                model.setValueAt(String.format("%.2f", s.getKoneksiPerPanggilan()), i, 7);
+                model.setValueAt(s.getQueryMaks(), i, 8);
+            }
+        }
+    }
+}
@@ -0,0 +1,435 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+// Proxy JDBC untuk tracing, dipasang di setiap Statement/PreparedStatement dari koneksi pool
+// (ConnectionPool). Per eksekusi dicatat: teks SQL, parameter bind, jumlah baris, waktu eksekusi
+// dan waktu fetch (dari rs.next() pertama sampai ResultSet habis/ditutup, jadi termasuk waktu
+// pemanggil memproses barisnya). Sidik & teks parameter baru dibentuk saat benar-benar dibutuhkan.
+// - Ringkasan per sidik query ("fingerprint": literal & daftar IN diganti ?) masuk ke Metrik,
+//   termasuk sidik per operasi untuk melihat pola N+1.
+// - Statement di atas slowlog.thresholdMs ditulis ke slow-query log yang berputar (slowlog.file).
+// Parameter bind bisa berisi data pribadi (nama, email): slowlog.params = semua | angka | tidak.
+public final class PelacakSql {
+
+    private static final long AMBANG_LAMBAT_NANOS = Database.getIntSetting("slowlog.thresholdMs", 200) * 1_000_000L;
+    private static final String MODE_PARAM = Database.getSetting("slowlog.params", "angka").toLowerCase(Locale.ROOT);
+    private static final LogBerputar LOG_LAMBAT = AMBANG_LAMBAT_NANOS < 0 ? null : new LogBerputar(
+            Path.of(Database.getSetting("slowlog.file", "data/slow-query.log")),
+            Database.getIntSetting("slowlog.maxKb", 10 * 1024) * 1024L,
+            Database.getIntSetting("slowlog.files", 5));
+
+    private static final DateTimeFormatter FORMAT_WAKTU = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+
+    private PelacakSql() { }
+
+    public static boolean isAktif() { return Metrik.isAktif() || LOG_LAMBAT != null; }
+
+    // 'tipe' = tipe hasil method Connection (Statement, PreparedStatement, CallableStatement)
+    static Statement bungkus(Statement asli, Class<?> tipe, String sqlPrepare) {
+        if (!isAktif()) return asli;
+        Class<?> antarmuka = CallableStatement.class.isAssignableFrom(tipe) ? CallableStatement.class
+                : PreparedStatement.class.isAssignableFrom(tipe) ? PreparedStatement.class : Statement.class;
+        return (Statement) Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[]{antarmuka},
+                new PenanganStatement(asli, sqlPrepare));
+    }
+
+    private static Object panggil(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /* ==========================================================
+       SATU EKSEKUSI
+       ========================================================== */
+
+    private static final class Eksekusi {
+        final String sql;
+        final String sidikPrepare; // null = Statement biasa, sidik dihitung saat selesai
+        final boolean batchEksekusi;
+        // Array parameter milik PenanganStatement (tidak disalin: penangan menyalin sebelum mengubahnya lagi)
+        final Object[] param;
+        final int jumlahParam;
+        final int batch;
+        final String operasi = Metrik.getNamaOperasi();
+        long eksekusiNanos;
+        long mulaiFetch;  // 0 = next() belum dipanggil
+        long fetchNanos;
+        long baris;
+        boolean gagal;
+        boolean selesai;
+
+        Eksekusi(String sql, String sidikPrepare, boolean batchEksekusi, Object[] param, int jumlahParam, int batch) {
+            this.sql = sql;
+            this.sidikPrepare = sidikPrepare;
+            this.batchEksekusi = batchEksekusi;
+            this.param = param;
+            this.jumlahParam = jumlahParam;
+            this.batch = batch;
+        }
+
+        void selesaiFetch() {
+            if (mulaiFetch != 0 && fetchNanos == 0) fetchNanos = System.nanoTime() - mulaiFetch;
+        }
+
+        void selesaikan() {
+            if (selesai) return;
+            selesai = true;
+            selesaiFetch();
+            long total = eksekusiNanos + fetchNanos;
+            boolean lambat = LOG_LAMBAT != null && total >= AMBANG_LAMBAT_NANOS;
+            if (!Metrik.isAktif() && !lambat) return;
+            String sidik = sidikPrepare != null ? sidikPrepare : sidikTercache(sql);
+            if (batchEksekusi) sidik = "[batch] " + sidik;
+            Metrik.catatQuery(sidik, total, gagal);
+            if (lambat) LOG_LAMBAT.tulis(baris(total));
+        }
+
+        // Parameter terakhir (untuk batch: baris terakhir + jumlah baris batch)
+        private String teksParam() {
+            if (MODE_PARAM.equals("tidak") || (jumlahParam == 0 && !batchEksekusi)) return null;
+            StringBuilder sb = new StringBuilder("[");
+            for (int i = 0; i < jumlahParam; i++) {
+                if (i > 0) sb.append(", ");
+                sb.append(teksNilai(param[i]));
+            }
+            sb.append(']');
+            if (batchEksekusi) sb.append(" batch=").append(batch);
+            return sb.toString();
+        }
+
+        // Satu baris per statement, supaya mudah di-grep / diurutkan
+        private String baris(long total) {
+            StringBuilder sb = new StringBuilder(200 + sql.length());
+            sb.append(LocalDateTime.now().format(FORMAT_WAKTU))
+                    .append(String.format(" | %.1f ms (exec %.1f + fetch %.1f)", total / 1e6, eksekusiNanos / 1e6, fetchNanos / 1e6))
+                    .append(" | baris=").append(baris)
+                    .append(" | op=").append(operasi)
+                    .append(" | thread=").append(Thread.currentThread().getName());
+            if (gagal) sb.append(" | GAGAL");
+            sb.append(" | ").append(sql.replaceAll("\\s+", " "));
+            String param = teksParam();
+            if (param != null) sb.append(" | param=").append(param);
+            return sb.toString();
+        }
+    }
+
+    /* ==========================================================
+       PROXY STATEMENT & RESULTSET
+       ========================================================== */
+
+    private static final class PenanganStatement implements InvocationHandler {
+        private final Statement asli;
+        private final String sqlPrepare;
+        private final String sidikPrepare;
+        private Object[] param = new Object[8];
+        private boolean paramDibagi = false; // param sedang dipegang Eksekusi -> salin sebelum diubah
+        private int jumlahParam = 0;
+        private int batch = 0;
+        private final StringBuilder sqlBatch = new StringBuilder(); // Statement.addBatch(sql)
+        // Eksekusi yang ResultSet-nya belum ditutup (fetch masih berjalan)
+        private Eksekusi berjalan;
+
+        PenanganStatement(Statement asli, String sqlPrepare) {
+            this.asli = asli;
+            this.sqlPrepare = sqlPrepare;
+            this.sidikPrepare = sqlPrepare == null ? null : sidikTercache(sqlPrepare);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String nama = method.getName();
+            if (nama.startsWith("execute")) return eksekusi(method, args);
+
+            switch (nama) {
+                case "getResultSet": {
+                    Object hasil = panggil(asli, method, args);
+                    return hasil != null && berjalan != null && !berjalan.selesai
+                            ? bungkusHasil((ResultSet) hasil, berjalan) : hasil;
+                }
+                case "close":
+                    if (berjalan != null) berjalan.selesaikan();
+                    return panggil(asli, method, args);
+                case "clearParameters":
+                    jumlahParam = 0;
+                    if (paramDibagi) {
+                        param = new Object[param.length];
+                        paramDibagi = false;
+                    } else {
+                        Arrays.fill(param, null);
+                    }
+                    return panggil(asli, method, args);
+                case "addBatch":
+                    batch++;
+                    if (args != null && args.length == 1 && args[0] instanceof String) {
+                        if (sqlBatch.length() > 0) sqlBatch.append("; ");
+                        if (sqlBatch.length() < 2000) sqlBatch.append(args[0]);
+                    }
+                    return panggil(asli, method, args);
+                case "clearBatch":
+                    batch = 0;
+                    sqlBatch.setLength(0);
+                    return panggil(asli, method, args);
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    // setInt(1, x), setString(2, s), setNull(3, type), setObject(...): parameter bind
+                    if (nama.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                        simpanParam((Integer) args[0], nama.equals("setNull") ? null : args[1]);
+                    }
+                    return panggil(asli, method, args);
+            }
+        }
+
+        private Object eksekusi(Method method, Object[] args) throws Throwable {
+            if (berjalan != null) berjalan.selesaikan(); // ResultSet sebelumnya otomatis tertutup
+            boolean batchEksekusi = method.getName().startsWith("executeBatch")
+                    || method.getName().startsWith("executeLargeBatch");
+            String sql = sqlPrepare != null ? sqlPrepare
+                    : args != null && args.length > 0 && args[0] instanceof String ? (String) args[0]
+                    : sqlBatch.length() > 0 ? sqlBatch.toString() : "(batch)";
+            Eksekusi e = new Eksekusi(sql, sidikPrepare, batchEksekusi, param, jumlahParam, batch);
+            paramDibagi = true;
+            berjalan = e;
+
+            long mulai = System.nanoTime();
+            Object hasil;
+            try {
+                hasil = panggil(asli, method, args);
+            } catch (Throwable t) {
+                e.eksekusiNanos = System.nanoTime() - mulai;
+                e.gagal = true;
+                e.selesaikan();
+                throw t;
+            } finally {
+                if (batchEksekusi) {
+                    batch = 0;
+                    sqlBatch.setLength(0);
+                }
+            }
+            e.eksekusiNanos = System.nanoTime() - mulai;
+
+            if (hasil instanceof ResultSet) return bungkusHasil((ResultSet) hasil, e);
+            if (Boolean.TRUE.equals(hasil)) return hasil; // execute(): ResultSet diambil lewat getResultSet()
+            e.baris = jumlahBaris(hasil, method.getName().equals("execute"));
+            e.selesaikan();
+            return hasil;
+        }
+
+        private long jumlahBaris(Object hasil, boolean execute) {
+            if (hasil instanceof Number) return ((Number) hasil).longValue();
+            long n = 0;
+            if (hasil instanceof int[]) for (int v : (int[]) hasil) n += Math.max(0, v);
+            if (hasil instanceof long[]) for (long v : (long[]) hasil) n += Math.max(0, v);
+            if (execute) {
+                try {
+                    n = Math.max(0, asli.getUpdateCount());
+                } catch (Exception ignored) { }
+            }
+            return n;
+        }
+
+        private void simpanParam(int indeks, Object nilai) {
+            if (indeks < 1 || indeks > 10_000) return;
+            if (indeks > param.length) {
+                param = Arrays.copyOf(param, Math.max(indeks, param.length * 2));
+                paramDibagi = false;
+            } else if (paramDibagi) {
+                param = param.clone();
+                paramDibagi = false;
+            }
+            param[indeks - 1] = nilai;
+            jumlahParam = Math.max(jumlahParam, indeks);
+        }
+    }
+
+    private static String teksNilai(Object v) {
+        if (v == null) return "NULL";
+        if (v instanceof Number || v instanceof Boolean) return v.toString();
+        if (MODE_PARAM.equals("semua")) {
+            String s = v.toString();
+            if (s.length() > 100) s = s.substring(0, 100) + "...";
+            return "'" + s.replace("'", "''") + "'";
+        }
+        if (v instanceof java.util.Date || v instanceof java.time.temporal.Temporal) return "'" + v + "'";
+        // Mode "angka": teks disamarkan, hanya panjangnya yang terlihat
+        return v instanceof String ? "'***'(" + ((String) v).length() + ")" : "<" + v.getClass().getSimpleName() + ">";
+    }
+
+    // ResultSet dibungkus untuk menghitung baris dan waktu fetch; eksekusi selesai saat ResultSet ditutup.
+    // Waktu diukur sekali (next() pertama -> habis/ditutup), bukan dua nanoTime per baris
+    private static ResultSet bungkusHasil(ResultSet asli, Eksekusi e) {
+        InvocationHandler h = (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "next": {
+                    if (e.mulaiFetch == 0) e.mulaiFetch = System.nanoTime();
+                    Object hasil = panggil(asli, method, args);
+                    if (Boolean.TRUE.equals(hasil)) e.baris++;
+                    else e.selesaiFetch();
+                    return hasil;
+                }
+                case "close":
+                    e.selesaikan();
+                    return panggil(asli, method, args);
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    return panggil(asli, method, args);
+            }
+        };
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class}, h);
+    }
+
+    /* ==========================================================
+       SIDIK QUERY (FINGERPRINT)
+       ========================================================== */
+
+    // SQL Statement biasa (tanpa prepare) sering sama persis (COUNT(*), DDL migrasi): sidiknya diingat.
+    // Dibatasi supaya SQL dengan literal yang selalu berbeda tidak membuatnya tumbuh terus
+    private static final int MAKS_CACHE_SIDIK = 2048;
+    private static final ConcurrentHashMap<String, String> CACHE_SIDIK = new ConcurrentHashMap<>();
+
+    private static String sidikTercache(String sql) {
+        String s = CACHE_SIDIK.get(sql);
+        if (s != null) return s;
+        s = sidik(sql);
+        if (CACHE_SIDIK.size() < MAKS_CACHE_SIDIK) CACHE_SIDIK.put(sql, s);
+        return s;
+    }
+
+    private static final Pattern DAFTAR_IN = Pattern.compile("\\(\\s*\\?(\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern BANYAK_VALUES = Pattern.compile("(\\(\\?(, \\?)*\\))(\\s*,\\s*\\(\\?(, \\?)*\\))+");
+
+    // Bentuk normal SQL: huruf kecil, spasi tunggal, literal string/angka jadi ?, daftar IN (?, ?, ...) jadi (?+).
+    // Query yang sama dengan nilai berbeda menghasilkan sidik yang sama.
+    static String sidik(String sql) {
+        StringBuilder sb = new StringBuilder(sql.length());
+        int n = sql.length();
+        boolean spasi = false;
+        for (int i = 0; i < n; i++) {
+            char c = sql.charAt(i);
+            if (c == '\'' || c == '"') {
+                // Literal string (termasuk '' dan \' di dalamnya)
+                int j = i + 1;
+                while (j < n) {
+                    char d = sql.charAt(j);
+                    if (d == '\\') j += 2;
+                    else if (d == c && j + 1 < n && sql.charAt(j + 1) == c) j += 2;
+                    else if (d == c) break;
+                    else j++;
+                }
+                tambah(sb, '?', spasi);
+                spasi = false;
+                i = Math.min(j, n);
+            } else if (Character.isDigit(c) && (sb.length() == 0 || !bagianNama(sb.charAt(sb.length() - 1)) || spasi)) {
+                int j = i;
+                while (j + 1 < n && (Character.isDigit(sql.charAt(j + 1)) || sql.charAt(j + 1) == '.')) j++;
+                tambah(sb, '?', spasi);
+                spasi = false;
+                i = j;
+            } else if (Character.isWhitespace(c)) {
+                spasi = sb.length() > 0;
+            } else {
+                tambah(sb, Character.toLowerCase(c), spasi);
+                spasi = false;
+            }
+        }
+        String hasil = DAFTAR_IN.matcher(sb).replaceAll("(?+)");
+        return BANYAK_VALUES.matcher(hasil).replaceAll("$1, ...");
+    }
+
+    private static void tambah(StringBuilder sb, char c, boolean spasi) {
+        if (spasi) sb.append(' ');
+        sb.append(c);
+    }
+
+    private static boolean bagianNama(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    /* ==========================================================
+       SLOW-QUERY LOG BERPUTAR
+       ========================================================== */
+
+    // file -> file.1 -> ... -> file.N (yang tertua dibuang) saat ukuran melewati batas
+    private static final class LogBerputar {
+        private final Path file;
+        private final long maksByte;
+        private final int jumlahFile;
+        private BufferedWriter keluar;
+        private long ukuran;
+        private boolean rusak = false;
+
+        LogBerputar(Path file, long maksByte, int jumlahFile) {
+            this.file = file;
+            this.maksByte = Math.max(64 * 1024, maksByte);
+            this.jumlahFile = Math.max(1, jumlahFile);
+        }
+
+        synchronized void tulis(String baris) {
+            if (rusak) return;
+            try {
+                if (keluar == null) buka();
+                if (ukuran >= maksByte) {
+                    putar();
+                    buka();
+                }
+                keluar.write(baris);
+                keluar.newLine();
+                keluar.flush();
+                ukuran += baris.length() + 1;
+            } catch (IOException e) {
+                // Jangan sampai slow-query log menggagalkan query-nya sendiri
+                rusak = true;
+                System.out.println("Slow-query log dimatikan, gagal menulis " + file + ": " + e.getMessage());
+            }
+        }
+
+        private void buka() throws IOException {
+            Path dir = file.toAbsolutePath().getParent();
+            if (dir != null) Files.createDirectories(dir);
+            keluar = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            ukuran = Files.size(file);
+        }
+
+        private void putar() throws IOException {
+            keluar.close();
+            keluar = null;
+            Files.deleteIfExists(cadangan(jumlahFile));
+            for (int i = jumlahFile - 1; i >= 1; i--) {
+                if (Files.exists(cadangan(i))) Files.move(cadangan(i), cadangan(i + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+            Files.move(file, cadangan(1), StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        private Path cadangan(int i) {
+            return file.resolveSibling(file.getFileName() + "." + i);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+// Tahanan reservasi yang tidak diambil sampai batasnya dilepas di background.
+// Buku yang dikembalikan langsung ditahan untuk kepala antreannya selama hold.pickupHours jam
+// (lihat Penyimpanan.kembalikan). Secara berkala (TugasBerkala) tahanan yang batasnya sudah lewat
+// diambil paling awal dulu (index tahan_sampai / heap di memori, bukan memindai semua reservasi)
+// dan bukunya diserahkan ke antrean berikutnya - atau dibebaskan jika antrean kosong.
+public class PenjadwalReservasi {
+
+    private final Penyimpanan penyimpanan;
+    private final int jamAmbil;
+    private final int batch;
+    private final TugasBerkala tugas = new TugasBerkala("PenjadwalReservasi", this::putaran);
+
+    // --- Statistik ---
+    private final AtomicLong dilepas = new AtomicLong();
+    private final AtomicLong diserahkan = new AtomicLong();
+
+    // Dipanggil (di thread tugas-berkala) setelah satu putaran, dengan tahanan yang berpindah
+    private volatile Consumer<List<Penyimpanan.SerahTahanan>> setelahLepas = daftar -> { };
+
+    public PenjadwalReservasi(Penyimpanan penyimpanan, int jamAmbil, int batch, long intervalDetik) {
+        this.penyimpanan = penyimpanan;
+        this.jamAmbil = Math.max(1, jamAmbil);
+        this.batch = Math.max(1, batch);
+        if (intervalDetik > 0) tugas.mulai(intervalDetik, intervalDetik, TimeUnit.SECONDS);
+    }
+
+    // Dibuat dari konfigurasi (perpustakaan.properties / -Dperpus.hold.*)
+    public static PenjadwalReservasi dariKonfigurasi(Penyimpanan penyimpanan) {
+        return new PenjadwalReservasi(penyimpanan,
+                Database.getIntSetting("hold.pickupHours", 48),
+                Database.getIntSetting("hold.batch", 500),
+                Database.getIntSetting("hold.expiryIntervalSec", 60));
+    }
+
+    // Batas ambil untuk tahanan yang dibuat sekarang
+    public Timestamp batasAmbil() {
+        return new Timestamp(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(jamAmbil));
+    }
+
+    /* ==========================================================
+       SATU PUTARAN
+       ========================================================== */
+
+    // Batch demi batch sampai tidak ada lagi yang kedaluwarsa; hasil = tahanan yang dilepas.
+    // Bisa juga dipanggil langsung (mis. dari simulasi) di luar jadwal.
+    public int jalankan() {
+        return (int) tugas.jalankan();
+    }
+
+    private long putaran() throws SQLException {
+        List<Penyimpanan.SerahTahanan> semua = new ArrayList<>();
+        try {
+            Timestamp sekarang = new Timestamp(System.currentTimeMillis());
+            Timestamp batas = batasAmbil();
+            List<Penyimpanan.SerahTahanan> bagian;
+            do {
+                bagian = penyimpanan.lepasTahananKedaluwarsa(sekarang, batas, batch);
+                semua.addAll(bagian);
+            } while (!tugas.isBerhenti() && bagian.size() >= batch);
+        } finally {
+            // Batch yang sudah lepas tetap dilaporkan walau batch berikutnya gagal
+            if (!semua.isEmpty()) {
+                dilepas.addAndGet(semua.size());
+                diserahkan.addAndGet(semua.stream().filter(s -> s.memberBaru() != 0).count());
+                System.out.printf("Penjadwal reservasi: %,d tahanan kedaluwarsa dilepas%n", semua.size());
+                setelahLepas.accept(semua);
+            }
+        }
+        return semua.size();
+    }
+
+    public void setSetelahLepas(Consumer<List<Penyimpanan.SerahTahanan>> setelahLepas) { this.setelahLepas = setelahLepas; }
+
+    public void tutup() { tugas.tutup(); }
+
+    /* ==========================================================
+       STATISTIK
+       ========================================================== */
+
+    public int getJamAmbil() { return jamAmbil; }
+    public long getDilepas() { return dilepas.get(); }
+    public long getDiserahkan() { return diserahkan.get(); }
+    public long getGagal() { return tugas.getGagal(); }
+    public long getTerakhirJalan() { return tugas.getTerakhirJalan(); }
+
+    @Override
+    public String toString() {
+        return String.format("PenjadwalReservasi[jamAmbil=%d, batch=%d, dilepas=%d, diserahkan=%d, gagal=%d]",
+                jamAmbil, batch, getDilepas(), getDiserahkan(), getGagal());
+    }
+}
@@ -0,0 +1,212 @@
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+
+// Penulis log aktivitas di background.
+// catat() hanya memasukkan event ke antrean; thread "penulis-log" menulisnya ke penyimpanan
+// per batch (di MySQL satu JDBC batch; dipicu jumlah entri atau interval waktu).
+public class PenulisLog {
+
+    // Apa yang dilakukan jika antrean penuh
+    public enum Kebijakan {
+        BLOCK,       // tunggu sampai ada ruang (maks blockTimeoutMs), lalu dibuang
+        DROP,        // langsung dibuang, pemanggil tidak pernah menunggu
+        CALLER_RUNS  // tulis langsung (sinkron) di thread pemanggil
+    }
+
+    private final Penyimpanan penyimpanan;
+    private final ArrayBlockingQueue<CatatanLog> antrean;
+    private final int ukuranBatch;
+    private final long intervalMs;
+    private final long blockTimeoutMs;
+    private final Kebijakan kebijakan;
+    private final Thread thread;
+    private volatile boolean berhenti = false;
+    private final Runnable kaitShutdown = this::tutup;
+
+    // --- Statistik ---
+    private final AtomicLong diantrekan = new AtomicLong();
+    private final AtomicLong ditulis = new AtomicLong();
+    private final AtomicLong dibuang = new AtomicLong();
+    private final AtomicLong gagal = new AtomicLong();
+    private final AtomicLong jumlahBatch = new AtomicLong();
+
+    // Dipanggil (di thread penulis) setelah satu batch berhasil di-commit, dengan jumlah barisnya
+    private volatile IntConsumer setelahTulis = n -> { };
+
+    public PenulisLog(Penyimpanan penyimpanan, int kapasitas, int ukuranBatch, long intervalMs,
+                      Kebijakan kebijakan, long blockTimeoutMs) {
+        this.penyimpanan = penyimpanan;
+        this.antrean = new ArrayBlockingQueue<>(Math.max(1, kapasitas));
+        this.ukuranBatch = Math.max(1, ukuranBatch);
+        this.intervalMs = Math.max(1, intervalMs);
+        this.kebijakan = kebijakan;
+        this.blockTimeoutMs = blockTimeoutMs;
+
+        thread = new Thread(this::loop, "penulis-log");
+        thread.setDaemon(true);
+        thread.start();
+
+        // Pastikan sisa antrean ditulis sebelum pool koneksi / journal ditutup
+        Database.tambahTugasShutdown(kaitShutdown);
+    }
+
+    // Dibuat dari konfigurasi (perpustakaan.properties / -Dperpus.log.*)
+    public static PenulisLog dariKonfigurasi(Penyimpanan penyimpanan) {
+        Kebijakan k;
+        try {
+            k = Kebijakan.valueOf(Database.getSetting("log.policy", "BLOCK").toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.out.println("log.policy tidak dikenal, pakai BLOCK");
+            k = Kebijakan.BLOCK;
+        }
+        return new PenulisLog(penyimpanan,
+                Database.getIntSetting("log.queueSize", 10_000),
+                Database.getIntSetting("log.batchSize", 200),
+                Database.getIntSetting("log.flushIntervalMs", 200),
+                k,
+                Database.getIntSetting("log.blockTimeoutMs", 1000));
+    }
+
+    /* ==========================================================
+       SISI PEMANGGIL
+       ========================================================== */
+
+    public void catat(String aksi, String judulBuku, String namaMember, String ket) {
+        // Waktu diambil saat event terjadi, bukan saat batch ditulis
+        CatatanLog e = CatatanLog.baru(aksi, judulBuku, namaMember, ket);
+        if (berhenti) {
+            // Setelah shutdown tidak ada lagi thread penulis
+            tulis(List.of(e));
+            return;
+        }
+        if (antrean.offer(e)) {
+            diantrekan.incrementAndGet();
+            setelahDiantrekan();
+            return;
+        }
+
+        switch (kebijakan) {
+            case BLOCK:
+                try {
+                    if (antrean.offer(e, blockTimeoutMs, TimeUnit.MILLISECONDS)) {
+                        diantrekan.incrementAndGet();
+                        setelahDiantrekan();
+                        return;
+                    }
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                dibuang.incrementAndGet();
+                break;
+            case CALLER_RUNS:
+                tulis(List.of(e));
+                break;
+            default:
+                dibuang.incrementAndGet();
+        }
+    }
+
+    // tutup() bisa saja sudah mengosongkan antrean di antara cek berhenti & offer di atas;
+    // event seperti itu tidak akan diambil siapa pun lagi, jadi pemanggil menulisnya sendiri
+    private void setelahDiantrekan() {
+        if (berhenti) tulisSisa();
+    }
+
+    /* ==========================================================
+       THREAD PENULIS
+       ========================================================== */
+
+    private void loop() {
+        List<CatatanLog> batch = new ArrayList<>(ukuranBatch);
+        while (!berhenti) {
+            try {
+                CatatanLog pertama = antrean.poll(intervalMs, TimeUnit.MILLISECONDS);
+                if (pertama == null) continue;
+                batch.add(pertama);
+
+                // Kumpulkan sampai batch penuh atau interval habis
+                long batas = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(intervalMs);
+                antrean.drainTo(batch, ukuranBatch - batch.size());
+                while (batch.size() < ukuranBatch) {
+                    long sisa = batas - System.nanoTime();
+                    if (sisa <= 0) break;
+                    CatatanLog e = antrean.poll(sisa, TimeUnit.NANOSECONDS);
+                    if (e == null) break;
+                    batch.add(e);
+                    antrean.drainTo(batch, ukuranBatch - batch.size());
+                }
+            } catch (InterruptedException e) {
+                // tutup() tidak lagi meng-interrupt (lihat di sana); batch yang sudah terkumpul tetap ditulis
+            }
+
+            if (!batch.isEmpty()) {
+                tulis(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    @SuppressWarnings("try") // op hanya menutup pengukuran Metrik
+    private void tulis(List<CatatanLog> batch) {
+        try (Metrik.Operasi op = Metrik.mulai("PenulisLog.tulis")) {
+            try {
+                penyimpanan.tulisLog(batch);
+                ditulis.addAndGet(batch.size());
+                jumlahBatch.incrementAndGet();
+                setelahTulis.accept(batch.size());
+            } catch (SQLException e) {
+                Metrik.tandaiGagal();
+                gagal.addAndGet(batch.size());
+                System.out.println("Gagal mencatat log sistem (" + batch.size() + " entri): " + e.getMessage());
+            }
+        }
+    }
+
+    public void setSetelahTulis(IntConsumer setelahTulis) { this.setelahTulis = setelahTulis; }
+
+    // Hentikan thread penulis lalu tulis semua yang masih tersisa di antrean
+    public void tutup() {
+        if (berhenti) return;
+        berhenti = true;
+        // Tanpa interrupt: thread penulis bisa sedang di dalam fsync journal (storage.journal.sync=selalu).
+        // loop() melihat berhenti paling lambat setelah log.flushIntervalMs
+        try {
+            thread.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        tulisSisa();
+        Database.hapusTugasShutdown(kaitShutdown);
+    }
+
+    // Aman dipanggil bersamaan (tutup & catat yang terlambat): drainTo mengambil tiap event sekali
+    private void tulisSisa() {
+        List<CatatanLog> sisa = new ArrayList<>();
+        antrean.drainTo(sisa);
+        for (int i = 0; i < sisa.size(); i += ukuranBatch) {
+            tulis(sisa.subList(i, Math.min(sisa.size(), i + ukuranBatch)));
+        }
+    }
+
+    /* ==========================================================
+       STATISTIK
+       ========================================================== */
+
+    public int getPanjangAntrean() { return antrean.size(); }
+    public long getDiantrekan() { return diantrekan.get(); }
+    public long getDitulis() { return ditulis.get(); }
+    public long getDibuang() { return dibuang.get(); }
+    public long getGagal() { return gagal.get(); }
+    public long getJumlahBatch() { return jumlahBatch.get(); }
+
+    @Override
+    public String toString() {
+        return String.format("PenulisLog[antrean=%d, diantrekan=%d, ditulis=%d, batch=%d, dibuang=%d, gagal=%d, kebijakan=%s]",
+                getPanjangAntrean(), getDiantrekan(), getDitulis(), getJumlahBatch(), getDibuang(), getGagal(), kebijakan);
+    }
+}
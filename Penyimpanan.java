@@ -0,0 +1,211 @@
+import java.io.IOException;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.IntFunction;
+
+// Tempat data buku, member, pinjaman dan log disimpan. Perpustakaan hanya bicara lewat interface ini;
+// cache katalog, indeks pencarian, Bloom filter dan peristiwa tetap di Perpustakaan.
+// Implementasi: PenyimpananMysql (JDBC, default) dan PenyimpananMemori (di dalam proses + journal),
+// dipilih lewat storage.engine = mysql | memori.
+//
+// Semua error dilaporkan sebagai SQLException; data dobel (judul+pengarang, email) sebagai
+// SQLIntegrityConstraintViolationException, sama seperti unique index di MySQL.
+public interface Penyimpanan {
+
+    // Dipanggil per baris saat log dibaca berurutan; false = berhenti membaca
+    interface PembacaLog {
+        boolean terima(CatatanLog c) throws IOException;
+    }
+
+    static Penyimpanan dariKonfigurasi() {
+        String engine = Database.getSetting("storage.engine", "mysql").toLowerCase(Locale.ROOT);
+        switch (engine) {
+            case "memori":
+            case "memory":
+                return PenyimpananMemori.dariKonfigurasi();
+            case "mysql":
+                return new PenyimpananMysql();
+            default:
+                System.out.println("storage.engine '" + engine + "' tidak dikenal, pakai mysql");
+                return new PenyimpananMysql();
+        }
+    }
+
+    /* ==========================================================
+       BUKU
+       ========================================================== */
+
+    // Urut ID
+    List<Buku> muatSemuaBuku() throws SQLException;
+
+    // ID baru di-set ke b
+    void tambahBuku(Buku b) throws SQLException;
+
+    // Satu transaksi per chunk: yang sudah ada dilewati, sisanya disimpan (ID di-set) bersama satu
+    // baris log dari log.apply(jumlahBaru) (null = tanpa log). Hasil: true untuk buku yang disimpan.
+    boolean[] tambahBukuMassal(List<Buku> chunk, IntFunction<CatatanLog> log) throws SQLException;
+
+    // Parameter dalam bentuk KunciNormal.teks
+    boolean adaBuku(String judulNormal, String pengarangNormal) throws SQLException;
+
+    // Pencarian substring tanpa indeks (jalur lama, search.index=false)
+    List<Buku> cariBuku(String keyword, boolean hanyaJudul) throws SQLException;
+
+    int jumlahBuku() throws SQLException;
+
+    // Untuk snapshot katalog (lihat SnapshotKatalog): sumber data yang sama menghasilkan identitas yang sama.
+    // null = snapshot tidak dipakai (mis. engine memori, katalognya sudah di RAM setelah journal dibaca)
+    default String identitasKatalog() {
+        return null;
+    }
+
+    // Penanda perubahan katalog; dibaca SEBELUM muatSemuaBuku/bukuBerubahSejak supaya tidak ada yang terlewat
+    default long watermarkKatalog() throws SQLException {
+        return 0;
+    }
+
+    // Buku yang ditambah/diubah sejak watermark, urut ID. Boleh mengembalikan lebih, tidak boleh kurang.
+    default List<Buku> bukuBerubahSejak(long watermark) throws SQLException {
+        return muatSemuaBuku();
+    }
+
+    /* ==========================================================
+       MEMBER
+       ========================================================== */
+
+    // email & noTelepon boleh null; hasil = ID baru
+    int tambahMember(String nama, String email, String noTelepon, int batasPinjam) throws SQLException;
+
+    // Member lengkap dengan daftar pinjamannya; null jika tidak ada
+    Member muatMemberById(int id) throws SQLException;
+
+    // Nama bisa dobel: yang diambil member dengan ID terkecil
+    Member muatMemberByNama(String namaNormal) throws SQLException;
+
+    Member muatMemberByEmail(String emailNormal) throws SQLException;
+
+    boolean adaEmail(String emailNormal) throws SQLException;
+
+    List<String> semuaEmail() throws SQLException;
+
+    int jumlahMember() throws SQLException;
+
+    // Baris: {id, nama, batas pinjam, jumlah pinjaman aktif}, urut ID; setelahId = keyset, null = OFFSET
+    List<Object[]> halamanMember(Integer setelahId, int offset, int batas) throws SQLException;
+
+    /* ==========================================================
+       SIRKULASI
+       ========================================================== */
+
+    // Hasil pinjam/kembali: status + versi baris buku (setelah perubahan jika BERHASIL, yang terlihat jika tidak).
+    // diserahkanKe = member antrean reservasi yang kini ditahankan buku ini (0 = tidak ada)
+    record Sirkulasi(HasilTransaksi.Status status, int versi, int diserahkanKe) {
+        public Sirkulasi(HasilTransaksi.Status status, int versi) {
+            this(status, versi, 0);
+        }
+    }
+
+    // Atomik: cek member & kuota, tandai buku dipinjam (jika belum), dan simpan log bersama-sama.
+    // Compare-and-set pada versi buku & member, tanpa menunggu kunci: jika transaksi lain mengubah
+    // salah satunya di tengah jalan hasilnya KONFLIK (tidak ada yang berubah), pemanggil boleh mengulang.
+    // Buku yang ditahan untuk member lain (reservasi siap diambil) -> DITAHAN; oleh pemiliknya -> tahanan selesai
+    Sirkulasi pinjam(int memberId, int bukuId, CatatanLog log) throws SQLException;
+
+    // Compare-and-set: hanya jika buku masih dipinjam member ini DAN versinya masih 'versi'.
+    // TIDAK_DIPINJAM = sudah tidak dipinjam member ini; KONFLIK = masih dipinjam, versinya lain (hasil.versi).
+    // Jika ada antrean reservasi, di transaksi yang sama buku ditahan untuk kepala antrean sampai batasAmbil
+    Sirkulasi kembalikan(int bukuId, int memberId, int versi, Timestamp batasAmbil) throws SQLException;
+
+    List<Buku> bukuDipinjam(String namaNormal) throws SQLException;
+
+    int jumlahPinjamanAktif() throws SQLException;
+
+    // Baris: {judul, pengarang, peminjam, id buku}, urut ID buku
+    List<Object[]> halamanPinjaman(Integer setelahId, int offset, int batas) throws SQLException;
+
+    /* ==========================================================
+       RESERVASI (antrean per buku, lihat PenjadwalReservasi)
+       Antrean disimpan per buku, urut prioritas (besar dulu) lalu waktu daftar. Saat buku kembali,
+       kepala antrean langsung mendapat tahanan (buku disiapkan) sampai batas ambil; yang tidak
+       diambil dilepas ke antrean berikutnya oleh penjadwal. Tidak ada langkah yang memindai
+       semua reservasi: kepala antrean lewat indeks per buku, tahanan kedaluwarsa lewat indeks waktu.
+       ========================================================== */
+
+    // Pelepasan satu tahanan: buku, member yang ditahankan sebelumnya, member berikutnya (0 = buku tersedia)
+    record SerahTahanan(int bukuId, int memberLama, int memberBaru) { }
+
+    // Masuk antrean (bersama log-nya), hanya jika buku sedang dipinjam / ditahan untuk member lain. Hasil:
+    // BERHASIL, TERSEDIA (langsung pinjam saja), SUDAH_ANTRE (sudah antre, meminjam, atau sudah ditahankan),
+    // KUOTA_PENUH (maksPerMember reservasi aktif), MEMBER_TIDAK_DITEMUKAN, BUKU_TIDAK_DITEMUKAN
+    Sirkulasi reservasi(int memberId, int bukuId, int prioritas, int maksPerMember, CatatanLog log) throws SQLException;
+
+    // Keluar dari antrean; jika buku sudah ditahankan untuk member ini, tahanan dilepas ke antrean
+    // berikutnya (hasil.diserahkanKe). TIDAK_DIPINJAM = tidak ada reservasi member ini untuk buku ini
+    Sirkulasi batalkanReservasi(int memberId, int bukuId, Timestamp batasAmbil) throws SQLException;
+
+    // Baris: {id buku, judul, posisi (0 = sudah disiapkan), siap diambil sampai (Timestamp) atau null}, urut ID buku
+    List<Object[]> reservasiMember(int memberId) throws SQLException;
+
+    // Paling banyak 'batas' tahanan yang batasnya < sekarang dilepas (masing-masing atomik) dan diserahkan
+    // ke antrean berikutnya dengan batas ambil baru
+    List<SerahTahanan> lepasTahananKedaluwarsa(Timestamp sekarang, Timestamp batasAmbil, int batas) throws SQLException;
+
+    long jumlahReservasi() throws SQLException;
+
+    /* ==========================================================
+       LOG AKTIVITAS
+       ========================================================== */
+
+    void tulisLog(List<CatatanLog> batch) throws SQLException;
+
+    int jumlahLog() throws SQLException;
+
+    // Terbaru dulu; sebelum = baris terakhir halaman sebelumnya (keyset), null = OFFSET
+    List<CatatanLog> halamanLog(CatatanLog sebelum, int offset, int batas) throws SQLException;
+
+    // Rentang [dari, sampai), null = tanpa batas
+    long jumlahLog(Timestamp dari, Timestamp sampai) throws SQLException;
+
+    // Urut waktu lalu ID; hasil false jika pembaca berhenti sebelum habis
+    boolean bacaLog(Timestamp dari, Timestamp sampai, PembacaLog pembaca) throws SQLException, IOException;
+
+    /* ==========================================================
+       LOG AKTIVITAS: ARSIP & ROLLUP (lihat SiklusLog)
+       Tabel log aktif hanya berisi hari-hari terakhir; yang lebih tua dipindah ke arsip per bulan
+       dan diringkas per hari. jumlahLog()/halamanLog() hanya membaca log aktif, jumlahLog(dari,
+       sampai)/bacaLog() (ekspor) juga membaca arsip.
+       ========================================================== */
+
+    // false = engine tidak punya arsip (log disimpan apa adanya); method di bawah tidak dipanggil
+    default boolean dukungArsipLog() {
+        return false;
+    }
+
+    // Hari tertua yang masih ada di log aktif; null = kosong
+    default LocalDate hariLogTertua() throws SQLException {
+        return null;
+    }
+
+    // Atomik: ringkas log aktif pada 'hari' ke rollup harian, salin ke arsip bulannya, hapus dari
+    // log aktif. Aman dipanggil ulang (baris yang datang terlambat ditambahkan ke rollup). Hasil = baris dipindah
+    default long arsipkanLogHari(LocalDate hari) throws SQLException {
+        return 0;
+    }
+
+    // Arsip mentah bulan sebelum 'bulan' dihapus (rollup tetap); hasil = jumlah bulan yang dihapus
+    default int hapusArsipLogSebelum(YearMonth bulan) throws SQLException {
+        return 0;
+    }
+
+    // Baris: {tanggal (LocalDate), aksi, judul buku, jumlah}, rentang hari [dari, sampai), urut tanggal
+    default List<Object[]> rollupLog(LocalDate dari, LocalDate sampai) throws SQLException {
+        return List.of();
+    }
+
+    // Dipanggil saat aplikasi berhenti (setelah log terakhir ditulis)
+    void tutup();
+}
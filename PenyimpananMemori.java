@@ -0,0 +1,1169 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+import java.util.zip.CRC32;
+
+// Penyimpanan di dalam proses, tanpa MySQL (kiosk, uji lokal, benchmark).
+// - Buku, member dan log disimpan di tabel per ID (array langsung, ID padat mulai 1): lookup tanpa
+//   boxing/hashing; pinjaman member berupa int[] di rekaman member.
+// - Sirkulasi dikunci per stripe (ID & MASK) untuk member lalu buku (urutan tetap -> tanpa deadlock),
+//   jadi pinjam/kembali buku & member yang berbeda berjalan paralel. Versi baris buku tetap dihitung
+//   (sama dengan kolom buku.versi di MySQL), jadi kembalikan() dengan versi lama ditolak dengan KONFLIK.
+// - Antrean reservasi = PriorityQueue per buku (dijaga kunci stripe buku), tahanan kedaluwarsa = satu
+//   heap berurut batas ambil; entri heap yang sudah basi (tahanan diambil/dibatalkan) dibuang saat muncul.
+// - Setiap perubahan ditulis dulu ke journal append-only (panjang + isi + CRC32), baru diterapkan
+//   ke memori. Saat start journal diputar ulang; ekor yang rusak (crash di tengah tulis) dipotong.
+//   storage.journal.sync=selalu -> fsync tiap perubahan; default fsync per interval (group commit).
+public class PenyimpananMemori implements Penyimpanan {
+
+    private static final int STRIPE = 64; // pangkat 2
+    private static final int MASK = STRIPE - 1;
+
+    // Jenis rekaman journal (jangan diubah, file lama bergantung pada nilainya)
+    private static final int R_BUKU = 1;
+    private static final int R_BUKU_MASSAL = 2;
+    private static final int R_MEMBER = 3;
+    private static final int R_PINJAM = 4;
+    private static final int R_KEMBALI = 5;
+    private static final int R_LOG = 6;
+    private static final int R_VERSI = 7; // Hanya dari pemadatan: versi baris buku (riwayatnya dibuang)
+    private static final int R_RESERVASI = 8;
+    private static final int R_BATAL_RESERVASI = 9;
+    private static final int R_SERAH = 10;         // Tahanan buku berpindah (lepas + kepala antrean berikutnya)
+    private static final int R_KEMBALI_SERAH = 11; // Kembali + serah ke antrean dalam satu rekaman
+
+    /* ==========================================================
+       STRUKTUR DATA
+       ========================================================== */
+
+    private static final class RekamanBuku {
+        final int id;
+        final boolean fiksi;
+        final String judul, pengarang, info;
+        volatile int peminjam; // 0 = tersedia; diubah di bawah kunci stripe buku
+        volatile int versi;    // Naik setiap pinjam/kembali, di bawah kunci stripe buku
+        // Reservasi, dijaga kunci stripe buku
+        int ditahanUntuk;      // 0 = tidak ditahan
+        long tahanSampai;
+        PriorityQueue<EntriReservasi> antrean; // null = belum pernah ada antrean
+
+        RekamanBuku(int id, boolean fiksi, String judul, String pengarang, String info) {
+            this.id = id;
+            this.fiksi = fiksi;
+            this.judul = judul;
+            this.pengarang = pengarang;
+            this.info = info;
+        }
+
+        Buku keBuku() {
+            Buku b = fiksi ? new BukuFiksi(judul, pengarang, info) : new BukuNonFiksi(judul, pengarang, info);
+            b.setId(id);
+            b.setDipinjam(peminjam != 0);
+            b.setVersi(versi);
+            return b;
+        }
+    }
+
+    private static final class RekamanMember {
+        final int id;
+        final String nama, email, noTelepon;
+        final int batasPinjam;
+        // Dijaga kunci stripe member
+        int[] pinjaman = new int[4];
+        int jumlahPinjaman;
+
+        RekamanMember(int id, String nama, String email, String noTelepon, int batasPinjam) {
+            this.id = id;
+            this.nama = nama;
+            this.email = email;
+            this.noTelepon = noTelepon;
+            this.batasPinjam = batasPinjam;
+        }
+
+        void tambahPinjaman(int idBuku) {
+            if (jumlahPinjaman == pinjaman.length) pinjaman = Arrays.copyOf(pinjaman, pinjaman.length * 2);
+            pinjaman[jumlahPinjaman++] = idBuku;
+        }
+
+        void hapusPinjaman(int idBuku) {
+            for (int i = 0; i < jumlahPinjaman; i++) {
+                if (pinjaman[i] == idBuku) {
+                    pinjaman[i] = pinjaman[--jumlahPinjaman];
+                    return;
+                }
+            }
+        }
+    }
+
+    // Urutan layani: prioritas besar dulu, lalu yang mendaftar lebih dulu
+    private record EntriReservasi(long urutan, int memberId, int prioritas) { }
+
+    private static final Comparator<EntriReservasi> URUTAN_ANTREAN =
+            Comparator.comparingInt((EntriReservasi e) -> -e.prioritas()).thenComparingLong(EntriReservasi::urutan);
+
+    // int ID -> rekaman. Satu penulis sekaligus (ID naik berurutan), banyak pembaca tanpa lock:
+    // pembaca membaca maksId (volatile) dulu, jadi semua slot <= maksId pasti sudah terlihat.
+    private static final class TabelId<T> {
+        private volatile Object[] isi = new Object[1024];
+        private volatile int maksId = 0;
+
+        @SuppressWarnings("unchecked")
+        T get(int id) {
+            int m = maksId;
+            Object[] a = isi;
+            return id > 0 && id <= m ? (T) a[id] : null;
+        }
+
+        void put(int id, T nilai) {
+            Object[] a = isi;
+            if (id >= a.length) {
+                a = Arrays.copyOf(a, Math.max(id + 1, a.length * 2));
+                isi = a;
+            }
+            a[id] = nilai;
+            if (id > maksId) maksId = id;
+        }
+
+        int getMaksId() { return maksId; }
+    }
+
+    private final TabelId<RekamanBuku> buku = new TabelId<>();
+    private final TabelId<RekamanMember> member = new TabelId<>();
+    private final TabelId<CatatanLog> log = new TabelId<>();
+
+    // Kunci sekunder (bentuk KunciNormal) -> ID
+    private final ConcurrentHashMap<String, Integer> idPerKunciBuku = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Integer> idPerNama = new ConcurrentHashMap<>();   // ID terkecil
+    private final ConcurrentHashMap<String, Integer> idPerEmail = new ConcurrentHashMap<>();
+
+    private final Object[] kunciMember = new Object[STRIPE];
+    private final Object[] kunciBuku = new Object[STRIPE];
+    // Urutan kunci: stripe member -> stripe buku -> kunciLog; kunciTulis -> kunciLog
+    private final Object kunciTulis = new Object(); // ID baru buku & member
+    private final Object kunciLog = new Object();   // ID baru log
+    private int idBukuTerakhir, idMemberTerakhir, idLogTerakhir;
+
+    private final AtomicInteger jumlahPinjamanAktif = new AtomicInteger();
+
+    // member -> buku yang diantre / yang ditahankan untuknya (diubah di bawah kunci stripe buku)
+    private final ConcurrentHashMap<Integer, Set<Integer>> antreanPerMember = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, Set<Integer>> tahananPerMember = new ConcurrentHashMap<>();
+    private final AtomicLong urutanReservasi = new AtomicLong();
+    private final AtomicLong jumlahReservasi = new AtomicLong();
+    // {tahanSampai, id buku}, paling awal di atas. Kunci daun: jangan ambil kunci lain di dalamnya
+    private final PriorityQueue<long[]> tahananKedaluwarsa = new PriorityQueue<>(Comparator.comparingLong((long[] e) -> e[0]));
+    private final Object kunciTahanan = new Object();
+
+    private final Jurnal jurnal; // null = tanpa journal (data hilang saat aplikasi ditutup)
+
+    /* ==========================================================
+       PEMBUATAN & JOURNAL
+       ========================================================== */
+
+    // Dibuat dari konfigurasi (perpustakaan.properties / -Dperpus.storage.*)
+    public static PenyimpananMemori dariKonfigurasi() {
+        String path = Database.getSetting("storage.journal", "data/perpus.journal");
+        boolean syncSelalu = "selalu".equalsIgnoreCase(Database.getSetting("storage.journal.sync", "interval"));
+        try {
+            return new PenyimpananMemori(path.isEmpty() || path.equals("-") ? null : Paths.get(path), syncSelalu,
+                    Database.getIntSetting("storage.journal.flushMs", 100),
+                    Database.getIntSetting("storage.journal.compactMb", 64) * 1024L * 1024L);
+        } catch (IOException e) {
+            throw new IllegalStateException("Journal penyimpanan tidak bisa dibuka: " + path, e);
+        }
+    }
+
+    public PenyimpananMemori(Path fileJurnal, boolean syncSelalu, int flushMs, long batasPadatkan) throws IOException {
+        for (int i = 0; i < STRIPE; i++) {
+            kunciMember[i] = new Object();
+            kunciBuku[i] = new Object();
+        }
+        if (fileJurnal == null) {
+            jurnal = null;
+            return;
+        }
+
+        if (fileJurnal.getParent() != null) Files.createDirectories(fileJurnal.getParent());
+        long mulai = System.currentTimeMillis();
+        long rekaman = putarUlang(fileJurnal);
+        if (rekaman > 0) {
+            System.out.printf("Journal diputar ulang: %,d rekaman (%d buku, %d member, %d log) dalam %d ms%n",
+                    rekaman, idBukuTerakhir, idMemberTerakhir, idLogTerakhir, System.currentTimeMillis() - mulai);
+        }
+        if (Files.exists(fileJurnal) && batasPadatkan > 0 && Files.size(fileJurnal) > batasPadatkan) {
+            padatkan(fileJurnal);
+        }
+        jurnal = new Jurnal(fileJurnal, syncSelalu, flushMs);
+    }
+
+    // Isi satu rekaman journal (setelah byte jenis)
+    private interface IsiRekaman {
+        void tulis(DataOutputStream out) throws IOException;
+    }
+
+    private void tulisJurnal(int jenis, IsiRekaman isi) throws SQLException {
+        if (jurnal == null) return;
+        try {
+            jurnal.tulis(jenis, isi);
+        } catch (IOException e) {
+            throw new SQLException("Journal gagal ditulis: " + e.getMessage(), e);
+        }
+    }
+
+    private static final class Penampung extends ByteArrayOutputStream {
+        byte[] data() { return buf; }
+    }
+
+    private static final class Jurnal {
+        private final FileOutputStream fos;
+        private final DataOutputStream keluar;
+        private final Penampung penampung = new Penampung();
+        private final DataOutputStream rekaman = new DataOutputStream(penampung);
+        private final CRC32 crc = new CRC32();
+        private final boolean syncSelalu;
+        private final ScheduledExecutorService flusher;
+        private boolean kotor = false;
+        private boolean ditutup = false;
+        // Tulis/flush yang gagal bisa meninggalkan rekaman setengah jadi di buffer atau file. putarUlang
+        // berhenti di CRC yang rusak, jadi rekaman apa pun sesudahnya akan hilang: sejak itu semua tulisan ditolak
+        private IOException rusak;
+
+        Jurnal(Path path, boolean syncSelalu, int flushMs) throws IOException {
+            this.fos = new FileOutputStream(path.toFile(), true);
+            this.keluar = new DataOutputStream(new BufferedOutputStream(fos, 64 * 1024));
+            this.syncSelalu = syncSelalu;
+            if (syncSelalu) {
+                flusher = null;
+            } else {
+                flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+                    Thread t = new Thread(r, "jurnal-flush");
+                    t.setDaemon(true);
+                    return t;
+                });
+                flusher.scheduleWithFixedDelay(this::flushKeDisk, flushMs, Math.max(1, flushMs), TimeUnit.MILLISECONDS);
+            }
+        }
+
+        synchronized void tulis(int jenis, IsiRekaman isi) throws IOException {
+            if (ditutup) throw new IOException("journal sudah ditutup");
+            if (rusak != null) throw new IOException("journal berhenti menerima tulisan sejak gagal: " + rusak.getMessage(), rusak);
+            penampung.reset();
+            rekaman.writeByte(jenis);
+            isi.tulis(rekaman);
+            crc.reset();
+            crc.update(penampung.data(), 0, penampung.size());
+            try {
+                keluar.writeInt(penampung.size());
+                keluar.write(penampung.data(), 0, penampung.size());
+                keluar.writeInt((int) crc.getValue());
+                if (syncSelalu) {
+                    keluar.flush();
+                    sinkron();
+                } else {
+                    kotor = true;
+                }
+            } catch (IOException e) {
+                tandaiRusak(e);
+                throw e;
+            }
+        }
+
+        void flushKeDisk() {
+            try {
+                synchronized (this) {
+                    if (!kotor || ditutup || rusak != null) return;
+                    keluar.flush();
+                    kotor = false;
+                }
+                sinkron(); // Di luar lock: penulis tidak menunggu fsync
+            } catch (IOException e) {
+                synchronized (this) {
+                    tandaiRusak(e);
+                }
+            }
+        }
+
+        private void tandaiRusak(IOException e) {
+            if (rusak != null) return;
+            rusak = e;
+            System.out.println("Journal gagal ditulis (" + e.getMessage() + "); perubahan berikutnya ditolak sampai aplikasi dibuka ulang");
+        }
+
+        // FileDescriptor.sync, bukan FileChannel.force: force() di thread yang di-interrupt melempar
+        // ClosedByInterruptException dan ikut menutup FileOutputStream, sehingga journal mati
+        private void sinkron() throws IOException {
+            fos.getFD().sync();
+        }
+
+        void tutup() {
+            if (flusher != null) {
+                // Tanpa interrupt: flush yang sedang berjalan diselesaikan dulu
+                flusher.shutdown();
+                try {
+                    flusher.awaitTermination(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            try {
+                synchronized (this) {
+                    if (ditutup) return;
+                    ditutup = true;
+                    if (rusak != null) {
+                        // Isi buffer bisa berupa rekaman setengah jadi; yang sudah di disk tetap utuh
+                        fos.close();
+                        return;
+                    }
+                    keluar.flush();
+                    sinkron();
+                    keluar.close();
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    // Mengembalikan jumlah rekaman yang diterapkan; ekor rusak dipotong dari file
+    private long putarUlang(Path path) throws IOException {
+        if (!Files.exists(path)) return 0;
+        long posisiBaik = 0, jumlah = 0;
+        CRC32 crc = new CRC32();
+        try (InputStream fin = Files.newInputStream(path);
+             DataInputStream masuk = new DataInputStream(new BufferedInputStream(fin, 64 * 1024))) {
+            while (true) {
+                int panjang;
+                try {
+                    panjang = masuk.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                byte[] isi;
+                int cek;
+                try {
+                    if (panjang <= 0 || panjang > 64 * 1024 * 1024) break;
+                    isi = new byte[panjang];
+                    masuk.readFully(isi);
+                    cek = masuk.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                crc.reset();
+                crc.update(isi, 0, isi.length);
+                if ((int) crc.getValue() != cek) break;
+
+                DataInputStream r = new DataInputStream(new ByteArrayInputStream(isi));
+                terapkan(r.readUnsignedByte(), r);
+                posisiBaik += 8 + panjang;
+                jumlah++;
+            }
+        }
+
+        long ukuran = Files.size(path);
+        if (posisiBaik < ukuran) {
+            System.out.println("Journal: ekor rusak " + (ukuran - posisiBaik) + " byte dipotong (tulisan terakhir sebelum crash)");
+            try (FileChannel ch = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                ch.truncate(posisiBaik);
+            }
+        }
+        return jumlah;
+    }
+
+    private void terapkan(int jenis, DataInputStream r) throws IOException {
+        switch (jenis) {
+            case R_BUKU:
+                simpanBuku(bacaBuku(r));
+                break;
+            case R_BUKU_MASSAL: {
+                int n = r.readInt();
+                for (int i = 0; i < n; i++) simpanBuku(bacaBuku(r));
+                if (r.readBoolean()) simpanLog(bacaLog(r));
+                break;
+            }
+            case R_MEMBER:
+                simpanMember(new RekamanMember(r.readInt(), bacaTeks(r), bacaTeks(r), bacaTeks(r), r.readInt()));
+                break;
+            case R_PINJAM: {
+                RekamanBuku b = buku.get(r.readInt());
+                RekamanMember m = member.get(r.readInt());
+                if (b != null && m != null) {
+                    b.peminjam = m.id;
+                    b.versi++;
+                    if (b.ditahanUntuk == m.id) aturTahanan(b, 0, 0);
+                    m.tambahPinjaman(b.id);
+                    jumlahPinjamanAktif.incrementAndGet();
+                }
+                if (r.readBoolean()) simpanLog(bacaLog(r));
+                break;
+            }
+            case R_KEMBALI:
+                terapkanKembali(buku.get(r.readInt()));
+                break;
+            case R_KEMBALI_SERAH: {
+                RekamanBuku b = buku.get(r.readInt());
+                int memberBaru = r.readInt();
+                long sampai = r.readLong();
+                terapkanKembali(b);
+                if (b != null) terapkanSerah(b, memberBaru, sampai);
+                break;
+            }
+            case R_SERAH: {
+                RekamanBuku b = buku.get(r.readInt());
+                int memberBaru = r.readInt();
+                long sampai = r.readLong();
+                if (b != null) terapkanSerah(b, memberBaru, sampai);
+                break;
+            }
+            case R_RESERVASI: {
+                RekamanBuku b = buku.get(r.readInt());
+                int memberId = r.readInt();
+                int prioritas = r.readInt();
+                long urutan = r.readLong();
+                if (b != null) tambahAntrean(b, new EntriReservasi(urutan, memberId, prioritas));
+                if (urutan > urutanReservasi.get()) urutanReservasi.set(urutan);
+                if (r.readBoolean()) simpanLog(bacaLog(r));
+                break;
+            }
+            case R_BATAL_RESERVASI: {
+                RekamanBuku b = buku.get(r.readInt());
+                int memberId = r.readInt();
+                if (b != null) hapusDariAntrean(b, memberId);
+                break;
+            }
+            case R_VERSI: {
+                int n = r.readInt();
+                for (int i = 0; i < n; i++) {
+                    RekamanBuku b = buku.get(r.readInt());
+                    int versi = r.readInt();
+                    if (b != null) b.versi = versi;
+                }
+                break;
+            }
+            case R_LOG: {
+                int n = r.readInt();
+                for (int i = 0; i < n; i++) simpanLog(bacaLog(r));
+                break;
+            }
+            default:
+                throw new IOException("Jenis rekaman journal tidak dikenal: " + jenis);
+        }
+    }
+
+    // Tulis ulang journal berisi keadaan saat ini saja (riwayat pinjam-kembali dibuang)
+    private void padatkan(Path path) throws IOException {
+        long sebelum = Files.size(path);
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.deleteIfExists(tmp);
+        Jurnal baru = new Jurnal(tmp, false, 60_000);
+        for (int id = 1; id <= buku.getMaksId(); id++) {
+            RekamanBuku b = buku.get(id);
+            if (b != null) baru.tulis(R_BUKU, out -> tulisBuku(out, b));
+        }
+        for (int id = 1; id <= member.getMaksId(); id++) {
+            RekamanMember m = member.get(id);
+            if (m != null) baru.tulis(R_MEMBER, out -> tulisMember(out, m));
+        }
+        for (int id = 1; id <= buku.getMaksId(); id++) {
+            RekamanBuku b = buku.get(id);
+            if (b != null && b.peminjam != 0) {
+                baru.tulis(R_PINJAM, out -> {
+                    out.writeInt(b.id);
+                    out.writeInt(b.peminjam);
+                    out.writeBoolean(false);
+                });
+            }
+        }
+        // Setelah R_PINJAM (yang ikut menaikkan versi): versi disimpan apa adanya, supaya versi yang
+        // dipegang klien sebelum pemadatan tidak bisa cocok lagi dengan pinjaman yang lain
+        List<RekamanBuku> berversi = new ArrayList<>();
+        for (int id = 1; id <= buku.getMaksId(); id++) {
+            RekamanBuku b = buku.get(id);
+            if (b != null && b.versi != 0) berversi.add(b);
+        }
+        for (int awal = 0; awal < berversi.size(); awal += 1000) {
+            List<RekamanBuku> bagian = berversi.subList(awal, Math.min(berversi.size(), awal + 1000));
+            baru.tulis(R_VERSI, out -> {
+                out.writeInt(bagian.size());
+                for (RekamanBuku b : bagian) {
+                    out.writeInt(b.id);
+                    out.writeInt(b.versi);
+                }
+            });
+        }
+        // Antrean (urutan aslinya ikut disimpan) lalu tahanan; R_SERAH tidak menyentuh versi
+        for (int id = 1; id <= buku.getMaksId(); id++) {
+            RekamanBuku b = buku.get(id);
+            if (b == null) continue;
+            if (b.antrean != null) {
+                for (EntriReservasi e : b.antrean) {
+                    baru.tulis(R_RESERVASI, out -> tulisReservasi(out, b.id, e, null));
+                }
+            }
+            if (b.ditahanUntuk != 0) {
+                baru.tulis(R_SERAH, out -> {
+                    out.writeInt(b.id);
+                    out.writeInt(b.ditahanUntuk);
+                    out.writeLong(b.tahanSampai);
+                });
+            }
+        }
+        for (int awal = 1; awal <= log.getMaksId(); awal += 1000) {
+            int dari = awal, sampai = Math.min(log.getMaksId(), awal + 999);
+            baru.tulis(R_LOG, out -> {
+                out.writeInt(sampai - dari + 1);
+                for (int id = dari; id <= sampai; id++) tulisLog(out, log.get(id));
+            });
+        }
+        baru.tutup();
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        System.out.printf("Journal dipadatkan: %,d KB -> %,d KB%n", sebelum / 1024, Files.size(path) / 1024);
+    }
+
+    /* ---------- Encoding rekaman ---------- */
+
+    private static void tulisTeks(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(b.length);
+        out.write(b);
+    }
+
+    private static String bacaTeks(DataInputStream in) throws IOException {
+        int n = in.readInt();
+        if (n < 0) return null;
+        byte[] b = new byte[n];
+        in.readFully(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    private static void tulisBuku(DataOutputStream out, RekamanBuku b) throws IOException {
+        out.writeInt(b.id);
+        out.writeBoolean(b.fiksi);
+        tulisTeks(out, b.judul);
+        tulisTeks(out, b.pengarang);
+        tulisTeks(out, b.info);
+    }
+
+    private static RekamanBuku bacaBuku(DataInputStream in) throws IOException {
+        return new RekamanBuku(in.readInt(), in.readBoolean(), bacaTeks(in), bacaTeks(in), bacaTeks(in));
+    }
+
+    private static void tulisMember(DataOutputStream out, RekamanMember m) throws IOException {
+        out.writeInt(m.id);
+        tulisTeks(out, m.nama);
+        tulisTeks(out, m.email);
+        tulisTeks(out, m.noTelepon);
+        out.writeInt(m.batasPinjam);
+    }
+
+    private static void tulisLog(DataOutputStream out, CatatanLog c) throws IOException {
+        out.writeInt(c.id());
+        out.writeLong(c.waktu().getTime());
+        tulisTeks(out, c.aksi());
+        tulisTeks(out, c.judulBuku());
+        tulisTeks(out, c.namaMember());
+        tulisTeks(out, c.keterangan());
+    }
+
+    private static CatatanLog bacaLog(DataInputStream in) throws IOException {
+        return new CatatanLog(in.readInt(), new Timestamp(in.readLong()), bacaTeks(in), bacaTeks(in), bacaTeks(in), bacaTeks(in));
+    }
+
+    private static void tulisReservasi(DataOutputStream out, int bukuId, EntriReservasi e, CatatanLog c) throws IOException {
+        out.writeInt(bukuId);
+        out.writeInt(e.memberId());
+        out.writeInt(e.prioritas());
+        out.writeLong(e.urutan());
+        out.writeBoolean(c != null);
+        if (c != null) tulisLog(out, c);
+    }
+
+    /* ---------- Penerapan ke memori (journal sudah ditulis) ---------- */
+
+    private void simpanBuku(RekamanBuku b) {
+        buku.put(b.id, b);
+        idPerKunciBuku.put(KunciNormal.buku(b.judul, b.pengarang), b.id);
+        if (b.id > idBukuTerakhir) idBukuTerakhir = b.id;
+    }
+
+    private void simpanMember(RekamanMember m) {
+        member.put(m.id, m);
+        idPerNama.putIfAbsent(KunciNormal.teks(m.nama), m.id);
+        if (m.email != null) idPerEmail.put(KunciNormal.email(m.email), m.id);
+        if (m.id > idMemberTerakhir) idMemberTerakhir = m.id;
+    }
+
+    private void simpanLog(CatatanLog c) {
+        log.put(c.id(), c);
+        if (c.id() > idLogTerakhir) idLogTerakhir = c.id();
+    }
+
+    // Fungsi-fungsi di bawah ini: di bawah kunci stripe buku (atau saat putar ulang)
+
+    private void terapkanKembali(RekamanBuku b) {
+        if (b == null || b.peminjam == 0) return;
+        RekamanMember m = member.get(b.peminjam);
+        if (m != null) m.hapusPinjaman(b.id);
+        b.peminjam = 0;
+        b.versi++;
+        jumlahPinjamanAktif.decrementAndGet();
+    }
+
+    private void tambahAntrean(RekamanBuku b, EntriReservasi e) {
+        if (b.antrean == null) b.antrean = new PriorityQueue<>(4, URUTAN_ANTREAN);
+        b.antrean.add(e);
+        antreanPerMember.computeIfAbsent(e.memberId(), k -> ConcurrentHashMap.newKeySet()).add(b.id);
+        jumlahReservasi.incrementAndGet();
+    }
+
+    private boolean hapusDariAntrean(RekamanBuku b, int memberId) {
+        if (b.antrean == null || !b.antrean.removeIf(e -> e.memberId() == memberId)) return false;
+        Set<Integer> punya = antreanPerMember.get(memberId);
+        if (punya != null) punya.remove(b.id);
+        jumlahReservasi.decrementAndGet();
+        return true;
+    }
+
+    private void aturTahanan(RekamanBuku b, int memberId, long sampai) {
+        if (b.ditahanUntuk != 0) {
+            Set<Integer> lama = tahananPerMember.get(b.ditahanUntuk);
+            if (lama != null) lama.remove(b.id);
+        }
+        b.ditahanUntuk = memberId;
+        b.tahanSampai = sampai;
+        if (memberId == 0) return;
+        tahananPerMember.computeIfAbsent(memberId, k -> ConcurrentHashMap.newKeySet()).add(b.id);
+        synchronized (kunciTahanan) {
+            tahananKedaluwarsa.add(new long[]{ sampai, b.id });
+        }
+    }
+
+    // Tahanan lama (jika ada) dilepas; memberBaru (kepala antrean saat rekaman ditulis) keluar dari antrean
+    private void terapkanSerah(RekamanBuku b, int memberBaru, long sampai) {
+        if (memberBaru != 0) hapusDariAntrean(b, memberBaru);
+        aturTahanan(b, memberBaru, sampai);
+    }
+
+    private static int kepalaAntrean(RekamanBuku b) {
+        EntriReservasi kepala = b.antrean == null ? null : b.antrean.peek();
+        return kepala == null ? 0 : kepala.memberId();
+    }
+
+    /* ==========================================================
+       BAGIAN 1: BUKU
+       ========================================================== */
+
+    @Override
+    public List<Buku> muatSemuaBuku() {
+        int maks = buku.getMaksId();
+        List<Buku> list = new ArrayList<>(maks);
+        for (int id = 1; id <= maks; id++) {
+            RekamanBuku b = buku.get(id);
+            if (b != null) list.add(b.keBuku());
+        }
+        return list;
+    }
+
+    @Override
+    public int jumlahBuku() {
+        return buku.getMaksId();
+    }
+
+    @Override
+    public void tambahBuku(Buku b) throws SQLException {
+        synchronized (kunciTulis) {
+            if (idPerKunciBuku.containsKey(KunciNormal.buku(b.getJudul(), b.getPengarang()))) {
+                throw new SQLIntegrityConstraintViolationException("Buku sudah ada: " + b.getJudul());
+            }
+            RekamanBuku r = new RekamanBuku(idBukuTerakhir + 1, b instanceof BukuFiksi,
+                    b.getJudul(), b.getPengarang(), b.getInfoKhusus());
+            tulisJurnal(R_BUKU, out -> tulisBuku(out, r));
+            simpanBuku(r);
+            b.setId(r.id);
+        }
+    }
+
+    @Override
+    public boolean[] tambahBukuMassal(List<Buku> chunk, IntFunction<CatatanLog> pembuatLog) throws SQLException {
+        boolean[] tersimpan = new boolean[chunk.size()];
+        synchronized (kunciTulis) {
+            List<RekamanBuku> baru = new ArrayList<>();
+            List<Buku> sumber = new ArrayList<>();
+            Set<String> diChunk = new HashSet<>();
+            int id = idBukuTerakhir;
+            for (int i = 0; i < chunk.size(); i++) {
+                Buku b = chunk.get(i);
+                String kunci = KunciNormal.buku(b.getJudul(), b.getPengarang());
+                if (idPerKunciBuku.containsKey(kunci) || !diChunk.add(kunci)) continue;
+                baru.add(new RekamanBuku(++id, b instanceof BukuFiksi, b.getJudul(), b.getPengarang(), b.getInfoKhusus()));
+                sumber.add(b);
+                tersimpan[i] = true;
+            }
+            if (baru.isEmpty()) return tersimpan;
+
+            CatatanLog c0 = pembuatLog == null ? null : pembuatLog.apply(baru.size());
+            synchronized (kunciLog) {
+                CatatanLog c = c0 == null ? null : denganId(c0, idLogTerakhir + 1);
+                // Satu rekaman untuk seluruh chunk: setelah crash chunk ada utuh atau tidak sama sekali
+                tulisJurnal(R_BUKU_MASSAL, out -> {
+                    out.writeInt(baru.size());
+                    for (RekamanBuku r : baru) tulisBuku(out, r);
+                    out.writeBoolean(c != null);
+                    if (c != null) tulisLog(out, c);
+                });
+                for (RekamanBuku r : baru) simpanBuku(r);
+                if (c != null) simpanLog(c);
+            }
+            for (int j = 0; j < baru.size(); j++) sumber.get(j).setId(baru.get(j).id);
+        }
+        return tersimpan;
+    }
+
+    @Override
+    public boolean adaBuku(String judulNormal, String pengarangNormal) {
+        return idPerKunciBuku.containsKey(judulNormal + '\u0001' + pengarangNormal);
+    }
+
+    // Sama dengan LIKE '%keyword%' (tanpa beda huruf besar/kecil)
+    @Override
+    public List<Buku> cariBuku(String keyword, boolean hanyaJudul) {
+        String k = keyword.toLowerCase(Locale.ROOT);
+        List<Buku> list = new ArrayList<>();
+        int maks = buku.getMaksId();
+        for (int id = 1; id <= maks; id++) {
+            RekamanBuku b = buku.get(id);
+            if (b == null) continue;
+            boolean cocok = b.judul.toLowerCase(Locale.ROOT).contains(k)
+                    || (!hanyaJudul && (b.pengarang.toLowerCase(Locale.ROOT).contains(k)
+                    || (b.info != null && b.info.toLowerCase(Locale.ROOT).contains(k))));
+            if (cocok) list.add(b.keBuku());
+        }
+        return list;
+    }
+
+    /* ==========================================================
+       BAGIAN 2: MEMBER
+       ========================================================== */
+
+    @Override
+    public int tambahMember(String nama, String email, String noTelepon, int batasPinjam) throws SQLException {
+        synchronized (kunciTulis) {
+            if (email != null && idPerEmail.containsKey(KunciNormal.email(email))) {
+                throw new SQLIntegrityConstraintViolationException("Email sudah terdaftar: " + email);
+            }
+            RekamanMember m = new RekamanMember(idMemberTerakhir + 1, nama, email, noTelepon, batasPinjam);
+            tulisJurnal(R_MEMBER, out -> tulisMember(out, m));
+            simpanMember(m);
+            return m.id;
+        }
+    }
+
+    @Override
+    public Member muatMemberById(int id) {
+        RekamanMember r = member.get(id);
+        if (r == null) return null;
+
+        int[] pinjaman;
+        synchronized (kunciMember[id & MASK]) {
+            pinjaman = Arrays.copyOf(r.pinjaman, r.jumlahPinjaman);
+        }
+        Arrays.sort(pinjaman);
+        List<Buku> daftar = new ArrayList<>(pinjaman.length);
+        for (int idBuku : pinjaman) {
+            RekamanBuku b = buku.get(idBuku);
+            if (b != null) daftar.add(b.keBuku());
+        }
+
+        Member m = new Member(r.nama, r.email, r.noTelepon, r.batasPinjam);
+        m.setId(r.id);
+        m.setDaftarDipinjam(daftar);
+        return m;
+    }
+
+    @Override
+    public Member muatMemberByNama(String namaNormal) {
+        Integer id = idPerNama.get(namaNormal);
+        return id == null ? null : muatMemberById(id);
+    }
+
+    @Override
+    public Member muatMemberByEmail(String emailNormal) {
+        Integer id = idPerEmail.get(emailNormal);
+        return id == null ? null : muatMemberById(id);
+    }
+
+    @Override
+    public boolean adaEmail(String emailNormal) {
+        return idPerEmail.containsKey(emailNormal);
+    }
+
+    @Override
+    public List<String> semuaEmail() {
+        return new ArrayList<>(idPerEmail.keySet());
+    }
+
+    @Override
+    public int jumlahMember() {
+        return member.getMaksId();
+    }
+
+    // ID member padat, jadi OFFSET = loncat langsung ke ID offset+1
+    @Override
+    public List<Object[]> halamanMember(Integer setelahId, int offset, int batas) {
+        List<Object[]> data = new ArrayList<>();
+        int maks = member.getMaksId();
+        long awal = setelahId != null ? setelahId + 1L : offset + 1L;
+        for (long id = awal; id <= maks && data.size() < batas; id++) {
+            RekamanMember m = member.get((int) id);
+            if (m == null) continue;
+            int aktif;
+            synchronized (kunciMember[m.id & MASK]) {
+                aktif = m.jumlahPinjaman;
+            }
+            data.add(new Object[]{ m.id, m.nama, m.batasPinjam, aktif });
+        }
+        return data;
+    }
+
+    /* ==========================================================
+       BAGIAN 3: SIRKULASI
+       ========================================================== */
+
+    @Override
+    public Sirkulasi pinjam(int memberId, int bukuId, CatatanLog log) throws SQLException {
+        RekamanMember m = member.get(memberId);
+        if (m == null) return new Sirkulasi(HasilTransaksi.Status.MEMBER_TIDAK_DITEMUKAN, 0);
+        RekamanBuku b = buku.get(bukuId);
+        if (b == null) return new Sirkulasi(HasilTransaksi.Status.BUKU_TIDAK_DITEMUKAN, 0);
+
+        // Di bawah kunci stripe tidak ada yang bisa mengubah versi di tengah jalan: tidak pernah KONFLIK
+        synchronized (kunciMember[memberId & MASK]) {
+            if (m.jumlahPinjaman >= m.batasPinjam) return new Sirkulasi(HasilTransaksi.Status.KUOTA_PENUH, b.versi);
+            synchronized (kunciBuku[bukuId & MASK]) {
+                if (b.peminjam != 0) return new Sirkulasi(HasilTransaksi.Status.SEDANG_DIPINJAM, b.versi);
+                if (b.ditahanUntuk != 0 && b.ditahanUntuk != memberId) return new Sirkulasi(HasilTransaksi.Status.DITAHAN, b.versi);
+                synchronized (kunciLog) {
+                    CatatanLog c = log == null ? null : denganId(log, idLogTerakhir + 1);
+                    // Pinjam + log dalam satu rekaman journal (setara satu transaksi)
+                    tulisJurnal(R_PINJAM, out -> {
+                        out.writeInt(bukuId);
+                        out.writeInt(memberId);
+                        out.writeBoolean(c != null);
+                        if (c != null) tulisLog(out, c);
+                    });
+                    if (c != null) simpanLog(c);
+                }
+                b.peminjam = memberId;
+                b.versi++;
+                if (b.ditahanUntuk == memberId) aturTahanan(b, 0, 0);
+                m.tambahPinjaman(bukuId);
+                jumlahPinjamanAktif.incrementAndGet();
+                return new Sirkulasi(HasilTransaksi.Status.BERHASIL, b.versi);
+            }
+        }
+    }
+
+    @Override
+    public Sirkulasi kembalikan(int bukuId, int memberId, int versi, Timestamp batasAmbil) throws SQLException {
+        RekamanMember m = member.get(memberId);
+        RekamanBuku b = buku.get(bukuId);
+        if (m == null || b == null) return new Sirkulasi(HasilTransaksi.Status.TIDAK_DIPINJAM, 0);
+
+        synchronized (kunciMember[memberId & MASK]) {
+            synchronized (kunciBuku[bukuId & MASK]) {
+                if (b.peminjam != memberId) return new Sirkulasi(HasilTransaksi.Status.TIDAK_DIPINJAM, b.versi);
+                if (b.versi != versi) return new Sirkulasi(HasilTransaksi.Status.KONFLIK, b.versi);
+                int kepala = kepalaAntrean(b);
+                if (kepala == 0) {
+                    tulisJurnal(R_KEMBALI, out -> out.writeInt(bukuId));
+                    terapkanKembali(b);
+                    return new Sirkulasi(HasilTransaksi.Status.BERHASIL, b.versi);
+                }
+                // Ada antrean: kembali + serah dalam satu rekaman (setara satu transaksi)
+                long sampai = batasAmbil.getTime();
+                tulisJurnal(R_KEMBALI_SERAH, out -> {
+                    out.writeInt(bukuId);
+                    out.writeInt(kepala);
+                    out.writeLong(sampai);
+                });
+                terapkanKembali(b);
+                terapkanSerah(b, kepala, sampai);
+                return new Sirkulasi(HasilTransaksi.Status.BERHASIL, b.versi, kepala);
+            }
+        }
+    }
+
+    @Override
+    public List<Buku> bukuDipinjam(String namaNormal) {
+        Member m = muatMemberByNama(namaNormal);
+        return m == null ? new ArrayList<>() : new ArrayList<>(m.getDaftarDipinjam());
+    }
+
+    @Override
+    public int jumlahPinjamanAktif() {
+        return jumlahPinjamanAktif.get();
+    }
+
+    @Override
+    public List<Object[]> halamanPinjaman(Integer setelahId, int offset, int batas) {
+        List<Object[]> data = new ArrayList<>();
+        int maks = buku.getMaksId();
+        int lewati = setelahId != null ? 0 : offset;
+        for (int id = setelahId != null ? setelahId + 1 : 1; id <= maks && data.size() < batas; id++) {
+            RekamanBuku b = buku.get(id);
+            if (b == null) continue;
+            int peminjam = b.peminjam;
+            if (peminjam == 0) continue;
+            if (lewati > 0) {
+                lewati--;
+                continue;
+            }
+            RekamanMember m = member.get(peminjam);
+            data.add(new Object[]{ b.judul, b.pengarang, m == null ? null : m.nama, b.id });
+        }
+        return data;
+    }
+
+    /* ==========================================================
+       BAGIAN 4: RESERVASI
+       ========================================================== */
+
+    @Override
+    public Sirkulasi reservasi(int memberId, int bukuId, int prioritas, int maksPerMember, CatatanLog log) throws SQLException {
+        RekamanMember m = member.get(memberId);
+        if (m == null) return new Sirkulasi(HasilTransaksi.Status.MEMBER_TIDAK_DITEMUKAN, 0);
+        RekamanBuku b = buku.get(bukuId);
+        if (b == null) return new Sirkulasi(HasilTransaksi.Status.BUKU_TIDAK_DITEMUKAN, 0);
+
+        // Stripe member menjaga batas reservasi per member, stripe buku menjaga antrean bukunya
+        synchronized (kunciMember[memberId & MASK]) {
+            synchronized (kunciBuku[bukuId & MASK]) {
+                Set<Integer> punya = antreanPerMember.get(memberId);
+                if (b.peminjam == memberId || b.ditahanUntuk == memberId || (punya != null && punya.contains(bukuId))) {
+                    return new Sirkulasi(HasilTransaksi.Status.SUDAH_ANTRE, b.versi);
+                }
+                if (b.peminjam == 0 && b.ditahanUntuk == 0) return new Sirkulasi(HasilTransaksi.Status.TERSEDIA, b.versi);
+                if (maksPerMember > 0 && punya != null && punya.size() >= maksPerMember) {
+                    return new Sirkulasi(HasilTransaksi.Status.KUOTA_PENUH, b.versi);
+                }
+
+                EntriReservasi e = new EntriReservasi(urutanReservasi.incrementAndGet(), memberId, prioritas);
+                synchronized (kunciLog) {
+                    CatatanLog c = log == null ? null : denganId(log, idLogTerakhir + 1);
+                    tulisJurnal(R_RESERVASI, out -> tulisReservasi(out, bukuId, e, c));
+                    if (c != null) simpanLog(c);
+                }
+                tambahAntrean(b, e);
+                return new Sirkulasi(HasilTransaksi.Status.BERHASIL, b.versi);
+            }
+        }
+    }
+
+    @Override
+    public Sirkulasi batalkanReservasi(int memberId, int bukuId, Timestamp batasAmbil) throws SQLException {
+        RekamanBuku b = buku.get(bukuId);
+        if (b == null) return new Sirkulasi(HasilTransaksi.Status.TIDAK_DIPINJAM, 0);
+
+        synchronized (kunciBuku[bukuId & MASK]) {
+            Set<Integer> punya = antreanPerMember.get(memberId);
+            if (punya != null && punya.contains(bukuId)) {
+                tulisJurnal(R_BATAL_RESERVASI, out -> {
+                    out.writeInt(bukuId);
+                    out.writeInt(memberId);
+                });
+                hapusDariAntrean(b, memberId);
+                return new Sirkulasi(HasilTransaksi.Status.BERHASIL, b.versi);
+            }
+            if (b.ditahanUntuk != memberId) return new Sirkulasi(HasilTransaksi.Status.TIDAK_DIPINJAM, b.versi);
+            int kepala = serahkan(b, batasAmbil.getTime());
+            return new Sirkulasi(HasilTransaksi.Status.BERHASIL, b.versi, kepala);
+        }
+    }
+
+    // Tahanan buku dilepas ke kepala antrean (0 = buku tersedia); di bawah kunci stripe buku
+    private int serahkan(RekamanBuku b, long sampai) throws SQLException {
+        int kepala = kepalaAntrean(b);
+        tulisJurnal(R_SERAH, out -> {
+            out.writeInt(b.id);
+            out.writeInt(kepala);
+            out.writeLong(sampai);
+        });
+        terapkanSerah(b, kepala, sampai);
+        return kepala;
+    }
+
+    // Posisi dihitung dari antrean buku itu saja (O(panjang antrean), bukan O(semua reservasi))
+    @Override
+    public List<Object[]> reservasiMember(int memberId) {
+        List<Object[]> data = new ArrayList<>();
+        Set<Integer> antre = antreanPerMember.get(memberId);
+        if (antre != null) {
+            for (int bukuId : antre.toArray(new Integer[0])) {
+                RekamanBuku b = buku.get(bukuId);
+                if (b == null) continue;
+                synchronized (kunciBuku[bukuId & MASK]) {
+                    if (b.antrean == null) continue;
+                    EntriReservasi milik = null;
+                    for (EntriReservasi e : b.antrean) if (e.memberId() == memberId) milik = e;
+                    if (milik == null) continue;
+                    int posisi = 1;
+                    for (EntriReservasi e : b.antrean) if (URUTAN_ANTREAN.compare(e, milik) < 0) posisi++;
+                    data.add(new Object[]{ b.id, b.judul, posisi, null });
+                }
+            }
+        }
+        Set<Integer> ditahan = tahananPerMember.get(memberId);
+        if (ditahan != null) {
+            for (int bukuId : ditahan.toArray(new Integer[0])) {
+                RekamanBuku b = buku.get(bukuId);
+                if (b == null) continue;
+                synchronized (kunciBuku[bukuId & MASK]) {
+                    if (b.ditahanUntuk == memberId) data.add(new Object[]{ b.id, b.judul, 0, new Timestamp(b.tahanSampai) });
+                }
+            }
+        }
+        data.sort(Comparator.comparingInt(baris -> (Integer) baris[0]));
+        return data;
+    }
+
+    // Ambil dari atas heap selama batasnya < sekarang; entri yang tidak cocok lagi dengan tahanan
+    // bukunya (sudah diambil, dibatalkan, atau diganti) dibuang begitu saja
+    @Override
+    public List<SerahTahanan> lepasTahananKedaluwarsa(Timestamp sekarang, Timestamp batasAmbil, int batas) throws SQLException {
+        List<SerahTahanan> hasil = new ArrayList<>();
+        long kini = sekarang.getTime();
+        while (hasil.size() < batas) {
+            long[] entri;
+            synchronized (kunciTahanan) {
+                entri = tahananKedaluwarsa.peek();
+                if (entri == null || entri[0] >= kini) break;
+                tahananKedaluwarsa.poll();
+            }
+            RekamanBuku b = buku.get((int) entri[1]);
+            if (b == null) continue;
+            synchronized (kunciBuku[b.id & MASK]) {
+                if (b.ditahanUntuk == 0 || b.tahanSampai != entri[0]) continue;
+                int lama = b.ditahanUntuk;
+                hasil.add(new SerahTahanan(b.id, lama, serahkan(b, batasAmbil.getTime())));
+            }
+        }
+        return hasil;
+    }
+
+    @Override
+    public long jumlahReservasi() {
+        return jumlahReservasi.get();
+    }
+
+    /* ==========================================================
+       BAGIAN 5: LOG AKTIVITAS
+       Urutan ID = urutan waktu (log ditulis berurutan), jadi tanggal tidak perlu diindeks
+       ========================================================== */
+
+    private static CatatanLog denganId(CatatanLog c, int id) {
+        return new CatatanLog(id, c.waktu(), c.aksi(), c.judulBuku(), c.namaMember(), c.keterangan());
+    }
+
+    @Override
+    public void tulisLog(List<CatatanLog> batch) throws SQLException {
+        if (batch.isEmpty()) return;
+        synchronized (kunciLog) {
+            List<CatatanLog> bernomor = new ArrayList<>(batch.size());
+            int id = idLogTerakhir;
+            for (CatatanLog c : batch) bernomor.add(denganId(c, ++id));
+            tulisJurnal(R_LOG, out -> {
+                out.writeInt(bernomor.size());
+                for (CatatanLog c : bernomor) tulisLog(out, c);
+            });
+            for (CatatanLog c : bernomor) simpanLog(c);
+        }
+    }
+
+    @Override
+    public int jumlahLog() {
+        return log.getMaksId();
+    }
+
+    @Override
+    public List<CatatanLog> halamanLog(CatatanLog sebelum, int offset, int batas) {
+        List<CatatanLog> data = new ArrayList<>();
+        int id = sebelum != null ? sebelum.id() - 1 : log.getMaksId() - offset;
+        for (; id >= 1 && data.size() < batas; id--) {
+            CatatanLog c = log.get(id);
+            if (c != null) data.add(c);
+        }
+        return data;
+    }
+
+    private static boolean dalamRentang(CatatanLog c, Timestamp dari, Timestamp sampai) {
+        return (dari == null || !c.waktu().before(dari)) && (sampai == null || c.waktu().before(sampai));
+    }
+
+    @Override
+    public long jumlahLog(Timestamp dari, Timestamp sampai) {
+        long n = 0;
+        int maks = log.getMaksId();
+        for (int id = 1; id <= maks; id++) {
+            CatatanLog c = log.get(id);
+            if (c != null && dalamRentang(c, dari, sampai)) n++;
+        }
+        return n;
+    }
+
+    @Override
+    public boolean bacaLog(Timestamp dari, Timestamp sampai, PembacaLog pembaca) throws IOException {
+        int maks = log.getMaksId();
+        for (int id = 1; id <= maks; id++) {
+            CatatanLog c = log.get(id);
+            if (c != null && dalamRentang(c, dari, sampai) && !pembaca.terima(c)) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void tutup() {
+        if (jurnal != null) jurnal.tutup();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("PenyimpananMemori[buku=%d, member=%d, log=%d, pinjamanAktif=%d, reservasi=%d, journal=%s]",
+                buku.getMaksId(), member.getMaksId(), log.getMaksId(), jumlahPinjamanAktif.get(), jumlahReservasi.get(),
+                jurnal == null ? "mati" : "aktif");
+    }
+}
@@ -0,0 +1,1106 @@
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntFunction;
+
+// Penyimpanan di MySQL (atau H2 MODE=MySQL) lewat pool koneksi Database.
+// Skema dibuat/di-upgrade oleh MigrasiSkema saat objek ini dibuat.
+public class PenyimpananMysql implements Penyimpanan {
+
+    private static final String SQL_INSERT_BUKU =
+            "INSERT INTO buku (judul, pengarang, jenis, info_khusus, judul_normal, pengarang_normal) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String SQL_INSERT_LOG =
+            "INSERT INTO perpustakaan (tanggal, aksi, judul_buku, nama_member, keterangan) VALUES (?, ?, ?, ?, ?)";
+
+    private final int fetchSizeEkspor = Database.getIntSetting("export.fetchSize", Integer.MIN_VALUE);
+
+    // Bulan yang tabel arsipnya sudah pasti ada (CREATE TABLE IF NOT EXISTS cukup sekali per bulan)
+    private final Set<YearMonth> arsipDibuat = ConcurrentHashMap.newKeySet();
+
+    public PenyimpananMysql() {
+        // Buat/upgrade tabel & index sampai versi terbaru
+        MigrasiSkema.jalankan();
+    }
+
+    private static Connection koneksi() throws SQLException {
+        Connection conn = Database.getConnection();
+        if (conn == null) throw new SQLException("koneksi tidak tersedia");
+        return conn;
+    }
+
+    /* ==========================================================
+       BAGIAN 1: BUKU
+       ========================================================== */
+
+    @Override
+    public List<Buku> muatSemuaBuku() throws SQLException {
+        List<Buku> list = new ArrayList<>();
+        try (Connection conn = koneksi();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT * FROM buku ORDER BY id")) {
+            while (rs.next()) {
+                list.add(mapResultSetToBuku(rs));
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public void tambahBuku(Buku b) throws SQLException {
+        try (Connection conn = koneksi();
+             PreparedStatement stmt = conn.prepareStatement(SQL_INSERT_BUKU, Statement.RETURN_GENERATED_KEYS)) {
+            isiBuku(stmt, b);
+            stmt.executeUpdate();
+            ResultSet rs = stmt.getGeneratedKeys();
+            if (rs.next()) b.setId(rs.getInt(1));
+        }
+    }
+
+    @Override
+    public boolean[] tambahBukuMassal(List<Buku> chunk, IntFunction<CatatanLog> log) throws SQLException {
+        boolean[] tersimpan = new boolean[chunk.size()];
+        List<Buku> baru = new ArrayList<>();
+
+        // judul_normal IN (...) memakai unique index, lalu pasangan judul+pengarang dicocokkan di Java
+        StringBuilder sqlCek = new StringBuilder("SELECT judul, pengarang FROM buku WHERE judul_normal IN (");
+        for (int i = 0; i < chunk.size(); i++) sqlCek.append(i == 0 ? "?" : ",?");
+        sqlCek.append(")");
+
+        try (Connection conn = koneksi()) {
+            conn.setAutoCommit(false);
+            try {
+                Set<String> sudahAda = new HashSet<>();
+                try (PreparedStatement stmt = conn.prepareStatement(sqlCek.toString())) {
+                    for (int i = 0; i < chunk.size(); i++) stmt.setString(i + 1, KunciNormal.teks(chunk.get(i).getJudul()));
+                    ResultSet rs = stmt.executeQuery();
+                    while (rs.next()) sudahAda.add(KunciNormal.buku(rs.getString("judul"), rs.getString("pengarang")));
+                }
+
+                try (PreparedStatement stmt = conn.prepareStatement(SQL_INSERT_BUKU, Statement.RETURN_GENERATED_KEYS)) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        Buku b = chunk.get(i);
+                        if (sudahAda.contains(KunciNormal.buku(b.getJudul(), b.getPengarang()))) continue;
+                        isiBuku(stmt, b);
+                        stmt.addBatch();
+                        baru.add(b);
+                        tersimpan[i] = true;
+                    }
+                    if (!baru.isEmpty()) {
+                        stmt.executeBatch();
+                        ResultSet keys = stmt.getGeneratedKeys();
+                        for (int j = 0; j < baru.size() && keys.next(); j++) baru.get(j).setId(keys.getInt(1));
+                    }
+                }
+
+                CatatanLog c = baru.isEmpty() ? null : log.apply(baru.size());
+                if (c != null) catatLog(conn, c);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+        return tersimpan;
+    }
+
+    private static void isiBuku(PreparedStatement stmt, Buku b) throws SQLException {
+        stmt.setString(1, b.getJudul());
+        stmt.setString(2, b.getPengarang());
+        stmt.setString(3, (b instanceof BukuFiksi) ? "Fiksi" : "NonFiksi");
+        stmt.setString(4, b.getInfoKhusus());
+        stmt.setString(5, KunciNormal.teks(b.getJudul()));
+        stmt.setString(6, KunciNormal.teks(b.getPengarang()));
+    }
+
+    // Lookup ke unique index (judul_normal, pengarang_normal)
+    @Override
+    public boolean adaBuku(String judulNormal, String pengarangNormal) throws SQLException {
+        String sql = "SELECT 1 FROM buku WHERE judul_normal = ? AND pengarang_normal = ? LIMIT 1";
+        try (Connection conn = koneksi();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, judulNormal);
+            stmt.setString(2, pengarangNormal);
+            return stmt.executeQuery().next();
+        }
+    }
+
+    @Override
+    public List<Buku> cariBuku(String keyword, boolean hanyaJudul) throws SQLException {
+        List<Buku> list = new ArrayList<>();
+        String sql = hanyaJudul
+                ? "SELECT * FROM buku WHERE LOWER(judul) LIKE ?"
+                : "SELECT * FROM buku WHERE LOWER(judul) LIKE ? OR LOWER(pengarang) LIKE ? OR LOWER(info_khusus) LIKE ?";
+
+        try (Connection conn = koneksi();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            String pola = "%" + keyword.toLowerCase() + "%";
+            stmt.setString(1, pola);
+            if (!hanyaJudul) {
+                stmt.setString(2, pola);
+                stmt.setString(3, pola);
+            }
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                list.add(mapResultSetToBuku(rs));
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public int jumlahBuku() throws SQLException {
+        return hitung("SELECT COUNT(*) FROM buku");
+    }
+
+    @Override
+    public String identitasKatalog() {
+        return "mysql " + Database.getUrl();
+    }
+
+    // Jam DB (bukan jam lokal), sama dengan yang dipakai kolom buku.diubah
+    @Override
+    public long watermarkKatalog() throws SQLException {
+        try (Connection conn = koneksi();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT CURRENT_TIMESTAMP(3)")) {
+            rs.next();
+            return rs.getTimestamp(1).getTime();
+        }
+    }
+
+    // diubah diisi saat statement jalan, bukan saat commit: transaksi yang commit sesudah watermark
+    // dibaca bisa membawa diubah sedikit lebih awal. Mundur beberapa detik supaya tetap terbawa.
+    private static final long MUNDUR_WATERMARK_MS = 5_000;
+
+    @Override
+    public List<Buku> bukuBerubahSejak(long watermark) throws SQLException {
+        List<Buku> list = new ArrayList<>();
+        try (Connection conn = koneksi();
+             PreparedStatement stmt = conn.prepareStatement("SELECT * FROM buku WHERE diubah >= ? ORDER BY id")) {
+            stmt.setTimestamp(1, new Timestamp(watermark - MUNDUR_WATERMARK_MS));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) list.add(mapResultSetToBuku(rs));
+            }
+        }
+        return list;
+    }
+
+    // Helper: Mengubah data baris database (ResultSet) menjadi Objek Buku Java
+    private static Buku mapResultSetToBuku(ResultSet rs) throws SQLException {
+        int id = rs.getInt("id");
+        String judul = rs.getString("judul");
+        String pengarang = rs.getString("pengarang");
+        String jenis = rs.getString("jenis");
+        String info = rs.getString("info_khusus");
+        boolean isDipinjam = rs.getBoolean("is_dipinjam");
+
+        Buku b;
+        if (jenis.equalsIgnoreCase("Fiksi")) {
+            b = new BukuFiksi(judul, pengarang, info);
+        } else {
+            b = new BukuNonFiksi(judul, pengarang, info);
+        }
+        b.setId(id);
+        b.setDipinjam(isDipinjam);
+        b.setVersi(rs.getInt("versi"));
+        return b;
+    }
+
+    /* ==========================================================
+       BAGIAN 2: MEMBER
+       ========================================================== */
+
+    @Override
+    public int tambahMember(String nama, String email, String noTelepon, int batasPinjam) throws SQLException {
+        String sql = "INSERT INTO member (nama, email, no_telepon, batas_pinjam, nama_normal, email_normal) " +
+                "VALUES (?, ?, ?, ?, ?, ?)";
+        try (Connection conn = koneksi();
+             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            stmt.setString(1, nama);
+            stmt.setString(2, email);
+            stmt.setString(3, noTelepon);
+            stmt.setInt(4, batasPinjam);
+            stmt.setString(5, KunciNormal.teks(nama));
+            stmt.setString(6, KunciNormal.email(email));
+            stmt.executeUpdate();
+            ResultSet rs = stmt.getGeneratedKeys();
+            if (!rs.next()) throw new SQLException("ID member baru tidak dikembalikan");
+            return rs.getInt(1);
+        }
+    }
+
+    // Member + buku pinjamannya dalam satu query (LEFT JOIN)
+    private static final String SQL_MEMBER_LENGKAP =
+            "SELECT m.id AS member_id, m.nama, m.email, m.no_telepon, m.batas_pinjam, " +
+            "b.id, b.judul, b.pengarang, b.jenis, b.info_khusus, b.is_dipinjam, b.versi " +
+            "FROM member m LEFT JOIN buku b ON b.peminjam_id = m.id WHERE ";
+
+    @Override
+    public Member muatMemberById(int id) throws SQLException {
+        return muatMember("m.id = ?", id);
+    }
+
+    @Override
+    public Member muatMemberByNama(String namaNormal) throws SQLException {
+        return muatMember("m.id = (SELECT id FROM member WHERE nama_normal = ? ORDER BY id LIMIT 1)", namaNormal);
+    }
+
+    @Override
+    public Member muatMemberByEmail(String emailNormal) throws SQLException {
+        return muatMember("m.email_normal = ?", emailNormal);
+    }
+
+    // 'kondisi' harus memilih tepat satu member; satu baris per buku yang dipinjam (atau satu baris kosong)
+    private Member muatMember(String kondisi, Object param) throws SQLException {
+        String sql = SQL_MEMBER_LENGKAP + kondisi + " ORDER BY b.id";
+
+        try (Connection conn = koneksi();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setObject(1, param);
+            ResultSet rs = stmt.executeQuery();
+
+            Member m = null;
+            List<Buku> pinjaman = new ArrayList<>();
+            while (rs.next()) {
+                if (m == null) {
+                    m = new Member(
+                            rs.getString("nama"),
+                            rs.getString("email"),
+                            rs.getString("no_telepon"),
+                            rs.getInt("batas_pinjam")
+                    );
+                    m.setId(rs.getInt("member_id"));
+                }
+                rs.getInt("id");
+                if (rs.wasNull()) continue; // Member tanpa pinjaman
+                pinjaman.add(mapResultSetToBuku(rs));
+            }
+            if (m != null) m.setDaftarDipinjam(pinjaman);
+            return m;
+        }
+    }
+
+    @Override
+    public boolean adaEmail(String emailNormal) throws SQLException {
+        try (Connection conn = koneksi();
+             PreparedStatement stmt = conn.prepareStatement("SELECT 1 FROM member WHERE email_normal = ? LIMIT 1")) {
+            stmt.setString(1, emailNormal);
+            return stmt.executeQuery().next();
+        }
+    }
+
+    @Override
+    public List<String> semuaEmail() throws SQLException {
+        List<String> semua = new ArrayList<>();
+        try (Connection conn = koneksi();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT email_normal FROM member WHERE email_normal IS NOT NULL")) {
+            while (rs.next()) semua.add(rs.getString(1));
+        }
+        return semua;
+    }
+
+    @Override
+    public int jumlahMember() throws SQLException {
+        return hitung("SELECT COUNT(*) FROM member");
+    }
+
+    // Satu query agregat: member LEFT JOIN buku, dihitung per member (tanpa query per baris)
+    @Override
+    public List<Object[]> halamanMember(Integer setelahId, int offset, int batas) throws SQLException {
+        String sql = "SELECT m.id, m.nama, m.batas_pinjam, COUNT(b.id) AS pinjaman_aktif " +
+                "FROM member m LEFT JOIN buku b ON b.peminjam_id = m.id " +
+                (setelahId != null ? "WHERE m.id > ? " : "") +
+                "GROUP BY m.id, m.nama, m.batas_pinjam ORDER BY m.id " +
+                (setelahId != null ? "LIMIT ?" : "LIMIT ? OFFSET ?");
+
+        List<Object[]> data = new ArrayList<>();
+        try (Connection conn = koneksi();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            setKeysetAtauOffset(stmt, setelahId, offset, batas);
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                data.add(new Object[]{
+                        rs.getInt("id"),
+                        rs.getString("nama"),
+                        rs.getInt("batas_pinjam"),
+                        rs.getInt("pinjaman_aktif")
+                });
+            }
+        }
+        return data;
+    }
+
+    /* ==========================================================
+       BAGIAN 3: SIRKULASI
+       ========================================================== */
+
+    // Optimistik, tanpa mengunci baris lebih dulu (dulu: member FOR UPDATE). Satu transaksi:
+    // 1. Baca member (kuota, pinjaman aktif, versi) dan buku (status, versi) dalam satu query
+    // 2. CAS buku: UPDATE ... WHERE versi = yang dibaca -> tidak mungkin dipinjam dobel
+    // 3. CAS member: versi member dinaikkan -> dua pinjaman bersamaan oleh member yang sama tidak bisa
+    //    sama-sama lolos cek kuota; yang kalah mendapat KONFLIK dan diulang oleh Perpustakaan
+    // 4. Catat log di transaksi yang sama
+    // Buku yang ditahan (reservasi siap diambil) hanya bisa dipinjam member yang ditahankan; tahanan ikut selesai
+    @Override
+    public Sirkulasi pinjam(int memberId, int bukuId, CatatanLog log) throws SQLException {
+        String sqlBaca = "SELECT m.batas_pinjam, m.versi AS versi_member, " +
+                "(SELECT COUNT(*) FROM buku x WHERE x.peminjam_id = m.id) AS aktif, " +
+                "b.id AS buku_id, b.is_dipinjam, b.ditahan_untuk, b.versi AS versi_buku " +
+                "FROM member m LEFT JOIN buku b ON b.id = ? WHERE m.id = ?";
+        // Tahanan juga bagian dari syarat: bisa berpindah (kedaluwarsa) tanpa menaikkan versi
+        String sqlBuku = "UPDATE buku SET is_dipinjam = 1, peminjam_id = ?, ditahan_untuk = NULL, tahan_sampai = NULL, " +
+                "versi = versi + 1 WHERE id = ? AND versi = ? AND (ditahan_untuk IS NULL OR ditahan_untuk = ?)";
+        String sqlMember = "UPDATE member SET versi = versi + 1 WHERE id = ? AND versi = ?";
+
+        try (Connection conn = koneksi()) {
+            conn.setAutoCommit(false);
+            try {
+                int versiMember, versiBuku;
+                try (PreparedStatement stmt = conn.prepareStatement(sqlBaca)) {
+                    stmt.setInt(1, bukuId);
+                    stmt.setInt(2, memberId);
+                    ResultSet rs = stmt.executeQuery();
+                    if (!rs.next()) {
+                        conn.rollback();
+                        return new Sirkulasi(HasilTransaksi.Status.MEMBER_TIDAK_DITEMUKAN, 0);
+                    }
+                    versiMember = rs.getInt("versi_member");
+                    versiBuku = rs.getInt("versi_buku");
+                    rs.getInt("buku_id");
+                    if (rs.wasNull()) {
+                        conn.rollback();
+                        return new Sirkulasi(HasilTransaksi.Status.BUKU_TIDAK_DITEMUKAN, 0);
+                    }
+                    if (rs.getInt("aktif") >= rs.getInt("batas_pinjam")) {
+                        conn.rollback();
+                        return new Sirkulasi(HasilTransaksi.Status.KUOTA_PENUH, versiBuku);
+                    }
+                    if (rs.getBoolean("is_dipinjam")) {
+                        conn.rollback();
+                        return new Sirkulasi(HasilTransaksi.Status.SEDANG_DIPINJAM, versiBuku);
+                    }
+                    int ditahanUntuk = rs.getInt("ditahan_untuk");
+                    if (!rs.wasNull() && ditahanUntuk != memberId) {
+                        conn.rollback();
+                        return new Sirkulasi(HasilTransaksi.Status.DITAHAN, versiBuku);
+                    }
+                }
+
+                try (PreparedStatement stmt = conn.prepareStatement(sqlBuku)) {
+                    stmt.setInt(1, memberId);
+                    stmt.setInt(2, bukuId);
+                    stmt.setInt(3, versiBuku);
+                    stmt.setInt(4, memberId);
+                    if (stmt.executeUpdate() == 0) {
+                        conn.rollback();
+                        return new Sirkulasi(HasilTransaksi.Status.KONFLIK, versiBuku);
+                    }
+                }
+                try (PreparedStatement stmt = conn.prepareStatement(sqlMember)) {
+                    stmt.setInt(1, memberId);
+                    stmt.setInt(2, versiMember);
+                    if (stmt.executeUpdate() == 0) {
+                        conn.rollback();
+                        return new Sirkulasi(HasilTransaksi.Status.KONFLIK, versiBuku);
+                    }
+                }
+
+                catatLog(conn, log);
+                conn.commit();
+                return new Sirkulasi(HasilTransaksi.Status.BERHASIL, versiBuku + 1);
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    // Satu UPDATE CAS; hanya jika 0 baris, baris buku dibaca untuk membedakan "sudah tidak dipinjam
+    // member ini" dari "masih dipinjam, tapi versinya sudah lain". Kolom antrean dibaca setelah baris
+    // terkunci oleh UPDATE: 0 (kasus umum) -> selesai, selain itu kepala antrean mendapat tahanan
+    @Override
+    public Sirkulasi kembalikan(int bukuId, int memberId, int versi, Timestamp batasAmbil) throws SQLException {
+        String sql = "UPDATE buku SET is_dipinjam = 0, peminjam_id = NULL, versi = versi + 1 " +
+                "WHERE id = ? AND peminjam_id = ? AND versi = ?";
+        try (Connection conn = koneksi()) {
+            conn.setAutoCommit(false);
+            try {
+                int n;
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    stmt.setInt(1, bukuId);
+                    stmt.setInt(2, memberId);
+                    stmt.setInt(3, versi);
+                    n = stmt.executeUpdate();
+                }
+                if (n == 0) {
+                    conn.rollback();
+                    try (PreparedStatement stmt = conn.prepareStatement("SELECT peminjam_id, versi FROM buku WHERE id = ?")) {
+                        stmt.setInt(1, bukuId);
+                        ResultSet rs = stmt.executeQuery();
+                        if (!rs.next()) return new Sirkulasi(HasilTransaksi.Status.TIDAK_DIPINJAM, 0);
+                        boolean masihDipinjam = rs.getInt("peminjam_id") == memberId;
+                        return new Sirkulasi(masihDipinjam ? HasilTransaksi.Status.KONFLIK : HasilTransaksi.Status.TIDAK_DIPINJAM,
+                                rs.getInt("versi"));
+                    }
+                }
+
+                int diserahkanKe = adaAntrean(conn, bukuId) ? serahkanKeAntrean(conn, bukuId, batasAmbil) : 0;
+                conn.commit();
+                return new Sirkulasi(HasilTransaksi.Status.BERHASIL, versi + 1, diserahkanKe);
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public List<Buku> bukuDipinjam(String namaNormal) throws SQLException {
+        List<Buku> list = new ArrayList<>();
+        String sql = "SELECT b.* FROM buku b JOIN member m ON b.peminjam_id = m.id WHERE m.nama_normal = ?";
+        try (Connection conn = koneksi();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, namaNormal);
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                list.add(mapResultSetToBuku(rs));
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public int jumlahPinjamanAktif() throws SQLException {
+        return hitung("SELECT COUNT(*) FROM buku WHERE is_dipinjam = 1");
+    }
+
+    @Override
+    public List<Object[]> halamanPinjaman(Integer setelahId, int offset, int batas) throws SQLException {
+        String kolom = "SELECT b.id, b.judul, b.pengarang, m.nama FROM buku b JOIN member m ON b.peminjam_id = m.id " +
+                "WHERE b.is_dipinjam = 1 ";
+        String sql = setelahId != null
+                ? kolom + "AND b.id > ? ORDER BY b.id LIMIT ?"
+                : kolom + "ORDER BY b.id LIMIT ? OFFSET ?";
+
+        List<Object[]> data = new ArrayList<>();
+        try (Connection conn = koneksi();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            setKeysetAtauOffset(stmt, setelahId, offset, batas);
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                data.add(new Object[]{ rs.getString("judul"), rs.getString("pengarang"), rs.getString("nama"), rs.getInt("id") });
+            }
+        }
+        return data;
+    }
+
+    /* ==========================================================
+       BAGIAN 4: LOG AKTIVITAS
+       ========================================================== */
+
+    // Versi yang memakai koneksi pemanggil, supaya log ikut dalam transaksi yang sama
+    private static void catatLog(Connection conn, CatatanLog c) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(SQL_INSERT_LOG)) {
+            isiLog(stmt, c);
+            stmt.executeUpdate();
+        }
+    }
+
+    private static void isiLog(PreparedStatement stmt, CatatanLog c) throws SQLException {
+        stmt.setTimestamp(1, c.waktu());
+        stmt.setString(2, c.aksi());
+        stmt.setString(3, c.judulBuku());
+        stmt.setString(4, c.namaMember()); // Bisa "-" jika aksinya oleh admin
+        stmt.setString(5, c.keterangan());
+    }
+
+    // Satu JDBC batch dalam satu transaksi
+    @Override
+    public void tulisLog(List<CatatanLog> batch) throws SQLException {
+        try (Connection conn = koneksi()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(SQL_INSERT_LOG)) {
+                for (CatatanLog c : batch) {
+                    isiLog(stmt, c);
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public int jumlahLog() throws SQLException {
+        return hitung("SELECT COUNT(*) FROM perpustakaan");
+    }
+
+    @Override
+    public List<CatatanLog> halamanLog(CatatanLog sebelum, int offset, int batas) throws SQLException {
+        String kolom = "SELECT id, tanggal, aksi, nama_member, judul_buku, keterangan FROM perpustakaan ";
+        String sql = sebelum != null
+                ? kolom + "WHERE tanggal < ? OR (tanggal = ? AND id < ?) ORDER BY tanggal DESC, id DESC LIMIT ?"
+                : kolom + "ORDER BY tanggal DESC, id DESC LIMIT ? OFFSET ?";
+
+        List<CatatanLog> data = new ArrayList<>();
+        try (Connection conn = koneksi();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            if (sebelum != null) {
+                stmt.setTimestamp(1, sebelum.waktu());
+                stmt.setTimestamp(2, sebelum.waktu());
+                stmt.setInt(3, sebelum.id());
+                stmt.setInt(4, batas);
+            } else {
+                stmt.setInt(1, batas);
+                stmt.setInt(2, offset);
+            }
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) data.add(mapLog(rs));
+        }
+        return data;
+    }
+
+    private static CatatanLog mapLog(ResultSet rs) throws SQLException {
+        return new CatatanLog(rs.getInt("id"), rs.getTimestamp("tanggal"), rs.getString("aksi"),
+                rs.getString("judul_buku"), rs.getString("nama_member"), rs.getString("keterangan"));
+    }
+
+    private static String whereRentang(Timestamp dari, Timestamp sampai) {
+        return " WHERE 1=1" + (dari != null ? " AND tanggal >= ?" : "") + (sampai != null ? " AND tanggal < ?" : "");
+    }
+
+    private static void isiRentang(PreparedStatement stmt, Timestamp dari, Timestamp sampai) throws SQLException {
+        int i = 1;
+        if (dari != null) stmt.setTimestamp(i++, dari);
+        if (sampai != null) stmt.setTimestamp(i, sampai);
+    }
+
+    // Rentang bisa mencakup bulan yang sudah diarsipkan: arsip (urut bulan) dijumlahkan bersama log aktif
+    @Override
+    public long jumlahLog(Timestamp dari, Timestamp sampai) throws SQLException {
+        long total = 0;
+        for (String tabel : tabelLogUntukRentang(dari, sampai)) {
+            try (Connection conn = koneksi();
+                 PreparedStatement stmt = conn.prepareStatement("SELECT COUNT(*) FROM " + tabel + whereRentang(dari, sampai))) {
+                isiRentang(stmt, dari, sampai);
+                ResultSet rs = stmt.executeQuery();
+                if (rs.next()) total += rs.getLong(1);
+            }
+        }
+        return total;
+    }
+
+    // Arsip dibaca dulu (bulan lama ke baru), lalu log aktif, jadi urutan waktu tetap terjaga
+    @Override
+    public boolean bacaLog(Timestamp dari, Timestamp sampai, PembacaLog pembaca) throws SQLException, IOException {
+        for (String tabel : tabelLogUntukRentang(dari, sampai)) {
+            if (!bacaLogTabel(tabel, dari, sampai, pembaca)) return false;
+        }
+        return true;
+    }
+
+    // Cursor forward-only (MySQL: fetch size Integer.MIN_VALUE = streaming per baris),
+    // jadi memori tetap berapapun jumlah barisnya
+    private boolean bacaLogTabel(String tabel, Timestamp dari, Timestamp sampai, PembacaLog pembaca)
+            throws SQLException, IOException {
+        String sql = "SELECT id, tanggal, aksi, judul_buku, nama_member, keterangan FROM " + tabel +
+                whereRentang(dari, sampai) + " ORDER BY tanggal, id";
+        boolean berhenti = false;
+        try (Connection conn = koneksi();
+             PreparedStatement stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            stmt.setFetchSize(fetchSizeEkspor);
+            isiRentang(stmt, dari, sampai);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    if (!pembaca.terima(mapLog(rs))) {
+                        // Tanpa cancel(), menutup ResultSet streaming akan membaca habis sisa barisnya
+                        berhenti = true;
+                        stmt.cancel();
+                        break;
+                    }
+                }
+            } catch (SQLException e) {
+                if (!berhenti) throw e; // Error "query interrupted" setelah cancel() diabaikan
+            }
+        }
+        return !berhenti;
+    }
+
+    /* ==========================================================
+       BAGIAN 5: ARSIP & ROLLUP LOG (dijalankan oleh SiklusLog)
+       Log aktif = tabel 'perpustakaan'. Hari yang sudah lewat masa aktif dipindah utuh ke
+       perpustakaan_arsip_yyyyMM (id & tanggal asli) dan diringkas ke perpustakaan_harian.
+       Tabel per bulan dipilih karena PARTITION BY RANGE di MySQL mewajibkan kolom tanggal masuk
+       PRIMARY KEY, dan H2 tidak mendukungnya; menghapus satu bulan cukup DROP TABLE.
+       ========================================================== */
+
+    private static final String SQL_ROLLUP_HARI =
+            "INSERT INTO perpustakaan_harian (tanggal, aksi, judul_buku, jumlah) " +
+            "SELECT CAST(? AS DATE), COALESCE(aksi, ''), COALESCE(judul_buku, ''), COUNT(*) FROM perpustakaan " +
+            "WHERE tanggal >= ? AND tanggal < ? GROUP BY COALESCE(aksi, ''), COALESCE(judul_buku, '') " +
+            "ON DUPLICATE KEY UPDATE jumlah = jumlah + VALUES(jumlah)";
+
+    @Override
+    public boolean dukungArsipLog() {
+        return true;
+    }
+
+    private static String tabelArsip(YearMonth bulan) {
+        return "perpustakaan_arsip_" + kodeBulan(bulan);
+    }
+
+    private static int kodeBulan(YearMonth bulan) {
+        return bulan.getYear() * 100 + bulan.getMonthValue();
+    }
+
+    // Bulan yang punya tabel arsip, urut lama ke baru
+    private static List<YearMonth> bulanArsip() throws SQLException {
+        List<YearMonth> daftar = new ArrayList<>();
+        try (Connection conn = koneksi();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT bulan FROM perpustakaan_arsip ORDER BY bulan")) {
+            while (rs.next()) {
+                int kode = rs.getInt(1);
+                daftar.add(YearMonth.of(kode / 100, kode % 100));
+            }
+        }
+        return daftar;
+    }
+
+    // Tabel arsip yang beririsan dengan rentang [dari, sampai), lalu log aktif paling akhir
+    private static List<String> tabelLogUntukRentang(Timestamp dari, Timestamp sampai) throws SQLException {
+        YearMonth bulanDari = dari == null ? null : YearMonth.from(dari.toLocalDateTime());
+        YearMonth bulanSampai = sampai == null ? null : YearMonth.from(sampai.toLocalDateTime().minusNanos(1));
+        List<String> tabel = new ArrayList<>();
+        for (YearMonth bulan : bulanArsip()) {
+            if (bulanDari != null && bulan.isBefore(bulanDari)) continue;
+            if (bulanSampai != null && bulan.isAfter(bulanSampai)) continue;
+            tabel.add(tabelArsip(bulan));
+        }
+        tabel.add("perpustakaan");
+        return tabel;
+    }
+
+    // MIN(tanggal) dijawab dari ujung idx_log_tanggal, tanpa scan
+    @Override
+    public LocalDate hariLogTertua() throws SQLException {
+        try (Connection conn = koneksi();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MIN(tanggal) FROM perpustakaan")) {
+            Timestamp t = rs.next() ? rs.getTimestamp(1) : null;
+            return t == null ? null : t.toLocalDateTime().toLocalDate();
+        }
+    }
+
+    @Override
+    public long arsipkanLogHari(LocalDate hari) throws SQLException {
+        YearMonth bulan = YearMonth.from(hari);
+        Timestamp dari = Timestamp.valueOf(hari.atStartOfDay());
+        Timestamp sampai = Timestamp.valueOf(hari.plusDays(1).atStartOfDay());
+
+        try (Connection conn = koneksi()) {
+            // Rollup dijumlahkan, bukan ditimpa: dua instance tidak boleh mengarsip hari yang sama bersamaan
+            boolean mysql = isMysql(conn);
+            if (mysql && !kunci(conn, "SELECT GET_LOCK('perpus_arsip_log', 0)")) return 0;
+            try {
+                // DDL di luar transaksi (MySQL meng-commit otomatis sebelum DDL)
+                if (!arsipDibuat.contains(bulan)) {
+                    buatTabelArsip(conn, bulan);
+                    arsipDibuat.add(bulan);
+                }
+
+                conn.setAutoCommit(false);
+                try {
+                    try (PreparedStatement stmt = conn.prepareStatement(SQL_ROLLUP_HARI)) {
+                        stmt.setDate(1, java.sql.Date.valueOf(hari));
+                        stmt.setTimestamp(2, dari);
+                        stmt.setTimestamp(3, sampai);
+                        stmt.executeUpdate();
+                    }
+                    int disalin;
+                    try (PreparedStatement stmt = conn.prepareStatement("INSERT INTO " + tabelArsip(bulan) +
+                            " (id, tanggal, aksi, judul_buku, nama_member, keterangan)" +
+                            " SELECT id, tanggal, aksi, judul_buku, nama_member, keterangan FROM perpustakaan" +
+                            " WHERE tanggal >= ? AND tanggal < ?")) {
+                        stmt.setTimestamp(1, dari);
+                        stmt.setTimestamp(2, sampai);
+                        disalin = stmt.executeUpdate();
+                    }
+                    int dihapus;
+                    try (PreparedStatement stmt = conn.prepareStatement(
+                            "DELETE FROM perpustakaan WHERE tanggal >= ? AND tanggal < ?")) {
+                        stmt.setTimestamp(1, dari);
+                        stmt.setTimestamp(2, sampai);
+                        dihapus = stmt.executeUpdate();
+                    }
+                    // InnoDB mengunci rentang yang dibaca INSERT ... SELECT; selisih berarti ada yang lolos
+                    if (disalin != dihapus) {
+                        throw new SQLException("Arsip log " + hari + " dibatalkan: " + disalin
+                                + " baris disalin, " + dihapus + " dihapus");
+                    }
+                    try (PreparedStatement stmt = conn.prepareStatement("INSERT INTO perpustakaan_arsip (bulan, baris) " +
+                            "VALUES (?, ?) ON DUPLICATE KEY UPDATE baris = baris + VALUES(baris)")) {
+                        stmt.setInt(1, kodeBulan(bulan));
+                        stmt.setLong(2, disalin);
+                        stmt.executeUpdate();
+                    }
+                    conn.commit();
+                    return disalin;
+                } catch (SQLException e) {
+                    conn.rollback();
+                    arsipDibuat.remove(bulan); // Mungkin tabelnya baru dihapus retensi instance lain
+                    throw e;
+                }
+            } finally {
+                if (mysql) kunci(conn, "SELECT RELEASE_LOCK('perpus_arsip_log')");
+            }
+        }
+    }
+
+    // Struktur sama dengan 'perpustakaan', tanpa AUTO_INCREMENT (id asli dipertahankan).
+    // TIMESTAMP NULL: tanpa itu MySQL lama memberi kolom TIMESTAMP pertama ON UPDATE CURRENT_TIMESTAMP.
+    private static void buatTabelArsip(Connection conn, YearMonth bulan) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS " + tabelArsip(bulan) + " (" +
+                    "id INT PRIMARY KEY, " +
+                    "tanggal TIMESTAMP NULL, " +
+                    "aksi VARCHAR(50), " +
+                    "judul_buku VARCHAR(255), " +
+                    "nama_member VARCHAR(100), " +
+                    "keterangan TEXT, " +
+                    "INDEX idx_arsip_" + kodeBulan(bulan) + "_tanggal (tanggal, id))");
+        }
+    }
+
+    @Override
+    public int hapusArsipLogSebelum(YearMonth batas) throws SQLException {
+        int dihapus = 0;
+        for (YearMonth bulan : bulanArsip()) {
+            if (!bulan.isBefore(batas)) break;
+            try (Connection conn = koneksi();
+                 Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("DROP TABLE IF EXISTS " + tabelArsip(bulan));
+                stmt.executeUpdate("DELETE FROM perpustakaan_arsip WHERE bulan = " + kodeBulan(bulan));
+            }
+            arsipDibuat.remove(bulan);
+            dihapus++;
+        }
+        return dihapus;
+    }
+
+    @Override
+    public List<Object[]> rollupLog(LocalDate dari, LocalDate sampai) throws SQLException {
+        List<Object[]> data = new ArrayList<>();
+        try (Connection conn = koneksi();
+             PreparedStatement stmt = conn.prepareStatement("SELECT tanggal, aksi, judul_buku, jumlah FROM perpustakaan_harian " +
+                     "WHERE tanggal >= ? AND tanggal < ? ORDER BY tanggal, aksi, judul_buku")) {
+            stmt.setDate(1, java.sql.Date.valueOf(dari));
+            stmt.setDate(2, java.sql.Date.valueOf(sampai));
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                data.add(new Object[]{ rs.getDate(1).toLocalDate(), rs.getString(2), rs.getString(3), rs.getLong(4) });
+            }
+        }
+        return data;
+    }
+
+    /* ==========================================================
+       BAGIAN 6: RESERVASI
+       Antrean = baris tabel reservasi per buku (index buku_id, prioritas DESC, id). Kolom buku.antrean
+       menghitung barisnya, jadi pengembalian tanpa antrean cukup membaca baris buku yang sudah terkunci.
+       Reservasi & pengembalian saling menunggu lewat kunci baris buku yang diambil UPDATE masing-masing,
+       tanpa menaikkan buku.versi (versi tetap milik pinjaman, lihat kembalikan).
+       ========================================================== */
+
+    // Batas reservasi per member dicek tanpa kunci: reservasi bersamaan oleh member yang sama bisa
+    // melewatinya satu-dua baris (batas lunak, bukan aturan pinjam)
+    @Override
+    public Sirkulasi reservasi(int memberId, int bukuId, int prioritas, int maksPerMember, CatatanLog log) throws SQLException {
+        String sqlBaca = "SELECT (SELECT COUNT(*) FROM reservasi r WHERE r.member_id = m.id) AS aktif, " +
+                "b.id AS buku_id, b.is_dipinjam, b.peminjam_id, b.ditahan_untuk, b.versi, " +
+                "(SELECT COUNT(*) FROM reservasi r WHERE r.buku_id = b.id AND r.member_id = m.id) AS sudah " +
+                "FROM member m LEFT JOIN buku b ON b.id = ? WHERE m.id = ?";
+        // Syarat dicek ulang pada baris terkini (UPDATE mengunci & membaca versi terakhir yang commit)
+        String sqlAntrean = "UPDATE buku SET antrean = antrean + 1 WHERE id = ? AND (is_dipinjam = 1 OR ditahan_untuk IS NOT NULL)";
+
+        try (Connection conn = koneksi()) {
+            conn.setAutoCommit(false);
+            try {
+                int versi;
+                try (PreparedStatement stmt = conn.prepareStatement(sqlBaca)) {
+                    stmt.setInt(1, bukuId);
+                    stmt.setInt(2, memberId);
+                    ResultSet rs = stmt.executeQuery();
+                    if (!rs.next()) {
+                        conn.rollback();
+                        return new Sirkulasi(HasilTransaksi.Status.MEMBER_TIDAK_DITEMUKAN, 0);
+                    }
+                    rs.getInt("buku_id");
+                    if (rs.wasNull()) {
+                        conn.rollback();
+                        return new Sirkulasi(HasilTransaksi.Status.BUKU_TIDAK_DITEMUKAN, 0);
+                    }
+                    versi = rs.getInt("versi");
+                    int ditahanUntuk = rs.getInt("ditahan_untuk");
+                    boolean ditahan = !rs.wasNull();
+                    HasilTransaksi.Status status = null;
+                    if (rs.getInt("sudah") > 0 || rs.getInt("peminjam_id") == memberId || (ditahan && ditahanUntuk == memberId)) {
+                        status = HasilTransaksi.Status.SUDAH_ANTRE;
+                    } else if (!rs.getBoolean("is_dipinjam") && !ditahan) {
+                        status = HasilTransaksi.Status.TERSEDIA;
+                    } else if (maksPerMember > 0 && rs.getInt("aktif") >= maksPerMember) {
+                        status = HasilTransaksi.Status.KUOTA_PENUH;
+                    }
+                    if (status != null) {
+                        conn.rollback();
+                        return new Sirkulasi(status, versi);
+                    }
+                }
+
+                try (PreparedStatement stmt = conn.prepareStatement(sqlAntrean)) {
+                    stmt.setInt(1, bukuId);
+                    if (stmt.executeUpdate() == 0) {
+                        conn.rollback(); // Baru saja dikembalikan tanpa antrean
+                        return new Sirkulasi(HasilTransaksi.Status.TERSEDIA, versi);
+                    }
+                }
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "INSERT INTO reservasi (buku_id, member_id, prioritas) VALUES (?, ?, ?)")) {
+                    stmt.setInt(1, bukuId);
+                    stmt.setInt(2, memberId);
+                    stmt.setInt(3, prioritas);
+                    stmt.executeUpdate();
+                } catch (SQLIntegrityConstraintViolationException e) {
+                    conn.rollback(); // Reservasi yang sama masuk bersamaan
+                    return new Sirkulasi(HasilTransaksi.Status.SUDAH_ANTRE, versi);
+                }
+
+                if (log != null) catatLog(conn, log);
+                conn.commit();
+                return new Sirkulasi(HasilTransaksi.Status.BERHASIL, versi);
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public Sirkulasi batalkanReservasi(int memberId, int bukuId, Timestamp batasAmbil) throws SQLException {
+        try (Connection conn = koneksi()) {
+            conn.setAutoCommit(false);
+            try {
+                // Masih di antrean: hapus barisnya saja
+                try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM reservasi WHERE buku_id = ? AND member_id = ?")) {
+                    stmt.setInt(1, bukuId);
+                    stmt.setInt(2, memberId);
+                    if (stmt.executeUpdate() > 0) {
+                        kurangiAntrean(conn, bukuId);
+                        conn.commit();
+                        return new Sirkulasi(HasilTransaksi.Status.BERHASIL, 0);
+                    }
+                }
+                // Sudah disiapkan: lepas tahanan, serahkan ke antrean berikutnya
+                if (!lepasTahanan(conn, bukuId, memberId, null)) {
+                    conn.rollback();
+                    return new Sirkulasi(HasilTransaksi.Status.TIDAK_DIPINJAM, 0);
+                }
+                int diserahkanKe = adaAntrean(conn, bukuId) ? serahkanKeAntrean(conn, bukuId, batasAmbil) : 0;
+                conn.commit();
+                return new Sirkulasi(HasilTransaksi.Status.BERHASIL, 0, diserahkanKe);
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    // Posisi = 1 + reservasi lain di buku yang sama yang dilayani lebih dulu (lewat index antrean)
+    @Override
+    public List<Object[]> reservasiMember(int memberId) throws SQLException {
+        String sqlAntre = "SELECT r.buku_id, b.judul, 1 + (SELECT COUNT(*) FROM reservasi x WHERE x.buku_id = r.buku_id " +
+                "AND (x.prioritas > r.prioritas OR (x.prioritas = r.prioritas AND x.id < r.id))) AS posisi " +
+                "FROM reservasi r JOIN buku b ON b.id = r.buku_id WHERE r.member_id = ?";
+        String sqlDitahan = "SELECT id, judul, tahan_sampai FROM buku WHERE ditahan_untuk = ?";
+
+        List<Object[]> data = new ArrayList<>();
+        try (Connection conn = koneksi()) {
+            try (PreparedStatement stmt = conn.prepareStatement(sqlAntre)) {
+                stmt.setInt(1, memberId);
+                ResultSet rs = stmt.executeQuery();
+                while (rs.next()) data.add(new Object[]{ rs.getInt(1), rs.getString(2), rs.getInt(3), null });
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(sqlDitahan)) {
+                stmt.setInt(1, memberId);
+                ResultSet rs = stmt.executeQuery();
+                while (rs.next()) data.add(new Object[]{ rs.getInt(1), rs.getString(2), 0, rs.getTimestamp(3) });
+            }
+        }
+        data.sort(Comparator.comparingInt(baris -> (Integer) baris[0]));
+        return data;
+    }
+
+    // Kandidat dari index tahan_sampai, lalu satu transaksi per buku; yang sudah diambil/dibatalkan
+    // sementara itu tidak lolos syarat UPDATE dan dilewati
+    @Override
+    public List<SerahTahanan> lepasTahananKedaluwarsa(Timestamp sekarang, Timestamp batasAmbil, int batas) throws SQLException {
+        List<SerahTahanan> hasil = new ArrayList<>();
+        try (Connection conn = koneksi()) {
+            List<int[]> kandidat = new ArrayList<>();
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "SELECT id, ditahan_untuk FROM buku WHERE tahan_sampai < ? ORDER BY tahan_sampai LIMIT ?")) {
+                stmt.setTimestamp(1, sekarang);
+                stmt.setInt(2, batas);
+                ResultSet rs = stmt.executeQuery();
+                while (rs.next()) kandidat.add(new int[]{ rs.getInt(1), rs.getInt(2) });
+            }
+
+            conn.setAutoCommit(false);
+            for (int[] k : kandidat) {
+                try {
+                    if (!lepasTahanan(conn, k[0], k[1], sekarang)) {
+                        conn.rollback();
+                        continue;
+                    }
+                    int baru = adaAntrean(conn, k[0]) ? serahkanKeAntrean(conn, k[0], batasAmbil) : 0;
+                    conn.commit();
+                    hasil.add(new SerahTahanan(k[0], k[1], baru));
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            }
+        }
+        return hasil;
+    }
+
+    @Override
+    public long jumlahReservasi() throws SQLException {
+        return hitung("SELECT COUNT(*) FROM reservasi");
+    }
+
+    // Tahanan buku untuk member ini dilepas (kedaluwarsa: hanya jika batasnya < sekarang); mengunci baris buku
+    private static boolean lepasTahanan(Connection conn, int bukuId, int memberId, Timestamp kedaluwarsaSebelum) throws SQLException {
+        String sql = "UPDATE buku SET ditahan_untuk = NULL, tahan_sampai = NULL WHERE id = ? AND ditahan_untuk = ?"
+                + (kedaluwarsaSebelum != null ? " AND tahan_sampai < ?" : "");
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, bukuId);
+            stmt.setInt(2, memberId);
+            if (kedaluwarsaSebelum != null) stmt.setTimestamp(3, kedaluwarsaSebelum);
+            return stmt.executeUpdate() > 0;
+        }
+    }
+
+    // Dipanggil setelah baris buku dikunci di transaksi ini, jadi antrean tidak bisa berubah di bawahnya
+    private static boolean adaAntrean(Connection conn, int bukuId) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT antrean FROM buku WHERE id = ?")) {
+            stmt.setInt(1, bukuId);
+            ResultSet rs = stmt.executeQuery();
+            return rs.next() && rs.getInt(1) > 0;
+        }
+    }
+
+    private static void kurangiAntrean(Connection conn, int bukuId) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "UPDATE buku SET antrean = CASE WHEN antrean > 0 THEN antrean - 1 ELSE 0 END WHERE id = ?")) {
+            stmt.setInt(1, bukuId);
+            stmt.executeUpdate();
+        }
+    }
+
+    // Kepala antrean (index, LIMIT 1) keluar dari antrean dan mendapat tahanan sampai batasAmbil.
+    // FOR UPDATE = baca baris terkini (bukan snapshot), jadi baris yang baru dihapus pembatalan tidak
+    // terpilih lagi; hanya baris kepala itu yang terkunci. Antrean kosong -> buku tersedia.
+    // Hasil = member yang kini ditahankan, 0 jika antrean ternyata kosong
+    private static int serahkanKeAntrean(Connection conn, int bukuId, Timestamp batasAmbil) throws SQLException {
+        while (true) {
+            long idReservasi;
+            int memberId;
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "SELECT id, member_id FROM reservasi WHERE buku_id = ? ORDER BY prioritas DESC, id LIMIT 1 FOR UPDATE")) {
+                stmt.setInt(1, bukuId);
+                ResultSet rs = stmt.executeQuery();
+                if (!rs.next()) {
+                    try (PreparedStatement kosong = conn.prepareStatement("UPDATE buku SET antrean = 0 WHERE id = ?")) {
+                        kosong.setInt(1, bukuId);
+                        kosong.executeUpdate();
+                    }
+                    return 0;
+                }
+                idReservasi = rs.getLong(1);
+                memberId = rs.getInt(2);
+            }
+            try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM reservasi WHERE id = ?")) {
+                stmt.setLong(1, idReservasi);
+                if (stmt.executeUpdate() == 0) continue;
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "UPDATE buku SET ditahan_untuk = ?, tahan_sampai = ?, " +
+                    "antrean = CASE WHEN antrean > 0 THEN antrean - 1 ELSE 0 END WHERE id = ?")) {
+                stmt.setInt(1, memberId);
+                stmt.setTimestamp(2, batasAmbil);
+                stmt.setInt(3, bukuId);
+                stmt.executeUpdate();
+            }
+            return memberId;
+        }
+    }
+
+    /* ==========================================================
+       HELPER
+       ========================================================== */
+
+    private static void setKeysetAtauOffset(PreparedStatement stmt, Integer setelahId, int offset, int batas) throws SQLException {
+        if (setelahId != null) {
+            stmt.setInt(1, setelahId);
+            stmt.setInt(2, batas);
+        } else {
+            stmt.setInt(1, batas);
+            stmt.setInt(2, offset);
+        }
+    }
+
+    private static boolean isMysql(Connection conn) throws SQLException {
+        String produk = conn.getMetaData().getDatabaseProductName().toLowerCase(Locale.ROOT);
+        return produk.contains("mysql") || produk.contains("mariadb");
+    }
+
+    // GET_LOCK/RELEASE_LOCK: 1 = berhasil
+    private static boolean kunci(Connection conn, String sql) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() && rs.getInt(1) == 1;
+        }
+    }
+
+    private static int hitung(String sql) throws SQLException {
+        try (Connection conn = koneksi();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    @Override
+    public void tutup() {
+        // Pool koneksi ditutup oleh Database saat shutdown
+    }
+}
@@ -0,0 +1,28 @@
+// Peristiwa domain yang diterbitkan Perpustakaan setelah perubahan berhasil disimpan.
+// Pendengar (mis. tabel di Main) cukup memperbarui baris yang terdampak, tanpa memuat ulang semuanya.
+public sealed interface Peristiwa {
+
+    record BukuDitambah(Buku buku) implements Peristiwa { }
+
+    // Satu chunk impor massal (lihat ImporBuku), urut ID naik
+    record BukuDiimpor(java.util.List<Buku> buku) implements Peristiwa { }
+
+    // versi = versi baris buku setelah transaksi (lihat Buku.terapkanStatus)
+    record BukuDipinjam(Buku buku, int memberId, String namaMember, int versi) implements Peristiwa { }
+
+    record BukuDikembalikan(Buku buku, int memberId, String namaMember, int versi) implements Peristiwa { }
+
+    // Buku dari antrean reservasi kini ditahan untuk member ini sampai batas ambil
+    record BukuDisiapkan(Buku buku, int memberId, java.sql.Timestamp sampai) implements Peristiwa { }
+
+    // Katalog disusulkan dengan DB setelah dimuat dari snapshot; 'berubah' = jumlah baris yang dibaca ulang
+    record KatalogDisinkronkan(int berubah) implements Peristiwa { }
+
+    record MemberTerdaftar(Member member) implements Peristiwa { }
+
+    // 'jumlah' baris baru di tabel log (perpustakaan) yang sudah tersimpan
+    record LogDitambah(int jumlah) implements Peristiwa { }
+
+    // 'jumlah' baris lama dipindah dari log aktif ke arsip (lihat SiklusLog)
+    record LogDiarsipkan(long jumlah) implements Peristiwa { }
+}
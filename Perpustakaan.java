@@ -1,54 +1,180 @@
-import java.sql.*;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
-
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+// "try": operasi memakai try (Metrik.Operasi op = Metrik.mulai(...)) hanya untuk menutup pengukurannya;
+// op sengaja tidak dirujuk di dalam blok
+@SuppressWarnings("try")
 public class Perpustakaan {
 
+    // MySQL atau engine di memori (storage.engine), lihat Penyimpanan
+    private final Penyimpanan penyimpanan;
+
+    // Log aktivitas ditulis di background (lihat PenulisLog)
+    private final PenulisLog penulisLog;
+
+    // Log lama dipindah ke arsip bulanan + rollup harian (lihat SiklusLog)
+    private final SiklusLog siklusLog;
+
+    // Tahanan reservasi yang tidak diambil dilepas ke antrean berikutnya (lihat PenjadwalReservasi)
+    private final PenjadwalReservasi penjadwalReservasi;
+    private final int maksReservasiPerMember = Database.getIntSetting("hold.maxPerMember", 5);
+
+    // Katalog buku di memori; getSemuaBuku & pencarian judul tidak lagi query ke DB
+    private final KatalogCache katalog = new KatalogCache(this::muatSemuaBukuDariDb);
+
+    // Snapshot katalog di disk (catalog.snapshot, "-" = tidak dipakai): startup tanpa SELECT * FROM buku
+    private final Path fileSnapshot = fileSnapshotDariKonfigurasi();
+    private long versiSnapshotTerakhir = -1;
+    // false selama indeks & Bloom filter dibangun di background; pencarian sementara lewat DB
+    private volatile boolean indeksSiap = true;
+
+    // Indeks token + trigram untuk pencarian judul/pengarang/kategori tanpa LIKE '%..%' ke DB
+    private final IndeksPencarian indeks = new IndeksPencarian();
+    private final boolean pakaiIndeks = !"false".equalsIgnoreCase(Database.getSetting("search.index", "true"));
+    // cariBukuTeratas: kandidat yang diverifikasi per query; sisanya hanya diperkirakan jumlahnya
+    private final int maksPeriksaCari = Database.getIntSetting("search.maxCandidates", 20_000);
+
+    // Pra-cek duplikat tanpa DB: "pasti baru" langsung lolos, "mungkin ada" tetap dicek ke DB
+    private final double bloomFpp = Double.parseDouble(Database.getSetting("bloom.fpp", "0.01"));
+    private final BloomFilter bloomBuku = new BloomFilter(Database.getIntSetting("bloom.buku.expected", 1_000_000), bloomFpp);
+    private final BloomFilter bloomEmail = new BloomFilter(Database.getIntSetting("bloom.member.expected", 200_000), bloomFpp);
+
+    // Lookup member per nama/email/ID dilayani dari memori (LRU + TTL, nama tak dikenal di-cache negatif)
+    private final CacheAnggota cacheAnggota = CacheAnggota.dariKonfigurasi();
+
+    // Pinjam/kembali optimistik (compare-and-set pada versi baris): yang kalah balapan diulang
+    // paling banyak sekian kali dengan jeda acak kecil, lalu dilaporkan sebagai KONFLIK
+    private final int maksUlangKonflik = Database.getIntSetting("circulation.maxRetries", 3);
+    private final int jedaUlangMs = Database.getIntSetting("circulation.retryBackoffMs", 2);
+
+    // Pendengar perubahan data (BukuDitambah, BukuDipinjam, ...), lihat Peristiwa
+    private final List<Consumer<Peristiwa>> pendengar = new CopyOnWriteArrayList<>();
+
+    // Lihat tutup(); instance yang sama dipakai untuk mendaftar & mencabut tugas shutdown
+    private final Runnable kaitShutdown = this::tutup;
+    private volatile boolean ditutup = false;
+
+    public Perpustakaan() {
+        this(Penyimpanan.dariKonfigurasi());
+    }
+
+    public Perpustakaan(Penyimpanan penyimpanan) {
+        this.penyimpanan = penyimpanan;
+        this.penulisLog = PenulisLog.dariKonfigurasi(penyimpanan);
+        this.siklusLog = SiklusLog.dariKonfigurasi(penyimpanan);
+        this.penjadwalReservasi = PenjadwalReservasi.dariKonfigurasi(penyimpanan);
+        // Didaftarkan setelah PenulisLog, SiklusLog & PenjadwalReservasi, jadi sisa antrean log ditulis sebelum penyimpanan ditutup
+        Database.tambahTugasShutdown(kaitShutdown);
+
+        // Indeks & Bloom filter buku dibangun ulang setiap kali katalog dimuat dari DB
+        // (setelah muat dari snapshot dibangun di background, lihat lanjutkanSetelahSnapshot)
+        katalog.setPendengarMuat(daftar -> {
+            if (indeksSiap) bangunIndeks(daftar);
+        });
+        penulisLog.setSetelahTulis(n -> terbitkan(new Peristiwa.LogDitambah(n)));
+        siklusLog.setSetelahArsip(n -> terbitkan(new Peristiwa.LogDiarsipkan(n)));
+        penjadwalReservasi.setSetelahLepas(this::tahananDilepas);
+
+        if (fileSnapshot != null && penyimpanan.identitasKatalog() != null) {
+            katalog.setPemuatAwal(this::muatKatalogDariSnapshot);
+        }
+    }
+
+    // Menghentikan penjadwal reservasi, siklus log & penulis log, menutup penyimpanan, lalu menyimpan
+    // snapshot katalog. Dijalankan otomatis saat JVM berhenti; panggil langsung jika instance dibuang
+    // lebih awal (mis. benchmark yang membuat Perpustakaan baru per ukuran katalog).
+    public void tutup() {
+        if (ditutup) return;
+        ditutup = true;
+        penjadwalReservasi.tutup();
+        siklusLog.tutup();
+        // Setelah penjadwal berhenti: tahanan yang dilepas di putaran terakhir masih sempat tercatat
+        penulisLog.tutup();
+        penyimpanan.tutup();
+        // Tidak butuh DB, hanya isi katalog di memori
+        if (fileSnapshot != null && penyimpanan.identitasKatalog() != null) simpanSnapshotKatalog();
+        Database.hapusTugasShutdown(kaitShutdown);
+    }
+
     /* ==========================================================
-       BAGIAN 1: SISTEM LOGGING (Riwayat Aktivitas)
+       BAGIAN 0: PERISTIWA (untuk refresh UI bertahap)
        ========================================================== */
 
-    // Method helper untuk mencatat aktivitas ke tabel 'perpustakaan'
-    private void catatLog(String aksi, String judulBuku, String namaMember, String ket) {
-        String sql = "INSERT INTO perpustakaan (aksi, judul_buku, nama_member, keterangan) VALUES (?, ?, ?, ?)";
-        try (Connection conn = Database.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+    // Pendengar dipanggil di thread yang melakukan perubahan; UI harus pindah sendiri ke EDT
+    public void tambahPendengar(Consumer<Peristiwa> p) {
+        pendengar.add(p);
+    }
 
-            stmt.setString(1, aksi);
-            stmt.setString(2, judulBuku);
-            stmt.setString(3, namaMember); // Bisa "-" jika aksinya oleh admin
-            stmt.setString(4, ket);
-            stmt.executeUpdate();
+    public void hapusPendengar(Consumer<Peristiwa> p) {
+        pendengar.remove(p);
+    }
 
-        } catch (SQLException e) {
-            System.out.println("Gagal mencatat log sistem: " + e.getMessage());
+    // Diterbitkan hanya setelah perubahan tersimpan (sesudah commit)
+    private void terbitkan(Peristiwa peristiwa) {
+        for (Consumer<Peristiwa> p : pendengar) {
+            try {
+                p.accept(peristiwa);
+            } catch (RuntimeException e) {
+                e.printStackTrace(); // Satu pendengar gagal tidak boleh menggagalkan transaksi
+            }
         }
     }
 
-    // Method untuk Menampilkan Riwayat Log (Fitur Admin Opsi 5)
-    public void tampilkanRiwayatLog() {
-        String sql = "SELECT * FROM perpustakaan ORDER BY tanggal DESC LIMIT 50"; // Tampilkan 50 terakhir
+    /* ==========================================================
+       BAGIAN 1: SISTEM LOGGING (Riwayat Aktivitas)
+       ========================================================== */
+
+    // Method helper untuk mencatat aktivitas ke tabel 'perpustakaan'
+    // Tidak menunggu I/O: event masuk antrean dan ditulis per batch oleh PenulisLog
+    private void catatLog(String aksi, String judulBuku, String namaMember, String ket) {
+        penulisLog.catat(aksi, judulBuku, namaMember, ket);
+    }
+
+    public PenulisLog getPenulisLog() { return penulisLog; }
 
-        try (Connection conn = Database.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+    public SiklusLog getSiklusLog() { return siklusLog; }
 
-            System.out.println("\n=== RIWAYAT LOG AKTIVITAS (50 Terakhir) ===");
-            System.out.printf("%-20s %-15s %-15s %-30s%n", "Waktu", "Aksi", "Member", "Info");
-            System.out.println("------------------------------------------------------------------------------------");
+    public PenjadwalReservasi getPenjadwalReservasi() { return penjadwalReservasi; }
 
-            while (rs.next()) {
-                String member = rs.getString("nama_member");
-                if (member == null) member = "-";
+    public Penyimpanan getPenyimpanan() { return penyimpanan; }
 
-                System.out.printf("%-20s %-15s %-15s %-30s%n",
-                        rs.getString("tanggal"),
-                        rs.getString("aksi"),
-                        member,
-                        rs.getString("judul_buku") + " (" + rs.getString("keterangan") + ")");
+    // Method untuk Menampilkan Riwayat Log (Fitur Admin Opsi 5)
+    public void tampilkanRiwayatLog() {
+        try (Metrik.Operasi op = Metrik.mulai("tampilkanRiwayatLog")) {
+            try {
+                List<CatatanLog> daftar = penyimpanan.halamanLog(null, 0, 50); // Tampilkan 50 terakhir
+
+                System.out.println("\n=== RIWAYAT LOG AKTIVITAS (50 Terakhir) ===");
+                System.out.printf("%-20s %-15s %-15s %-30s%n", "Waktu", "Aksi", "Member", "Info");
+                System.out.println("------------------------------------------------------------------------------------");
+
+                for (CatatanLog c : daftar) {
+                    String member = c.namaMember();
+                    if (member == null) member = "-";
+
+                    System.out.printf("%-20s %-15s %-15s %-30s%n",
+                            c.getTanggalTeks(),
+                            c.aksi(),
+                            member,
+                            c.judulBuku() + " (" + c.keterangan() + ")");
+                }
+            } catch (SQLException e) {
+                Metrik.gagal(e);
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
         }
     }
 
@@ -58,274 +184,488 @@ public class Perpustakaan {
 
     // Menambah Buku Baru + Catat Log
     public void tambahBuku(Buku b) {
-        if (bukuSudahAda(b.getJudul(), b.getPengarang())) {
-            return; // atau throw exception / popup
+        try (Metrik.Operasi op = Metrik.mulai("tambahBuku")) {
+            if (bukuSudahAda(b.getJudul(), b.getPengarang())) {
+                return; // atau throw exception / popup
+            }
+            String jenis = (b instanceof BukuFiksi) ? "Fiksi" : "NonFiksi";
+
+            try {
+                penyimpanan.tambahBuku(b);
+                bloomBuku.tambah(KunciNormal.buku(b.getJudul(), b.getPengarang()));
+
+                // ID baru sudah di-set, jadi buku bisa langsung masuk cache katalog
+                if (b.getId() > 0) {
+                    katalog.simpan(b);
+                    indeks.tambah(b);
+                    terbitkan(new Peristiwa.BukuDitambah(b));
+                }
+
+                // LOG: Catat penambahan buku
+                catatLog("TAMBAH_BUKU", b.getJudul(), "-", "Admin menambah buku tipe " + jenis);
+
+            } catch (SQLIntegrityConstraintViolationException e) {
+                // Insert bersamaan dengan judul+pengarang yang sama: ditolak unique index
+                System.out.println("Buku sudah ada: " + b.getJudul() + " / " + b.getPengarang());
+            } catch (SQLException e) {
+                Metrik.gagal(e);
+            }
         }
-        String jenis = (b instanceof BukuFiksi) ? "Fiksi" : "NonFiksi";
-        String sql = "INSERT INTO buku (judul, pengarang, jenis, info_khusus) VALUES (?, ?, ?, ?)";
-
-        try (Connection conn = Database.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setString(1, b.getJudul());
-            stmt.setString(2, b.getPengarang());
-            stmt.setString(3, jenis);
-            stmt.setString(4, b.getInfoKhusus());
-            stmt.executeUpdate();
+    }
+    // Impor massal dari CSV/TSV (lihat ImporBuku): per chunk satu transaksi berisi
+    // 1 query cek duplikat, 1 batch INSERT, dan 1 baris log ringkasan
+    public ImporBuku.Hasil imporBuku(Path file, ImporBuku.Progres progres, BooleanSupplier batal) throws IOException {
+        try (Metrik.Operasi op = Metrik.mulai("imporBuku")) {
+            ImporBuku impor = new ImporBuku(this::simpanChunkImpor, Database.getIntSetting("import.chunkSize", 1000));
+            return impor.jalankan(file, progres, batal);
+        }
+    }
 
-            // LOG: Catat penambahan buku
-            catatLog("TAMBAH_BUKU", b.getJudul(), "-", "Admin menambah buku tipe " + jenis);
+    private boolean[] simpanChunkImpor(List<Buku> chunk) throws SQLException {
+        // LOG: satu baris ringkasan per chunk (ikut transaksi), bukan per buku
+        boolean[] tersimpan = penyimpanan.tambahBukuMassal(chunk, n -> CatatanLog.baru("IMPOR_BUKU", "-", "-",
+                "Admin mengimpor " + n + " buku (" + (chunk.size() - n) + " sudah ada)"));
 
-        } catch (SQLException e) {
-            e.printStackTrace();
+        List<Buku> baru = new ArrayList<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            if (tersimpan[i]) baru.add(chunk.get(i));
         }
+        if (!baru.isEmpty()) {
+            for (Buku b : baru) {
+                katalog.simpan(b);
+                indeks.tambah(b);
+                bloomBuku.tambah(KunciNormal.buku(b.getJudul(), b.getPengarang()));
+            }
+            terbitkan(new Peristiwa.BukuDiimpor(baru));
+            terbitkan(new Peristiwa.LogDitambah(1));
+        }
+        return tersimpan;
     }
+
+    // Bloom filter dulu (tanpa DB), lalu lookup ke unique index (judul_normal, pengarang_normal)
     private boolean bukuSudahAda(String judul, String pengarang) {
-        String sql = "SELECT COUNT(*) FROM buku WHERE LOWER(judul)=? AND LOWER(pengarang)=?";
-        try (Connection conn = Database.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setString(1, judul.toLowerCase());
-            stmt.setString(2, pengarang.toLowerCase());
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) return rs.getInt(1) > 0;
-        } catch (SQLException e) { e.printStackTrace(); }
+        katalog.pastikanDimuat(); // Bloom filter buku diisi saat katalog dimuat
+        if (!bloomBuku.mungkinAda(KunciNormal.buku(judul, pengarang))) return false;
+
+        try {
+            if (penyimpanan.adaBuku(KunciNormal.teks(judul), KunciNormal.teks(pengarang))) return true;
+            bloomBuku.catatPositifPalsu();
+        } catch (SQLException e) { Metrik.gagal(e); }
         return false;
     }
 
+    public BloomFilter getBloomBuku() { return bloomBuku; }
+
+    public BloomFilter getBloomEmail() { return bloomEmail; }
+
+    // Dilayani dari cache katalog (tabel buku hanya dimuat sekali)
     public List<Buku> getSemuaBuku() {
-        List<Buku> list = new ArrayList<>();
-        String sql = "SELECT * FROM buku"; // Ambil semua buku
+        try (Metrik.Operasi op = Metrik.mulai("getSemuaBuku")) {
+            return katalog.getSemua();
+        }
+    }
 
-        try (Connection conn = Database.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+    // Pencarian di judul, pengarang dan genre/subjek; banyak kata = AND, hasil terurut relevansi
+    public List<Buku> cariBuku(String keyword) {
+        try (Metrik.Operasi op = Metrik.mulai("cariBuku")) {
+            if (!pakaiIndeks) return cariBukuDb(keyword, false);
+            katalog.pastikanDimuat();
+            if (!indeksSiap) return cariBukuDb(keyword, false);
+            return indeks.cari(keyword, false);
+        }
+    }
 
-            while (rs.next()) {
-                list.add(mapResultSetToBuku(rs));
+    public List<Buku> cariBukuByJudul(String keyword) {
+        try (Metrik.Operasi op = Metrik.mulai("cariBukuByJudul")) {
+            if (!pakaiIndeks) return cariBukuDb(keyword, true);
+            katalog.pastikanDimuat();
+            if (!indeksSiap) return cariBukuDb(keyword, true);
+            return indeks.cari(keyword, true);
+        }
+    }
+
+    // Untuk API: hanya 'batas' buku teratas yang dibentuk; jumlah bisa perkiraan (lihat IndeksPencarian.cariTeratas)
+    public IndeksPencarian.Hasil cariBukuTeratas(String keyword, boolean hanyaJudul, int batas) {
+        try (Metrik.Operasi op = Metrik.mulai(hanyaJudul ? "cariBukuByJudul" : "cariBuku")) {
+            if (pakaiIndeks) {
+                katalog.pastikanDimuat();
+                if (indeksSiap) return indeks.cariTeratas(keyword, hanyaJudul, batas, maksPeriksaCari);
             }
+            List<Buku> semua = cariBukuDb(keyword, hanyaJudul);
+            return new IndeksPencarian.Hasil(new ArrayList<>(semua.subList(0, Math.min(batas, semua.size()))),
+                    semua.size(), false);
+        }
+    }
+
+    // Jalur lama (fallback, search.index=false atau indeks belum siap): LIKE langsung ke DB
+    private List<Buku> cariBukuDb(String keyword, boolean hanyaJudul) {
+        try {
+            return penyimpanan.cariBuku(keyword, hanyaJudul);
         } catch (SQLException e) {
-            e.printStackTrace();
+            Metrik.gagal(e);
+            return new ArrayList<>();
         }
-        return list;
     }
 
-    public List<Buku> cariBukuByJudul(String keyword) {
-        List<Buku> list = new ArrayList<>();
-        String sql = "SELECT * FROM buku WHERE LOWER(judul) LIKE ?";
+    // Dari cache katalog; null jika tidak ada
+    public Buku getBukuById(int id) {
+        try (Metrik.Operasi op = Metrik.mulai("getBukuById")) {
+            katalog.pastikanDimuat();
+            return katalog.get(id);
+        }
+    }
 
-        try (Connection conn = Database.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+    public IndeksPencarian getIndeks() { return indeks; }
 
-            stmt.setString(1, "%" + keyword.toLowerCase() + "%");
-            ResultSet rs = stmt.executeQuery();
+    public KatalogCache getKatalog() { return katalog; }
+
+    private void bangunIndeks(List<Buku> daftar) {
+        indeks.bangunUlang(daftar);
+        List<String> kunci = new ArrayList<>(daftar.size());
+        for (Buku b : daftar) kunci.add(KunciNormal.buku(b.getJudul(), b.getPengarang()));
+        bloomBuku.isiUlang(kunci);
+    }
 
-            while (rs.next()) {
-                list.add(mapResultSetToBuku(rs));
+    // Loader untuk KatalogCache: seluruh buku sekali baca
+    private List<Buku> muatSemuaBukuDariDb() {
+        // Buku yang ditambahkan selama SELECT berjalan tidak ikut di daftar untuk Bloom filter
+        bloomBuku.mulaiIsiUlang();
+        try {
+            // Watermark dibaca dulu: perubahan selama SELECT berjalan ikut tersusul di sinkronisasi berikutnya
+            long watermark = penyimpanan.watermarkKatalog();
+            List<Buku> list = penyimpanan.muatSemuaBuku();
+            katalog.setWatermark(watermark);
+            if (fileSnapshot != null && penyimpanan.identitasKatalog() != null) {
+                Thread.ofVirtual().name("katalog-snapshot").start(this::simpanSnapshotKatalog);
             }
+            return list;
         } catch (SQLException e) {
-            e.printStackTrace();
+            Metrik.gagal(e);
+            return new ArrayList<>();
         }
-        return list;
     }
 
-    // Helper: Mengubah data baris database (ResultSet) menjadi Objek Buku Java
-    private Buku mapResultSetToBuku(ResultSet rs) throws SQLException {
-        int id = rs.getInt("id");
-        String judul = rs.getString("judul");
-        String pengarang = rs.getString("pengarang");
-        String jenis = rs.getString("jenis");
-        String info = rs.getString("info_khusus");
-        boolean isDipinjam = rs.getBoolean("is_dipinjam");
+    /* ==========================================================
+       BAGIAN 2b: SNAPSHOT KATALOG (startup cepat)
+       ========================================================== */
 
-        Buku b;
-        if (jenis.equalsIgnoreCase("Fiksi")) {
-            b = new BukuFiksi(judul, pengarang, info);
-        } else {
-            b = new BukuNonFiksi(judul, pengarang, info);
-        }
-        b.setId(id);
-        b.setDipinjam(isDipinjam);
-        return b;
+    private static Path fileSnapshotDariKonfigurasi() {
+        String path = Database.getSetting("catalog.snapshot", "data/katalog.snapshot");
+        return path.isEmpty() || path.equals("-") ? null : Path.of(path);
     }
 
-    /* ==========================================================
-       BAGIAN 3: MANAJEMEN MEMBER
-       ========================================================== */
+    // Pemuat awal KatalogCache: katalog langsung tersedia dari file, lalu disusulkan dengan DB di background.
+    // null = tidak ada snapshot yang cocok, KatalogCache memuat dari DB seperti biasa.
+    private List<Buku> muatKatalogDariSnapshot() {
+        long mulai = System.nanoTime();
+        try {
+            SnapshotKatalog.Isi isi = SnapshotKatalog.baca(fileSnapshot);
+            if (isi == null) return null;
+            if (!isi.identitas().equals(penyimpanan.identitasKatalog())) {
+                System.out.println("Snapshot katalog dari sumber lain (" + isi.identitas() + "), dimuat dari DB");
+                return null;
+            }
+            katalog.setWatermark(isi.watermark());
+            indeksSiap = false;
+            System.out.printf("Katalog dari snapshot: %,d buku dalam %d ms%n",
+                    isi.buku().size(), (System.nanoTime() - mulai) / 1_000_000);
+            Thread.ofVirtual().name("katalog-sinkron").start(this::lanjutkanSetelahSnapshot);
+            return isi.buku();
+        } catch (IOException e) {
+            System.out.println("Snapshot katalog tidak dipakai: " + e.getMessage());
+            return null;
+        }
+    }
 
-    // Registrasi member dengan validasi email & no telepon untuk menghindari duplikasi nama
-    public Member daftarAnggota(String nama, String email, String noTelepon, int batasPinjam) {
-        // Validasi input tidak kosong
-        if (nama.trim().isEmpty() || email.trim().isEmpty() || noTelepon.trim().isEmpty()) {
-            return null; // Return null jika ada field kosong
+    // Background setelah muat dari snapshot: bangun indeks pencarian & Bloom filter, lalu sinkron dengan DB
+    private void lanjutkanSetelahSnapshot() {
+        katalog.pastikanDimuat(); // menunggu isi snapshot masuk ke katalog
+        long mulai = System.nanoTime();
+        bloomBuku.mulaiIsiUlang();
+        List<Buku> daftar = katalog.getSemua();
+        bangunIndeks(daftar);
+        // Buku yang ditambah selama indeks dibangun (ID-nya pasti lebih besar); tambah() melewati yang sudah ada
+        int maksId = daftar.isEmpty() ? 0 : daftar.get(daftar.size() - 1).getId();
+        for (Buku b : katalog.getSemua()) {
+            if (b.getId() <= maksId) continue;
+            indeks.tambah(b);
+            bloomBuku.tambah(KunciNormal.buku(b.getJudul(), b.getPengarang()));
         }
+        indeksSiap = true;
+        System.out.printf("Indeks pencarian dibangun: %,d buku dalam %d ms%n",
+                daftar.size(), (System.nanoTime() - mulai) / 1_000_000);
+        sinkronkanKatalog();
+    }
 
-        // Cek apakah email sudah terdaftar (identitas unik)
-        if (cekEmailSudahAda(email)) {
-            return null; // Email sudah terdaftar
+    // Menyusulkan katalog dengan DB: hanya buku yang berubah sejak watermark snapshot yang dibaca.
+    // Juga dipakai untuk menyegarkan katalog dari perubahan di luar aplikasi ini.
+    public void sinkronkanKatalog() {
+        try (Metrik.Operasi op = Metrik.mulai("sinkronkanKatalog")) {
+            long mulai = System.nanoTime();
+            katalog.pastikanDimuat();
+            katalog.mulaiSinkron();
+            // terapkanPerubahan / muatUlang di bawah bisa membangun ulang Bloom filter dari isi katalog
+            bloomBuku.mulaiIsiUlang();
+            try {
+                long watermarkBaru = penyimpanan.watermarkKatalog();
+                long watermarkLama = katalog.getWatermark();
+                if (watermarkBaru < watermarkLama) {
+                    // Jam DB mundur atau DB dipulihkan dari backup: selisih tidak bisa dipercaya
+                    katalog.batalSinkron();
+                    katalog.muatUlang();
+                    terbitkan(new Peristiwa.KatalogDisinkronkan(katalog.getUkuran()));
+                    return;
+                }
+                List<Buku> berubah = penyimpanan.bukuBerubahSejak(watermarkLama);
+                for (Buku b : katalog.terapkanPerubahan(berubah, watermarkBaru)) {
+                    indeks.tambah(b);
+                    bloomBuku.tambah(KunciNormal.buku(b.getJudul(), b.getPengarang()));
+                }
+                // Buku yang dihapus langsung di DB tidak terlihat lewat watermark; jumlah beda -> muat penuh
+                if (penyimpanan.jumlahBuku() != katalog.getUkuran()) {
+                    System.out.println("Jumlah buku katalog berbeda dengan DB, dimuat ulang penuh");
+                    katalog.muatUlang();
+                }
+                System.out.printf("Katalog disinkronkan: %,d baris berubah dalam %d ms%n",
+                        berubah.size(), (System.nanoTime() - mulai) / 1_000_000);
+                terbitkan(new Peristiwa.KatalogDisinkronkan(berubah.size()));
+                simpanSnapshotKatalog();
+            } catch (SQLException e) {
+                katalog.batalSinkron();
+                Metrik.gagal(e);
+            } finally {
+                bloomBuku.batalIsiUlang();
+            }
         }
+    }
 
-        // Jika nama sama, gunakan email/telepon untuk membedakan
-        Member existing = getAnggotaByNama(nama);
-        if (existing != null && existing.getEmail().equals(email)) {
-            return existing; // Nama dan email sama, return member yang ada
+    // Tidak menulis apa-apa jika katalog belum dimuat atau tidak berubah sejak snapshot terakhir
+    public synchronized void simpanSnapshotKatalog() {
+        try (Metrik.Operasi op = Metrik.mulai("simpanSnapshotKatalog")) {
+            KatalogCache.Salinan salinan = katalog.salinan();
+            if (salinan == null || salinan.versi() == versiSnapshotTerakhir) return;
+            long mulai = System.nanoTime();
+            try {
+                SnapshotKatalog.tulis(fileSnapshot, penyimpanan.identitasKatalog(), salinan.watermark(), salinan.buku());
+                versiSnapshotTerakhir = salinan.versi();
+                System.out.printf("Snapshot katalog ditulis: %,d buku dalam %d ms%n",
+                        salinan.buku().size(), (System.nanoTime() - mulai) / 1_000_000);
+            } catch (IOException e) {
+                System.out.println("Snapshot katalog gagal ditulis: " + e.getMessage());
+            }
         }
+    }
 
-        String sql = "INSERT INTO member (nama, email, no_telepon, batas_pinjam) VALUES (?, ?, ?, ?)";
-        try (Connection conn = Database.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+    /* ==========================================================
+       BAGIAN 3: MANAJEMEN MEMBER
+       ========================================================== */
 
-            stmt.setString(1, nama);
-            stmt.setString(2, email);
-            stmt.setString(3, noTelepon);
-            stmt.setInt(4, batasPinjam);
-            stmt.executeUpdate();
+    // Registrasi member dengan validasi email & no telepon untuk menghindari duplikasi nama
+    public Member daftarAnggota(String nama, String email, String noTelepon, int batasPinjam) {
+        try (Metrik.Operasi op = Metrik.mulai("daftarAnggota")) {
+            // Validasi input tidak kosong
+            if (nama.trim().isEmpty() || email.trim().isEmpty() || noTelepon.trim().isEmpty()) {
+                return null; // Return null jika ada field kosong
+            }
 
-            // LOG: Catat registrasi member baru
-            catatLog("REGISTRASI_MEMBER", "-", nama, "Member baru terdaftar: " + email);
+            // Cek apakah email sudah terdaftar (identitas unik)
+            if (cekEmailSudahAda(email)) {
+                return null; // Email sudah terdaftar
+            }
 
-            return getAnggotaByEmail(email); // Ambil ulang dari DB agar semua field terbawa
-        } catch (SQLException e) {
-            e.printStackTrace();
+            // Jika nama sama, gunakan email/telepon untuk membedakan
+            Member existing = getAnggotaByNama(nama);
+            if (existing != null && existing.getEmail().equals(email)) {
+                return existing; // Nama dan email sama, return member yang ada
+            }
+
+            try {
+                penyimpanan.tambahMember(nama, email, noTelepon, batasPinjam);
+                bloomEmail.tambah(KunciNormal.email(email));
+                cacheAnggota.hapusNama(KunciNormal.teks(nama)); // Nama ini mungkin tercatat "tidak ada"
+
+                // LOG: Catat registrasi member baru
+                catatLog("REGISTRASI_MEMBER", "-", nama, "Member baru terdaftar: " + email);
+
+                Member baru = getAnggotaByEmail(email); // Ambil ulang agar semua field terbawa
+                if (baru != null) terbitkan(new Peristiwa.MemberTerdaftar(baru));
+                return baru;
+            } catch (SQLIntegrityConstraintViolationException e) {
+                return null; // Email didaftarkan bersamaan oleh proses lain; ditolak unique index
+            } catch (SQLException e) {
+                Metrik.gagal(e);
+            }
+            return null;
         }
-        return null;
     }
 
     // Overload method untuk backward compatibility (tanpa email/telepon)
     public Member daftarAnggota(String nama, int batasPinjam) {
-        String sql = "INSERT INTO member (nama, batas_pinjam) VALUES (?, ?)";
+        try (Metrik.Operasi op = Metrik.mulai("daftarAnggota(singkat)")) {
+            try {
+                int id = penyimpanan.tambahMember(nama, null, null, batasPinjam);
+                cacheAnggota.hapusNama(KunciNormal.teks(nama));
 
-        try (Connection conn = Database.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-
-            stmt.setString(1, nama);
-            stmt.setInt(2, batasPinjam);
-            stmt.executeUpdate();
-
-            ResultSet rs = stmt.getGeneratedKeys();
-            if (rs.next()) {
                 Member m = new Member(nama, batasPinjam);
-                m.setId(rs.getInt(1));
+                m.setId(id);
+                terbitkan(new Peristiwa.MemberTerdaftar(m));
                 return m;
+            } catch (SQLException e) {
+                Metrik.gagal(e);
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
+            return null;
         }
-        return null;
     }
 
     // Overload method untuk backward compatibility (tanpa email/telepon)
 
 
 
+    // Member + buku pinjamannya (di MySQL satu query LEFT JOIN), dipilih lewat nama_normal.
+    // Nama bisa dobel: yang diambil member dengan ID terkecil.
     public Member getAnggota(String nama) {
-        String sql = "SELECT * FROM member WHERE LOWER(nama) = ? LIMIT 1";
-
-        try (Connection conn = Database.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setString(1, nama.toLowerCase());
-            ResultSet rs = stmt.executeQuery();
-
-            if (rs.next()) {
-                Member m = new Member(
-                        rs.getString("nama"),
-                        rs.getString("email"),
-                        rs.getString("no_telepon"),
-                        rs.getInt("batas_pinjam")
-                );
-                m.setId(rs.getInt("id"));
-                m.setDaftarDipinjam(getBukuDipinjam(nama));
-                return m;
+        try (Metrik.Operasi op = Metrik.mulai("getAnggota")) {
+            String kunci = KunciNormal.teks(nama);
+            return cacheAnggota.lewatNama(kunci, () -> muatMember(() -> penyimpanan.muatMemberByNama(kunci)));
+        }
+    }
+
+    // Lewat primary key
+    public Member getAnggotaById(int id) {
+        try (Metrik.Operasi op = Metrik.mulai("getAnggotaById")) {
+            return cacheAnggota.lewatId(id, () -> muatMember(() -> penyimpanan.muatMemberById(id)));
+        }
+    }
+
+    public CacheAnggota getCacheAnggota() { return cacheAnggota; }
+
+    private interface PemuatMember {
+        Member muat() throws SQLException;
+    }
+
+    private Member muatMember(PemuatMember pemuat) {
+        try {
+            Member m = pemuat.muat();
+            if (m == null) return null;
+            // Pakai objek dari katalog jika ada, supaya status selalu sama dengan tabel buku
+            List<Buku> pinjaman = new ArrayList<>();
+            for (Buku b : m.getDaftarDipinjam()) {
+                Buku diKatalog = katalog.get(b.getId());
+                pinjaman.add(diKatalog != null ? diKatalog : b);
             }
+            m.setDaftarDipinjam(pinjaman);
+            return m;
         } catch (SQLException e) {
-            e.printStackTrace();
+            Metrik.gagal(e);
         }
         return null;
     }
 
+    /* ---------- Sesi member (member yang sedang login) ---------- */
+
+    // Pinjaman member di sini disimpan sebagai ID buku dan diperbarui di tempat oleh
+    // pinjamBuku/kembalikanBuku, sehingga panel member cukup membaca memori (lihat getBukuDipinjam(Member))
+    private final Map<Integer, Member> sesi = new ConcurrentHashMap<>();
+
+    public Member mulaiSesi(Member m) {
+        if (m != null) sesi.put(m.getId(), m);
+        return m;
+    }
+
+    public void akhiriSesi(Member m) {
+        if (m != null) sesi.remove(m.getId(), m);
+    }
+
+    // Pinjaman yang disimpan di memori (sesi & cache) ikut diubah setelah commit.
+    // Muat member yang sedang berjalan membawa pinjaman lama: ditandai dulu supaya tidak masuk cache
+    private void perbaruiPinjamanLokal(int memberId, Consumer<Member> ubah) {
+        cacheAnggota.pinjamanBerubah(memberId);
+        Member s = sesi.get(memberId);
+        Member c = cacheAnggota.intip(memberId);
+        if (s != null) ubah.accept(s);
+        if (c != null && c != s) ubah.accept(c);
+    }
 
+    private Member cariSesi(String nama) {
+        String kunci = KunciNormal.teks(nama);
+        for (Member m : sesi.values()) {
+            if (KunciNormal.teks(m.getNama()).equals(kunci)) return m;
+        }
+        return null;
+    }
+
+    // Buku pinjaman member dari ID yang tersimpan, dibaca dari cache katalog (tanpa query)
+    public List<Buku> getBukuDipinjam(Member m) {
+        try (Metrik.Operasi op = Metrik.mulai("getBukuDipinjam(sesi)")) {
+            katalog.pastikanDimuat();
+            List<Buku> list = new ArrayList<>();
+            for (int id : m.getIdDipinjam()) {
+                Buku b = katalog.get(id);
+                if (b != null) list.add(b);
+            }
+            return list;
+        }
+    }
 
     // Method baru: Cari member berdasarkan nama (bisa ada duplikat, return yang pertama)
     public Member getAnggotaByNama(String nama) {
-        return getAnggota(nama);
+        try (Metrik.Operasi op = Metrik.mulai("getAnggotaByNama")) {
+            return getAnggota(nama);
+        }
     }
 
     // Method baru: Cari member berdasarkan email (UNIK)
     public Member getAnggotaByEmail(String email) {
-        String sql = "SELECT * FROM member WHERE email = ?";
-
-        try (Connection conn = Database.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setString(1, email);
-            ResultSet rs = stmt.executeQuery();
-
-            if (rs.next()) {
-                Member m = new Member(
-                        rs.getString("nama"),
-                        rs.getString("email"),
-                        rs.getString("no_telepon"),
-                        rs.getInt("batas_pinjam")
-                );
-                m.setId(rs.getInt("id"));
-                m.setDaftarDipinjam(getBukuDipinjam(rs.getString("nama")));
-                return m;
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
+        try (Metrik.Operasi op = Metrik.mulai("getAnggotaByEmail")) {
+            String kunci = KunciNormal.email(email);
+            return cacheAnggota.lewatEmail(kunci, () -> muatMember(() -> penyimpanan.muatMemberByEmail(kunci)));
         }
-        return null;
     }
 
 
     // Method baru: Cek apakah email sudah terdaftar
+    // Bloom filter dulu (tanpa DB), lalu lookup ke unique index email_normal
     private boolean cekEmailSudahAda(String email) {
-        String sql = "SELECT COUNT(*) FROM member WHERE email = ?";
-        try (Connection conn = Database.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setString(1, email);
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) return rs.getInt(1) > 0;
+        String kunci = KunciNormal.email(email);
+        if (cacheAnggota.adaEmail(kunci)) return true;
+        pastikanBloomEmail();
+        if (!bloomEmail.mungkinAda(kunci)) return false;
+
+        try {
+            if (penyimpanan.adaEmail(kunci)) return true;
+            bloomEmail.catatPositifPalsu();
         } catch (SQLException e) {
-            e.printStackTrace();
+            Metrik.gagal(e);
         }
         return false;
     }
 
-    public void tampilkanSemuaAnggota() {
-        String sql = "SELECT * FROM member";
-
-        try (Connection conn = Database.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-
-            System.out.println("\n=== DAFTAR MEMBER ===");
-            int i = 1;
-            while (rs.next()) {
-                int id = rs.getInt("id");
-                String nama = rs.getString("nama");
-                int batas = rs.getInt("batas_pinjam");
-
-                // Hitung jumlah pinjaman real-time
-                int pinjamanAktif = countPinjaman(id, conn);
-
-                System.out.printf("%2d) %s — Batas: %d — Sedang Pinjam: %d buku%n",
-                        i++, nama, batas, pinjamanAktif);
+    // Bloom filter email diisi sekali dari seluruh member (hanya kolom email_normal)
+    private void pastikanBloomEmail() {
+        if (bloomEmail.isSiap()) return;
+        synchronized (bloomEmail) {
+            if (bloomEmail.isSiap()) return;
+            try {
+                bloomEmail.isiUlang(penyimpanan.semuaEmail());
+            } catch (SQLException e) {
+                Metrik.gagal(e); // Filter tetap belum siap -> semua cek lewat DB
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
         }
     }
 
-    // Helper untuk menghitung jumlah buku yang sedang dipinjam member
-    private int countPinjaman(int memberId, Connection conn) throws SQLException {
-        String sql = "SELECT COUNT(*) FROM buku WHERE peminjam_id = ?";
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setInt(1, memberId);
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) return rs.getInt(1);
+    public void tampilkanSemuaAnggota() {
+        try (Metrik.Operasi op = Metrik.mulai("tampilkanSemuaAnggota")) {
+            try {
+                System.out.println("\n=== DAFTAR MEMBER ===");
+                int i = 1;
+                for (Object[] baris : penyimpanan.halamanMember(null, 0, Integer.MAX_VALUE)) {
+                    System.out.printf("%2d) %s — Batas: %d — Sedang Pinjam: %d buku%n",
+                            i++, baris[1], baris[2], baris[3]);
+                }
+            } catch (SQLException e) {
+                Metrik.gagal(e);
+            }
         }
-        return 0;
     }
 
     /* ==========================================================
@@ -333,179 +673,428 @@ public class Perpustakaan {
        ========================================================== */
 
     // Transaksi Peminjaman + Catat Log
-    public String pinjamBuku(String namaMember, Buku bukuDipilih) {
-        Member m = getAnggota(namaMember);
-        if (m == null) return "Member belum terdaftar.";
-
-        // Validasi: Cek apakah buku sudah dipinjam orang lain (langsung ke DB)
-        if (cekStatusPinjam(bukuDipilih.getId())) return "Buku sedang dipinjam orang lain.";
-
-        // Validasi: Cek kuota member
-        if (m.getDaftarDipinjam().size() >= m.getBatasPinjam()) return "Gagal: batas maksimum pinjaman tercapai.";
-
-        // Update Database: Set buku jadi dipinjam oleh member ID ini
-        String sql = "UPDATE buku SET is_dipinjam = 1, peminjam_id = ? WHERE id = ?";
-        try (Connection conn = Database.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setInt(1, m.getId());
-            stmt.setInt(2, bukuDipilih.getId());
-            stmt.executeUpdate();
+    // Cek kuota, tandai buku dipinjam (hanya jika belum) dan catat log terjadi atomik di penyimpanan,
+    // tanpa kunci baris: compare-and-set pada versi buku & member, jadi tidak mungkin dipinjam dobel
+    // atau melewati kuota. Yang kalah balapan (KONFLIK) diulang, lihat cobaLagi
+    public HasilTransaksi pinjamBuku(String namaMember, Buku bukuDipilih) {
+        try (Metrik.Operasi op = Metrik.mulai("pinjamBuku")) {
+            // Nama -> ID dari cache member
+            Member anggota = getAnggota(namaMember);
+            if (anggota == null) {
+                return HasilTransaksi.gagal(HasilTransaksi.Status.MEMBER_TIDAK_DITEMUKAN, "Member belum terdaftar.");
+            }
+            int memberId = anggota.getId();
+
+            Penyimpanan.Sirkulasi hasil;
+            try {
+                // LOG: Catat peminjaman (ikut transaksi)
+                CatatanLog log = CatatanLog.baru("PINJAM", bukuDipilih.getJudul(), namaMember, "Member meminjam buku");
+                int percobaan = 0;
+                do {
+                    hasil = penyimpanan.pinjam(memberId, bukuDipilih.getId(), log);
+                } while (hasil.status() == HasilTransaksi.Status.KONFLIK && cobaLagi(percobaan++));
+            } catch (SQLException e) {
+                Metrik.gagal(e);
+                return HasilTransaksi.gagal(HasilTransaksi.Status.ERROR, "Error database: " + e.getMessage());
+            }
 
-            // LOG: Catat peminjaman
-            catatLog("PINJAM", bukuDipilih.getJudul(), namaMember, "Member meminjam buku");
+            switch (hasil.status()) {
+                case MEMBER_TIDAK_DITEMUKAN:
+                    cacheAnggota.hapus(memberId); // Sudah dihapus dari DB
+                    return HasilTransaksi.gagal(hasil.status(), "Member belum terdaftar.");
+                case BUKU_TIDAK_DITEMUKAN:
+                    return HasilTransaksi.gagal(hasil.status(), "Buku tidak ditemukan.");
+                case KUOTA_PENUH:
+                    return HasilTransaksi.gagal(hasil.status(), "Gagal: batas maksimum pinjaman tercapai.");
+                case SEDANG_DIPINJAM:
+                    return HasilTransaksi.gagal(hasil.status(), "Buku sedang dipinjam orang lain (bisa direservasi).");
+                case DITAHAN:
+                    return HasilTransaksi.gagal(hasil.status(), "Buku sedang disiapkan untuk member lain (bisa direservasi).");
+                case KONFLIK:
+                    return HasilTransaksi.gagal(hasil.status(), "Buku sedang diproses transaksi lain, silakan coba lagi.");
+                default:
+                    break;
+            }
 
-            return "Berhasil meminjam: " + bukuDipilih.getJudul();
-        } catch (SQLException e) {
-            e.printStackTrace();
-            return "Error database: " + e.getMessage();
+            // Urutan thread tidak penting: status dengan versi lebih lama diabaikan (lihat Buku.terapkanStatus)
+            bukuDipilih.terapkanStatus(true, hasil.versi());
+            katalog.terapkanStatus(bukuDipilih.getId(), true, hasil.versi());
+            perbaruiPinjamanLokal(memberId, m -> m.tambahPinjamanLokal(bukuDipilih));
+            terbitkan(new Peristiwa.BukuDipinjam(bukuDipilih, memberId, namaMember, hasil.versi()));
+            terbitkan(new Peristiwa.LogDitambah(1));
+            return HasilTransaksi.berhasil("Berhasil meminjam: " + bukuDipilih.getJudul(), bukuDipilih);
         }
     }
 
     // Transaksi Pengembalian + Catat Log
     public String kembalikanBuku(String namaMember, String judulKeyword) {
-        Member m = getAnggota(namaMember);
-        if (m == null) return "Member tidak ditemukan.";
+        String kunci = judulKeyword.toLowerCase();
+        return kembalikan(namaMember, b -> b.getJudul().toLowerCase().contains(kunci), -1).getPesan();
+    }
+
+    // Lewat ID buku (API HTTP): tidak ambigu seperti potongan judul
+    public HasilTransaksi kembalikanBukuById(String namaMember, int idBuku) {
+        return kembalikan(namaMember, b -> b.getId() == idBuku, -1);
+    }
+
+    // Hanya jika pinjaman yang dimaksud masih versi ini (versi dari saat klien melihatnya). Permintaan yang
+    // terlambat/terulang setelah buku dikembalikan lalu dipinjam lagi mendapat KONFLIK, tidak diulang
+    public HasilTransaksi kembalikanBukuById(String namaMember, int idBuku, int versi) {
+        return kembalikan(namaMember, b -> b.getId() == idBuku, versi);
+    }
 
-        // Cari buku target di daftar pinjaman member
-        Buku target = null;
-        for (Buku b : m.getDaftarDipinjam()) {
-            if (b.getJudul().toLowerCase().contains(judulKeyword.toLowerCase())) {
-                target = b;
-                break;
+    // versiDiminta < 0: pakai versi yang diketahui lokal; jika basi (instance lain, snapshot lama) dan DB
+    // masih mencatat buku dipinjam member ini, diulang dengan versi dari DB
+    private HasilTransaksi kembalikan(String namaMember, Predicate<Buku> pilih, int versiDiminta) {
+        try (Metrik.Operasi op = Metrik.mulai("kembalikanBuku")) {
+            // Member yang login sudah ada di sesi; selain itu dimuat (satu query)
+            Member m = cariSesi(namaMember);
+            if (m == null) m = getAnggota(namaMember);
+            if (m == null) return HasilTransaksi.gagal(HasilTransaksi.Status.MEMBER_TIDAK_DITEMUKAN, "Member tidak ditemukan.");
+
+            // Cari buku target di daftar pinjaman member
+            Buku target = null;
+            for (Buku b : getBukuDipinjam(m)) {
+                if (pilih.test(b)) {
+                    target = b;
+                    break;
+                }
             }
-        }
 
-        if (target == null) return "Anda tidak sedang meminjam buku dengan judul tersebut.";
+            if (target == null) {
+                return HasilTransaksi.gagal(HasilTransaksi.Status.TIDAK_DIPINJAM,
+                        "Anda tidak sedang meminjam buku tersebut.");
+            }
 
-        // Update Database: Set peminjam jadi NULL (kosong)
-        String sql = "UPDATE buku SET is_dipinjam = 0, peminjam_id = NULL WHERE id = ?";
-        try (Connection conn = Database.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            // Peminjam dikosongkan, hanya jika masih dipinjam member ini dengan versi yang sama
+            int idBuku = target.getId();
+            Penyimpanan.Sirkulasi hasil;
+            Timestamp batasAmbil = penjadwalReservasi.batasAmbil();
+            try {
+                int versi = versiDiminta >= 0 ? versiDiminta : target.getVersi();
+                int percobaan = 0;
+                while (true) {
+                    hasil = penyimpanan.kembalikan(idBuku, m.getId(), versi, batasAmbil);
+                    if (hasil.status() != HasilTransaksi.Status.KONFLIK) break;
+                    if (versiDiminta >= 0) {
+                        Metrik.catatKonflik(true);
+                        break;
+                    }
+                    if (!cobaLagi(percobaan++)) break;
+                    versi = hasil.versi();
+                }
+            } catch (SQLException e) {
+                Metrik.gagal(e);
+                return HasilTransaksi.gagal(HasilTransaksi.Status.ERROR, "Error database.");
+            }
 
-            stmt.setInt(1, target.getId());
-            stmt.executeUpdate();
+            if (hasil.status() == HasilTransaksi.Status.KONFLIK) {
+                return HasilTransaksi.gagal(hasil.status(),
+                        "Data pinjaman sudah berubah (versi " + hasil.versi() + "), muat ulang lalu coba lagi.");
+            }
+            m.hapusPinjamanLokal(idBuku);
+            perbaruiPinjamanLokal(m.getId(), x -> x.hapusPinjamanLokal(idBuku));
+            if (hasil.status() != HasilTransaksi.Status.BERHASIL) {
+                return HasilTransaksi.gagal(HasilTransaksi.Status.TIDAK_DIPINJAM,
+                        "Buku tersebut sudah tidak tercatat dipinjam oleh Anda.");
+            }
+            katalog.terapkanStatus(idBuku, false, hasil.versi());
+            Buku diKatalog = katalog.get(idBuku);
+            terbitkan(new Peristiwa.BukuDikembalikan(diKatalog != null ? diKatalog : target, m.getId(), namaMember, hasil.versi()));
 
             // LOG: Catat pengembalian
             catatLog("KEMBALI", target.getJudul(), namaMember, "Buku dikembalikan");
+            if (hasil.diserahkanKe() != 0) bukuDisiapkan(diKatalog != null ? diKatalog : target, hasil.diserahkanKe(), batasAmbil);
 
-            return "Buku dikembalikan: " + target.getJudul();
-        } catch (SQLException e) {
-            e.printStackTrace();
-            return "Error database.";
+            return HasilTransaksi.berhasil("Buku dikembalikan: " + target.getJudul(), diKatalog != null ? diKatalog : target);
         }
     }
 
-    // Melihat buku yang dipinjam oleh member TERTENTU
-    public List<Buku> getBukuDipinjam(String namaMember) {
-        List<Buku> list = new ArrayList<>();
-        // Join tabel buku & member
-        String sql = "SELECT b.* FROM buku b JOIN member m ON b.peminjam_id = m.id WHERE LOWER(m.nama) = ?";
+    // Setelah KONFLIK: true = ulangi (setelah jeda acak, supaya yang berebut tidak bertabrakan lagi),
+    // false = percobaan habis. Keduanya dihitung di Metrik (konflik / menyerah)
+    private boolean cobaLagi(int percobaan) {
+        if (percobaan >= maksUlangKonflik) {
+            Metrik.catatKonflik(true);
+            return false;
+        }
+        Metrik.catatKonflik(false);
+        long jedaNanos = ThreadLocalRandom.current().nextLong(Math.max(1, jedaUlangMs * 1_000_000L << percobaan));
+        LockSupport.parkNanos(jedaNanos);
+        return true;
+    }
 
-        try (Connection conn = Database.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+    /* ---------- Reservasi (antrean per buku) ---------- */
 
-            stmt.setString(1, namaMember.toLowerCase());
-            ResultSet rs = stmt.executeQuery();
+    // Antre buku yang sedang dipinjam / disiapkan untuk orang lain. Saat buku kembali, kepala antrean
+    // langsung mendapat tahanan selama hold.pickupHours jam (di transaksi pengembalian itu sendiri)
+    public HasilTransaksi reservasiBuku(String namaMember, Buku buku) {
+        return reservasiBuku(namaMember, buku, 0);
+    }
 
-            while (rs.next()) {
-                list.add(mapResultSetToBuku(rs));
+    // prioritas lebih besar dilayani lebih dulu (mis. dosen/staf); sama besar -> siapa cepat dia dapat
+    public HasilTransaksi reservasiBuku(String namaMember, Buku buku, int prioritas) {
+        try (Metrik.Operasi op = Metrik.mulai("reservasiBuku")) {
+            Member anggota = getAnggota(namaMember);
+            if (anggota == null) {
+                return HasilTransaksi.gagal(HasilTransaksi.Status.MEMBER_TIDAK_DITEMUKAN, "Member belum terdaftar.");
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
+
+            Penyimpanan.Sirkulasi hasil;
+            try {
+                CatatanLog log = CatatanLog.baru("RESERVASI", buku.getJudul(), namaMember,
+                        prioritas != 0 ? "Member mengantre buku (prioritas " + prioritas + ")" : "Member mengantre buku");
+                hasil = penyimpanan.reservasi(anggota.getId(), buku.getId(), prioritas, maksReservasiPerMember, log);
+            } catch (SQLException e) {
+                Metrik.gagal(e);
+                return HasilTransaksi.gagal(HasilTransaksi.Status.ERROR, "Error database: " + e.getMessage());
+            }
+
+            switch (hasil.status()) {
+                case MEMBER_TIDAK_DITEMUKAN:
+                    cacheAnggota.hapus(anggota.getId());
+                    return HasilTransaksi.gagal(hasil.status(), "Member belum terdaftar.");
+                case BUKU_TIDAK_DITEMUKAN:
+                    return HasilTransaksi.gagal(hasil.status(), "Buku tidak ditemukan.");
+                case TERSEDIA:
+                    return HasilTransaksi.gagal(hasil.status(), "Buku tersedia, langsung pinjam saja.");
+                case SUDAH_ANTRE:
+                    return HasilTransaksi.gagal(hasil.status(), "Anda sudah mengantre, sedang meminjam, atau buku sudah disiapkan untuk Anda.");
+                case KUOTA_PENUH:
+                    return HasilTransaksi.gagal(hasil.status(), "Gagal: batas reservasi aktif (" + maksReservasiPerMember + ") tercapai.");
+                default:
+                    break;
+            }
+            terbitkan(new Peristiwa.LogDitambah(1));
+            return HasilTransaksi.berhasil("Masuk antrean: " + buku.getJudul(), buku);
         }
-        return list;
     }
 
-    // Fitur Baru: Melihat SEMUA buku yang sedang dipinjam (Global View)
-    public void tampilkanSemuaBukuDipinjam() {
-        String sql = "SELECT b.judul, b.pengarang, m.nama FROM buku b " +
-                "JOIN member m ON b.peminjam_id = m.id " +
-                "WHERE b.is_dipinjam = 1";
+    // Keluar dari antrean; tahanan yang sudah disiapkan dilepas ke antrean berikutnya
+    public HasilTransaksi batalkanReservasi(String namaMember, int idBuku) {
+        try (Metrik.Operasi op = Metrik.mulai("batalkanReservasi")) {
+            Member anggota = getAnggota(namaMember);
+            if (anggota == null) {
+                return HasilTransaksi.gagal(HasilTransaksi.Status.MEMBER_TIDAK_DITEMUKAN, "Member belum terdaftar.");
+            }
+            Buku buku = getBukuById(idBuku);
+
+            Penyimpanan.Sirkulasi hasil;
+            Timestamp batasAmbil = penjadwalReservasi.batasAmbil();
+            try {
+                hasil = penyimpanan.batalkanReservasi(anggota.getId(), idBuku, batasAmbil);
+            } catch (SQLException e) {
+                Metrik.gagal(e);
+                return HasilTransaksi.gagal(HasilTransaksi.Status.ERROR, "Error database: " + e.getMessage());
+            }
+            if (hasil.status() != HasilTransaksi.Status.BERHASIL) {
+                return HasilTransaksi.gagal(HasilTransaksi.Status.TIDAK_DIPINJAM, "Tidak ada reservasi Anda untuk buku ini.");
+            }
 
-        try (Connection conn = Database.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+            String judul = buku != null ? buku.getJudul() : "#" + idBuku;
+            catatLog("BATAL_RESERVASI", judul, namaMember, "Member keluar dari antrean");
+            if (hasil.diserahkanKe() != 0 && buku != null) bukuDisiapkan(buku, hasil.diserahkanKe(), batasAmbil);
+            return HasilTransaksi.berhasil("Reservasi dibatalkan: " + judul, buku);
+        }
+    }
 
-            System.out.println("\n=== STATUS SIRKULASI (GLOBAL) ===");
-            if (!rs.isBeforeFirst()) {
-                System.out.println("(Tidak ada buku yang sedang dipinjam saat ini)");
-                return;
+    // Baris: {id buku, judul, posisi (0 = siap diambil), siap diambil sampai atau null}
+    public List<Object[]> getReservasi(Member m) {
+        try (Metrik.Operasi op = Metrik.mulai("getReservasi")) {
+            try {
+                return penyimpanan.reservasiMember(m.getId());
+            } catch (SQLException e) {
+                Metrik.gagal(e);
+                return new ArrayList<>();
             }
+        }
+    }
 
-            System.out.printf("%-30s %-20s %-15s%n", "Judul Buku", "Pengarang", "Peminjam");
-            System.out.println("------------------------------------------------------------------");
-            while (rs.next()) {
-                System.out.printf("%-30s %-20s %-15s%n",
-                        rs.getString("judul"),
-                        rs.getString("pengarang"),
-                        rs.getString("nama"));
+    // Buku kini ditahan untuk member ini (dari pengembalian, pembatalan, atau tahanan yang kedaluwarsa)
+    private void bukuDisiapkan(Buku buku, int memberId, Timestamp sampai) {
+        Member m = getAnggotaById(memberId);
+        catatLog("SIAP_DIAMBIL", buku.getJudul(), m != null ? m.getNama() : "#" + memberId,
+                "Buku disiapkan dari antrean, ambil dalam " + penjadwalReservasi.getJamAmbil() + " jam");
+        terbitkan(new Peristiwa.BukuDisiapkan(buku, memberId, sampai));
+    }
+
+    // Dari thread tugas-berkala (batas ambil tahanan barunya dibuat di putaran yang sama)
+    private void tahananDilepas(List<Penyimpanan.SerahTahanan> daftar) {
+        Timestamp sampai = penjadwalReservasi.batasAmbil();
+        for (Penyimpanan.SerahTahanan s : daftar) {
+            Buku buku = getBukuById(s.bukuId());
+            if (buku == null) continue;
+            Member lama = getAnggotaById(s.memberLama());
+            catatLog("TAHANAN_KEDALUWARSA", buku.getJudul(), lama != null ? lama.getNama() : "#" + s.memberLama(),
+                    "Tidak diambil sampai batas waktu");
+            if (s.memberBaru() != 0) bukuDisiapkan(buku, s.memberBaru(), sampai);
+        }
+    }
+
+    // Melihat buku yang dipinjam oleh member TERTENTU
+    public List<Buku> getBukuDipinjam(String namaMember) {
+        try (Metrik.Operasi op = Metrik.mulai("getBukuDipinjam")) {
+            try {
+                return penyimpanan.bukuDipinjam(KunciNormal.teks(namaMember));
+            } catch (SQLException e) {
+                Metrik.gagal(e);
+                return new ArrayList<>();
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
         }
     }
 
-    // Helper: Cek status buku langsung dari DB (Real-time)
-    private boolean cekStatusPinjam(int bukuId) {
-        String sql = "SELECT is_dipinjam FROM buku WHERE id = ?";
-        try (Connection conn = Database.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setInt(1, bukuId);
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) return rs.getBoolean("is_dipinjam");
-        } catch (SQLException e) { e.printStackTrace(); }
-        return false;
+    // Fitur Baru: Melihat SEMUA buku yang sedang dipinjam (Global View)
+    public void tampilkanSemuaBukuDipinjam() {
+        try (Metrik.Operasi op = Metrik.mulai("tampilkanSemuaBukuDipinjam")) {
+            try {
+                List<Object[]> daftar = penyimpanan.halamanPinjaman(null, 0, Integer.MAX_VALUE);
+
+                System.out.println("\n=== STATUS SIRKULASI (GLOBAL) ===");
+                if (daftar.isEmpty()) {
+                    System.out.println("(Tidak ada buku yang sedang dipinjam saat ini)");
+                    return;
+                }
+
+                System.out.printf("%-30s %-20s %-15s%n", "Judul Buku", "Pengarang", "Peminjam");
+                System.out.println("------------------------------------------------------------------");
+                for (Object[] baris : daftar) {
+                    System.out.printf("%-30s %-20s %-15s%n", baris[0], baris[1], baris[2]);
+                }
+            } catch (SQLException e) {
+                Metrik.gagal(e);
+            }
+        }
     }
+
     public Object[][] getLogData() {
-        List<Object[]> data = new ArrayList<>();
-        String sql = "SELECT * FROM perpustakaan ORDER BY tanggal DESC LIMIT 100";
-        try (Connection conn = Database.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-            while (rs.next()) {
-                data.add(new Object[]{
-                        rs.getString("tanggal"),
-                        rs.getString("aksi"),
-                        rs.getString("nama_member"),
-                        rs.getString("judul_buku") + " (" + rs.getString("keterangan") + ")"
-                });
-            }
-        } catch (SQLException e) { e.printStackTrace(); }
-        return data.toArray(new Object[0][]);
+        try (Metrik.Operasi op = Metrik.mulai("getLogData")) {
+            List<Object[]> data = new ArrayList<>();
+            try {
+                for (CatatanLog c : penyimpanan.halamanLog(null, 0, 100)) {
+                    data.add(new Object[]{ c.getTanggalTeks(), c.aksi(), c.namaMember(), c.judulBuku() + " (" + c.keterangan() + ")" });
+                }
+            } catch (SQLException e) { Metrik.gagal(e); }
+            return data.toArray(new Object[0][]);
+        }
     }
 
     // 2. Ambil data Peminjaman Global untuk JTable
     public Object[][] getGlobalLoanData() {
-        List<Object[]> data = new ArrayList<>();
-        String sql = "SELECT b.judul, b.pengarang, m.nama FROM buku b JOIN member m ON b.peminjam_id = m.id WHERE b.is_dipinjam = 1";
-        try (Connection conn = Database.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-            while (rs.next()) {
-                data.add(new Object[]{ rs.getString("judul"), rs.getString("pengarang"), rs.getString("nama") });
-            }
-        } catch (SQLException e) { e.printStackTrace(); }
-        return data.toArray(new Object[0][]);
+        try (Metrik.Operasi op = Metrik.mulai("getGlobalLoanData")) {
+            List<Object[]> data = new ArrayList<>();
+            try {
+                for (Object[] baris : penyimpanan.halamanPinjaman(null, 0, Integer.MAX_VALUE)) {
+                    data.add(new Object[]{ baris[0], baris[1], baris[2] });
+                }
+            } catch (SQLException e) { Metrik.gagal(e); }
+            return data.toArray(new Object[0][]);
+        }
     }
 
-    // 3. Ambil semua Member untuk JTable
+    // 3. Ambil semua Member untuk JTable (di MySQL satu query agregat, lihat PenyimpananMysql.halamanMember)
     public Object[][] getMemberData() {
-        List<Object[]> data = new ArrayList<>();
-        String sql = "SELECT * FROM member";
-        try (Connection conn = Database.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-            while (rs.next()) {
-                int id = rs.getInt("id");
-                data.add(new Object[]{
-                        rs.getInt("id"),
-                        rs.getString("nama"),
-                        rs.getInt("batas_pinjam"),
-                        countPinjaman(id, conn) + " Buku"
-                });
-            }
-        } catch (SQLException e) { e.printStackTrace(); }
-        return data.toArray(new Object[0][]);
+        try (Metrik.Operasi op = Metrik.mulai("getMemberData")) {
+            return getHalamanMember(null, 0, Integer.MAX_VALUE).toArray(new Object[0][]);
+        }
+    }
+
+    /* ==========================================================
+       BAGIAN 5: DATA PER HALAMAN (untuk ModelTabelHalaman)
+       'sebelum' = baris terakhir halaman sebelumnya -> keyset pagination;
+       null -> OFFSET (hanya saat scrollbar diloncat jauh)
+       ========================================================== */
+
+    public int getJumlahBuku() {
+        try (Metrik.Operasi op = Metrik.mulai("getJumlahBuku")) {
+            return katalog.getJumlah();
+        }
+    }
+
+    public List<Buku> getHalamanBuku(Buku sebelum, int offset, int batas) {
+        try (Metrik.Operasi op = Metrik.mulai("getHalamanBuku")) {
+            return katalog.halaman(sebelum == null ? -1 : sebelum.getId(), offset, batas);
+        }
+    }
+
+    public int getJumlahLog() {
+        try (Metrik.Operasi op = Metrik.mulai("getJumlahLog")) {
+            try {
+                return penyimpanan.jumlahLog();
+            } catch (SQLException e) {
+                Metrik.gagal(e);
+                return 0;
+            }
+        }
+    }
+
+    // Baris: {tanggal, aksi, member, info, [catatan asli]} — elemen terakhir hanya untuk keyset
+    public List<Object[]> getHalamanLog(Object[] sebelum, int offset, int batas) {
+        try (Metrik.Operasi op = Metrik.mulai("getHalamanLog")) {
+            List<Object[]> data = new ArrayList<>();
+            try {
+                for (CatatanLog c : penyimpanan.halamanLog(sebelum == null ? null : (CatatanLog) sebelum[4], offset, batas)) {
+                    data.add(new Object[]{ c.getTanggalTeks(), c.aksi(), c.namaMember(), c.judulBuku() + " (" + c.keterangan() + ")", c });
+                }
+            } catch (SQLException e) { Metrik.gagal(e); }
+            return data;
+        }
+    }
+
+    // Ringkasan log yang sudah diarsipkan, hari [dari, sampai): {tanggal, aksi, judul buku, jumlah}
+    public List<Object[]> getRingkasanLogHarian(LocalDate dari, LocalDate sampai) {
+        try (Metrik.Operasi op = Metrik.mulai("getRingkasanLogHarian")) {
+            try {
+                return penyimpanan.rollupLog(dari, sampai);
+            } catch (SQLException e) {
+                Metrik.gagal(e);
+                return new ArrayList<>();
+            }
+        }
+    }
+
+    public int getJumlahPinjamanGlobal() {
+        try (Metrik.Operasi op = Metrik.mulai("getJumlahPinjamanGlobal")) {
+            try {
+                return penyimpanan.jumlahPinjamanAktif();
+            } catch (SQLException e) {
+                Metrik.gagal(e);
+                return 0;
+            }
+        }
+    }
+
+    // Baris: {judul, pengarang, peminjam, [id buku]}
+    public List<Object[]> getHalamanPinjamanGlobal(Object[] sebelum, int offset, int batas) {
+        try (Metrik.Operasi op = Metrik.mulai("getHalamanPinjamanGlobal")) {
+            try {
+                return penyimpanan.halamanPinjaman(sebelum == null ? null : (Integer) sebelum[3], offset, batas);
+            } catch (SQLException e) {
+                Metrik.gagal(e);
+                return new ArrayList<>();
+            }
+        }
+    }
+
+    public int getJumlahMember() {
+        try (Metrik.Operasi op = Metrik.mulai("getJumlahMember")) {
+            try {
+                return penyimpanan.jumlahMember();
+            } catch (SQLException e) {
+                Metrik.gagal(e);
+                return 0;
+            }
+        }
+    }
+
+    // Baris: {id, nama, batas pinjam, status pinjam}
+    public List<Object[]> getHalamanMember(Object[] sebelum, int offset, int batas) {
+        try (Metrik.Operasi op = Metrik.mulai("getHalamanMember")) {
+            List<Object[]> data = new ArrayList<>();
+            try {
+                for (Object[] baris : penyimpanan.halamanMember(sebelum == null ? null : (Integer) sebelum[0], offset, batas)) {
+                    data.add(new Object[]{ baris[0], baris[1], baris[2], baris[3] + " Buku" });
+                }
+            } catch (SQLException e) { Metrik.gagal(e); }
+            return data;
+        }
     }
 }
@@ -0,0 +1,576 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// API HTTP/JSON tanpa GUI untuk kiosk & katalog web, memakai logika Perpustakaan yang sama.
+// Server bawaan JDK (com.sun.net.httpserver); setiap request dilayani di virtual thread sendiri,
+// jadi ribuan koneksi yang menunggu tidak memakan thread OS. Yang dibatasi adalah pekerjaan:
+// setiap endpoint punya kuota request bersamaan (http.limit.<endpoint>); request yang tidak
+// kebagian dalam http.queueTimeoutMs dijawab 503 + Retry-After, bukan menumpuk di pool koneksi DB.
+//
+// Parameter lewat query string atau body application/x-www-form-urlencoded; hasil JSON
+// (kecuali /api/metrik: teks).
+// Latensi per endpoint tercatat di Metrik sebagai operasi "HTTP <endpoint>".
+//
+// Default hanya mendengarkan di loopback (http.host=127.0.0.1); untuk kiosk di jaringan isi
+// http.host=0.0.0.0 atau alamat kartu jaringannya. Endpoint POST (pinjam, kembali, reservasi)
+// butuh token kiosk (http.token) di header X-Kiosk-Token atau "Authorization: Bearer <token>";
+// tanpa http.token endpoint POST selalu ditolak.
+//
+// Tanpa GUI:  java ServerApi            (port dari http.port, default 8080)
+// Bersama GUI: http.enabled=true di perpustakaan.properties (lihat Main)
+public class ServerApi {
+
+    private static final int MAKS_BODY = 64 * 1024;
+    private static final int MAKS_BATAS = 500;
+
+    // Kuota default per endpoint: pencarian & katalog dilayani dari memori, sisanya butuh koneksi DB
+    private static final Object[][] KUOTA_DEFAULT = {
+            {"cari", 2000}, {"katalog", 2000}, {"buku", 2000},
+            {"member", 200}, {"pinjam", 100}, {"kembali", 100},
+            {"reservasi", 100}, {"reservasi-batal", 100},
+            {"log", 20}, {"log-harian", 10}, {"metrik", 4},
+    };
+
+    private interface Penangan {
+        Jawaban layani(Permintaan p) throws IOException;
+    }
+
+    private record Jawaban(int status, Object isi) { }
+
+    private record Permintaan(String sisaPath, Map<String, String> param) {
+        String teks(String nama) {
+            String v = param.get(nama);
+            if (v == null || v.isBlank()) throw new IllegalArgumentException("parameter '" + nama + "' wajib diisi");
+            return v.trim();
+        }
+
+        String teks(String nama, String def) {
+            String v = param.get(nama);
+            return v == null || v.isBlank() ? def : v.trim();
+        }
+
+        int angka(String nama, int def) {
+            String v = param.get(nama);
+            if (v == null || v.isBlank()) return def;
+            try {
+                return Integer.parseInt(v.trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("parameter '" + nama + "' harus angka");
+            }
+        }
+
+        int batas(int def) {
+            return Math.max(1, Math.min(MAKS_BATAS, angka("batas", def)));
+        }
+    }
+
+    private static final class Endpoint {
+        final String nama;
+        final String metode;
+        final Penangan penangan;
+        final int kuota;
+        final Semaphore izin;
+        final AtomicLong dilayani = new AtomicLong();
+        final AtomicLong ditolak = new AtomicLong();
+
+        Endpoint(String nama, String metode, Penangan penangan) {
+            this.nama = nama;
+            this.metode = metode;
+            this.penangan = penangan;
+            this.kuota = Math.max(1, Database.getIntSetting("http.limit." + nama, kuotaDefault(nama)));
+            this.izin = new Semaphore(kuota);
+        }
+    }
+
+    private final Perpustakaan lib;
+    private final String host;
+    private final int port;
+    private final byte[] token; // null = endpoint POST tidak bisa dipakai
+    private final long tungguIzinMs;
+    private final Map<String, Endpoint> endpoint = new LinkedHashMap<>();
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public ServerApi(Perpustakaan lib, String host, int port, String token, long tungguIzinMs) {
+        this.lib = lib;
+        this.host = host;
+        this.port = port;
+        this.token = token == null || token.isBlank() ? null : token.trim().getBytes(StandardCharsets.UTF_8);
+        this.tungguIzinMs = tungguIzinMs;
+
+        daftar("/api/cari", "cari", "GET", this::cari);
+        daftar("/api/katalog", "katalog", "GET", this::katalog);
+        daftar("/api/buku", "buku", "GET", this::buku);
+        daftar("/api/member", "member", "GET", this::member);
+        daftar("/api/pinjam", "pinjam", "POST", this::pinjam);
+        daftar("/api/kembali", "kembali", "POST", this::kembali);
+        daftar("/api/reservasi", "reservasi", "POST", this::reservasi);
+        daftar("/api/reservasi/batal", "reservasi-batal", "POST", this::batalReservasi);
+        daftar("/api/log", "log", "GET", this::log);
+        daftar("/api/log/harian", "log-harian", "GET", this::logHarian);
+        daftar("/api/metrik", "metrik", "GET", this::metrik);
+    }
+
+    // Dibuat dari konfigurasi (perpustakaan.properties / -Dperpus.http.*)
+    public static ServerApi dariKonfigurasi(Perpustakaan lib) {
+        return new ServerApi(lib,
+                Database.getSetting("http.host", "127.0.0.1"),
+                Database.getIntSetting("http.port", 8080),
+                Database.getSetting("http.token", ""),
+                Database.getIntSetting("http.queueTimeoutMs", 200));
+    }
+
+    private static int kuotaDefault(String nama) {
+        for (Object[] k : KUOTA_DEFAULT) {
+            if (k[0].equals(nama)) return (Integer) k[1];
+        }
+        return 100;
+    }
+
+    private void daftar(String path, String nama, String metode, Penangan penangan) {
+        endpoint.put(path, new Endpoint(nama, metode, penangan));
+    }
+
+    /* ==========================================================
+       BAGIAN 1: SIKLUS SERVER
+       ========================================================== */
+
+    public void mulai() throws IOException {
+        // Bawaan JDK hanya menyimpan 200 koneksi keep-alive yang menganggur; selebihnya ditutup di antara
+        // dua request, jadi ribuan kiosk terus membuka koneksi baru. Dibaca JDK sekali, saat server pertama dibuat.
+        if (System.getProperty("sun.net.httpserver.maxIdleConnections") == null) {
+            System.setProperty("sun.net.httpserver.maxIdleConnections",
+                    String.valueOf(Database.getIntSetting("http.maxIdleConnections", 10_000)));
+        }
+        server = HttpServer.create(new InetSocketAddress(host, port), Database.getIntSetting("http.backlog", 1024));
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext("/api/", this::tangani);
+        server.start();
+        // Berhenti menerima request sebelum log di-flush & pool ditutup
+        Database.tambahTugasShutdownAwal(this::berhenti);
+        System.out.println("API HTTP aktif di " + host + ":" + server.getAddress().getPort()
+                + (token == null ? " (http.token kosong: endpoint POST ditolak)" : ""));
+    }
+
+    // Request yang sedang berjalan diberi waktu maks 2 detik untuk selesai
+    public void berhenti() {
+        if (server == null) return;
+        server.stop(2);
+        executor.shutdown();
+        server = null;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Perpustakaan lib = new Perpustakaan();
+        ServerApi api = dariKonfigurasi(lib);
+        api.mulai();
+        // Katalog & indeks dimuat di depan supaya request pertama tidak menanggungnya
+        lib.getJumlahBuku();
+    }
+
+    /* ==========================================================
+       BAGIAN 2: ROUTING, KUOTA & METRIK
+       ========================================================== */
+
+    @SuppressWarnings("try") // op hanya menutup pengukuran Metrik
+    private void tangani(HttpExchange ex) throws IOException {
+        try (ex) {
+            String path = ex.getRequestURI().getPath();
+            String sisa = "";
+            Endpoint e = endpoint.get(path);
+            if (e == null) {
+                // /api/buku/123 -> endpoint /api/buku, sisa "123"
+                int garis = path.lastIndexOf('/');
+                e = endpoint.get(path.substring(0, garis));
+                sisa = path.substring(garis + 1);
+            }
+            // Hanya /api/buku/<id> yang menerima sisa path
+            if (e == null || (!sisa.isEmpty() && !e.nama.equals("buku"))) {
+                kirim(ex, new Jawaban(404, galat("endpoint tidak dikenal: " + path)));
+                return;
+            }
+            if (!e.metode.equals(ex.getRequestMethod())) {
+                ex.getResponseHeaders().set("Allow", e.metode);
+                kirim(ex, new Jawaban(405, galat("pakai " + e.metode)));
+                return;
+            }
+            if (e.metode.equals("POST") && !tokenCocok(ex)) {
+                ex.getResponseHeaders().set("WWW-Authenticate", "Bearer");
+                kirim(ex, new Jawaban(401, galat(token == null ? "http.token belum diatur di server" : "token kiosk salah atau tidak ada")));
+                return;
+            }
+
+            boolean dapat;
+            try {
+                dapat = e.izin.tryAcquire(tungguIzinMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                dapat = false;
+            }
+            if (!dapat) {
+                e.ditolak.incrementAndGet();
+                ex.getResponseHeaders().set("Retry-After", "1");
+                kirim(ex, new Jawaban(503, galat("server sibuk (" + e.nama + ")")));
+                return;
+            }
+
+            Jawaban jawaban;
+            try (Metrik.Operasi op = Metrik.mulai("HTTP " + e.nama)) {
+                try {
+                    jawaban = e.penangan.layani(new Permintaan(sisa, bacaParameter(ex)));
+                    if (jawaban.status() >= 500) Metrik.tandaiGagal();
+                } catch (IllegalArgumentException iae) {
+                    jawaban = new Jawaban(400, galat(iae.getMessage()));
+                } catch (RuntimeException re) {
+                    Metrik.gagal(re);
+                    jawaban = new Jawaban(500, galat("kesalahan server"));
+                }
+            } finally {
+                e.izin.release();
+            }
+            e.dilayani.incrementAndGet();
+            kirim(ex, jawaban);
+        }
+    }
+
+    // X-Kiosk-Token: <token> atau Authorization: Bearer <token>; dibandingkan dalam waktu konstan
+    private boolean tokenCocok(HttpExchange ex) {
+        if (token == null) return false;
+        String dikirim = ex.getRequestHeaders().getFirst("X-Kiosk-Token");
+        if (dikirim == null) {
+            String auth = ex.getRequestHeaders().getFirst("Authorization");
+            if (auth != null && auth.regionMatches(true, 0, "Bearer ", 0, 7)) dikirim = auth.substring(7);
+        }
+        return dikirim != null && MessageDigest.isEqual(token, dikirim.trim().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Map<String, String> bacaParameter(HttpExchange ex) throws IOException {
+        Map<String, String> param = new HashMap<>();
+        uraikan(ex.getRequestURI().getRawQuery(), param);
+        String tipe = ex.getRequestHeaders().getFirst("Content-Type");
+        if (tipe != null && tipe.startsWith("application/x-www-form-urlencoded")) {
+            try (InputStream in = ex.getRequestBody()) {
+                byte[] body = in.readNBytes(MAKS_BODY + 1);
+                if (body.length > MAKS_BODY) throw new IllegalArgumentException("body terlalu besar");
+                uraikan(new String(body, StandardCharsets.UTF_8), param);
+            }
+        }
+        return param;
+    }
+
+    private static void uraikan(String teks, Map<String, String> param) {
+        if (teks == null || teks.isEmpty()) return;
+        for (String pasangan : teks.split("&")) {
+            int sama = pasangan.indexOf('=');
+            String k = sama < 0 ? pasangan : pasangan.substring(0, sama);
+            String v = sama < 0 ? "" : pasangan.substring(sama + 1);
+            param.put(URLDecoder.decode(k, StandardCharsets.UTF_8), URLDecoder.decode(v, StandardCharsets.UTF_8));
+        }
+    }
+
+    private static void kirim(HttpExchange ex, Jawaban j) throws IOException {
+        byte[] isi = (j.isi() instanceof String teks ? teks : Json.tulis(j.isi())).getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().set("Content-Type", j.isi() instanceof String
+                ? "text/plain; charset=utf-8" : "application/json; charset=utf-8");
+        ex.sendResponseHeaders(j.status(), isi.length);
+        try (OutputStream out = ex.getResponseBody()) {
+            out.write(isi);
+        }
+    }
+
+    private static Map<String, Object> galat(String pesan) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("error", pesan);
+        return m;
+    }
+
+    /* ==========================================================
+       BAGIAN 3: ENDPOINT
+       ========================================================== */
+
+    // GET /api/cari?q=...&judul=true&batas=50
+    // Hanya 'batas' teratas yang dibentuk; untuk query yang cocok dengan sangat banyak buku jumlah diperkirakan
+    private Jawaban cari(Permintaan p) {
+        IndeksPencarian.Hasil h = lib.cariBukuTeratas(p.teks("q"), "true".equalsIgnoreCase(p.teks("judul", "false")), p.batas(50));
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("jumlah", h.jumlah());
+        m.put("jumlahPerkiraan", h.perkiraan());
+        m.put("buku", daftarBuku(h.buku()));
+        return new Jawaban(200, m);
+    }
+
+    // GET /api/katalog?setelah=<id terakhir halaman sebelumnya>&batas=100 (keyset, urut ID)
+    private Jawaban katalog(Permintaan p) {
+        int setelah = p.angka("setelah", 0);
+        Buku sebelum = null;
+        if (setelah > 0) {
+            sebelum = lib.getBukuById(setelah);
+            if (sebelum == null) return new Jawaban(400, galat("buku " + setelah + " tidak ada"));
+        }
+        List<Buku> halaman = lib.getHalamanBuku(sebelum, 0, p.batas(100));
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("total", lib.getJumlahBuku());
+        m.put("buku", daftarBuku(halaman));
+        m.put("setelah", halaman.isEmpty() ? null : halaman.get(halaman.size() - 1).getId());
+        return new Jawaban(200, m);
+    }
+
+    // GET /api/buku/<id>
+    private Jawaban buku(Permintaan p) {
+        int id;
+        try {
+            id = Integer.parseInt(p.sisaPath());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("pakai /api/buku/<id>");
+        }
+        Buku b = lib.getBukuById(id);
+        return b == null ? new Jawaban(404, galat("buku " + id + " tidak ada")) : new Jawaban(200, jsonBuku(b));
+    }
+
+    // GET /api/member?id=.. | nama=.. | email=..
+    private Jawaban member(Permintaan p) {
+        Member m = cariMember(p);
+        if (m == null) return new Jawaban(404, galat("member tidak ditemukan"));
+        Map<String, Object> j = new LinkedHashMap<>();
+        j.put("id", m.getId());
+        j.put("nama", m.getNama());
+        j.put("batasPinjam", m.getBatasPinjam());
+        j.put("pinjaman", daftarBuku(lib.getBukuDipinjam(m)));
+        List<Object> reservasi = new ArrayList<>();
+        for (Object[] baris : lib.getReservasi(m)) {
+            Map<String, Object> r = new LinkedHashMap<>();
+            r.put("buku", baris[0]);
+            r.put("judul", baris[1]);
+            r.put("posisi", baris[2]);
+            r.put("siapSampai", baris[3] == null ? null : ((Timestamp) baris[3]).toLocalDateTime().withNano(0).toString());
+            reservasi.add(r);
+        }
+        j.put("reservasi", reservasi);
+        return new Jawaban(200, j);
+    }
+
+    private Member cariMember(Permintaan p) {
+        int id = p.angka("id", 0);
+        if (id > 0) return lib.getAnggotaById(id);
+        String email = p.teks("email", null);
+        if (email != null) return lib.getAnggotaByEmail(email);
+        return lib.getAnggota(p.teks("nama"));
+    }
+
+    // POST /api/pinjam  member=<nama>&buku=<id>
+    private Jawaban pinjam(Permintaan p) {
+        String nama = p.teks("member");
+        int id = p.angka("buku", 0);
+        Buku b = lib.getBukuById(id);
+        if (b == null) {
+            return jawabanTransaksi(HasilTransaksi.gagal(HasilTransaksi.Status.BUKU_TIDAK_DITEMUKAN, "Buku " + id + " tidak ada."));
+        }
+        return jawabanTransaksi(lib.pinjamBuku(nama, b));
+    }
+
+    // POST /api/kembali  member=<nama>&buku=<id>[&versi=<versi buku saat dipinjam>]
+    // Dengan versi, permintaan yang terlambat/terulang tidak mengembalikan pinjaman yang lebih baru (409 KONFLIK)
+    private Jawaban kembali(Permintaan p) {
+        String nama = p.teks("member");
+        int id = p.angka("buku", 0);
+        if (id <= 0) throw new IllegalArgumentException("parameter 'buku' wajib diisi");
+        int versi = p.angka("versi", -1);
+        return jawabanTransaksi(versi >= 0 ? lib.kembalikanBukuById(nama, id, versi) : lib.kembalikanBukuById(nama, id));
+    }
+
+    // POST /api/reservasi  member=<nama>&buku=<id>[&prioritas=<n, besar dulu>]
+    // 409 TERSEDIA = langsung pinjam saja; posisi antrean terlihat di GET /api/member
+    private Jawaban reservasi(Permintaan p) {
+        String nama = p.teks("member");
+        int id = p.angka("buku", 0);
+        Buku b = lib.getBukuById(id);
+        if (b == null) {
+            return jawabanTransaksi(HasilTransaksi.gagal(HasilTransaksi.Status.BUKU_TIDAK_DITEMUKAN, "Buku " + id + " tidak ada."));
+        }
+        return jawabanTransaksi(lib.reservasiBuku(nama, b, p.angka("prioritas", 0)));
+    }
+
+    // POST /api/reservasi/batal  member=<nama>&buku=<id>
+    private Jawaban batalReservasi(Permintaan p) {
+        String nama = p.teks("member");
+        int id = p.angka("buku", 0);
+        if (id <= 0) throw new IllegalArgumentException("parameter 'buku' wajib diisi");
+        return jawabanTransaksi(lib.batalkanReservasi(nama, id));
+    }
+
+    private static Jawaban jawabanTransaksi(HasilTransaksi h) {
+        int status;
+        switch (h.getStatus()) {
+            case BERHASIL: status = 200; break;
+            case MEMBER_TIDAK_DITEMUKAN:
+            case BUKU_TIDAK_DITEMUKAN: status = 404; break;
+            case ERROR: status = 500; break;
+            default: status = 409; // SEDANG_DIPINJAM, KUOTA_PENUH, TIDAK_DIPINJAM, KONFLIK, DITAHAN, TERSEDIA, SUDAH_ANTRE
+        }
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("status", h.getStatus().name());
+        m.put("pesan", h.getPesan());
+        m.put("buku", h.getBuku() == null ? null : jsonBuku(h.getBuku()));
+        return new Jawaban(status, m);
+    }
+
+    // GET /api/log?offset=0&batas=50 — log aktif saja, terbaru dulu
+    private Jawaban log(Permintaan p) {
+        List<Object> data = new ArrayList<>();
+        for (Object[] baris : lib.getHalamanLog(null, Math.max(0, p.angka("offset", 0)), p.batas(50))) {
+            CatatanLog c = (CatatanLog) baris[4];
+            Map<String, Object> j = new LinkedHashMap<>();
+            j.put("id", c.id());
+            j.put("waktu", c.getTanggalTeks());
+            j.put("aksi", c.aksi());
+            j.put("judulBuku", c.judulBuku());
+            j.put("member", c.namaMember());
+            j.put("keterangan", c.keterangan());
+            data.add(j);
+        }
+        return new Jawaban(200, data);
+    }
+
+    // GET /api/log/harian?dari=yyyy-MM-dd&sampai=yyyy-MM-dd (sampai tidak termasuk) — rollup arsip
+    private Jawaban logHarian(Permintaan p) {
+        LocalDate dari, sampai;
+        try {
+            dari = LocalDate.parse(p.teks("dari"));
+            sampai = LocalDate.parse(p.teks("sampai", dari.plusDays(1).toString()));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("tanggal harus yyyy-MM-dd");
+        }
+        List<Object> data = new ArrayList<>();
+        for (Object[] baris : lib.getRingkasanLogHarian(dari, sampai)) {
+            Map<String, Object> j = new LinkedHashMap<>();
+            j.put("tanggal", baris[0].toString());
+            j.put("aksi", baris[1]);
+            j.put("judulBuku", baris[2]);
+            j.put("jumlah", baris[3]);
+            data.add(j);
+        }
+        return new Jawaban(200, data);
+    }
+
+    // GET /api/metrik — laporan teks Metrik + statistik endpoint
+    private Jawaban metrik(Permintaan p) {
+        return new Jawaban(200, Metrik.laporan() + "\n" + this + "\n");
+    }
+
+    /* ==========================================================
+       BAGIAN 4: JSON
+       ========================================================== */
+
+    private static List<Object> daftarBuku(List<Buku> daftar) {
+        List<Object> hasil = new ArrayList<>(daftar.size());
+        for (Buku b : daftar) hasil.add(jsonBuku(b));
+        return hasil;
+    }
+
+    private static Map<String, Object> jsonBuku(Buku b) {
+        Map<String, Object> j = new LinkedHashMap<>();
+        j.put("id", b.getId());
+        j.put("judul", b.getJudul());
+        j.put("pengarang", b.getPengarang());
+        j.put("jenis", b instanceof BukuFiksi ? "Fiksi" : "NonFiksi");
+        j.put("kategori", b.getInfoKhusus());
+        j.put("dipinjam", b.isDipinjam());
+        j.put("versi", b.getVersi());
+        return j;
+    }
+
+    // Penulis JSON minimal: Map, List, String, Number, Boolean, null
+    static final class Json {
+        private Json() { }
+
+        static String tulis(Object nilai) {
+            StringBuilder sb = new StringBuilder(256);
+            tulis(sb, nilai);
+            return sb.toString();
+        }
+
+        private static void tulis(StringBuilder sb, Object nilai) {
+            if (nilai == null) {
+                sb.append("null");
+            } else if (nilai instanceof String s) {
+                teks(sb, s);
+            } else if (nilai instanceof Number || nilai instanceof Boolean) {
+                sb.append(nilai);
+            } else if (nilai instanceof Map<?, ?> m) {
+                sb.append('{');
+                boolean pertama = true;
+                for (Map.Entry<?, ?> e : m.entrySet()) {
+                    if (!pertama) sb.append(',');
+                    pertama = false;
+                    teks(sb, String.valueOf(e.getKey()));
+                    sb.append(':');
+                    tulis(sb, e.getValue());
+                }
+                sb.append('}');
+            } else if (nilai instanceof List<?> l) {
+                sb.append('[');
+                for (int i = 0; i < l.size(); i++) {
+                    if (i > 0) sb.append(',');
+                    tulis(sb, l.get(i));
+                }
+                sb.append(']');
+            } else {
+                teks(sb, nilai.toString());
+            }
+        }
+
+        private static void teks(StringBuilder sb, String s) {
+            sb.append('"');
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                switch (c) {
+                    case '"': sb.append("\\\""); break;
+                    case '\\': sb.append("\\\\"); break;
+                    case '\n': sb.append("\\n"); break;
+                    case '\r': sb.append("\\r"); break;
+                    case '\t': sb.append("\\t"); break;
+                    default:
+                        if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                        else sb.append(c);
+                }
+            }
+            sb.append('"');
+        }
+    }
+
+    /* ==========================================================
+       STATISTIK
+       ========================================================== */
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("ServerApi[host=" + host + ", port=" + port + "]");
+        for (Endpoint e : endpoint.values()) {
+            sb.append(String.format("%n  %-15s kuota=%4d aktif=%4d dilayani=%,d ditolak=%,d",
+                    e.nama, e.kuota, e.kuota - e.izin.availablePermits(), e.dilayani.get(), e.ditolak.get()));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,105 @@
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+
+// Siklus hidup log aktivitas di background.
+// Log aktif (tabel 'perpustakaan') hanya menyimpan log.hotDays hari terakhir, jadi tampilan admin,
+// COUNT(*) dan backup tidak ikut membesar. Secara berkala (TugasBerkala) hari yang lebih tua dipindah
+// ke arsip bulanan sambil diringkas per hari/aksi/buku (lihat Penyimpanan.arsipkanLogHari), lalu
+// arsip mentah yang melewati log.retentionMonths dihapus. Rollup harian disimpan selamanya.
+public class SiklusLog {
+
+    private final Penyimpanan penyimpanan;
+    private final int hariAktif;
+    private final int bulanRetensi;
+    private final TugasBerkala tugas = new TugasBerkala("SiklusLog", this::putaran);
+
+    // --- Statistik ---
+    private final AtomicLong hariDiarsip = new AtomicLong();
+    private final AtomicLong barisDiarsip = new AtomicLong();
+    private final AtomicLong bulanDihapus = new AtomicLong();
+
+    // Dipanggil (di thread tugas-berkala) setelah satu putaran memindah baris, dengan jumlahnya
+    private volatile LongConsumer setelahArsip = n -> { };
+
+    public SiklusLog(Penyimpanan penyimpanan, int hariAktif, int bulanRetensi, long intervalMenit) {
+        this.penyimpanan = penyimpanan;
+        this.hariAktif = hariAktif;
+        this.bulanRetensi = bulanRetensi;
+
+        // Putaran pertama sedikit setelah startup, supaya tidak berebut koneksi dengan pemuatan katalog
+        if (isAktif()) tugas.mulai(1, intervalMenit, TimeUnit.MINUTES);
+    }
+
+    // Dibuat dari konfigurasi (perpustakaan.properties / -Dperpus.log.*)
+    public static SiklusLog dariKonfigurasi(Penyimpanan penyimpanan) {
+        return new SiklusLog(penyimpanan,
+                Database.getIntSetting("log.hotDays", 90),
+                Database.getIntSetting("log.retentionMonths", 0),
+                Database.getIntSetting("log.compactIntervalMin", 60));
+    }
+
+    // log.hotDays <= 0 atau engine tanpa arsip (memori): log disimpan apa adanya
+    public boolean isAktif() {
+        return hariAktif > 0 && penyimpanan.dukungArsipLog();
+    }
+
+    /* ==========================================================
+       SATU PUTARAN
+       ========================================================== */
+
+    // Hari demi hari dari yang tertua, satu transaksi per hari; hasil = baris yang dipindah.
+    // Bisa juga dipanggil langsung (mis. dari benchmark) di luar jadwal.
+    public long jalankan() {
+        return isAktif() ? tugas.jalankan() : 0;
+    }
+
+    private long putaran() throws SQLException {
+        long total = 0;
+        try {
+            LocalDate batas = LocalDate.now().minusDays(hariAktif);
+            LocalDate hari;
+            while (!tugas.isBerhenti() && (hari = penyimpanan.hariLogTertua()) != null && hari.isBefore(batas)) {
+                long n = penyimpanan.arsipkanLogHari(hari);
+                if (n == 0) break; // Sedang dikerjakan instance lain
+                hariDiarsip.incrementAndGet();
+                barisDiarsip.addAndGet(n);
+                total += n;
+            }
+            if (bulanRetensi > 0 && !tugas.isBerhenti()) {
+                bulanDihapus.addAndGet(penyimpanan.hapusArsipLogSebelum(YearMonth.now().minusMonths(bulanRetensi)));
+            }
+        } finally {
+            // Hari yang sudah dipindah tetap dilaporkan walau putaran gagal di tengah
+            if (total > 0) {
+                System.out.printf("Siklus log: %,d baris dipindah ke arsip%n", total);
+                setelahArsip.accept(total);
+            }
+        }
+        return total;
+    }
+
+    public void setSetelahArsip(LongConsumer setelahArsip) { this.setelahArsip = setelahArsip; }
+
+    // Hari yang sedang diarsip diselesaikan dulu
+    public void tutup() { tugas.tutup(); }
+
+    /* ==========================================================
+       STATISTIK
+       ========================================================== */
+
+    public long getHariDiarsip() { return hariDiarsip.get(); }
+    public long getBarisDiarsip() { return barisDiarsip.get(); }
+    public long getBulanDihapus() { return bulanDihapus.get(); }
+    public long getGagal() { return tugas.getGagal(); }
+    public long getTerakhirJalan() { return tugas.getTerakhirJalan(); }
+
+    @Override
+    public String toString() {
+        return String.format("SiklusLog[aktif=%s, hariAktif=%d, retensiBulan=%d, hariDiarsip=%d, barisDiarsip=%d, bulanDihapus=%d, gagal=%d]",
+                isAktif(), hariAktif, bulanRetensi, getHariDiarsip(), getBarisDiarsip(), getBulanDihapus(), getGagal());
+    }
+}
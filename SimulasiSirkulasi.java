@@ -0,0 +1,434 @@
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Simulasi sirkulasi bersamaan + pemeriksa kebenaran.
+// Mengisi N member & M buku baru (nama unik per putaran, data lain di DB tidak disentuh), lalu
+// banyak thread menjalankan campuran pinjam / kembali / cari terhadap Perpustakaan selama durasi
+// tertentu. Sebagian pinjaman diarahkan ke sekelompok kecil buku "panas" supaya benar-benar
+// terjadi rebutan buku & kuota member yang sama. Dilaporkan: throughput, persentil latensi dan
+// sebaran hasil per operasi. Setelah itu keadaan penyimpanan dibandingkan dengan semua transaksi
+// yang dilaporkan BERHASIL:
+//   - tidak ada buku yang dipinjam dua kali (pinjam - kembali per buku hanya 0 atau 1)
+//   - status & peminjam tiap buku di DB sama dengan pinjaman berhasil terakhir; cache katalog sama
+//   - tidak ada member melebihi batas_pinjam; jumlah pinjamannya = pinjam - kembali miliknya
+//   - jumlah baris log PINJAM / KEMBALI = jumlah transaksi berhasil
+// Keluar dengan kode 1 jika ada pelanggaran.
+//
+// Contoh:
+//   java -cp .:mysql-connector.jar SimulasiSirkulasi --url jdbc:mysql://localhost:3306/perpus_uji \
+//        --member 200 --buku 2000 --thread 64 --durasi 30 --campuran pinjam=45,kembali=45,cari=10
+//   java SimulasiSirkulasi --engine memori --thread 64
+//
+// Sebaiknya DB terpisah: data simulasi (member "Sim...", buku "Sim...", log-nya) tetap tertinggal.
+public class SimulasiSirkulasi {
+
+    private static final String[] KATA = {
+            "algoritma", "sejarah", "laut", "kopi", "hujan", "kota", "gunung", "bintang", "rahasia", "jalan"
+    };
+
+    private enum Aksi { PINJAM, KEMBALI, CARI }
+
+    /* ==========================================================
+       BAGIAN 1: PARAMETER & MAIN
+       ========================================================== */
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> arg = bacaArgumen(args);
+        String url = arg.get("url");
+        boolean memori = "memori".equalsIgnoreCase(arg.get("engine"));
+        if (url == null && !memori) {
+            System.out.println("Pemakaian: java SimulasiSirkulasi (--url <jdbc-url> [--user u] [--password p] | --engine memori)\n" +
+                    "  [--member 200] [--buku 2000] [--batas 1-3] [--thread 64] [--durasi 20]\n" +
+                    "  [--campuran pinjam=45,kembali=45,cari=10] [--panas 0.5] [--seed 42] [--csv file]");
+            return;
+        }
+
+        int jumlahMember = Integer.parseInt(arg.getOrDefault("member", "200"));
+        int jumlahBuku = Integer.parseInt(arg.getOrDefault("buku", "2000"));
+        String[] batas = arg.getOrDefault("batas", "1-3").split("-");
+        int batasMin = Integer.parseInt(batas[0].trim());
+        int batasMaks = Integer.parseInt(batas[batas.length - 1].trim());
+        int jumlahThread = Integer.parseInt(arg.getOrDefault("thread", "64"));
+        int durasi = Integer.parseInt(arg.getOrDefault("durasi", "20"));
+        double panas = Double.parseDouble(arg.getOrDefault("panas", "0.5"));
+        long seed = Long.parseLong(arg.getOrDefault("seed", String.valueOf(System.currentTimeMillis())));
+        int[] bobot = bacaCampuran(arg.getOrDefault("campuran", "pinjam=45,kembali=45,cari=10"));
+
+        // Harus di-set sebelum kelas Database dimuat (pool dibuat saat koneksi pertama)
+        if (url != null) System.setProperty("perpus.db.url", url);
+        if (arg.containsKey("user")) System.setProperty("perpus.db.user", arg.get("user"));
+        if (arg.containsKey("password")) System.setProperty("perpus.db.password", arg.get("password"));
+        System.setProperty("perpus.pool.max", String.valueOf(jumlahThread + 4));
+        System.setProperty("perpus.pool.leakThresholdMs", "0");
+        System.setProperty("perpus.schema.explainCheck", "false");
+        System.setProperty("perpus.catalog.snapshot", "-");
+
+        if (!memori) MigrasiSkema.jalankan();
+        Penyimpanan penyimpanan = memori ? new PenyimpananMemori(null, false, 0, 0) : new PenyimpananMysql();
+        String putaran = "Sim" + Long.toString(seed, 36);
+        System.out.printf("Putaran %s: %d member (batas %d-%d), %d buku, %d thread, %d detik, seed %d%n",
+                putaran, jumlahMember, batasMin, batasMaks, jumlahBuku, jumlahThread, durasi, seed);
+
+        long mulaiIsi = System.currentTimeMillis();
+        Data data = isiData(penyimpanan, putaran, jumlahMember, jumlahBuku, batasMin, batasMaks, new Random(seed));
+        Perpustakaan lib = new Perpustakaan(penyimpanan);
+        lib.getKatalog().muatUlang();
+        data.ambilDariKatalog(lib);
+        System.out.printf("Data diisi dalam %.1f s%n", (System.currentTimeMillis() - mulaiIsi) / 1000.0);
+
+        Timestamp mulaiLog = new Timestamp(System.currentTimeMillis() - 1000);
+        Beban beban = new Beban(lib, data, bobot, panas);
+        beban.jalankan(jumlahThread, durasi);
+        for (String baris : beban.laporan()) System.out.println(baris);
+
+        // Sisa antrean log ditulis dulu, supaya jumlah baris KEMBALI bisa dibandingkan
+        lib.tutup();
+        List<String> pelanggaran = periksa(lib, penyimpanan, data, beban, mulaiLog);
+
+        System.out.println();
+        if (pelanggaran.isEmpty()) {
+            System.out.println("HASIL: LULUS (semua invarian terpenuhi)");
+        } else {
+            System.out.println("HASIL: GAGAL, " + pelanggaran.size() + " pelanggaran");
+            for (int i = 0; i < Math.min(30, pelanggaran.size()); i++) System.out.println("  - " + pelanggaran.get(i));
+            if (pelanggaran.size() > 30) System.out.println("  ... dan " + (pelanggaran.size() - 30) + " lainnya");
+        }
+
+        if (arg.containsKey("csv")) {
+            Path path = Paths.get(arg.get("csv"));
+            Files.write(path, beban.csv(jumlahThread, pelanggaran.size()), StandardCharsets.UTF_8);
+            System.out.println("Hasil ditulis ke " + path.toAbsolutePath());
+        }
+        System.exit(pelanggaran.isEmpty() ? 0 : 1);
+    }
+
+    private static Map<String, String> bacaArgumen(String[] args) {
+        Map<String, String> m = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            m.put(args[i].replaceFirst("^--", ""), args[i + 1]);
+        }
+        return m;
+    }
+
+    // "pinjam=45,kembali=45,cari=10" -> bobot per Aksi (urut ordinal)
+    private static int[] bacaCampuran(String teks) {
+        int[] bobot = new int[Aksi.values().length];
+        for (String bagian : teks.split(",")) {
+            String[] kv = bagian.split("=");
+            bobot[Aksi.valueOf(kv[0].trim().toUpperCase(Locale.ROOT)).ordinal()] = Integer.parseInt(kv[1].trim());
+        }
+        return bobot;
+    }
+
+    /* ==========================================================
+       BAGIAN 2: PENGISIAN DATA
+       ========================================================== */
+
+    // Member & buku milik putaran ini; indeks array = urutan pengisian
+    private static class Data {
+        final String[] namaMember;
+        final int[] idMember;
+        final int[] batasMember;
+        final int[] idBuku;
+        final Buku[] buku;
+        final Map<Integer, Integer> indeksBuku = new HashMap<>();
+        final Map<String, Integer> indeksMember = new HashMap<>();
+
+        Data(int jumlahMember, int jumlahBuku) {
+            namaMember = new String[jumlahMember];
+            idMember = new int[jumlahMember];
+            batasMember = new int[jumlahMember];
+            idBuku = new int[jumlahBuku];
+            buku = new Buku[jumlahBuku];
+        }
+
+        // Objek Buku yang dipakai pekerja harus objek dari cache katalog, sama seperti di GUI
+        void ambilDariKatalog(Perpustakaan lib) {
+            for (int i = 0; i < idBuku.length; i++) {
+                buku[i] = lib.getBukuById(idBuku[i]);
+                indeksBuku.put(idBuku[i], i);
+            }
+            for (int i = 0; i < namaMember.length; i++) indeksMember.put(namaMember[i], i);
+        }
+    }
+
+    // Lewat API penyimpanan, jadi sama untuk MySQL & engine memori
+    private static Data isiData(Penyimpanan p, String putaran, int jumlahMember, int jumlahBuku,
+                                int batasMin, int batasMaks, Random acak) throws SQLException {
+        Data d = new Data(jumlahMember, jumlahBuku);
+        for (int i = 0; i < jumlahMember; i++) {
+            d.namaMember[i] = putaran + " Member " + i;
+            d.batasMember[i] = batasMin + acak.nextInt(batasMaks - batasMin + 1);
+            d.idMember[i] = p.tambahMember(d.namaMember[i], putaran.toLowerCase(Locale.ROOT) + "." + i + "@simulasi.id",
+                    null, d.batasMember[i]);
+        }
+        List<Buku> chunk = new ArrayList<>(1000);
+        int sudah = 0;
+        for (int i = 0; i < jumlahBuku; i++) {
+            String judul = String.format("%s %06d %s %s", putaran, i, KATA[i % KATA.length], KATA[(i / KATA.length) % KATA.length]);
+            chunk.add((i & 1) == 0 ? new BukuFiksi(judul, "Pengarang Simulasi", "Novel")
+                    : new BukuNonFiksi(judul, "Pengarang Simulasi", "Sains"));
+            if (chunk.size() == 1000 || i == jumlahBuku - 1) {
+                p.tambahBukuMassal(chunk, n -> null);
+                for (Buku b : chunk) d.idBuku[sudah++] = b.getId();
+                chunk.clear();
+            }
+        }
+        return d;
+    }
+
+    /* ==========================================================
+       BAGIAN 3: BEBAN
+       ========================================================== */
+
+    private static class Beban {
+        final Perpustakaan lib;
+        final Data data;
+        final int[] bobot;
+        final int totalBobot;
+        final double panas;
+        final int jumlahPanas;
+
+        final HistogramLatensi[] latensi = new HistogramLatensi[Aksi.values().length];
+        // "PINJAM BERHASIL", "KEMBALI TIDAK_DIPINJAM", "CARI kosong", ...
+        final Map<String, LongAdder> hasil = new ConcurrentHashMap<>();
+        // Hanya transaksi yang dilaporkan BERHASIL oleh Perpustakaan
+        final AtomicIntegerArray pinjamPerBuku, kembaliPerBuku, pinjamPerMember, kembaliPerMember;
+        // Member dari pinjaman berhasil terakhir per buku (indeks member + 1, 0 = belum pernah)
+        final AtomicIntegerArray peminjamTerakhir;
+        final LongAdder error = new LongAdder();
+        long durasiNanos;
+
+        Beban(Perpustakaan lib, Data data, int[] bobot, double panas) {
+            this.lib = lib;
+            this.data = data;
+            this.bobot = bobot;
+            int t = 0;
+            for (int b : bobot) t += b;
+            this.totalBobot = Math.max(1, t);
+            this.panas = panas;
+            this.jumlahPanas = Math.max(1, data.idBuku.length / 100);
+            for (int i = 0; i < latensi.length; i++) latensi[i] = new HistogramLatensi();
+            pinjamPerBuku = new AtomicIntegerArray(data.idBuku.length);
+            kembaliPerBuku = new AtomicIntegerArray(data.idBuku.length);
+            peminjamTerakhir = new AtomicIntegerArray(data.idBuku.length);
+            pinjamPerMember = new AtomicIntegerArray(data.idMember.length);
+            kembaliPerMember = new AtomicIntegerArray(data.idMember.length);
+        }
+
+        void jalankan(int jumlahThread, int durasiDetik) throws InterruptedException {
+            long batas = System.nanoTime() + durasiDetik * 1_000_000_000L;
+            CountDownLatch selesai = new CountDownLatch(jumlahThread);
+            long mulai = System.nanoTime();
+            for (int i = 0; i < jumlahThread; i++) {
+                Thread t = new Thread(() -> {
+                    try {
+                        while (System.nanoTime() < batas) langkah();
+                    } finally {
+                        selesai.countDown();
+                    }
+                }, "simulasi-" + i);
+                t.setDaemon(true);
+                t.start();
+            }
+            selesai.await();
+            durasiNanos = System.nanoTime() - mulai;
+        }
+
+        private void langkah() {
+            ThreadLocalRandom r = ThreadLocalRandom.current();
+            int pilih = r.nextInt(totalBobot);
+            Aksi aksi = Aksi.PINJAM;
+            for (Aksi a : Aksi.values()) {
+                if (pilih < bobot[a.ordinal()]) {
+                    aksi = a;
+                    break;
+                }
+                pilih -= bobot[a.ordinal()];
+            }
+
+            long t0 = System.nanoTime();
+            try {
+                String status;
+                switch (aksi) {
+                    case PINJAM: status = pinjam(r); break;
+                    case KEMBALI: status = kembali(r); break;
+                    default: status = cari(r);
+                }
+                hasil.computeIfAbsent(aksi + " " + status, k -> new LongAdder()).increment();
+            } catch (RuntimeException e) {
+                error.increment();
+                hasil.computeIfAbsent(aksi + " EXCEPTION", k -> new LongAdder()).increment();
+                if (error.sum() <= 5) e.printStackTrace();
+            } finally {
+                latensi[aksi.ordinal()].catat(System.nanoTime() - t0);
+            }
+        }
+
+        private String pinjam(ThreadLocalRandom r) {
+            int m = r.nextInt(data.idMember.length);
+            int b = r.nextDouble() < panas ? r.nextInt(jumlahPanas) : r.nextInt(data.idBuku.length);
+            HasilTransaksi h = lib.pinjamBuku(data.namaMember[m], data.buku[b]);
+            if (h.isBerhasil()) {
+                pinjamPerBuku.incrementAndGet(b);
+                pinjamPerMember.incrementAndGet(m);
+                peminjamTerakhir.set(b, m + 1);
+            }
+            return h.getStatus().name();
+        }
+
+        // Buku yang sedang dipinjam member ini; jika tidak ada, buku acak (harus ditolak TIDAK_DIPINJAM)
+        private String kembali(ThreadLocalRandom r) {
+            int m = r.nextInt(data.idMember.length);
+            Member anggota = lib.getAnggotaById(data.idMember[m]);
+            List<Buku> dipinjam = anggota == null ? List.of() : lib.getBukuDipinjam(anggota);
+            int idBuku = dipinjam.isEmpty()
+                    ? data.idBuku[r.nextInt(data.idBuku.length)]
+                    : dipinjam.get(r.nextInt(dipinjam.size())).getId();
+            HasilTransaksi h = lib.kembalikanBukuById(data.namaMember[m], idBuku);
+            if (h.isBerhasil()) {
+                Integer b = data.indeksBuku.get(idBuku);
+                if (b != null) kembaliPerBuku.incrementAndGet(b);
+                kembaliPerMember.incrementAndGet(m);
+            }
+            return h.getStatus().name();
+        }
+
+        private String cari(ThreadLocalRandom r) {
+            List<Buku> hasilCari = lib.cariBuku(KATA[r.nextInt(KATA.length)] + " " + KATA[r.nextInt(KATA.length)]);
+            return hasilCari.isEmpty() ? "kosong" : "ada";
+        }
+
+        long jumlahBerhasil(AtomicIntegerArray a) {
+            long n = 0;
+            for (int i = 0; i < a.length(); i++) n += a.get(i);
+            return n;
+        }
+
+        List<String> laporan() {
+            List<String> baris = new ArrayList<>();
+            baris.add("");
+            baris.add(String.format(Locale.ROOT, "Durasi %.1f s, error tak terduga: %d", durasiNanos / 1e9, error.sum()));
+            for (Aksi a : Aksi.values()) {
+                HistogramLatensi h = latensi[a.ordinal()];
+                if (h.getJumlah() == 0) continue;
+                baris.add(String.format(Locale.ROOT,
+                        "%-8s %,10d op %,10.1f ops/s  p50=%,8dus p90=%,8dus p99=%,8dus p99.9=%,8dus maks=%,9dus",
+                        a, h.getJumlah(), h.getJumlah() * 1e9 / durasiNanos, h.persentil(50) / 1000,
+                        h.persentil(90) / 1000, h.persentil(99) / 1000, h.persentil(99.9) / 1000, h.getMaks() / 1000));
+            }
+            List<String> kunci = new ArrayList<>(hasil.keySet());
+            kunci.sort(null);
+            for (String k : kunci) baris.add(String.format("  %-30s %,10d", k, hasil.get(k).sum()));
+            return baris;
+        }
+
+        List<String> csv(int jumlahThread, int pelanggaran) {
+            List<String> baris = new ArrayList<>();
+            baris.add("aksi,thread,ops,ops_per_detik,p50_us,p90_us,p99_us,p999_us,maks_us,pelanggaran");
+            for (Aksi a : Aksi.values()) {
+                HistogramLatensi h = latensi[a.ordinal()];
+                baris.add(String.format(Locale.ROOT, "%s,%d,%d,%.1f,%d,%d,%d,%d,%d,%d",
+                        a, jumlahThread, h.getJumlah(), h.getJumlah() * 1e9 / Math.max(1, durasiNanos),
+                        h.persentil(50) / 1000, h.persentil(90) / 1000, h.persentil(99) / 1000,
+                        h.persentil(99.9) / 1000, h.getMaks() / 1000, pelanggaran));
+            }
+            return baris;
+        }
+    }
+
+    /* ==========================================================
+       BAGIAN 4: PEMERIKSAAN INVARIAN
+       ========================================================== */
+
+    private static List<String> periksa(Perpustakaan lib, Penyimpanan p, Data d, Beban beban, Timestamp mulaiLog)
+            throws Exception {
+        List<String> pelanggaran = new ArrayList<>();
+
+        // Keadaan pinjaman di penyimpanan (bukan cache): id buku -> nama peminjam
+        Map<Integer, String> peminjamDb = new HashMap<>();
+        for (Object[] baris : p.halamanPinjaman(null, 0, Integer.MAX_VALUE)) {
+            int id = (Integer) baris[3];
+            if (d.indeksBuku.containsKey(id)) peminjamDb.put(id, (String) baris[2]);
+        }
+
+        // 1. Per buku: pinjam - kembali hanya 0/1, cocok dengan DB & cache katalog
+        for (int b = 0; b < d.idBuku.length; b++) {
+            int id = d.idBuku[b];
+            int bersih = beban.pinjamPerBuku.get(b) - beban.kembaliPerBuku.get(b);
+            String diDb = peminjamDb.get(id);
+            if (bersih > 1) {
+                pelanggaran.add("buku " + id + " dipinjam ganda: " + beban.pinjamPerBuku.get(b) + " pinjam berhasil, "
+                        + beban.kembaliPerBuku.get(b) + " kembali");
+            } else if (bersih < 0) {
+                pelanggaran.add("buku " + id + " lebih sering dikembalikan (" + beban.kembaliPerBuku.get(b)
+                        + ") daripada dipinjam (" + beban.pinjamPerBuku.get(b) + ")");
+            } else if ((bersih == 1) != (diDb != null)) {
+                pelanggaran.add("buku " + id + ": transaksi berhasil menyisakan " + (bersih == 1 ? "pinjaman" : "tidak ada pinjaman")
+                        + ", DB " + (diDb != null ? "dipinjam " + diDb : "tersedia"));
+            } else if (bersih == 1 && !d.namaMember[beban.peminjamTerakhir.get(b) - 1].equals(diDb)) {
+                pelanggaran.add("buku " + id + ": peminjam di DB " + diDb + ", pinjaman berhasil terakhir oleh "
+                        + d.namaMember[beban.peminjamTerakhir.get(b) - 1]);
+            }
+            Buku diKatalog = lib.getBukuById(id);
+            if (diKatalog == null || diKatalog.isDipinjam() != (diDb != null)) {
+                pelanggaran.add("buku " + id + ": cache katalog " + (diKatalog == null ? "tidak ada"
+                        : diKatalog.isDipinjam() ? "dipinjam" : "tersedia") + ", DB " + (diDb != null ? "dipinjam" : "tersedia"));
+            }
+        }
+
+        // 2. Per member: tidak melebihi batas, jumlah pinjaman = pinjam - kembali
+        for (int m = 0; m < d.idMember.length; m++) {
+            Member anggota = p.muatMemberById(d.idMember[m]);
+            int dipegang = anggota == null ? 0 : anggota.getDaftarDipinjam().size();
+            int bersih = beban.pinjamPerMember.get(m) - beban.kembaliPerMember.get(m);
+            if (dipegang > d.batasMember[m]) {
+                pelanggaran.add(d.namaMember[m] + " memegang " + dipegang + " buku, batas " + d.batasMember[m]);
+            }
+            if (dipegang != bersih) {
+                pelanggaran.add(d.namaMember[m] + ": DB " + dipegang + " pinjaman, transaksi berhasil menyisakan " + bersih);
+            }
+        }
+
+        // 3. Log: satu baris PINJAM / KEMBALI per transaksi berhasil
+        long[] jumlahLog = new long[2];
+        p.bacaLog(mulaiLog, null, c -> {
+            if (c.namaMember() != null && d.indeksMember.containsKey(c.namaMember())) {
+                if ("PINJAM".equals(c.aksi())) jumlahLog[0]++;
+                else if ("KEMBALI".equals(c.aksi())) jumlahLog[1]++;
+            }
+            return true;
+        });
+        long pinjam = beban.jumlahBerhasil(beban.pinjamPerMember);
+        long kembali = beban.jumlahBerhasil(beban.kembaliPerMember);
+        PenulisLog penulis = lib.getPenulisLog();
+        String catatanLog = penulis.getDibuang() + penulis.getGagal() > 0
+                ? " (PenulisLog: " + penulis.getDibuang() + " dibuang, " + penulis.getGagal() + " gagal)" : "";
+        if (jumlahLog[0] != pinjam) {
+            pelanggaran.add("log PINJAM " + jumlahLog[0] + " baris, pinjam berhasil " + pinjam + catatanLog);
+        }
+        if (jumlahLog[1] != kembali) {
+            pelanggaran.add("log KEMBALI " + jumlahLog[1] + " baris, kembali berhasil " + kembali + catatanLog);
+        }
+
+        System.out.printf("%nDiperiksa: %d buku (%d masih dipinjam), %d member, %,d pinjam & %,d kembali berhasil, log %,d + %,d baris%n",
+                d.idBuku.length, peminjamDb.size(), d.idMember.length, pinjam, kembali, jumlahLog[0], jumlahLog[1]);
+        return pelanggaran;
+    }
+}
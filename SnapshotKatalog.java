@@ -0,0 +1,179 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+// Snapshot biner katalog buku di disk lokal, supaya katalog bisa tampil saat startup tanpa
+// menunggu SELECT * FROM buku. Dibaca lewat memory mapping (tanpa salinan buffer per baris);
+// setelah itu Perpustakaan menyinkronkan dengan DB di background memakai watermark.
+//
+// Format (big-endian):
+//   header : MAGIC, VERSI, watermark (long), dibuat (long, ms), identitas (int panjang + UTF-8),
+//            jumlah string (int), jumlah buku (int)
+//   string : per string int panjang + UTF-8; pengarang/genre/subjek yang sama hanya disimpan sekali
+//   buku   : per buku id (int), flag (byte), versi baris (int), indeks judul, pengarang, info (int, -1 = null)
+//   penutup: CRC32 dari semua byte sebelumnya (int)
+public final class SnapshotKatalog {
+
+    private static final int MAGIC = 0x504B5431; // "PKT1"
+    private static final int VERSI = 2; // 2: + versi baris buku
+
+    private static final int FLAG_DIPINJAM = 1;
+    private static final int FLAG_NON_FIKSI = 2;
+
+    // Isi snapshot yang berhasil dibaca
+    public record Isi(String identitas, long watermark, long dibuatMs, List<Buku> buku) { }
+
+    private SnapshotKatalog() { }
+
+    /* ==========================================================
+       TULIS
+       ========================================================== */
+
+    // Ditulis ke file .tmp lalu di-rename: snapshot lama tetap utuh jika proses mati di tengah jalan
+    public static void tulis(Path file, String identitas, long watermark, Collection<Buku> buku) throws IOException {
+        // Tabel string dulu, supaya indeks di bagian buku sudah pasti
+        Map<String, Integer> indeksString = new HashMap<>();
+        List<String> daftarString = new ArrayList<>();
+        int[] ref = new int[buku.size() * 3];
+        List<Buku> urut = new ArrayList<>(buku);
+        int i = 0;
+        for (Buku b : urut) {
+            ref[i++] = intern(b.getJudul(), indeksString, daftarString);
+            ref[i++] = intern(b.getPengarang(), indeksString, daftarString);
+            ref[i++] = intern(b.getInfoKhusus(), indeksString, daftarString);
+        }
+
+        Path dir = file.toAbsolutePath().getParent();
+        if (dir != null) Files.createDirectories(dir);
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+        try (FileOutputStream fos = new FileOutputStream(tmp.toFile());
+             DataOutputStream out = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(fos, 256 * 1024), crc))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSI);
+            out.writeLong(watermark);
+            out.writeLong(System.currentTimeMillis());
+            tulisTeks(out, identitas);
+            out.writeInt(daftarString.size());
+            out.writeInt(urut.size());
+            for (String s : daftarString) tulisTeks(out, s);
+            i = 0;
+            for (Buku b : urut) {
+                out.writeInt(b.getId());
+                out.writeByte((b.isDipinjam() ? FLAG_DIPINJAM : 0) | (b instanceof BukuFiksi ? 0 : FLAG_NON_FIKSI));
+                out.writeInt(b.getVersi());
+                out.writeInt(ref[i++]);
+                out.writeInt(ref[i++]);
+                out.writeInt(ref[i++]);
+            }
+            out.flush();
+            // CRC ditulis langsung ke stream dasar (tidak ikut dihitung)
+            int nilaiCrc = (int) crc.getValue();
+            new DataOutputStream(fos).writeInt(nilaiCrc);
+            fos.getChannel().force(false);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static int intern(String s, Map<String, Integer> indeks, List<String> daftar) {
+        if (s == null) return -1;
+        Integer i = indeks.get(s);
+        if (i == null) {
+            i = daftar.size();
+            indeks.put(s, i);
+            daftar.add(s);
+        }
+        return i;
+    }
+
+    private static void tulisTeks(DataOutputStream out, String s) throws IOException {
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(b.length);
+        out.write(b);
+    }
+
+    /* ==========================================================
+       BACA
+       ========================================================== */
+
+    // null jika file belum ada; IOException jika rusak/terpotong atau formatnya lain
+    public static Isi baca(Path file) throws IOException {
+        if (!Files.isRegularFile(file)) return null;
+
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long ukuran = ch.size();
+            if (ukuran < 40 || ukuran > Integer.MAX_VALUE) throw new IOException("ukuran snapshot tidak wajar: " + ukuran);
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ukuran);
+
+            int isiPanjang = (int) ukuran - 4;
+            CRC32 crc = new CRC32();
+            crc.update(buf.slice(0, isiPanjang));
+            if ((int) crc.getValue() != buf.getInt(isiPanjang)) throw new IOException("CRC snapshot tidak cocok");
+
+            if (buf.getInt() != MAGIC) throw new IOException("bukan file snapshot katalog");
+            int versi = buf.getInt();
+            if (versi != VERSI) throw new IOException("versi snapshot " + versi + " tidak didukung");
+            long watermark = buf.getLong();
+            long dibuat = buf.getLong();
+            byte[] tampung = new byte[256];
+            String identitas = bacaTeks(buf, tampung);
+            int jumlahString = buf.getInt();
+            int jumlahBuku = buf.getInt();
+
+            // Setiap string di-decode sekali; buku yang memakai pengarang/genre sama berbagi objek String
+            String[] strings = new String[jumlahString];
+            for (int i = 0; i < jumlahString; i++) {
+                int n = buf.getInt();
+                if (n > tampung.length) tampung = new byte[Math.max(n, tampung.length * 2)];
+                buf.get(tampung, 0, n);
+                strings[i] = new String(tampung, 0, n, StandardCharsets.UTF_8);
+            }
+
+            List<Buku> buku = new ArrayList<>(jumlahBuku);
+            for (int i = 0; i < jumlahBuku; i++) {
+                int id = buf.getInt();
+                int flag = buf.get();
+                int versiBaris = buf.getInt();
+                String judul = strings[buf.getInt()];
+                String pengarang = strings[buf.getInt()];
+                int info = buf.getInt();
+                String infoKhusus = info < 0 ? null : strings[info];
+                Buku b = (flag & FLAG_NON_FIKSI) != 0
+                        ? new BukuNonFiksi(judul, pengarang, infoKhusus)
+                        : new BukuFiksi(judul, pengarang, infoKhusus);
+                b.setId(id);
+                b.setDipinjam((flag & FLAG_DIPINJAM) != 0);
+                b.setVersi(versiBaris);
+                buku.add(b);
+            }
+            if (buf.position() != isiPanjang) throw new IOException("panjang snapshot tidak cocok");
+            return new Isi(identitas, watermark, dibuat, buku);
+        } catch (RuntimeException e) {
+            // Indeks/panjang di luar batas (BufferUnderflow, ArrayIndexOutOfBounds): anggap rusak
+            throw new IOException("snapshot rusak: " + e, e);
+        }
+    }
+
+    private static String bacaTeks(ByteBuffer buf, byte[] tampung) {
+        int n = buf.getInt();
+        byte[] b = n <= tampung.length ? tampung : new byte[n];
+        buf.get(b, 0, n);
+        return new String(b, 0, n, StandardCharsets.UTF_8);
+    }
+}
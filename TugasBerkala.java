@@ -0,0 +1,98 @@
+import java.sql.SQLException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Pekerjaan berkala di background (SiklusLog, PenjadwalReservasi, ...).
+// Semua tugas berbagi satu penjadwal kecil milik proses (thread daemon "tugas-berkala-N"), bukan satu
+// thread per tugas per Perpustakaan. Satu putaran = kerja.jalankan() di bawah Metrik; kegagalan
+// dicatat dan tidak menghentikan jadwal berikutnya. tutup() menunggu putaran yang sedang berjalan.
+public final class TugasBerkala {
+
+    // Satu putaran; hasil = jumlah yang dikerjakan (untuk statistik)
+    public interface Kerja {
+        long jalankan() throws SQLException;
+    }
+
+    // 2 thread: putaran yang panjang (mis. arsip satu hari log) tidak menunda tugas lain
+    private static final ScheduledExecutorService JADWAL = Executors.newScheduledThreadPool(2, new ThreadFactory() {
+        private final AtomicInteger nomor = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "tugas-berkala-" + nomor.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    });
+
+    private final String nama;
+    private final Kerja kerja;
+    private volatile boolean berhenti = false;
+    private ScheduledFuture<?> jadwal;
+    private final Runnable kaitShutdown = this::tutup;
+
+    // --- Statistik ---
+    private final AtomicLong putaran = new AtomicLong();
+    private final AtomicLong gagal = new AtomicLong();
+    private volatile long terakhirJalan;
+
+    public TugasBerkala(String nama, Kerja kerja) {
+        this.nama = nama;
+        this.kerja = kerja;
+    }
+
+    // Dijadwalkan dengan jeda tetap; dihentikan sebelum pool koneksi ditutup
+    public synchronized void mulai(long jedaAwal, long interval, TimeUnit satuan) {
+        if (jadwal != null || berhenti) return;
+        jadwal = JADWAL.scheduleWithFixedDelay(this::jalankan, jedaAwal, Math.max(1, interval), satuan);
+        Database.tambahTugasShutdown(kaitShutdown);
+    }
+
+    // Bisa juga dipanggil langsung (mis. dari benchmark/simulasi) di luar jadwal; hasil = kerja.jalankan()
+    @SuppressWarnings("try") // op hanya menutup pengukuran Metrik
+    public synchronized long jalankan() {
+        if (berhenti) return 0;
+        long hasil = 0;
+        try (Metrik.Operasi op = Metrik.mulai(nama + ".jalankan")) {
+            try {
+                hasil = kerja.jalankan();
+            } catch (SQLException | RuntimeException e) {
+                // RuntimeException juga ditangkap: yang lolos dari scheduleWithFixedDelay membatalkan jadwalnya
+                Metrik.tandaiGagal();
+                gagal.incrementAndGet();
+                System.out.println(nama + " gagal: " + e.getMessage());
+            }
+        }
+        putaran.incrementAndGet();
+        terakhirJalan = System.currentTimeMillis();
+        return hasil;
+    }
+
+    // Putaran yang sedang berjalan diselesaikan dulu (jalankan() memegang kunci yang sama)
+    public void tutup() {
+        if (berhenti) return;
+        berhenti = true;
+        ScheduledFuture<?> j;
+        synchronized (this) {
+            j = jadwal;
+        }
+        if (j != null) j.cancel(false);
+        Database.hapusTugasShutdown(kaitShutdown);
+    }
+
+    public boolean isBerhenti() { return berhenti; }
+
+    public long getPutaran() { return putaran.get(); }
+    public long getGagal() { return gagal.get(); }
+    public long getTerakhirJalan() { return terakhirJalan; }
+
+    @Override
+    public String toString() {
+        return String.format("%s[putaran=%d, gagal=%d]", nama, getPutaran(), getGagal());
+    }
+}
@@ -0,0 +1,81 @@
+import javax.swing.SwingUtilities;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+// Menjalankan pekerjaan (query ke Perpustakaan/DB) di luar Event Dispatch Thread Swing,
+// lalu menerapkan hasilnya kembali di EDT. Setiap tugas jalan di virtual thread sendiri,
+// sehingga beberapa refresh yang saling lepas otomatis berjalan paralel.
+public class TugasLatar {
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicInteger berjalan = new AtomicInteger();
+
+    // Tugas "terbaru" per kunci: tugas lama dibatalkan dan hasilnya diabaikan
+    private final Map<String, AtomicLong> generasi = new ConcurrentHashMap<>();
+    private final Map<String, Future<?>> aktif = new ConcurrentHashMap<>();
+
+    // Dipanggil di EDT setiap jumlah tugas berjalan berubah (untuk indikator sibuk)
+    private volatile IntConsumer indikator = n -> { };
+    // Penanganan error default (di EDT)
+    private volatile Consumer<Throwable> penanganError = Throwable::printStackTrace;
+
+    public void setIndikator(IntConsumer indikator) { this.indikator = indikator; }
+    public void setPenanganError(Consumer<Throwable> penangan) { this.penanganError = penangan; }
+
+    public <T> Future<?> jalankan(Callable<T> kerja, Consumer<T> berhasil) {
+        return jalankan(kerja, berhasil, penanganError);
+    }
+
+    public <T> Future<?> jalankan(Callable<T> kerja, Consumer<T> berhasil, Consumer<Throwable> gagal) {
+        return executor.submit(() -> {
+            // Dihitung di dalam tugas: tugas yang dibatalkan sebelum mulai tidak mengubah jumlah
+            ubahJumlah(+1);
+            try {
+                T hasil = kerja.call();
+                diEdt(() -> berhasil.accept(hasil));
+            } catch (Throwable e) {
+                diEdt(() -> gagal.accept(e));
+            } finally {
+                ubahJumlah(-1);
+            }
+        });
+    }
+
+    // Seperti jalankan(), tapi hanya hasil tugas terakhir dengan kunci yang sama yang diterapkan.
+    // Dipakai untuk pencarian: ketikan baru membatalkan pencarian sebelumnya.
+    public <T> void jalankanTerbaru(String kunci, Callable<T> kerja, Consumer<T> berhasil) {
+        long gen = generasi.computeIfAbsent(kunci, k -> new AtomicLong()).incrementAndGet();
+        Future<?> lama = aktif.remove(kunci);
+        if (lama != null) lama.cancel(true);
+
+        Future<?> f = jalankan(kerja,
+                hasil -> {
+                    if (generasi.get(kunci).get() == gen) berhasil.accept(hasil);
+                },
+                e -> {
+                    if (generasi.get(kunci).get() == gen) penanganError.accept(e);
+                });
+        aktif.put(kunci, f);
+    }
+
+    private void ubahJumlah(int delta) {
+        berjalan.addAndGet(delta);
+        // Baca nilai terbaru saat di EDT, agar urutan update dari banyak thread tidak jadi masalah
+        diEdt(() -> indikator.accept(berjalan.get()));
+    }
+
+    private static void diEdt(Runnable r) {
+        if (SwingUtilities.isEventDispatchThread()) r.run();
+        else SwingUtilities.invokeLater(r);
+    }
+
+    public int getJumlahBerjalan() { return berjalan.get(); }
+}